@@ -1,5 +1,7 @@
 package com.rsf.config;
 
+import com.rsf.service.imports.RsfImportPipeline;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.*;
 import org.springframework.scheduling.annotation.*;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
@@ -7,6 +9,7 @@ import java.util.concurrent.Executor;
 
 @Configuration
 @EnableAsync
+@EnableScheduling
 public class AsyncConfig {
     @Bean("rsfExecutor")
     public Executor rsfExecutor() {
@@ -17,4 +20,52 @@ public class AsyncConfig {
         ex.initialize();
         return ex;
     }
-} 
\ No newline at end of file
+
+    /**
+     * Fan-out pool for work inside a single import (ZIP entries).
+     * Kept apart from rsfExecutor so an import running there never waits on its own pool.
+     */
+    @Bean("rsfParseExecutor")
+    public Executor rsfParseExecutor() {
+        int cores = Runtime.getRuntime().availableProcessors();
+        ThreadPoolTaskExecutor ex = new ThreadPoolTaskExecutor();
+        ex.setCorePoolSize(cores);
+        ex.setMaxPoolSize(cores);
+        ex.setThreadNamePrefix("rsf-parse-");
+        ex.initialize();
+        return ex;
+    }
+
+    /**
+     * Sends progress events to SSE and WebSocket clients, so a slow client never holds up the
+     * scheduler thread that flushes them.
+     */
+    @Bean("progressExecutor")
+    public Executor progressExecutor(@Value("${import.progress.send-threads:4}") int threads) {
+        ThreadPoolTaskExecutor ex = new ThreadPoolTaskExecutor();
+        ex.setCorePoolSize(threads);
+        ex.setMaxPoolSize(threads);
+        ex.setThreadNamePrefix("rsf-progress-");
+        ex.initialize();
+        return ex;
+    }
+
+    /**
+     * Long-lived stage workers of the RSF parse/validate pipeline. They block on the pipeline
+     * queues, so they get threads of their own instead of competing with the scans in
+     * rsfParseExecutor that feed them. Sized for every import the scheduler lets run at once;
+     * the queue only holds workers of a new run while those of a finished one are returning.
+     */
+    @Bean("rsfPipelineExecutor")
+    public Executor rsfPipelineExecutor(@Value("${import.max-concurrent:2}") int maxConcurrent,
+                                        @Value("${import.rsf.pipeline.parser-workers:0}") int parserWorkers,
+                                        @Value("${import.rsf.pipeline.validator-workers:0}") int validatorWorkers) {
+        int threads = maxConcurrent * (RsfImportPipeline.workers(parserWorkers) + RsfImportPipeline.workers(validatorWorkers));
+        ThreadPoolTaskExecutor ex = new ThreadPoolTaskExecutor();
+        ex.setCorePoolSize(threads);
+        ex.setMaxPoolSize(threads);
+        ex.setThreadNamePrefix("rsf-pipeline-");
+        ex.initialize();
+        return ex;
+    }
+}
@@ -0,0 +1,22 @@
+package com.rsf.config;
+
+import com.rsf.controller.ImportProgressWebSocketHandler;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+
+@Configuration
+@EnableWebSocket
+@RequiredArgsConstructor
+public class WebSocketConfig implements WebSocketConfigurer {
+
+    private final ImportProgressWebSocketHandler importProgressHandler;
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        registry.addHandler(importProgressHandler, "/api/v1/import/progress/ws")
+                .setAllowedOrigins("http://localhost:3000", "http://localhost:3001");
+    }
+}
@@ -0,0 +1,95 @@
+package com.rsf.controller;
+
+import com.rsf.dto.RsfAnalyticsRow;
+import com.rsf.repo.FileRepo;
+import com.rsf.service.RsfLineAnalytics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+
+/**
+ * Aggregates over the parsed lines of imported RSF files, computed in the database.
+ */
+@RestController
+@RequestMapping("/api/v1/analytics")
+public class AnalyticsController {
+    private static final Logger log = LoggerFactory.getLogger(AnalyticsController.class);
+
+    private final FileRepo fileRepo;
+    private final RsfLineAnalytics analytics;
+
+    @Autowired
+    public AnalyticsController(FileRepo fileRepo, RsfLineAnalytics analytics) {
+        this.fileRepo = fileRepo;
+        this.analytics = analytics;
+    }
+
+    /**
+     * Line counts per type, soins dates and stay totals of one file
+     */
+    @GetMapping("/files/{fileId}")
+    public ResponseEntity<Object> getFileSummary(@PathVariable String fileId) {
+        try {
+            UUID id = UUID.fromString(fileId);
+            if (!fileRepo.existsById(id)) {
+                return ResponseEntity.notFound().build();
+            }
+            return ResponseEntity.ok(analytics.summary(id));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Invalid file id: " + fileId));
+        } catch (Exception e) {
+            log.error("Error computing analytics of file {}", fileId, e);
+            return ResponseEntity.internalServerError()
+                    .body(Map.of("error", "Error computing file analytics: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Aggregates grouped by file, FINESS, month or acte code, e.g.
+     * {@code /aggregates?groupBy=month&finess=123456789&from=2017-01&to=2017-12}
+     */
+    @GetMapping("/aggregates")
+    public ResponseEntity<Map<String, Object>> getAggregates(
+            @RequestParam String groupBy,
+            @RequestParam(required = false) String fileId,
+            @RequestParam(required = false) String finess,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to,
+            @RequestParam(defaultValue = "1000") int limit) {
+        RsfLineAnalytics.GroupBy group;
+        RsfLineAnalytics.Filter filter;
+        try {
+            group = RsfLineAnalytics.GroupBy.valueOf(groupBy.toUpperCase(Locale.ROOT));
+            filter = new RsfLineAnalytics.Filter(
+                    fileId != null && !fileId.isEmpty() ? UUID.fromString(fileId) : null,
+                    finess != null && !finess.isEmpty() ? finess : null,
+                    from != null && !from.isEmpty() ? YearMonth.parse(from) : null,
+                    to != null && !to.isEmpty() ? YearMonth.parse(to) : null);
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Invalid parameter: " + e.getMessage()));
+        }
+
+        try {
+            long start = System.currentTimeMillis();
+            List<RsfAnalyticsRow> rows = analytics.aggregate(group, filter, limit);
+            long duration = System.currentTimeMillis() - start;
+            log.info("Computed {} analytics rows by {} in {} ms", rows.size(), group, duration);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("groupBy", group.name());
+            response.put("rows", rows);
+            response.put("durationMs", duration);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            log.error("Error computing analytics by {}", group, e);
+            return ResponseEntity.internalServerError()
+                    .body(Map.of("error", "Error computing analytics: " + e.getMessage()));
+        }
+    }
+}
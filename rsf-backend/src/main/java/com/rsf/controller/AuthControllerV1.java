@@ -31,9 +31,9 @@ public class AuthControllerV1 {
     @PostMapping("/login")
     public AuthResponse login(@RequestBody @Valid LoginRequest req) {
         try {
-            authManager.authenticate(
+            var auth = authManager.authenticate(
                     new UsernamePasswordAuthenticationToken(req.username(), req.password()));
-            String token = tokens.generate(req.username());
+            String token = tokens.generate((User) auth.getPrincipal());
             return new AuthResponse(token);
         } catch (Exception e) {
             throw e;
@@ -1,14 +1,16 @@
 package com.rsf.controller;
 
 import com.rsf.domain.FileEntity;
+import com.rsf.domain.FileStatus;
 import com.rsf.domain.User;
 import com.rsf.repo.FileRepo;
-import com.rsf.repo.UserRepo;
+import com.rsf.security.UserCache;
+import com.rsf.service.FileDownloadService;
+import com.rsf.service.FileStatusCache;
 import com.rsf.service.StorageService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
-import org.springframework.core.io.Resource;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
@@ -23,24 +25,34 @@ import java.util.UUID;
 public class FileController {
 
     private final StorageService storage;
-    private final UserRepo      users;
+    private final UserCache     userCache;
     private final FileRepo      files;
+    private final FileDownloadService downloads;
+    private final FileStatusCache statuses;
 
+    /**
+     * Stores a file without importing it (imports go through /api/v1/import/upload), so the
+     * file is READY once stored.
+     */
     @PostMapping("/upload")
     public FileEntity upload(@RequestPart MultipartFile file,
                              @AuthenticationPrincipal UserDetails auth) throws IOException {
-        User uploader = users.findByUsername(auth.getUsername())
+        User uploader = userCache.find(auth.getUsername())
                              .orElseThrow(() -> new RuntimeException("user not found"));
-        return storage.store(file, uploader);
+        FileEntity stored = storage.store(file, uploader);
+        stored.setStatus(FileStatus.READY);
+        stored = files.save(stored);
+        statuses.evict(stored.getId());
+        return stored;
     }
 
+    /** Download with ETag/Last-Modified revalidation and Range/If-Range resume */
     @GetMapping("/{id}")
-    public ResponseEntity<Resource> download(@PathVariable UUID id) {
-        Resource res = storage.load(id);
-        return ResponseEntity.ok()
-                .header(HttpHeaders.CONTENT_DISPOSITION,
-                        "attachment; filename=\"" + res.getFilename() + "\"")
-                .body(res);
+    public void download(@PathVariable UUID id, HttpServletRequest request,
+                         HttpServletResponse response) throws IOException {
+        FileEntity file = files.findById(id)
+                    .orElseThrow(() -> new RuntimeException("file not found"));
+        downloads.send(file, request, response);
     }
 
     /** Poll endpoint to fetch current metadata/status of the file */
@@ -1,10 +1,11 @@
 package com.rsf.controller;
 
-import com.rsf.domain.FileStatus;
-import com.rsf.repo.FileRepo;
+import com.rsf.dto.FileStatusView;
+import com.rsf.service.FileStatusCache;
 import lombok.RequiredArgsConstructor;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
 
@@ -13,13 +14,18 @@ import java.util.UUID;
 @RequiredArgsConstructor
 public class FileStatusController {
 
-    private final FileRepo files;
+    private final FileStatusCache statuses;
 
+    /** Poll endpoint: served from a short-lived cache of the status and progress columns */
     @GetMapping("/{id}/status")
-    public Map<String, FileStatus> status(@PathVariable UUID id) {
-        return Map.of("status",
-            files.findById(id)
-                 .orElseThrow(() -> new RuntimeException("file not found"))
-                 .getStatus());
+    public Map<String, Object> status(@PathVariable UUID id) {
+        FileStatusView view = statuses.get(id)
+                .orElseThrow(() -> new RuntimeException("file not found"));
+        Map<String, Object> body = new HashMap<>();
+        body.put("status", view.status());
+        if (view.progress() != null) {
+            body.put("progress", view.progress());
+        }
+        return body;
     }
 } 
\ No newline at end of file
@@ -1,11 +1,40 @@
 package com.rsf.controller;
 
 import com.rsf.domain.FileEntity;
+import com.rsf.domain.FileStatus;
+import com.rsf.domain.ImportJobStatus;
+import com.rsf.domain.UploadSession;
 import com.rsf.domain.User;
+import com.rsf.dto.HoraireUpdateDto;
+import com.rsf.dto.UploadSessionDto;
+import com.rsf.dto.UploadSessionRequest;
 import com.rsf.repo.FileRepo;
-import com.rsf.repo.UserRepo;
+import com.rsf.security.FileAccess;
+import com.rsf.security.UserCache;
+import com.rsf.service.BlobStore;
+import com.rsf.service.FileStatusCache;
+import com.rsf.service.ImportJobService;
+import com.rsf.service.RsfLineAnalytics;
+import com.rsf.service.RsfLineStore;
 import com.rsf.service.StorageService;
-import com.rsf.util.ApplicationContextProvider;
+import com.rsf.service.UnzipService;
+import com.rsf.service.UploadRejectedException;
+import com.rsf.service.UploadSessionService;
+import com.rsf.service.ValidationErrorStore;
+import com.rsf.service.imports.HoraireImportStage;
+import com.rsf.service.imports.ImportContext;
+import com.rsf.service.imports.ImportJobScheduler;
+import com.rsf.service.imports.ImportJobState;
+import com.rsf.service.imports.ImportProgressPublisher;
+import com.rsf.service.imports.ImportQueueFullException;
+import com.rsf.service.imports.ImportStatsAccumulator;
+import com.rsf.service.imports.ProgressSink;
+import com.rsf.service.imports.ProgressTracker;
+import com.rsf.service.imports.RsfErrorSink;
+import com.rsf.service.imports.RsfImportPipeline;
+import com.rsf.util.CancellationToken;
+import com.rsf.util.CountingInputStream;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.poi.ss.usermodel.*;
@@ -14,19 +43,28 @@ import org.apache.poi.hssf.usermodel.HSSFWorkbook;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.util.unit.DataSize;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.io.*;
-import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.text.SimpleDateFormat;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongConsumer;
 import java.util.stream.Collectors;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
@@ -39,74 +77,250 @@ import java.util.zip.ZipInputStream;
 public class ImportController {
     private static final Logger log = LoggerFactory.getLogger(ImportController.class);
     private static final List<String> ALLOWED_EXTENSIONS = Arrays.asList("zip", "xls", "xlsx", "csv", "txt");
+    private static final int EXCEL_MAX_ERROR_DETAILS = 10;
+    private static final String EXCEL_ERRORS_OMITTED = "... and more errors (showing first 10 only)";
+    private static final int ZIP_MAX_ERROR_DETAILS = 100;
+    private static final String ZIP_ERRORS_OMITTED = "Additional errors omitted (too many to display)";
 
     private final StorageService storage;
-    private final UserRepo users;
+    private final UserCache userCache;
     private final FileRepo files;
+    private final Executor rsfParseExecutor;
+    private final HoraireImportStage horaireImportStage;
+    private final ImportJobScheduler importScheduler;
+    private final ImportJobService importJobs;
+    private final ImportProgressPublisher progressPublisher;
+    private final UploadSessionService uploadSessions;
+    private final RsfImportPipeline rsfPipeline;
+    private final UnzipService unzip;
+    private final ValidationErrorStore validationErrors;
+    private final RsfLineStore rsfLines;
+    private final RsfLineAnalytics lineAnalytics;
+    private final FileStatusCache fileStatuses;
     
     @Value("${file.storage-path:uploads}") 
     private String storagePath;
     
-    // Thread-safe storage for import progress and results (in production, use Redis or another persistent store)
-    private final Map<String, Integer> importProgress = new ConcurrentHashMap<>();
-    private final Map<String, List<String>> importErrors = new ConcurrentHashMap<>();
-    private final Map<String, Map<String, Object>> importResults = new ConcurrentHashMap<>();
-    private final Map<String, ValidationResult> validationResults = new ConcurrentHashMap<>();
-    private final Map<String, List<String>> processedDataLines = new ConcurrentHashMap<>();
+    @Value("${import.progress.stream-timeout-ms:1800000}")
+    private long progressStreamTimeoutMs;
+    
+    @Value("${import.max-upload-size:70MB}")
+    private DataSize maxUploadSize;
 
     @PostMapping("/upload")
     public ResponseEntity<?> uploadFile(@RequestPart("file") MultipartFile file,
+                              @RequestParam(value = "batch", defaultValue = "false") boolean batch,
                               @AuthenticationPrincipal UserDetails auth) {
+        log.info("File upload request received: {}, size: {}", file.getOriginalFilename(), file.getSize());
+        
+        // Validate file 
+        ValidationResult validationResult = validateFile(file);
+        if (!validationResult.isValid()) {
+            log.warn("File validation failed: {}", validationResult.getErrors());
+            return ResponseEntity.badRequest().body(Map.of(
+                "success", false,
+                "errors", validationResult.getErrors()
+            ));
+        }
+        
+        return storeAndImport(file.getOriginalFilename(), file.getSize(), batch, auth, validationResult,
+                uploader -> storage.store(file, uploader));
+    }
+    
+    /**
+     * Upload of a raw request body (application/octet-stream or application/zip), streamed
+     * straight into storage without the multipart temp copy. The file name is given as a
+     * query parameter; the size limit is enforced while the body is read.
+     */
+    @PostMapping(value = "/upload/stream", consumes = {MediaType.APPLICATION_OCTET_STREAM_VALUE, "application/zip"})
+    public ResponseEntity<?> uploadStream(@RequestParam("filename") String filename,
+                                          @RequestParam(value = "batch", defaultValue = "false") boolean batch,
+                                          HttpServletRequest request,
+                                          @AuthenticationPrincipal UserDetails auth) {
+        long declaredSize = request.getContentLengthLong();
+        log.info("Streaming upload request received: {}, declared size: {}", filename, declaredSize);
+        
+        ValidationResult validationResult = validateUpload(filename, declaredSize);
+        if (validationResult.isValid() && declaredSize == 0) {
+            validationResult.setValid(false);
+            validationResult.addError("The file is empty");
+        }
+        if (!validationResult.isValid()) {
+            log.warn("File validation failed: {}", validationResult.getErrors());
+            return ResponseEntity.badRequest().body(Map.of(
+                "success", false,
+                "errors", validationResult.getErrors()
+            ));
+        }
+        
+        return storeAndImport(filename, Math.max(declaredSize, 0), batch, auth, validationResult,
+                uploader -> storage.storeStream(request.getInputStream(), filename, maxUploadSize.toBytes(), uploader));
+    }
+    
+    /**
+     * Opens a resumable chunked upload for files over the single-request limit. The answer
+     * gives the session id, the chunk size and the number of chunks to PUT. Sessions belong to
+     * the signed-in user who opens them.
+     */
+    @PostMapping("/upload/sessions")
+    public ResponseEntity<?> createUploadSession(@RequestBody UploadSessionRequest request,
+                                                 @AuthenticationPrincipal UserDetails auth) {
+        log.info("Chunked upload session requested: {}, size: {}", request.filename(), request.size());
+        ValidationResult validationResult = validateUpload(request.filename(), request.size(), uploadSessions.getMaxSize());
+        if (!validationResult.isValid()) {
+            log.warn("File validation failed: {}", validationResult.getErrors());
+            return ResponseEntity.badRequest().body(Map.of(
+                "success", false,
+                "errors", validationResult.getErrors()
+            ));
+        }
+        try {
+            User uploader = caller(auth);
+            UploadSession session = uploadSessions.create(request.filename(), request.size(), uploader);
+            return ResponseEntity.ok(uploadSessions.status(session.getId(), uploader));
+        } catch (UploadRejectedException e) {
+            return ResponseEntity.status(e.getStatus())
+                    .body(Map.of("success", false, "errors", List.of(e.getMessage())));
+        } catch (IOException e) {
+            log.error("Error creating upload session", e);
+            return ResponseEntity.internalServerError()
+                    .body(Map.of("error", "File upload failed: " + e.getMessage()));
+        }
+    }
+    
+    /**
+     * Receives chunk {@code index} of a session as a raw body, with its hex SHA-256 in the
+     * {@code X-Chunk-Checksum} header. Answers with the updated session state.
+     */
+    @PutMapping(value = "/upload/sessions/{sessionId}/chunks/{index}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<?> uploadChunk(@PathVariable UUID sessionId,
+                                         @PathVariable int index,
+                                         @RequestHeader(value = "X-Chunk-Checksum", required = false) String checksum,
+                                         HttpServletRequest request,
+                                         @AuthenticationPrincipal UserDetails auth) {
+        try {
+            return ResponseEntity.ok(uploadSessions.writeChunk(sessionId, index, request.getInputStream(), checksum,
+                    caller(auth)));
+        } catch (UploadRejectedException e) {
+            log.warn("Chunk {} of upload session {} rejected: {}", index, sessionId, e.getMessage());
+            return ResponseEntity.status(e.getStatus())
+                    .body(Map.of("success", false, "errors", List.of(e.getMessage())));
+        } catch (IOException e) {
+            log.error("Error writing chunk {} of upload session {}", index, sessionId, e);
+            return ResponseEntity.internalServerError()
+                    .body(Map.of("error", "File upload failed: " + e.getMessage()));
+        }
+    }
+    
+    /**
+     * Received chunks and byte ranges of a session, for resuming an interrupted upload.
+     */
+    @GetMapping("/upload/sessions/{sessionId}")
+    public ResponseEntity<?> getUploadSession(@PathVariable UUID sessionId,
+                                              @AuthenticationPrincipal UserDetails auth) {
+        try {
+            return ResponseEntity.ok(uploadSessions.status(sessionId, caller(auth)));
+        } catch (UploadRejectedException e) {
+            return ResponseEntity.status(e.getStatus())
+                    .body(Map.of("success", false, "errors", List.of(e.getMessage())));
+        }
+    }
+    
+    /**
+     * Finalises a session once all chunks are in: the assembled file is stored and imported
+     * exactly like a single-request upload.
+     */
+    @PostMapping("/upload/sessions/{sessionId}/complete")
+    public ResponseEntity<?> completeUploadSession(@PathVariable UUID sessionId,
+                                                   @RequestParam(value = "batch", defaultValue = "false") boolean batch,
+                                                   @AuthenticationPrincipal UserDetails auth) {
+        UploadSessionDto session;
+        try {
+            session = uploadSessions.status(sessionId, caller(auth));
+        } catch (UploadRejectedException e) {
+            return ResponseEntity.status(e.getStatus())
+                    .body(Map.of("success", false, "errors", List.of(e.getMessage())));
+        }
+        ValidationResult validationResult = validateUpload(session.filename(), session.size(), uploadSessions.getMaxSize());
+        return storeAndImport(session.filename(), session.size(), batch, auth, validationResult,
+                uploader -> uploadSessions.finalise(sessionId, uploader));
+    }
+    
+    private User caller(UserDetails auth) {
+        return auth != null ? userCache.find(auth.getUsername()).orElse(null) : null;
+    }
+    
+    /**
+     * Writes a file into storage
+     */
+    @FunctionalInterface
+    private interface UploadWriter {
+        FileEntity store(User uploader) throws IOException;
+    }
+    
+    /**
+     * Stores a validated upload and queues its import, or reuses the import of identical content.
+     */
+    private ResponseEntity<?> storeAndImport(String filename, long size, boolean batch, UserDetails auth,
+                                             ValidationResult validationResult, UploadWriter writer) {
+        ImportJobScheduler.ImportJob job = null;
         try {
-            log.info("File upload request received: {}, size: {}", file.getOriginalFilename(), file.getSize());
-            
-            // Validate file 
-            ValidationResult validationResult = validateFile(file);
-            if (!validationResult.isValid()) {
-                log.warn("File validation failed: {}", validationResult.getErrors());
-                return ResponseEntity.badRequest().body(Map.of(
-                    "success", false,
-                    "errors", validationResult.getErrors()
-                ));
-            }
-            
             User uploader = null;
             if (auth != null) {
-                uploader = users.findByUsername(auth.getUsername())
+                uploader = userCache.find(auth.getUsername())
                         .orElse(null);
                 log.info("Upload by user: {}", auth.getUsername());
             } else {
                 log.info("Anonymous upload (no authentication)");
             }
             
-            FileEntity savedFile = storage.store(file, uploader);
+            // Claim a queue place before storing so a full queue costs no disk write
+            job = importScheduler.reserve(auth != null ? auth.getUsername() : null, size, !batch);
+            
+            FileEntity savedFile = writer.store(uploader);
             String fileId = savedFile.getId().toString(); // Get UUID directly from field
             log.info("File saved successfully with ID: {}", fileId);
             
+            // Same content imported before: the new file takes a copy of that import's outcome
+            Optional<FileEntity> imported = findImported(savedFile);
+            if (imported.isPresent()) {
+                copyImport(imported.get(), savedFile);
+                log.info("Duplicate upload of {}, copied import of file {} to file {}", filename, imported.get().getId(), fileId);
+                return ResponseEntity.ok(files.findById(savedFile.getId()).orElse(savedFile));
+            }
+            
             // Initialize progress tracking
-            importProgress.put(fileId, 0);
-            importErrors.put(fileId, new ArrayList<>());
-            validationResults.put(fileId, validationResult);
-            processedDataLines.put(fileId, new ArrayList<>());
+            importJobs.start(fileId, validationResult.getFileType(), validationResult.getDetails());
             
-            // Start processing in background (real processing)
-            new Thread(() -> {
+            // Queue processing on the bounded import scheduler
+            ImportJobScheduler.ImportJob queued = job;
+            job = null;
+            importScheduler.submit(queued, fileId, () -> {
                 try {
-                    processImportInBackground(fileId, file.getOriginalFilename(), savedFile);
+                    processImportInBackground(fileId, filename, savedFile);
                 } catch (Throwable t) {
                     // Catch any error that might be killing the background thread
                     log.error("CRITICAL ERROR in background processing thread: {}", t.getMessage(), t);
-                    // Ensure progress is marked as completed with error state
-                    importProgress.put(fileId, 100);
+                    // Ensure the job is marked as completed with error state
                     Map<String, Object> errorResult = new HashMap<>();
                     errorResult.put("error", true);
                     errorResult.put("message", "Processing failed with critical error: " + t.getMessage());
-                    errorResult.put("filename", file.getOriginalFilename());
-                    importResults.put(fileId, errorResult);
+                    errorResult.put("filename", filename);
+                    importJobs.finish(fileId, errorResult, true);
+                    markFile(savedFile.getId(), FileStatus.ERROR);
                 }
-            }).start();
+            });
             
             return ResponseEntity.ok(savedFile);
+        } catch (ImportQueueFullException e) {
+            log.warn("Upload rejected, import queue full: {}", filename);
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                    .body(Map.of("success", false, "error", e.getMessage()));
+        } catch (UploadRejectedException e) {
+            log.warn("Upload rejected: {}: {}", filename, e.getMessage());
+            return ResponseEntity.status(e.getStatus())
+                    .body(Map.of("success", false, "errors", List.of(e.getMessage())));
         } catch (IOException e) {
             log.error("Error uploading file", e);
             return ResponseEntity.internalServerError()
@@ -115,13 +329,96 @@ public class ImportController {
             log.error("Unexpected error during file upload", e);
             return ResponseEntity.internalServerError()
                     .body(Map.of("error", "Unexpected error: " + e.getMessage()));
+        } finally {
+            if (job != null) {
+                importScheduler.release(job);
+            }
         }
     }
     
+    /**
+     * @return The newest earlier upload of the same content whose import completed
+     */
+    private Optional<FileEntity> findImported(FileEntity file) {
+        if (file.getContentHash() == null) {
+            return Optional.empty();
+        }
+        return files.findByContentHashAndIdNotOrderByUploadedAtDesc(file.getContentHash(), file.getId()).stream()
+                .filter(earlier -> importJobs.find(earlier.getId().toString())
+                        .filter(state -> state.getStatus() == ImportJobStatus.COMPLETED).isPresent())
+                .findFirst();
+    }
+    
+    /**
+     * Gives a re-upload the job, stored errors and line rollup of the earlier import, so its
+     * content is not imported twice. Only the rollup is copied from the parsed lines: the
+     * line tables feed nothing else.
+     */
+    private void copyImport(FileEntity from, FileEntity to) throws IOException {
+        importJobs.copy(from.getId().toString(), to.getId().toString());
+        validationErrors.copy(from.getId(), to.getId());
+        lineAnalytics.copy(from.getId(), to.getId());
+        markFile(to.getId(), from.getStatus());
+    }
+    
+    /**
+     * Cancels a queued or running import. A queued job is dropped at once; a running one
+     * stops at its next cancellation check. Either way the job and its file end up CANCELLED.
+     */
+    @DeleteMapping("/{fileId}")
+    public ResponseEntity<Map<String, Object>> cancelImport(@PathVariable String fileId,
+                                                            @AuthenticationPrincipal UserDetails auth) {
+        UUID id;
+        try {
+            id = UUID.fromString(fileId);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "error", "Invalid file id"));
+        }
+        
+        Optional<FileEntity> file = files.findById(id);
+        if (file.isPresent() && !FileAccess.mayModify(file.get(), auth)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(Map.of("success", false, "error", "Only the uploader can cancel this import"));
+        }
+        
+        Optional<ImportJobState> job = importJobs.find(fileId);
+        if (job.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("success", false, "error", "No import found for file " + fileId));
+        }
+        if (!importJobs.requestCancel(fileId)) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of("success", false, "error", "Import already finished",
+                            "status", job.get().getStatus().name()));
+        }
+        
+        if (importScheduler.cancel(fileId)) {
+            // Never started: nothing will observe the token, so finish it here
+            importJobs.finishCancelled(fileId);
+            markFile(id, FileStatus.CANCELLED);
+            log.info("Cancelled queued import of file {}", fileId);
+            return ResponseEntity.ok(Map.of("fileId", fileId, "status", ImportJobStatus.CANCELLED.name()));
+        }
+        log.info("Cancellation requested for running import of file {}", fileId);
+        return ResponseEntity.accepted().body(Map.of("fileId", fileId, "status", "CANCELLING"));
+    }
+    
+    /**
+     * Sets a file's status from its import job, which owns it from upload to finish.
+     */
+    private void markFile(UUID fileId, FileStatus status) {
+        files.findById(fileId).ifPresent(file -> {
+            file.setStatus(status);
+            files.save(file);
+            fileStatuses.evict(fileId);
+        });
+    }
+    
     @GetMapping("/progress/{fileId}")
     public ResponseEntity<Map<String, Object>> getImportProgress(@PathVariable String fileId) {
         log.debug("Getting progress for file: {}", fileId);
-        if (!importProgress.containsKey(fileId)) {
+        Optional<ImportJobState> job = importJobs.find(fileId);
+        if (job.isEmpty()) {
             log.warn("No progress found for file ID: {}", fileId);
             return ResponseEntity.ok(
                 Map.of(
@@ -134,29 +431,65 @@ public class ImportController {
             );
         }
         
+        ImportJobState state = job.get();
         Map<String, Object> response = new HashMap<>();
         response.put("fileId", fileId);
-        response.put("progress", importProgress.get(fileId));
-        response.put("errors", importErrors.get(fileId));
-        response.put("complete", importProgress.get(fileId) >= 100);
+        response.put("progress", state.getProgress());
+        response.put("errors", state.getErrors());
+        response.put("complete", state.getProgress() >= 100);
         
-        // Include validation information if available
-        if (validationResults.containsKey(fileId)) {
-            ValidationResult validation = validationResults.get(fileId);
-            response.put("validation", Map.of(
-                "valid", validation.isValid(),
-                "fileType", validation.getFileType(),
-                "details", validation.getDetails()
-            ));
-        }
+        // Include validation information
+        ValidationResult validation = toValidationResult(state);
+        response.put("validation", Map.of(
+            "valid", validation.isValid(),
+            "fileType", validation.getFileType(),
+            "details", validation.getDetails()
+        ));
         
         return ResponseEntity.ok(response);
     }
     
+    /**
+     * Streams the progress of an import as Server-Sent Events ("stage", "progress", then a
+     * final "result"), instead of polling {@code /progress/{fileId}}.
+     */
+    @GetMapping(value = "/progress/{fileId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamImportProgress(@PathVariable String fileId) {
+        if (importJobs.find(fileId).isEmpty()) {
+            log.warn("No import to stream for file ID: {}", fileId);
+            return ResponseEntity.notFound().build();
+        }
+        
+        SseEmitter emitter = new SseEmitter(progressStreamTimeoutMs);
+        ImportProgressPublisher.Subscription subscription = progressPublisher.subscribe(fileId, new ProgressSink() {
+            @Override
+            public boolean send(String type, Object payload) {
+                try {
+                    emitter.send(SseEmitter.event().name(type).data(payload));
+                    return true;
+                } catch (IOException | IllegalStateException e) {
+                    return false;
+                }
+            }
+            
+            @Override
+            public void close() {
+                emitter.complete();
+            }
+        });
+        // Free the subscription whichever way the stream ends
+        emitter.onCompletion(() -> progressPublisher.unsubscribe(subscription));
+        emitter.onTimeout(() -> progressPublisher.unsubscribe(subscription));
+        emitter.onError(e -> progressPublisher.unsubscribe(subscription));
+        return ResponseEntity.ok(emitter);
+    }
+    
     @GetMapping("/results/{fileId}")
     public ResponseEntity<Map<String, Object>> getImportResults(@PathVariable String fileId) {
         log.debug("Getting results for file: {}", fileId);
-        if (!importResults.containsKey(fileId)) {
+        Optional<ImportJobState> job = importJobs.find(fileId).filter(ImportJobState::isComplete);
+        Optional<Map<String, Object>> stored = job.flatMap(state -> importJobs.loadResult(fileId));
+        if (stored.isEmpty()) {
             log.warn("No results found for file ID: {}", fileId);
             return ResponseEntity.ok(
                 Map.of(
@@ -167,12 +500,10 @@ public class ImportController {
             );
         }
         
-        Map<String, Object> results = new HashMap<>(importResults.get(fileId));
+        Map<String, Object> results = new HashMap<>(stored.get());
         
         // Include errors list for detailed error reporting
-        if (importErrors.containsKey(fileId)) {
-            results.put("errors", importErrors.get(fileId));
-        }
+        results.put("errors", job.get().getErrors());
         
         return ResponseEntity.ok(results);
     }
@@ -180,12 +511,26 @@ public class ImportController {
     @GetMapping("/validate/{fileId}")
     public ResponseEntity<ValidationResult> getValidationResult(@PathVariable String fileId) {
         log.debug("Getting validation results for file: {}", fileId);
-        if (!validationResults.containsKey(fileId)) {
+        Optional<ImportJobState> job = importJobs.find(fileId);
+        if (job.isEmpty()) {
             log.warn("No validation results found for file ID: {}", fileId);
             return ResponseEntity.notFound().build();
         }
         
-        return ResponseEntity.ok(validationResults.get(fileId));
+        return ResponseEntity.ok(toValidationResult(job.get()));
+    }
+    
+    /**
+     * Rebuilds the validation view of an accepted upload from its import job.
+     */
+    private ValidationResult toValidationResult(ImportJobState state) {
+        ValidationResult validation = new ValidationResult();
+        validation.setValid(true);
+        if (state.getFileType() != null) {
+            validation.setFileType(state.getFileType());
+        }
+        validation.getDetails().addAll(state.getValidationDetails());
+        return validation;
     }
     
     @GetMapping("/status")
@@ -197,22 +542,33 @@ public class ImportController {
      * Validates the uploaded file
      */
     private ValidationResult validateFile(MultipartFile file) {
-        ValidationResult result = new ValidationResult();
-        
         // Check if file is empty
         if (file.isEmpty()) {
+            ValidationResult result = new ValidationResult();
             result.addError("The file is empty");
             return result;
         }
         
-        // Check file size (max 70MB as configured in application.yml)
-        if (file.getSize() > 70 * 1024 * 1024) { 
-            result.addError("File size exceeds maximum limit (70MB)");
+        return validateUpload(file.getOriginalFilename(), file.getSize());
+    }
+    
+    /**
+     * Validates an upload from its name and size (-1 when not known in advance)
+     */
+    private ValidationResult validateUpload(String originalFilename, long size) {
+        return validateUpload(originalFilename, size, maxUploadSize.toBytes());
+    }
+    
+    private ValidationResult validateUpload(String originalFilename, long size, long maxBytes) {
+        ValidationResult result = new ValidationResult();
+        
+        // Check file size (import.max-upload-size, 70MB by default; larger for chunked uploads)
+        if (size > maxBytes) { 
+            result.addError("File size exceeds maximum limit (" + maxBytes / (1024 * 1024) + "MB)");
             return result;
         }
         
         // Check file extension
-        String originalFilename = file.getOriginalFilename();
         if (originalFilename != null) {
             String extension = originalFilename.substring(originalFilename.lastIndexOf(".") + 1).toLowerCase();
             result.setFileType(extension);
@@ -245,9 +601,12 @@ public class ImportController {
     private void processImportInBackground(String fileId, String filename, FileEntity fileEntity) {
         try {
             // Report initial progress
-            importProgress.put(fileId, 10);
+            CancellationToken cancellation = importJobs.active(fileId).getCancellation();
+            importJobs.active(fileId).setProgress(10);
+            importJobs.markRunning(fileId);
             log.info("Starting background processing for file: {}, ID: {}", filename, fileId);
             Thread.sleep(200); // Small delay for UI
+            cancellation.throwIfCancelled();
             
             // Validate the file based on extension
             String extension = "";
@@ -255,10 +614,11 @@ public class ImportController {
                 extension = filename.substring(filename.lastIndexOf(".") + 1).toLowerCase();
             }
             
-            // Get the file from storage - Fix for FileEntity ID access
+            // Get the file from storage; ZIP and Excel blobs are never compressed, so they open as files
             log.info("Loading file resource from storage for ID: {}", fileId);
-            Resource fileResource = storage.load(UUID.fromString(fileId));
-            File physicalFile = fileResource.getFile();
+            FileEntity storedFile = files.findById(UUID.fromString(fileId))
+                    .orElseThrow(() -> new IOException("File " + fileId + " no longer exists"));
+            File physicalFile = storage.pathOf(storedFile).toFile();
             
             log.info("Processing file: {}, type: {}", filename, extension);
             addValidationDetail(fileId, "Starting file processing");
@@ -295,7 +655,7 @@ public class ImportController {
                     
                     if (zipResults.containsKey("processedLines")) {
                         List<String> lines = (List<String>) zipResults.get("processedLines");
-                        processedDataLines.put(fileId, lines);
+                        importJobs.active(fileId).getProcessedLines().addAll(lines);
                     }
                     log.info("ZIP processing complete");
                 } else if ("xls".equals(extension) || "xlsx".equals(extension)) {
@@ -326,7 +686,7 @@ public class ImportController {
                     log.info("Excel processing complete");
                 } else if ("csv".equals(extension) || "txt".equals(extension)) {
                     log.info("Starting CSV/TXT file processing");
-                    Map<String, Object> csvResults = processCsvFile(physicalFile, fileId, isRsfFile);
+                    Map<String, Object> csvResults = processCsvFile(physicalFile, storage.isCompressed(storedFile), fileId, isRsfFile);
                     result.putAll(csvResults);
                     
                     // Add processed records for display
@@ -342,9 +702,11 @@ public class ImportController {
                     }
                     log.info("CSV/TXT processing complete");
                 }
+            } catch (CancellationException e) {
+                throw e;
             } catch (Exception e) {
                 log.error("Error processing file: {}", e.getMessage(), e);
-                importErrors.get(fileId).add("Error processing file: " + e.getMessage());
+                importJobs.active(fileId).getErrors().add("Error processing file: " + e.getMessage());
                 result.put("error", true);
                 result.put("errorMessage", "File processing failed: " + e.getMessage());
             }
@@ -354,142 +716,251 @@ public class ImportController {
             log.info("Added {} processed records to results", processedRecords.size());
             
             // Add errors if any
-            if (importErrors.containsKey(fileId) && !importErrors.get(fileId).isEmpty()) {
-                result.put("errors", importErrors.get(fileId));
-                log.info("Added {} errors to results", importErrors.get(fileId).size());
+            List<String> errors = importJobs.active(fileId).getErrors();
+            if (!errors.isEmpty()) {
+                result.put("errors", errors);
+                log.info("Added {} errors to results", errors.size());
             }
 
             // Mark as completed and store results
             log.info("Setting progress to 100% and storing results for fileId: {}", fileId);
-            importProgress.put(fileId, 100);
-            importResults.put(fileId, result);
+            importJobs.finish(fileId, result, false);
+            markFile(UUID.fromString(fileId), Boolean.TRUE.equals(result.get("error")) ? FileStatus.ERROR : FileStatus.READY);
             
             log.info("Completed processing file: {}, fileId: {}", filename, fileId);
+        } catch (CancellationException e) {
+            log.info("Import of file {} cancelled", fileId);
+            importJobs.finishCancelled(fileId);
+            markFile(UUID.fromString(fileId), FileStatus.CANCELLED);
         } catch (Exception e) {
             log.error("Error in import process", e);
-            importErrors.get(fileId).add("Processing failed: " + e.getMessage());
-            
             Map<String, Object> result = new HashMap<>();
             result.put("error", true);
             result.put("message", "Processing failed: " + e.getMessage());
-            if (importErrors.containsKey(fileId)) {
-                result.put("errors", importErrors.get(fileId));
-            }
+            importJobs.find(fileId).ifPresent(state -> {
+                state.getErrors().add("Processing failed: " + e.getMessage());
+                result.put("errors", state.getErrors());
+            });
             
-            importProgress.put(fileId, 100); // Mark as completed, even though it failed
-            importResults.put(fileId, result);
+            importJobs.finish(fileId, result, true); // Mark as completed, even though it failed
+            markFile(UUID.fromString(fileId), FileStatus.ERROR);
         }
     }
     
     private Map<String, Object> processZipFile(File zipFile, String fileId, boolean isRsfFile) throws IOException {
-        List<String> sampleRecords = new ArrayList<>();
-        int recordCount = 0;
-        Map<Character, Integer> lineTypeCounts = new HashMap<>();
-        int errorCount = 0;
-        String firstDateSoins = null;
-        String lastDateSoins = null;
-        List<String> errorDetails = new ArrayList<>();
+        CancellationToken cancellation = importJobs.active(fileId).getCancellation();
+        ImportStatsAccumulator archiveStats = new ImportStatsAccumulator(ZIP_MAX_ERROR_DETAILS, ZIP_ERRORS_OMITTED);
+        ImportStatsAccumulator validationStats = new ImportStatsAccumulator(ZIP_MAX_ERROR_DETAILS, ZIP_ERRORS_OMITTED);
+        RsfImportPipeline.Summary validation = null;
 
-        try (ZipFile zip = new ZipFile(zipFile)) {
-            int totalEntries = zip.size();
-            int processedEntries = 0;
+        // Entries are inflated once, under the archive limits: the scans tee them into the extracted copy.
+        // RSF_ archives are also fully parsed and validated: entry scans feed the pipeline as they read
+        try (ZipFile zip = new ZipFile(zipFile);
+             UnzipService.Extraction extraction = unzip.open(zip, UUID.fromString(fileId));
+             ValidationErrorStore.Batch storedErrors = isRsfFile ? validationErrors.open(UUID.fromString(fileId)) : null;
+             RsfLineStore.Load storedLines = isRsfFile ? rsfLines.open(UUID.fromString(fileId)) : null;
+             RsfImportPipeline.Run validationRun = isRsfFile
+                     ? rsfPipeline.start(validationSink(validationStats, storedErrors), storedLines, cancellation) : null) {
+            List<? extends ZipEntry> allEntries = Collections.list(zip.entries());
+            List<ZipEntry> textEntries = new ArrayList<>();
+            List<ZipEntry> otherEntries = new ArrayList<>();
             
-            Enumeration<? extends ZipEntry> entries = zip.entries();
-            while (entries.hasMoreElements()) {
-                ZipEntry entry = entries.nextElement();
+            // Progress follows compressed bytes, so a single large entry still moves smoothly
+            long totalCompressed = 0;
+            for (ZipEntry entry : allEntries) {
+                totalCompressed += compressedSize(entry);
                 if (!entry.isDirectory() && entry.getName().endsWith(".txt")) {
-                    // Process each text file inside the ZIP
-                    try (InputStream is = zip.getInputStream(entry);
-                         BufferedReader reader = new BufferedReader(new InputStreamReader(is))) {
-                        
-                        String line;
-                        int lineNumber = 0;
-                        while ((line = reader.readLine()) != null) {
-                            recordCount++;
-                            lineNumber++;
-                            
-                            // RSF specific processing
-                            if (isRsfFile && line.length() > 0) {
-                                char lineType = line.charAt(0);
-                                lineTypeCounts.put(lineType, lineTypeCounts.getOrDefault(lineType, 0) + 1);
-                                
-                                // Check for dates in B, C, or M lines
-                                if ((lineType == 'B' || lineType == 'C') && line.length() >= 116) {
-                                    String dateSoins = extractDateSoins(line, lineType);
-                                    if (dateSoins != null) {
-                                        if (firstDateSoins == null || dateSoins.compareTo(firstDateSoins) < 0) {
-                                            firstDateSoins = dateSoins;
-                                        }
-                                        if (lastDateSoins == null || dateSoins.compareTo(lastDateSoins) > 0) {
-                                            lastDateSoins = dateSoins;
-                                        }
-                                    }
-                                } else if (lineType == 'M' && line.length() >= 113) {
-                                    String dateSoins = extractDateSoins(line, lineType);
-                                    if (dateSoins != null) {
-                                        if (firstDateSoins == null || dateSoins.compareTo(firstDateSoins) < 0) {
-                                            firstDateSoins = dateSoins;
-                                        }
-                                        if (lastDateSoins == null || dateSoins.compareTo(lastDateSoins) > 0) {
-                                            lastDateSoins = dateSoins;
-                                        }
-                                    }
-                                }
-                                
-                                // Validate the line and count errors
-                                boolean isValidLine = validateRsfLine(line, lineType);
-                                if (!isValidLine) {
-                                    errorCount++;
-                                    // Add detailed error information
-                                    String errorMessage = getRsfLineErrorMessage(line, lineType);
-                                    String linePreview = line.length() > 50 ? line.substring(0, 47) + "..." : line;
-                                    errorDetails.add("File: " + entry.getName() + " - Line " + lineNumber + 
-                                                    " (" + lineType + "): " + errorMessage + " - " + linePreview);
-                                    
-                                    // Limit the number of detailed errors to prevent excessive memory usage
-                                    if (errorDetails.size() >= 100) {
-                                        errorDetails.add("Additional errors omitted (too many to display)");
-                                        break;
-                                    }
-                                }
-                            }
-                            
-                            // Save a sample of the first records found
-                            if (sampleRecords.size() < 5) {
-                                sampleRecords.add("File: " + entry.getName() + " - Record: " + line);
-                            }
-                        }
+                    textEntries.add(entry);
+                } else if (!entry.isDirectory() && extraction.isKeepingCopies()) {
+                    otherEntries.add(entry);
+                }
+            }
+            ProgressTracker tracker = new ProgressTracker(totalCompressed, 20, 89,
+                    ProgressTracker.DEFAULT_INTERVAL_MS, p -> reportProgress(fileId, p));
+            tracker.advance(totalCompressed - textEntries.stream().mapToLong(ImportController::compressedSize).sum()
+                    - otherEntries.stream().mapToLong(ImportController::compressedSize).sum());
+            
+            // Entries are scanned concurrently, each into its own accumulator, and merged in
+            // archive order once all of them are done so the error cap keeps the same errors
+            AtomicInteger entriesDone = new AtomicInteger();
+            List<CompletableFuture<ImportStatsAccumulator>> entryScans = new ArrayList<>();
+            for (ZipEntry entry : textEntries) {
+                entryScans.add(CompletableFuture.supplyAsync(() -> {
+                    try {
+                        RsfImportPipeline.Batcher batcher = validationRun != null ? validationRun.batcher(entry.getName()) : null;
+                        ImportStatsAccumulator entryStats = scanZipEntry(extraction, entry, isRsfFile, tracker, cancellation,
+                                batcher);
+                        int done = entriesDone.incrementAndGet();
+                        addValidationDetail(fileId, "Processed ZIP entry " + entry.getName() + " (" + done + " of " + textEntries.size() + ")");
+                        return entryStats;
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
                     }
+                }, rsfParseExecutor));
+            }
+            // Entries that are not parsed only go to the extracted copy
+            for (ZipEntry entry : otherEntries) {
+                entryScans.add(CompletableFuture.supplyAsync(() -> {
+                    cancellation.throwIfCancelled();
+                    try {
+                        extraction.extract(entry);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    tracker.advance(compressedSize(entry));
+                    return null;
+                }, rsfParseExecutor));
+            }
+            
+            // Wait for every entry before merging (or failing) so the archive is not closed under a running scan
+            try {
+                CompletableFuture.allOf(entryScans.toArray(new CompletableFuture[0])).join();
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                if (cause instanceof CancellationException cancelled) {
+                    throw cancelled;
                 }
-                
-                processedEntries++;
-                // Update progress proportionally
-                int progress = 20 + (int)((float)processedEntries / totalEntries * 70);
-                importProgress.put(fileId, Math.min(progress, 89)); // Cap at 89%
-                
-                addValidationDetail(fileId, "Processed " + processedEntries + " of " + totalEntries + " ZIP entries");
+                throw new IOException("Failed to process ZIP entry: " + cause.getMessage(), cause);
+            }
+            
+            for (CompletableFuture<ImportStatsAccumulator> entryScan : entryScans.subList(0, textEntries.size())) {
+                archiveStats.merge(entryScan.join());
+            }
+            if (validationRun != null) {
+                validation = validationRun.finish();
+                storedErrors.finish();
+                log.info("Stored parsed lines of file {}: {}", fileId, storedLines.finish());
+                lineAnalytics.refresh(UUID.fromString(fileId));
             }
+            extraction.complete();
         }
         
-        Map<String, Object> rsfStats = new HashMap<>();
-        if (isRsfFile) {
-            rsfStats.put("totalLines", recordCount);
-            rsfStats.put("lineTypeCounts", lineTypeCounts);
-            rsfStats.put("errorCount", errorCount);
-            rsfStats.put("firstDateSoins", firstDateSoins);
-            rsfStats.put("lastDateSoins", lastDateSoins);
-        }
+        Map<String, Object> rsfStats = isRsfFile ? archiveStats.toRsfStats() : new HashMap<>();
         
         // Use a LinkedHashMap since Map.of has a fixed size
         Map<String, Object> result = new LinkedHashMap<>();
-        result.put("recordCount", recordCount);
-        result.put("sampleRecords", sampleRecords);
+        result.put("recordCount", archiveStats.getRecordCount());
+        result.put("sampleRecords", archiveStats.getSampleRecords());
         result.put("rsfStats", rsfStats);
-        result.put("errorDetails", errorDetails);
+        result.put("errorDetails", archiveStats.getErrorDetails());
+        if (validation != null) {
+            putValidation(result, fileId, validation, validationStats);
+        }
         
         return result;
     }
     
+    /**
+     * Scans one .txt entry of an archive into its own accumulator.
+     * Runs on rsfParseExecutor; ZipFile serves several entry streams at once.
+     *
+     * @param extraction Serves the entry under the archive limits and keeps its extracted copy
+     * @param batcher Receives every line for full validation, or {@code null} when not validating
+     */
+    private ImportStatsAccumulator scanZipEntry(UnzipService.Extraction extraction, ZipEntry entry, boolean isRsfFile,
+                                                ProgressTracker tracker, CancellationToken cancellation,
+                                                RsfImportPipeline.Batcher batcher) throws IOException {
+        ImportStatsAccumulator stats = new ImportStatsAccumulator(ZIP_MAX_ERROR_DETAILS, ZIP_ERRORS_OMITTED);
+        String entryName = entry.getName();
+        
+        // Inflated bytes read are scaled down to the entry's share of the compressed total
+        long entryCompressed = compressedSize(entry);
+        long entrySize = entry.getSize();
+        long[] reported = new long[1];
+        LongConsumer onRead = read -> {
+            if (entrySize > 0) {
+                long position = Math.min(read, entrySize) * entryCompressed / entrySize;
+                tracker.advance(position - reported[0]);
+                reported[0] = position;
+            }
+        };
+        
+        try (InputStream is = new CountingInputStream(extraction.read(entry), onRead);
+             BufferedReader reader = new BufferedReader(new InputStreamReader(is))) {
+            
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                stats.countRecord();
+                lineNumber++;
+                cancellation.checkEvery(lineNumber);
+                if (batcher != null) {
+                    batcher.add(lineNumber, line);
+                }
+                
+                // RSF specific processing
+                if (isRsfFile && line.length() > 0) {
+                    char lineType = line.charAt(0);
+                    stats.countLineType(lineType);
+                    
+                    // Check for dates in B, C, or M lines
+                    if (((lineType == 'B' || lineType == 'C') && line.length() >= 116)
+                            || (lineType == 'M' && line.length() >= 113)) {
+                        stats.observeDateSoins(extractDateSoins(line, lineType));
+                    }
+                    
+                    // Validate the line and count errors, building the detail only while under the cap
+                    if (!validateRsfLine(line, lineType)) {
+                        String invalidLine = line;
+                        int invalidLineNumber = lineNumber;
+                        stats.recordError(() -> {
+                            String linePreview = invalidLine.length() > 50 ? invalidLine.substring(0, 47) + "..." : invalidLine;
+                            return "File: " + entryName + " - Line " + invalidLineNumber + " (" + lineType + "): "
+                                    + getRsfLineErrorMessage(invalidLine, lineType) + " - " + linePreview;
+                        });
+                    }
+                }
+                
+                // Save a sample of the first records found
+                if (stats.wantsSample()) {
+                    stats.addSample("File: " + entryName + " - Record: " + line);
+                }
+            }
+        }
+        
+        if (batcher != null) {
+            batcher.flush();
+        }
+        
+        // Account for the rest of the entry (rounding, unknown size)
+        tracker.advance(entryCompressed - reported[0]);
+        return stats;
+    }
+    
+    /**
+     * Error sink keeping the first validation errors as details and storing all of them.
+     * Called from the validator threads.
+     */
+    private static RsfErrorSink validationSink(ImportStatsAccumulator validationStats, ValidationErrorStore.Batch storedErrors) {
+        return (source, error) -> {
+            synchronized (validationStats) {
+                validationStats.recordError(() -> (source != null ? "File: " + source + " - " : "")
+                        + "Line " + error.getLineNumber() + " (" + error.getField() + "): " + error.getMessage());
+            }
+            storedErrors.accept(source, error);
+        };
+    }
+    
+    /**
+     * Adds the outcome of a full RSF validation to an import result.
+     */
+    private void putValidation(Map<String, Object> result, String fileId, RsfImportPipeline.Summary validation,
+                               ImportStatsAccumulator validationStats) {
+        Map<String, Object> counts = new LinkedHashMap<>();
+        counts.put("linesRead", validation.linesRead());
+        counts.put("linesParsed", validation.linesParsed());
+        counts.put("errorCount", validation.errorCount());
+        counts.put("parsedPerType", validation.parsedPerType());
+        result.put("rsfValidation", counts);
+        result.put("rsfValidationErrors", validationStats.getErrorDetails());
+        addValidationDetail(fileId, "Validated " + validation.linesParsed() + " RSF lines: "
+                + validation.errorCount() + " field errors");
+    }
+    
+    private static long compressedSize(ZipEntry entry) {
+        return Math.max(entry.getCompressedSize(), 0);
+    }
+    
     private String extractDateSoins(String line, char lineType) {
         try {
             int startPos;
@@ -569,311 +1040,53 @@ public class ImportController {
         String lastDateSoins = null;
         List<String> errorDetails = new ArrayList<>();
         
-        // Check if it's a HORAIRE file
-        boolean isHoraireFile = excelFile.getName().startsWith("HORAIRES_");
-        List<Map<String, Object>> horaireUpdates = new ArrayList<>();
-        int totalRowsProcessed = 0;
-        int updatedCount = 0;
+        // HORAIRE files go through their typed import stages
+        if (excelFile.getName().startsWith("HORAIRES_")) {
+            return processHoraireFile(excelFile, fileId);
+        }
         
         // Create result map
         Map<String, Object> result = new HashMap<>();
+        CancellationToken cancellation = importJobs.active(fileId).getCancellation();
         
-        try (InputStream is = Files.newInputStream(excelFile.toPath());
+        // Loading the workbook is the slow part for large files: follow its bytes up to 20%
+        ProgressTracker loadTracker = new ProgressTracker(Files.size(excelFile.toPath()), 10, 20,
+                ProgressTracker.DEFAULT_INTERVAL_MS, p -> reportProgress(fileId, p));
+        try (InputStream is = new CountingInputStream(Files.newInputStream(excelFile.toPath()), loadTracker::moveTo);
              Workbook workbook = "xlsx".equals(extension) ? new XSSFWorkbook(is) : new HSSFWorkbook(is)) {
             
             int totalSheets = workbook.getNumberOfSheets();
+            cancellation.throwIfCancelled();
             
-            // Handle HORAIRE files using the RSF module if available
-            if (isHoraireFile) {
+            // Process regular Excel file one sheet after another: a POI workbook is not
+            // thread-safe, even for reads (cells and shared strings are resolved lazily)
+            long totalRows = 0;
+            for (int i = 0; i < totalSheets; i++) {
+                totalRows += workbook.getSheetAt(i).getPhysicalNumberOfRows();
+            }
+            ProgressTracker rowTracker = new ProgressTracker(totalRows, 20, 89,
+                    ProgressTracker.DEFAULT_INTERVAL_MS, p -> reportProgress(fileId, p));
+
+            ImportStatsAccumulator workbookStats = new ImportStatsAccumulator(EXCEL_MAX_ERROR_DETAILS, EXCEL_ERRORS_OMITTED);
+            for (int i = 0; i < totalSheets; i++) {
+                Sheet sheet = workbook.getSheetAt(i);
                 try {
-                    log.info("Starting HORAIRE file processing for file: {}", excelFile.getName());
-                    
-                    // Use reflection to access RSF module classes dynamically (to avoid direct dependencies)
-                    Class<?> excelParserServiceClass;
-                    try {
-                        excelParserServiceClass = Class.forName("com.rsf.rsf.service.ExcelParserService");
-                        log.info("Found ExcelParserService class");
-                    } catch (ClassNotFoundException e) {
-                        log.error("ExcelParserService class not found: {}", e.getMessage());
-                        errorDetails.add("Could not find ExcelParserService class: " + e.getMessage());
-                        throw new RuntimeException("ExcelParserService class not found", e);
-                    }
-                    
-                    Object excelParserService = getBean(excelParserServiceClass);
-                    if (excelParserService == null) {
-                        log.error("Failed to get ExcelParserService bean from Spring context");
-                        errorDetails.add("ExcelParserService bean not available");
-                        throw new RuntimeException("ExcelParserService bean not available");
-                    }
-                    log.info("Got ExcelParserService bean: {}", excelParserService.getClass().getName());
-                    
-                    // Parse HORAIRE file
-                    Method parseHoraireMethod;
-                    try {
-                        parseHoraireMethod = excelParserServiceClass.getDeclaredMethod("parseHoraireFile", 
-                                InputStream.class, String.class, Object.class);
-                        parseHoraireMethod.setAccessible(true);
-                        log.info("Found parseHoraireFile method");
-                    } catch (NoSuchMethodException e) {
-                        log.error("parseHoraireFile method not found: {}", e.getMessage());
-                        errorDetails.add("Method not found in ExcelParserService: parseHoraireFile");
-                        throw new RuntimeException("parseHoraireFile method not found", e);
-                    }
-                    
-                    // Create RsfValidationResult
-                    Class<?> validationResultClass;
-                    Object validationResult;
-                    try {
-                        validationResultClass = Class.forName("com.rsf.rsf.domain.validation.RsfValidationResult");
-                        validationResult = validationResultClass.getDeclaredConstructor(String.class).newInstance(excelFile.getName());
-                        log.info("Created RsfValidationResult");
-                    } catch (Exception e) {
-                        log.error("Failed to create RsfValidationResult: {}", e.getMessage());
-                        errorDetails.add("Could not create validation result: " + e.getMessage());
-                        throw new RuntimeException("Failed to create RsfValidationResult", e);
-                    }
-                    
-                    // Reopen input stream for parsing
-                    try (InputStream parseIs = Files.newInputStream(excelFile.toPath())) {
-                        log.info("Invoking parseHoraireFile method");
-                        Object excelResult = parseHoraireMethod.invoke(excelParserService, parseIs, excelFile.getName(), validationResult);
-                        
-                        if (excelResult == null) {
-                            log.error("parseHoraireFile returned null result");
-                            errorDetails.add("HORAIRE parser returned null result");
-                            throw new RuntimeException("HORAIRE parser returned null result");
-                        }
-                        log.info("parseHoraireFile returned result: {}", excelResult.getClass().getName());
-                        
-                        // Extract HORAIRE updates
-                        Method getHoraireUpdatesMethod;
-                        Method getTotalRowsProcessedMethod;
-                        Method getValidationResultMethod;
-                        
-                        try {
-                            getHoraireUpdatesMethod = excelResult.getClass().getMethod("getHoraireUpdates");
-                            getTotalRowsProcessedMethod = excelResult.getClass().getMethod("getTotalRowsProcessed");
-                            getValidationResultMethod = excelResult.getClass().getMethod("getValidationResult");
-                            log.info("Found all required methods on ExcelParsingResult");
-                        } catch (NoSuchMethodException e) {
-                            log.error("Required method not found on ExcelParsingResult: {}", e.getMessage());
-                            errorDetails.add("Required method not found: " + e.getMessage());
-                            throw new RuntimeException("Missing required method on ExcelParsingResult", e);
-                        }
-                        
-                        List<?> updates;
-                        try {
-                            updates = (List<?>) getHoraireUpdatesMethod.invoke(excelResult);
-                            totalRowsProcessed = (int) getTotalRowsProcessedMethod.invoke(excelResult);
-                            log.info("Got {} HORAIRE updates, totalRowsProcessed={}", 
-                                    updates != null ? updates.size() : 0, totalRowsProcessed);
-                        } catch (Exception e) {
-                            log.error("Failed to get updates from result: {}", e.getMessage());
-                            errorDetails.add("Could not extract updates: " + e.getMessage());
-                            throw new RuntimeException("Failed to extract updates", e);
-                        }
-                                
-                        // Copy updates to our local list
-                        if (updates != null) {
-                            for (Object update : updates) {
-                                // For each HoraireUpdateRecord, convert to a Map for JSON serialization
-                                Map<String, Object> updateMap = new HashMap<>();
-                                
-                                try {
-                                    // Get properties using reflection
-                                    Method getSourceRowNumMethod = update.getClass().getMethod("getSourceRowNum");
-                                    Method getNumImmatriculationMethod = update.getClass().getMethod("getNumImmatriculation");
-                                    Method getDateNaissanceMethod = update.getClass().getMethod("getDateNaissance");
-                                    Method getDateSoinsMethod = update.getClass().getMethod("getDateSoins");
-                                    Method getCodeActeMethod = update.getClass().getMethod("getCodeActe");
-                                    Method getHoraireMethod = update.getClass().getMethod("getHoraire");
-                                    
-                                    updateMap.put("sourceRowNum", getSourceRowNumMethod.invoke(update));
-                                    updateMap.put("numImmatriculation", getNumImmatriculationMethod.invoke(update));
-                                    updateMap.put("dateNaissance", getDateNaissanceMethod.invoke(update));
-                                    updateMap.put("dateSoins", getDateSoinsMethod.invoke(update));
-                                    updateMap.put("codeActe", getCodeActeMethod.invoke(update));
-                                    updateMap.put("horaire", getHoraireMethod.invoke(update));
-                                    
-                                    horaireUpdates.add(updateMap);
-                                } catch (Exception e) {
-                                    log.error("Error extracting property from HORAIRE update: {}", e.getMessage(), e);
-                                    errorDetails.add("Error extracting property: " + e.getMessage());
-                                }
-                            }
-                            
-                            try {
-                                // Get validation errors
-                                Object validation = getValidationResultMethod.invoke(excelResult);
-                                Method hasErrorsMethod = validation.getClass().getMethod("hasErrors");
-                                boolean hasErrors = (boolean) hasErrorsMethod.invoke(validation);
-                                
-                                if (hasErrors) {
-                                    Method getErrorsMethod = validation.getClass().getMethod("getErrors");
-                                    List<?> errors = (List<?>) getErrorsMethod.invoke(validation);
-                                    
-                                    for (Object error : errors) {
-                                        Method getMessageMethod = error.getClass().getMethod("getMessage");
-                                        String errorMessage = (String) getMessageMethod.invoke(error);
-                                        errorDetails.add(errorMessage);
-                                    }
-                                }
-                            } catch (Exception e) {
-                                log.error("Error extracting validation errors: {}", e.getMessage(), e);
-                                errorDetails.add("Error extracting validation errors: " + e.getMessage());
-                            }
-                        }
-                        
-                        // Add all HORAIRE updates to the result map for the frontend to display
-                        result.put("totalRowsProcessed", totalRowsProcessed);
-                        result.put("updatedCount", horaireUpdates.size());
-                        result.put("horaireUpdates", horaireUpdates);
-                        
-                        // Add some sample records for display
-                        recordCount = totalRowsProcessed;
-                        
-                        // Create sample records for display
-                        sampleRecords.add("HORAIRE File: " + excelFile.getName() + " - Total Records: " + totalRowsProcessed);
-                        
-                        // Add ALL records to the processed data lines collection for frontend access
-                        String fileIdKey = fileId;
-                        if (!processedDataLines.containsKey(fileIdKey)) {
-                            processedDataLines.put(fileIdKey, new ArrayList<>());
-                        }
-                        
-                        // Add a header row first
-                        processedDataLines.get(fileIdKey).add("num_immatriculation | date_naissance | date_soins | code_acte | horaire");
-                        
-                        // Add all HORAIRE records as processed lines
-                        for (Map<String, Object> updateMap : horaireUpdates) {
-                            processedDataLines.get(fileIdKey).add(String.format("Row: %s | %s | %s | %s | %s | %s",
-                                    updateMap.get("sourceRowNum"),
-                                    updateMap.get("numImmatriculation"),
-                                    updateMap.get("dateNaissance"),
-                                    updateMap.get("dateSoins"),
-                                    updateMap.get("codeActe"),
-                                    updateMap.get("horaire")));
-                        }
-                        
-                        // Add a few samples for the result itself
-                        for (int i = 0; i < Math.min(5, horaireUpdates.size()); i++) {
-                            Map<String, Object> updateMap = horaireUpdates.get(i);
-                            sampleRecords.add(String.format("Row %s: Num Immat=%s, Date Naissance=%s, Date Soins=%s, Code Acte=%s, Horaire=%s",
-                                    updateMap.get("sourceRowNum"),
-                                    updateMap.get("numImmatriculation"),
-                                    updateMap.get("dateNaissance"),
-                                    updateMap.get("dateSoins"),
-                                    updateMap.get("codeActe"),
-                                    updateMap.get("horaire")));
-                        }
-                    }
-                } catch (Exception e) {
-                    log.error("Error processing HORAIRE file using RSF module: {}", e.getMessage(), e);
-                    errorDetails.add("Error processing HORAIRE file: " + e.getMessage());
-                }
-            } else {
-                // Process regular Excel file
-                for (int i = 0; i < totalSheets; i++) {
-                    Sheet sheet = workbook.getSheetAt(i);
-                    
-                    // Update progress for each sheet
-                    importProgress.put(fileId, 20 + (i * 70 / totalSheets));
-                    addValidationDetail(fileId, "Processing sheet " + (i+1) + " of " + totalSheets);
-                    
-                    for (Row row : sheet) {
-                        recordCount++;
-                        
-                        // Process RSF data if applicable
-                        if (isRsfFile) {
-                            Cell firstCell = row.getCell(0);
-                            if (firstCell != null && firstCell.getCellType() == CellType.STRING) {
-                                String cellValue = firstCell.getStringCellValue();
-                                if (cellValue != null && cellValue.length() > 0) {
-                                    char lineType = cellValue.charAt(0);
-                                    if (Character.isLetter(lineType)) {
-                                        lineTypeCounts.put(lineType, lineTypeCounts.getOrDefault(lineType, 0) + 1);
-                                        
-                                        // Look for date fields in specific columns
-                                        if (lineType == 'B' || lineType == 'C' || lineType == 'M') {
-                                            int dateColumn = (lineType == 'M') ? 5 : 7; // Adjust based on your Excel structure
-                                            Cell dateCell = row.getCell(dateColumn);
-                                            if (dateCell != null) {
-                                                try {
-                                                    String dateSoins = null;
-                                                    if (dateCell.getCellType() == CellType.NUMERIC) {
-                                                        dateSoins = new SimpleDateFormat("ddMMyyyy").format(dateCell.getDateCellValue());
-                                                    } else if (dateCell.getCellType() == CellType.STRING) {
-                                                        dateSoins = dateCell.getStringCellValue();
-                                                    }
-                                                    
-                                                    if (dateSoins != null && dateSoins.length() == 8) {
-                                                        if (firstDateSoins == null || dateSoins.compareTo(firstDateSoins) < 0) {
-                                                            firstDateSoins = dateSoins;
-                                                        }
-                                                        if (lastDateSoins == null || dateSoins.compareTo(lastDateSoins) > 0) {
-                                                            lastDateSoins = dateSoins;
-                                                        }
-                                                    }
-                                                } catch (Exception e) {
-                                                    // Continue even if date extraction fails
-                                                }
-                                            }
-                                        }
-                                        
-                                        // Simple validation check
-                                        boolean isValid = validateRsfLine(cellValue, lineType);
-                                        if (!isValid) {
-                                            errorCount++;
-                                            String errorMsg = getRsfLineErrorMessage(cellValue, lineType);
-                                            errorDetails.add("Line type " + lineType + ": " + errorMsg);
-                                            
-                                            // Only add a few errors to the list
-                                            if (errorDetails.size() > 10) {
-                                                errorDetails.add("... and more errors (showing first 10 only)");
-                                                break;
-                                            }
-                                        }
-                                    }
-                                }
-                            }
-                        }
-                        
-                        // Create a string representation of the row for the sample
-                        if (sampleRecords.size() < 5) {
-                            StringBuilder rowData = new StringBuilder();
-                            rowData.append("Sheet: ").append(sheet.getSheetName()).append(" - Row: ").append(row.getRowNum()).append(" - ");
-                            
-                            for (Cell cell : row) {
-                                String cellValue = "";
-                                switch (cell.getCellType()) {
-                                    case STRING:
-                                        cellValue = cell.getStringCellValue();
-                                        break;
-                                    case NUMERIC:
-                                        cellValue = String.valueOf(cell.getNumericCellValue());
-                                        break;
-                                    case BOOLEAN:
-                                        cellValue = String.valueOf(cell.getBooleanCellValue());
-                                        break;
-                                    case FORMULA:
-                                        cellValue = cell.getCellFormula();
-                                        break;
-                                    default:
-                                        cellValue = "[EMPTY]";
-                                }
-                                rowData.append(" | ").append(cellValue);
-                            }
-                            
-                            sampleRecords.add(rowData.toString());
-                        }
-                        
-                        // Check for potential errors in the row
-                        if (recordCount % 100 == 0) {
-                            importProgress.put(fileId, 20 + (i * 70 / totalSheets) + (70 / totalSheets) * (int)((float)recordCount / sheet.getLastRowNum()));
-                        }
-                    }
+                    workbookStats.merge(scanSheet(sheet, isRsfFile, rowTracker, cancellation));
+                } catch (CancellationException e) {
+                    throw e;
+                } catch (RuntimeException e) {
+                    throw new IOException("Failed to process sheet: " + e.getMessage(), e);
                 }
+                addValidationDetail(fileId, "Processed sheet " + sheet.getSheetName() + " (" + (i + 1) + " of " + totalSheets + ")");
             }
+
+            recordCount = workbookStats.getRecordCount();
+            errorCount = workbookStats.getErrorCount();
+            lineTypeCounts.putAll(workbookStats.getLineTypeCounts());
+            firstDateSoins = workbookStats.getFirstDateSoins();
+            lastDateSoins = workbookStats.getLastDateSoins();
+            errorDetails.addAll(workbookStats.getErrorDetails());
+            sampleRecords.addAll(workbookStats.getSampleRecords());
         }
         
         Map<String, Object> rsfStats = new HashMap<>();
@@ -891,115 +1104,222 @@ public class ImportController {
         result.put("rsfStats", rsfStats);
         result.put("errorDetails", errorDetails);
         
-        // Add HORAIRE specific data
-        if (isHoraireFile) {
-            result.put("horaireUpdates", horaireUpdates);
-            result.put("totalRowsProcessed", totalRowsProcessed);
-            result.put("updatedCount", updatedCount);
+        return result;
+    }
+    
+    /**
+     * Runs a HORAIRES_ workbook through {@link HoraireImportStage}: parse, validate,
+     * integrate into the processed data lines, then summarise into the result map.
+     */
+    private Map<String, Object> processHoraireFile(File excelFile, String fileId) {
+        ImportContext context = new ImportContext(fileId, excelFile.toPath(), excelFile.getName(),
+                p -> reportProgress(fileId, p), importJobs.active(fileId).getCancellation());
+        Map<String, Object> result = new HashMap<>();
+        result.put("recordCount", 0);
+        result.put("sampleRecords", new ArrayList<String>());
+        result.put("horaireUpdates", new ArrayList<HoraireUpdateDto>());
+        result.put("totalRowsProcessed", 0);
+        result.put("updatedCount", 0);
+        
+        try {
+            HoraireImportStage.ParsedHoraire parsed = horaireImportStage.parse(context);
+            horaireImportStage.validate(parsed, context);
+            horaireImportStage.integrate(parsed, context);
+            result.putAll(horaireImportStage.summarise(parsed, context));
+            importJobs.active(fileId).getProcessedLines().addAll(context.getProcessedLines());
+        } catch (CancellationException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Error processing HORAIRE file using RSF module: {}", e.getMessage(), e);
+            context.getErrorDetails().add("Error processing HORAIRE file: " + e.getMessage());
         }
         
+        result.put("rsfStats", new HashMap<String, Object>());
+        result.put("errorDetails", context.getErrorDetails());
         return result;
     }
     
-    private Map<String, Object> processCsvFile(File csvFile, String fileId, boolean isRsfFile) throws IOException {
-        List<String> sampleRecords = new ArrayList<>();
+    /**
+     * Scans one sheet of a regular workbook into its own accumulator, on the import's thread.
+     */
+    private ImportStatsAccumulator scanSheet(Sheet sheet, boolean isRsfFile, ProgressTracker rowTracker,
+                                             CancellationToken cancellation) {
+        ImportStatsAccumulator stats = new ImportStatsAccumulator(EXCEL_MAX_ERROR_DETAILS, EXCEL_ERRORS_OMITTED);
+        SimpleDateFormat dateFormat = new SimpleDateFormat("ddMMyyyy");
+
+        for (Row row : sheet) {
+            stats.countRecord();
+            cancellation.checkEvery(stats.getRecordCount());
+            
+            // Process RSF data if applicable
+            if (isRsfFile) {
+                Cell firstCell = row.getCell(0);
+                if (firstCell != null && firstCell.getCellType() == CellType.STRING) {
+                    String cellValue = firstCell.getStringCellValue();
+                    if (cellValue != null && cellValue.length() > 0) {
+                        char lineType = cellValue.charAt(0);
+                        if (Character.isLetter(lineType)) {
+                            stats.countLineType(lineType);
+                            
+                            // Look for date fields in specific columns
+                            if (lineType == 'B' || lineType == 'C' || lineType == 'M') {
+                                int dateColumn = (lineType == 'M') ? 5 : 7; // Adjust based on your Excel structure
+                                Cell dateCell = row.getCell(dateColumn);
+                                if (dateCell != null) {
+                                    try {
+                                        String dateSoins = null;
+                                        if (dateCell.getCellType() == CellType.NUMERIC) {
+                                            dateSoins = dateFormat.format(dateCell.getDateCellValue());
+                                        } else if (dateCell.getCellType() == CellType.STRING) {
+                                            dateSoins = dateCell.getStringCellValue();
+                                        }
+                                        
+                                        if (dateSoins != null && dateSoins.length() == 8) {
+                                            stats.observeDateSoins(dateSoins);
+                                        }
+                                    } catch (Exception e) {
+                                        // Continue even if date extraction fails
+                                    }
+                                }
+                            }
+                            
+                            // Simple validation check
+                            if (!validateRsfLine(cellValue, lineType)) {
+                                stats.recordError("Line type " + lineType + ": " + getRsfLineErrorMessage(cellValue, lineType));
+                            }
+                        }
+                    }
+                }
+            }
+            
+            // Create a string representation of the row for the sample
+            if (stats.wantsSample()) {
+                StringBuilder rowData = new StringBuilder();
+                rowData.append("Sheet: ").append(sheet.getSheetName()).append(" - Row: ").append(row.getRowNum()).append(" - ");
+                
+                for (Cell cell : row) {
+                    String cellValue = "";
+                    switch (cell.getCellType()) {
+                        case STRING:
+                            cellValue = cell.getStringCellValue();
+                            break;
+                        case NUMERIC:
+                            cellValue = String.valueOf(cell.getNumericCellValue());
+                            break;
+                        case BOOLEAN:
+                            cellValue = String.valueOf(cell.getBooleanCellValue());
+                            break;
+                        case FORMULA:
+                            cellValue = cell.getCellFormula();
+                            break;
+                        default:
+                            cellValue = "[EMPTY]";
+                    }
+                    rowData.append(" | ").append(cellValue);
+                }
+                
+                stats.addSample(rowData.toString());
+            }
+            
+            // Workbook-wide progress, across the sheets
+            rowTracker.advance(1);
+        }
+        
+        return stats;
+    }
+    
+    /**
+     * @param compressed Whether {@code csvFile} is a Deflate-compressed blob, inflated while read
+     */
+    private Map<String, Object> processCsvFile(File csvFile, boolean compressed, String fileId, boolean isRsfFile) throws IOException {
+        ImportStatsAccumulator stats = new ImportStatsAccumulator(ZIP_MAX_ERROR_DETAILS, ZIP_ERRORS_OMITTED);
         int recordCount = 0;
-        Map<Character, Integer> lineTypeCounts = new HashMap<>();
-        int errorCount = 0;
-        String firstDateSoins = null;
-        String lastDateSoins = null;
-        List<String> errorDetails = new ArrayList<>();
         
-        try (BufferedReader reader = Files.newBufferedReader(csvFile.toPath())) {
-            // Estimate total lines for progress tracking
-            long totalLines = Files.lines(csvFile.toPath()).count();
+        CancellationToken cancellation = importJobs.active(fileId).getCancellation();
+        ImportStatsAccumulator validationStats = new ImportStatsAccumulator(ZIP_MAX_ERROR_DETAILS, ZIP_ERRORS_OMITTED);
+        RsfImportPipeline.Summary validation = null;
+        
+        // Progress follows the bytes read from disk, so the file is only read once
+        ProgressTracker tracker = new ProgressTracker(Files.size(csvFile.toPath()), 20, 89,
+                ProgressTracker.DEFAULT_INTERVAL_MS, p -> reportProgress(fileId, p));
+        InputStream stored = new CountingInputStream(Files.newInputStream(csvFile.toPath()), tracker::moveTo);
+        try (InputStream in = compressed ? BlobStore.inflate(stored) : stored;
+             BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8.newDecoder()));
+             ValidationErrorStore.Batch storedErrors = isRsfFile ? validationErrors.open(UUID.fromString(fileId)) : null;
+             RsfLineStore.Load storedLines = isRsfFile ? rsfLines.open(UUID.fromString(fileId)) : null;
+             RsfImportPipeline.Run validationRun = isRsfFile
+                     ? rsfPipeline.start(validationSink(validationStats, storedErrors), storedLines, cancellation) : null) {
+            RsfImportPipeline.Batcher batcher = validationRun != null ? validationRun.batcher(null) : null;
             String line;
             
             while ((line = reader.readLine()) != null) {
+                stats.countRecord();
                 recordCount++;
+                cancellation.checkEvery(recordCount);
+                if (batcher != null) {
+                    batcher.add(recordCount, line);
+                }
                 
                 // RSF specific processing
                 if (isRsfFile && line.length() > 0) {
                     char lineType = line.charAt(0);
-                    lineTypeCounts.put(lineType, lineTypeCounts.getOrDefault(lineType, 0) + 1);
+                    stats.countLineType(lineType);
                     
                     // Check for dates in B, C, or M lines
-                    if ((lineType == 'B' || lineType == 'C') && line.length() >= 116) {
-                        String dateSoins = extractDateSoins(line, lineType);
-                        if (dateSoins != null) {
-                            if (firstDateSoins == null || dateSoins.compareTo(firstDateSoins) < 0) {
-                                firstDateSoins = dateSoins;
-                            }
-                            if (lastDateSoins == null || dateSoins.compareTo(lastDateSoins) > 0) {
-                                lastDateSoins = dateSoins;
-                            }
-                        }
-                    } else if (lineType == 'M' && line.length() >= 113) {
-                        String dateSoins = extractDateSoins(line, lineType);
-                        if (dateSoins != null) {
-                            if (firstDateSoins == null || dateSoins.compareTo(firstDateSoins) < 0) {
-                                firstDateSoins = dateSoins;
-                            }
-                            if (lastDateSoins == null || dateSoins.compareTo(lastDateSoins) > 0) {
-                                lastDateSoins = dateSoins;
-                            }
-                        }
+                    if (((lineType == 'B' || lineType == 'C') && line.length() >= 116)
+                            || (lineType == 'M' && line.length() >= 113)) {
+                        stats.observeDateSoins(extractDateSoins(line, lineType));
                     }
                     
-                    // Validate the line and count errors
-                    boolean isValidLine = validateRsfLine(line, lineType);
-                    if (!isValidLine) {
-                        errorCount++;
-                        // Add detailed error information
-                        String errorMessage = getRsfLineErrorMessage(line, lineType);
-                        String linePreview = line.length() > 50 ? line.substring(0, 47) + "..." : line;
-                        errorDetails.add("Line " + recordCount + " (" + lineType + "): " + errorMessage + " - " + linePreview);
-                        
-                        // Limit the number of detailed errors to prevent excessive memory usage
-                        if (errorDetails.size() >= 100) {
-                            errorDetails.add("Additional errors omitted (too many to display)");
-                            break;
-                        }
+                    // Every invalid line is counted; only the first details are kept
+                    if (!validateRsfLine(line, lineType)) {
+                        String invalidLine = line;
+                        int invalidLineNumber = recordCount;
+                        stats.recordError(() -> {
+                            String linePreview = invalidLine.length() > 50 ? invalidLine.substring(0, 47) + "..." : invalidLine;
+                            return "Line " + invalidLineNumber + " (" + lineType + "): "
+                                    + getRsfLineErrorMessage(invalidLine, lineType) + " - " + linePreview;
+                        });
                     }
                 }
                 
                 // Save sample records
-                if (sampleRecords.size() < 5) {
-                    sampleRecords.add("Record " + recordCount + ": " + line);
-                }
-                
-                // Update progress periodically
-                if (recordCount % 100 == 0 || recordCount == 1) {
-                    int progress = 20 + (int)((float)recordCount / totalLines * 70);
-                    importProgress.put(fileId, Math.min(progress, 89));
-                    addValidationDetail(fileId, "Processed " + recordCount + " of ~" + totalLines + " records");
+                if (stats.wantsSample()) {
+                    stats.addSample("Record " + recordCount + ": " + line);
                 }
             }
+            if (validationRun != null) {
+                batcher.flush();
+                validation = validationRun.finish();
+                storedErrors.finish();
+                log.info("Stored parsed lines of file {}: {}", fileId, storedLines.finish());
+                lineAnalytics.refresh(UUID.fromString(fileId));
+            }
         }
-        
-        Map<String, Object> rsfStats = new HashMap<>();
-        if (isRsfFile) {
-            rsfStats.put("totalLines", recordCount);
-            rsfStats.put("lineTypeCounts", lineTypeCounts);
-            rsfStats.put("errorCount", errorCount);
-            rsfStats.put("firstDateSoins", firstDateSoins);
-            rsfStats.put("lastDateSoins", lastDateSoins);
-        }
+        addValidationDetail(fileId, "Processed " + recordCount + " records");
         
         // Use a LinkedHashMap since Map.of has a fixed size
         Map<String, Object> result = new LinkedHashMap<>();
         result.put("recordCount", recordCount);
-        result.put("sampleRecords", sampleRecords);
-        result.put("rsfStats", rsfStats);
-        result.put("errorDetails", errorDetails);
+        result.put("sampleRecords", stats.getSampleRecords());
+        result.put("rsfStats", isRsfFile ? stats.toRsfStats() : new HashMap<>());
+        result.put("errorDetails", stats.getErrorDetails());
+        if (validation != null) {
+            putValidation(result, fileId, validation, validationStats);
+        }
         
         return result;
     }
     
     private void addValidationDetail(String fileId, String detail) {
-        ValidationResult validation = validationResults.getOrDefault(fileId, new ValidationResult());
-        validation.addDetail(detail);
-        validationResults.put(fileId, validation);
+        importJobs.active(fileId).getValidationDetails().add(detail);
+    }
+    
+    /**
+     * Raises the progress of an import, never moving it backwards (sheets report concurrently).
+     */
+    private void reportProgress(String fileId, int progress) {
+        importJobs.active(fileId).raiseProgress(Math.min(progress, 89));
     }
     
     /**
@@ -1043,16 +1363,4 @@ public class ImportController {
             this.fileType = fileType;
         }
     }
-    
-    /**
-     * Helper method to get a Spring bean by class
-     */
-    private <T> T getBean(Class<T> clazz) {
-        try {
-            return ApplicationContextProvider.getApplicationContext().getBean(clazz);
-        } catch (Exception e) {
-            log.error("Error retrieving bean of class {}: {}", clazz.getName(), e.getMessage());
-            return null;
-        }
-    }
 } 
\ No newline at end of file
@@ -0,0 +1,98 @@
+package com.rsf.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rsf.security.JwtTokenProvider;
+import com.rsf.service.imports.ImportProgressPublisher;
+import com.rsf.service.imports.ProgressSink;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * WebSocket variant of the import progress stream, for clients already on the websocket.ts channel.
+ * <p>
+ * Connect to {@code /api/v1/import/progress/ws?fileId=...&token=...}. As on that channel the JWT
+ * is passed as a query parameter and the connection is closed with 1008 when it is missing or
+ * invalid. Messages use the same envelope: {@code {"type": "IMPORT_PROGRESS", "payload": {...}}},
+ * with types IMPORT_STAGE, IMPORT_PROGRESS and IMPORT_RESULT.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ImportProgressWebSocketHandler extends TextWebSocketHandler {
+
+    private static final String SUBSCRIPTION = "importSubscription";
+
+    private final ImportProgressPublisher publisher;
+    private final JwtTokenProvider tokens;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+        Map<String, String> params = UriComponentsBuilder.fromUri(session.getUri()).build()
+                .getQueryParams().toSingleValueMap();
+        String token = params.get("token");
+        String fileId = params.get("fileId");
+
+        if (token == null || !tokens.validate(token)) {
+            session.close(CloseStatus.POLICY_VIOLATION.withReason("Token required"));
+            return;
+        }
+        if (fileId == null) {
+            session.close(CloseStatus.BAD_DATA.withReason("fileId required"));
+            return;
+        }
+        session.getAttributes().put(SUBSCRIPTION, publisher.subscribe(fileId, new SessionSink(session)));
+        log.debug("WebSocket progress client connected for file {}", fileId);
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        Object subscription = session.getAttributes().remove(SUBSCRIPTION);
+        if (subscription != null) {
+            publisher.unsubscribe((ImportProgressPublisher.Subscription) subscription);
+        }
+    }
+
+    private class SessionSink implements ProgressSink {
+        private final WebSocketSession session;
+
+        SessionSink(WebSocketSession session) {
+            this.session = session;
+        }
+
+        @Override
+        public boolean send(String type, Object payload) {
+            if (!session.isOpen()) {
+                return false;
+            }
+            try {
+                String message = objectMapper.writeValueAsString(
+                        Map.of("type", "IMPORT_" + type.toUpperCase(Locale.ROOT), "payload", payload));
+                session.sendMessage(new TextMessage(message));
+                return true;
+            } catch (IOException e) {
+                log.debug("WebSocket progress client gone: {}", e.getMessage());
+                return false;
+            }
+        }
+
+        @Override
+        public void close() {
+            try {
+                session.close(CloseStatus.NORMAL);
+            } catch (IOException e) {
+                log.debug("Error closing WebSocket progress session: {}", e.getMessage());
+            }
+        }
+    }
+}
@@ -4,6 +4,7 @@ import com.rsf.domain.Role;
 import com.rsf.domain.User;
 import com.rsf.repo.RoleRepo;
 import com.rsf.repo.UserRepo;
+import com.rsf.security.UserCache;
 import lombok.RequiredArgsConstructor;
 import org.springframework.web.bind.annotation.*;
 
@@ -14,6 +15,7 @@ public class UserRoleUtility {
     
     private final UserRepo users;
     private final RoleRepo roles;
+    private final UserCache userCache;
     
     @PostMapping("/assign-manager-role/{username}")
     public String assignManagerRole(@PathVariable String username) {
@@ -31,6 +33,7 @@ public class UserRoleUtility {
         // Add role and save
         user.getRoles().add(managerRole);
         users.save(user);
+        userCache.evict(username);
         
         return "ROLE_MANAGER assigned to " + username;
     }
@@ -1,19 +1,30 @@
 package com.rsf.controller;
 
 import com.rsf.domain.FileEntity;
+import com.rsf.domain.User;
+import com.rsf.dto.RsfFixRequest;
+import com.rsf.dto.ValidationErrorDto;
 import com.rsf.repo.FileRepo;
-import com.rsf.rsf.domain.validation.RsfError;
 import com.rsf.rsf.domain.validation.RsfErrorType;
-import com.rsf.rsf.domain.validation.RsfValidationResult;
-import com.rsf.rsf.service.RsfValidationService;
+import com.rsf.security.FileAccess;
+import com.rsf.security.UserCache;
+import com.rsf.service.ValidationAggregates;
+import com.rsf.service.ValidationErrorExport;
+import com.rsf.service.ValidationErrorStore;
+import com.rsf.service.fixes.RsfFixService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -22,110 +33,75 @@ import java.util.stream.Collectors;
 public class ValidationController {
     private static final Logger log = LoggerFactory.getLogger(ValidationController.class);
 
-    private final RsfValidationService validationService;
+    private static final int DASHBOARD_RECENT_ERRORS = 25;
+    private static final int MAX_PAGE_SIZE = 1000;
+
     private final FileRepo fileRepo;
+    private final ValidationErrorStore validationErrors;
+    private final ValidationAggregates aggregates;
+    private final ValidationErrorExport errorExport;
+    private final RsfFixService fixService;
+    private final UserCache userCache;
     
     @Autowired
-    public ValidationController(RsfValidationService validationService, FileRepo fileRepo) {
-        this.validationService = validationService;
+    public ValidationController(FileRepo fileRepo, ValidationErrorStore validationErrors,
+                                ValidationAggregates aggregates, ValidationErrorExport errorExport,
+                                RsfFixService fixService, UserCache userCache) {
         this.fileRepo = fileRepo;
+        this.validationErrors = validationErrors;
+        this.aggregates = aggregates;
+        this.errorExport = errorExport;
+        this.fixService = fixService;
+        this.userCache = userCache;
     }
 
     /**
-     * Get full validation dashboard data
+     * Get full validation dashboard data.
+     * Served from the maintained error counts; unchanged data is answered with a 304.
      */
     @GetMapping("/dashboard")
-    public ResponseEntity<Map<String, Object>> getDashboardData() {
+    public ResponseEntity<Map<String, Object>> getDashboardData(WebRequest request) {
         try {
             log.info("Fetching validation dashboard data");
-            Map<String, Object> dashboardData = new HashMap<>();
-            
-            // Retrieve all files with validation errors
-            List<FileEntity> files = fileRepo.findAll();
-            
-            // Calculate summary statistics
-            int totalFiles = files.size();
-            int filesWithErrors = 0;
-            int totalErrors = 0;
-            
-            // Prepare error stats by type
-            Map<RsfErrorType, Integer> errorsByType = new HashMap<>();
-            for (RsfErrorType type : RsfErrorType.values()) {
-                errorsByType.put(type, 0);
-            }
-            
-            // Initialize error collection
-            List<Map<String, Object>> errors = new ArrayList<>();
-            Map<String, List<Map<String, Object>>> errorsByFile = new HashMap<>();
-            
-            // Process each file's validation results
-            for (FileEntity file : files) {
-                // In a real implementation, retrieve actual validation results from a database
-                // For this example, we'll generate some sample data
-                String fileIdStr = String.valueOf(file.hashCode()); // Use hashCode as a fallback
-                List<RsfError> fileErrors = getMockValidationErrors(fileIdStr);
-                
-                if (!fileErrors.isEmpty()) {
-                    filesWithErrors++;
-                    totalErrors += fileErrors.size();
-                    
-                    // Group errors by type for statistics
-                    for (RsfError error : fileErrors) {
-                        RsfErrorType errorType = error.getErrorType();
-                        errorsByType.put(errorType, errorsByType.getOrDefault(errorType, 0) + 1);
-                        
-                        // Convert to map for JSON response
-                        Map<String, Object> errorMap = convertErrorToMap(error, file);
-                        errors.add(errorMap);
-                        
-                        // Group by file
-                        if (!errorsByFile.containsKey(fileIdStr)) {
-                            errorsByFile.put(fileIdStr, new ArrayList<>());
-                        }
-                        errorsByFile.get(fileIdStr).add(errorMap);
-                    }
-                }
+            ValidationAggregates.Snapshot snapshot = aggregates.snapshot();
+            long totalFiles = fileRepo.count();
+            String etag = etag(snapshot, totalFiles);
+            if (request.checkNotModified(etag)) {
+                return null;
             }
             
-            // Create summary object
-            Map<String, Object> summary = new HashMap<>();
-            summary.put("totalFiles", totalFiles);
-            summary.put("filesWithErrors", filesWithErrors);
-            summary.put("totalErrors", totalErrors);
-            summary.put("processingTime", 1500); // Mock processing time in ms
-            summary.put("lastUpdated", LocalDateTime.now().format(DateTimeFormatter.ISO_DATE_TIME));
+            Map<String, Object> dashboardData = new HashMap<>();
             
             // Create stats array for chart data
             List<Map<String, Object>> stats = new ArrayList<>();
-            for (Map.Entry<RsfErrorType, Integer> entry : errorsByType.entrySet()) {
-                if (entry.getValue() > 0) {
-                    Map<String, Object> stat = new HashMap<>();
-                    stat.put("name", entry.getKey().toString());
-                    stat.put("value", entry.getValue());
-                    stat.put("description", getErrorTypeDescription(entry.getKey()));
-                    stats.add(stat);
-                }
+            for (Map.Entry<String, Long> entry : snapshot.errorsByType().entrySet()) {
+                Map<String, Object> stat = new HashMap<>();
+                stat.put("name", entry.getKey());
+                stat.put("value", entry.getValue());
+                stat.put("description", getErrorTypeDescription(entry.getKey()));
+                stats.add(stat);
             }
             
-            // Sort errors by timestamp (newest first)
-            errors.sort((e1, e2) -> {
-                String t1 = (String) e1.get("timestamp");
-                String t2 = (String) e2.get("timestamp");
-                return t2.compareTo(t1);
-            });
+            List<Map<String, Object>> errorsByDay = new ArrayList<>();
+            snapshot.errorsByDay().forEach((day, count) -> errorsByDay.add(Map.of("date", day.toString(), "value", count)));
             
             // Limit to most recent errors for the dashboard view
-            List<Map<String, Object>> recentErrors = errors.stream()
-                .limit(25)
-                .collect(Collectors.toList());
+            List<Map<String, Object>> recentErrors = validationErrors
+                    .list(new ValidationErrorStore.Filter(null, null, null), null, DASHBOARD_RECENT_ERRORS)
+                    .errors().stream()
+                    .map(this::convertErrorToMap)
+                    .collect(Collectors.toList());
+            Map<String, List<Map<String, Object>>> errorsByFile = recentErrors.stream()
+                    .collect(Collectors.groupingBy(error -> (String) error.get("fileId"), LinkedHashMap::new, Collectors.toList()));
             
             // Assemble the complete dashboard data
-            dashboardData.put("summary", summary);
+            dashboardData.put("summary", summary(snapshot, totalFiles));
             dashboardData.put("stats", stats);
+            dashboardData.put("errorsByDay", errorsByDay);
             dashboardData.put("errorsByFile", errorsByFile);
             dashboardData.put("errors", recentErrors);
             
-            return ResponseEntity.ok(dashboardData);
+            return ResponseEntity.ok().eTag(etag).body(dashboardData);
         } catch (Exception e) {
             log.error("Error retrieving dashboard data", e);
             return ResponseEntity.internalServerError()
@@ -137,38 +113,16 @@ public class ValidationController {
      * Get validation summary without detailed errors
      */
     @GetMapping("/summary")
-    public ResponseEntity<Map<String, Object>> getValidationSummary() {
+    public ResponseEntity<Map<String, Object>> getValidationSummary(WebRequest request) {
         try {
             log.info("Fetching validation summary");
-            
-            // In a real implementation, retrieve actual validation results
-            // For now, return simplified version of the dashboard data
-            List<FileEntity> files = fileRepo.findAll();
-            
-            // Calculate summary statistics
-            int totalFiles = files.size();
-            int filesWithErrors = 0;
-            int totalErrors = 0;
-            
-            // Process each file's validation results
-            for (FileEntity file : files) {
-                String fileIdStr = String.valueOf(file.hashCode());
-                List<RsfError> fileErrors = getMockValidationErrors(fileIdStr);
-                if (!fileErrors.isEmpty()) {
-                    filesWithErrors++;
-                    totalErrors += fileErrors.size();
-                }
+            ValidationAggregates.Snapshot snapshot = aggregates.snapshot();
+            long totalFiles = fileRepo.count();
+            String etag = etag(snapshot, totalFiles);
+            if (request.checkNotModified(etag)) {
+                return null;
             }
-            
-            // Create summary object
-            Map<String, Object> summary = new HashMap<>();
-            summary.put("totalFiles", totalFiles);
-            summary.put("filesWithErrors", filesWithErrors);
-            summary.put("totalErrors", totalErrors);
-            summary.put("processingTime", 1500); // Mock processing time in ms
-            summary.put("lastUpdated", LocalDateTime.now().format(DateTimeFormatter.ISO_DATE_TIME));
-            
-            return ResponseEntity.ok(summary);
+            return ResponseEntity.ok().eTag(etag).body(summary(snapshot, totalFiles));
         } catch (Exception e) {
             log.error("Error retrieving validation summary", e);
             return ResponseEntity.internalServerError()
@@ -177,24 +131,25 @@ public class ValidationController {
     }
     
     /**
-     * Get errors for a specific file
+     * Get the most recent errors of a specific file
      */
     @GetMapping("/errors/{fileId}")
-    public ResponseEntity<List<Map<String, Object>>> getErrorsForFile(@PathVariable String fileId) {
+    public ResponseEntity<List<Map<String, Object>>> getErrorsForFile(
+            @PathVariable String fileId,
+            @RequestParam(defaultValue = "500") int size) {
         try {
             log.info("Fetching errors for file: {}", fileId);
             
-            Optional<FileEntity> fileOpt = fileRepo.findById(UUID.fromString(fileId));
-            if (fileOpt.isEmpty()) {
+            UUID id = UUID.fromString(fileId);
+            if (!fileRepo.existsById(id)) {
                 return ResponseEntity.notFound().build();
             }
             
-            FileEntity file = fileOpt.get();
-            List<RsfError> errors = getMockValidationErrors(fileId);
-            
-            List<Map<String, Object>> errorMaps = errors.stream()
-                .map(error -> convertErrorToMap(error, file))
-                .collect(Collectors.toList());
+            List<Map<String, Object>> errorMaps = validationErrors
+                    .list(new ValidationErrorStore.Filter(id, null, null), null, pageSize(size))
+                    .errors().stream()
+                    .map(this::convertErrorToMap)
+                    .collect(Collectors.toList());
             
             return ResponseEntity.ok(errorMaps);
         } catch (Exception e) {
@@ -204,101 +159,38 @@ public class ValidationController {
     }
     
     /**
-     * Get all errors with pagination and optional filtering
+     * Get all errors, newest first, with optional filtering.
+     * Pass the {@code nextCursor} of a response as {@code after} to get the following page;
+     * {@code page} is still accepted from clients that do not send a cursor.
      */
     @GetMapping("/errors")
     public ResponseEntity<Map<String, Object>> getAllErrors(
             @RequestParam(required = false) String errorType,
             @RequestParam(required = false) String fileId,
             @RequestParam(required = false) String fieldName,
+            @RequestParam(required = false) Long after,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "20") int size,
-            @RequestParam(defaultValue = "timestamp,desc") String sort) {
+            @RequestParam(defaultValue = "20") int size) {
         
         try {
-            log.info("Fetching all errors with filters: type={}, fileId={}, field={}, page={}, size={}",
-                    errorType, fileId, fieldName, page, size);
-            
-            List<Map<String, Object>> allErrors = new ArrayList<>();
-            int totalItems = 0;
-            
-            // In a real implementation, this would use repository methods with proper pagination
-            // For this mock implementation, we'll get all errors and filter in memory
-            List<FileEntity> files;
-            if (fileId != null && !fileId.isEmpty()) {
-                Optional<FileEntity> fileOpt = fileRepo.findById(UUID.fromString(fileId));
-                files = fileOpt.map(List::of).orElse(List.of());
-            } else {
-                files = fileRepo.findAll();
-            }
-            
-            for (FileEntity file : files) {
-                String fileIdStr = String.valueOf(file.hashCode());
-                List<RsfError> errors = getMockValidationErrors(fileIdStr);
-                
-                // Apply filters
-                if (errorType != null && !errorType.isEmpty()) {
-                    try {
-                        RsfErrorType type = RsfErrorType.valueOf(errorType);
-                        errors = errors.stream()
-                                .filter(e -> e.getErrorType() == type)
-                                .collect(Collectors.toList());
-                    } catch (IllegalArgumentException e) {
-                        log.warn("Invalid error type filter: {}", errorType);
-                    }
-                }
-                
-                if (fieldName != null && !fieldName.isEmpty()) {
-                    errors = errors.stream()
-                            .filter(e -> fieldName.equals(e.getField()))
-                            .collect(Collectors.toList());
-                }
-                
-                // Convert to maps
-                List<Map<String, Object>> errorMaps = errors.stream()
-                        .map(error -> convertErrorToMap(error, file))
-                        .collect(Collectors.toList());
-                
-                allErrors.addAll(errorMaps);
-                totalItems += errorMaps.size();
-            }
-            
-            // Sort the results
-            String[] sortParts = sort.split(",");
-            String sortField = sortParts[0];
-            boolean ascending = sortParts.length < 2 || !sortParts[1].equalsIgnoreCase("desc");
-            
-            allErrors.sort((e1, e2) -> {
-                Object v1 = e1.get(sortField);
-                Object v2 = e2.get(sortField);
-                int result = 0;
-                
-                if (v1 instanceof String && v2 instanceof String) {
-                    result = ((String) v1).compareTo((String) v2);
-                } else if (v1 instanceof Number && v2 instanceof Number) {
-                    result = Double.compare(((Number) v1).doubleValue(), ((Number) v2).doubleValue());
-                }
-                
-                return ascending ? result : -result;
-            });
-            
-            // Apply pagination
-            int fromIndex = page * size;
-            int toIndex = Math.min(fromIndex + size, allErrors.size());
-            
-            List<Map<String, Object>> pagedErrors;
-            if (fromIndex < allErrors.size()) {
-                pagedErrors = allErrors.subList(fromIndex, toIndex);
-            } else {
-                pagedErrors = List.of();
-            }
-            
-            int totalPages = (int) Math.ceil((double) totalItems / size);
+            log.info("Fetching all errors with filters: type={}, fileId={}, field={}, after={}, page={}, size={}",
+                    errorType, fileId, fieldName, after, page, size);
+            
+            ValidationErrorStore.Filter filter = filter(errorType, fileId, fieldName);
+            size = pageSize(size);
+            ValidationErrorStore.Page errors = after != null || page <= 0
+                    ? validationErrors.list(filter, after, size)
+                    : validationErrors.listPage(filter, page, size);
+            // Counts without a field filter are maintained, only field filters need a query
+            long totalItems = filter.field() == null
+                    ? aggregates.count(filter.fileId(), filter.errorType())
+                    : validationErrors.count(filter);
             
             Map<String, Object> response = new HashMap<>();
-            response.put("errors", pagedErrors);
+            response.put("errors", errors.errors().stream().map(this::convertErrorToMap).collect(Collectors.toList()));
+            response.put("nextCursor", errors.nextCursor());
             response.put("totalItems", totalItems);
-            response.put("totalPages", totalPages);
+            response.put("totalPages", (totalItems + size - 1) / size);
             response.put("currentPage", page);
             
             return ResponseEntity.ok(response);
@@ -310,22 +202,84 @@ public class ValidationController {
     }
     
     /**
-     * Attempt to fix a validation error
+     * Stream all errors matching the list filters as CSV or NDJSON, newest first
+     */
+    @GetMapping("/errors/export")
+    public ResponseEntity<StreamingResponseBody> exportErrors(
+            @RequestParam(required = false) String errorType,
+            @RequestParam(required = false) String fileId,
+            @RequestParam(required = false) String fieldName,
+            @RequestParam(defaultValue = "csv") String format) {
+        ValidationErrorExport.Format exportFormat;
+        try {
+            exportFormat = ValidationErrorExport.Format.valueOf(format.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        log.info("Exporting errors as {} with filters: type={}, fileId={}, field={}",
+                exportFormat, errorType, fileId, fieldName);
+        ValidationErrorStore.Filter filter = filter(errorType, fileId, fieldName);
+        
+        StreamingResponseBody body = out -> {
+            long written = errorExport.write(filter, exportFormat, out);
+            log.info("Exported {} validation errors", written);
+        };
+        return ResponseEntity.ok()
+                .contentType(exportFormat.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("validation-errors." + exportFormat.getExtension()).build().toString())
+                .body(body);
+    }
+    
+    /**
+     * Fix errors of a file in bulk, producing a new version of the file
+     */
+    @PostMapping("/fix")
+    public ResponseEntity<Map<String, Object>> fixErrors(@RequestBody RsfFixRequest request,
+                                                         @AuthenticationPrincipal UserDetails auth) {
+        if (request.fileId() == null) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "message", "fileId is required"));
+        }
+        Optional<FileEntity> file = fileRepo.findById(request.fileId());
+        if (file.isPresent() && !FileAccess.mayModify(file.get(), auth)) {
+            return forbiddenFix();
+        }
+        try {
+            log.info("Fixing errors of file {}: ids={}, type={}, field={}", request.fileId(),
+                    request.errorIds() != null ? request.errorIds().size() : null, request.errorType(), request.fieldName());
+            RsfFixService.Result result = fixService.fix(request.fileId(), request.errorIds(),
+                    filter(request.errorType(), null, request.fieldName()), author(auth));
+            return ResponseEntity.ok(fixResponse(result));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "message", e.getMessage()));
+        } catch (Exception e) {
+            log.error("Error fixing errors of file {}", request.fileId(), e);
+            return ResponseEntity.internalServerError()
+                    .body(Map.of(
+                            "success", false,
+                            "message", "Error fixing validation errors: " + e.getMessage()
+                    ));
+        }
+    }
+    
+    /**
+     * Attempt to fix a single validation error
      */
     @PostMapping("/fix/{errorId}")
-    public ResponseEntity<Map<String, Object>> fixError(@PathVariable String errorId) {
+    public ResponseEntity<Map<String, Object>> fixError(@PathVariable long errorId,
+                                                        @AuthenticationPrincipal UserDetails auth) {
         try {
             log.info("Attempting to fix error: {}", errorId);
-            // In a real implementation, this would identify the error and attempt to fix it
-            // For now, just return a simulated success response
-            boolean success = true;
-            String message = "Error fixed successfully";
-            
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", success);
-            response.put("message", message);
-            
-            return ResponseEntity.ok(response);
+            Optional<FileEntity> file = validationErrors.fileOf(errorId).flatMap(fileRepo::findById);
+            if (file.isEmpty()) {
+                return ResponseEntity.notFound().build();
+            }
+            if (!FileAccess.mayModify(file.get(), auth)) {
+                return forbiddenFix();
+            }
+            RsfFixService.Result result = fixService.fix(file.get().getId(), List.of(errorId),
+                    new ValidationErrorStore.Filter(null, null, null), author(auth));
+            return ResponseEntity.ok(fixResponse(result));
         } catch (Exception e) {
             log.error("Error fixing validation error {}", errorId, e);
             return ResponseEntity.internalServerError()
@@ -336,28 +290,102 @@ public class ValidationController {
         }
     }
     
+    private static ResponseEntity<Map<String, Object>> forbiddenFix() {
+        return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                .body(Map.of("success", false, "message", "Only the uploader can fix the errors of this file"));
+    }
+    
+    /**
+     * @return The user the new version is attributed to
+     */
+    private User author(UserDetails auth) {
+        return auth != null ? userCache.find(auth.getUsername()).orElse(null) : null;
+    }
+    
+    private static Map<String, Object> fixResponse(RsfFixService.Result result) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", result.fixed() > 0);
+        response.put("message", result.fixed() > 0
+                ? "Fixed " + result.fixed() + " fields, version " + result.version() + " has " + result.remainingErrors() + " errors"
+                : "No error could be fixed automatically");
+        response.put("fileId", result.fileId());
+        response.put("versionId", result.versionId());
+        response.put("version", result.version());
+        response.put("selected", result.selected());
+        response.put("fixed", result.fixed());
+        response.put("unfixable", result.unfixable());
+        response.put("linesRewritten", result.linesRewritten());
+        response.put("remainingErrors", result.remainingErrors());
+        response.put("durationMs", result.durationMs());
+        return response;
+    }
+    
+    private static Map<String, Object> summary(ValidationAggregates.Snapshot snapshot, long totalFiles) {
+        Map<String, Object> summary = new HashMap<>();
+        summary.put("totalFiles", totalFiles);
+        summary.put("filesWithErrors", snapshot.filesWithErrors());
+        summary.put("totalErrors", snapshot.totalErrors());
+        summary.put("processingTime", 0);
+        summary.put("lastUpdated", snapshot.updatedAt().toString());
+        return summary;
+    }
+    
+    /**
+     * The counts only change with their version; uploads without errors still change the file count.
+     */
+    private static String etag(ValidationAggregates.Snapshot snapshot, long totalFiles) {
+        return "\"" + snapshot.version() + "-" + totalFiles + "\"";
+    }
+    
+    /**
+     * Filters shared by the list and export endpoints; an unknown error type is ignored.
+     */
+    private static ValidationErrorStore.Filter filter(String errorType, String fileId, String fieldName) {
+        RsfErrorType type = null;
+        if (errorType != null && !errorType.isEmpty()) {
+            try {
+                type = RsfErrorType.valueOf(errorType);
+            } catch (IllegalArgumentException e) {
+                log.warn("Invalid error type filter: {}", errorType);
+            }
+        }
+        return new ValidationErrorStore.Filter(
+                fileId != null && !fileId.isEmpty() ? UUID.fromString(fileId) : null,
+                type,
+                fieldName != null && !fieldName.isEmpty() ? fieldName : null);
+    }
+    
+    private static int pageSize(int size) {
+        return Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+    }
+    
     /**
-     * Helper method to convert RsfError to a map for JSON responses
+     * Helper method to convert a stored error to a map for JSON responses
      */
-    private Map<String, Object> convertErrorToMap(RsfError error, FileEntity file) {
+    private Map<String, Object> convertErrorToMap(ValidationErrorDto error) {
         Map<String, Object> map = new HashMap<>();
-        map.put("id", UUID.randomUUID().toString()); // Generate a unique ID for this error
-        map.put("fileId", String.valueOf(file.hashCode()));
-        // Use safe fallbacks for fields that may not be accessible
-        map.put("fileName", "File-" + file.hashCode());
-        map.put("lineNumber", error.getLineNumber());
-        map.put("fieldName", error.getField());
-        map.put("errorType", error.getErrorType().toString());
-        map.put("message", error.getMessage());
-        map.put("recordIdentifier", error.getLineNumber() + "-" + error.getField()); // Simulate record ID
-        map.put("timestamp", LocalDateTime.now().format(DateTimeFormatter.ISO_DATE_TIME));
+        map.put("id", String.valueOf(error.id()));
+        map.put("fileId", String.valueOf(error.fileId()));
+        map.put("fileName", error.fileName() != null ? error.fileName() : String.valueOf(error.fileId()));
+        map.put("lineNumber", error.lineNumber());
+        map.put("fieldName", error.field());
+        map.put("errorType", error.errorType());
+        map.put("message", error.message());
+        map.put("recordIdentifier", (error.source() != null ? error.source() + ":" : "") + error.lineNumber());
+        map.put("timestamp", error.createdAt() != null ? error.createdAt().toString() : null);
         return map;
     }
     
     /**
      * Helper method to get a description for an error type
      */
-    private String getErrorTypeDescription(RsfErrorType type) {
+    private String getErrorTypeDescription(String errorType) {
+        RsfErrorType type;
+        try {
+            type = RsfErrorType.valueOf(errorType);
+        } catch (IllegalArgumentException e) {
+            return "Other validation errors";
+        }
         switch (type) {
             case DATA_ERROR:
                 return "Data-level validation errors";
@@ -378,61 +406,4 @@ public class ValidationController {
                 return "Other validation errors";
         }
     }
-    
-    /**
-     * Helper method to generate mock validation errors for testing
-     * In a real implementation, these would come from the database
-     */
-    private List<RsfError> getMockValidationErrors(String fileId) {
-        // To make results deterministic based on fileId
-        Random random = new Random(fileId.hashCode());
-        int errorCount = random.nextInt(10); // 0-9 errors per file
-        
-        List<RsfError> errors = new ArrayList<>();
-        for (int i = 0; i < errorCount; i++) {
-            RsfErrorType[] types = RsfErrorType.values();
-            RsfErrorType type = types[random.nextInt(types.length)];
-            
-            String fieldName;
-            switch (random.nextInt(5)) {
-                case 0: fieldName = "N_FINESS_EPMSI"; break;
-                case 1: fieldName = "N_IMMATRICULATION_ASSURE"; break;
-                case 2: fieldName = "DATE_NAISSANCE"; break;
-                case 3: fieldName = "CODE_ACTE"; break;
-                default: fieldName = "MONTANT_BASE_REMBOURSEMENT"; break;
-            }
-            
-            String message;
-            switch (type) {
-                case DATA_ERROR:
-                    message = "Invalid data format for " + fieldName;
-                    break;
-                case STRUCTURAL:
-                case STRUCTURAL_ERROR:
-                    message = "Missing required line or structure issue";
-                    break;
-                case SEQUENCE_ERROR:
-                    message = "Invalid sequence for records";
-                    break;
-                case DEPENDENCY_ERROR:
-                    message = fieldName + " references a non-existent record";
-                    break;
-                case FILE_NAME_ERROR:
-                    message = "Invalid file naming format";
-                    break;
-                case FORMAT_ERROR:
-                    message = "Format error in " + fieldName;
-                    break;
-                case SYSTEM_ERROR:
-                    message = "System error during validation";
-                    break;
-                default:
-                    message = "Unknown error type";
-            }
-            
-            errors.add(new RsfError(random.nextInt(100) + 1, fieldName, type, message));
-        }
-        
-        return errors;
-    }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,40 @@
+package com.rsf.domain;
+
+import java.time.Instant;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * A distinct stored content, shared by every {@link FileEntity} with the same hash.
+ */
+@Entity
+@Table(name = "blobs")
+@Getter
+@Setter
+@NoArgsConstructor
+public class Blob {
+    /** Hex SHA-256 of the uncompressed content */
+    @Id
+    private String hash;
+
+    /** Uncompressed size in bytes */
+    private long size;
+
+    /** Size on disk, smaller than {@link #size} when compressed */
+    private long storedSize;
+
+    private boolean compressed;
+
+    /** Files pointing at this blob; at 0 it is collected once the grace period is over */
+    private int refCount;
+
+    private Instant createdAt = Instant.now();
+
+    /** When the last reference went away */
+    private Instant releasedAt;
+}
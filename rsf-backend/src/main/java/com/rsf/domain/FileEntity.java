@@ -3,6 +3,7 @@ package com.rsf.domain;
 import java.time.Instant;
 import java.util.UUID;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
@@ -35,6 +36,21 @@ public class FileEntity {
     
     private Instant uploadedAt = Instant.now();
     
+    /** Hex SHA-256 of the stored content; re-uploads share it along with the blob */
+    @Column(length = 64)
+    private String contentHash;
+    
+    /** Percentage of the archive inflated by its import, {@code null} for other files */
+    private Integer progress;
+    
+    /** File this one was derived from by fixing its errors, {@code null} for uploads */
+    private UUID parentId;
+    
+    /** 1 for uploads, one more than the parent's for fixed versions */
+    private int version = 1;
+    
+    /** Never sent to clients: it is a full user record */
+    @JsonIgnore
     @ManyToOne
     private User uploader;
 } 
\ No newline at end of file
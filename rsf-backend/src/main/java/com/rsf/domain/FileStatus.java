@@ -4,5 +4,6 @@ public enum FileStatus {
     QUEUED,
     PROCESSING,
     READY,
-    ERROR
+    ERROR,
+    CANCELLED
 } 
\ No newline at end of file
@@ -0,0 +1,49 @@
+package com.rsf.domain;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Status and compact summary of the background import of one uploaded file.
+ * Full results, error lists and processed lines are kept in files, see ImportJobService.
+ */
+@Entity
+@Table(name = "import_jobs")
+@Getter
+@Setter
+@NoArgsConstructor
+public class ImportJobEntity {
+    @Id
+    private UUID fileId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 20, nullable = false)
+    private ImportJobStatus status;
+
+    private int progress;
+
+    @Column(length = 20)
+    private String fileType;
+
+    /** JSON array of the upload validation details */
+    private String validationDetails;
+
+    /** JSON object with the scalar entries of the import result */
+    private String summary;
+
+    private int errorCount;
+
+    private Instant createdAt = Instant.now();
+    private Instant updatedAt = Instant.now();
+    private Instant completedAt;
+}
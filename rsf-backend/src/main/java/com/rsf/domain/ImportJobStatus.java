@@ -0,0 +1,9 @@
+package com.rsf.domain;
+
+public enum ImportJobStatus {
+    QUEUED,
+    RUNNING,
+    COMPLETED,
+    FAILED,
+    CANCELLED
+}
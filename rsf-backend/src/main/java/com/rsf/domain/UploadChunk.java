@@ -0,0 +1,33 @@
+package com.rsf.domain;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Entity
+@Table(name = "upload_chunks")
+@Getter
+@Setter
+@NoArgsConstructor
+public class UploadChunk {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private UUID sessionId;
+    private int chunkIndex;
+    private int size;
+
+    /** Hex SHA-256 of the chunk as received */
+    private String checksum;
+
+    private Instant receivedAt = Instant.now();
+}
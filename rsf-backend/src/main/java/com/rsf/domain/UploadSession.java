@@ -0,0 +1,55 @@
+package com.rsf.domain;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * A resumable chunked upload. Chunk {@code i} covers bytes
+ * {@code [i * chunkSize, min((i + 1) * chunkSize, totalSize))} of the file.
+ */
+@Entity
+@Table(name = "upload_sessions")
+@Getter
+@Setter
+@NoArgsConstructor
+public class UploadSession {
+    @Id
+    private UUID id = UUID.randomUUID();
+
+    private String originalName;
+    private long totalSize;
+    private int chunkSize;
+    private int chunkCount;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 20, nullable = false)
+    private UploadSessionStatus status = UploadSessionStatus.OPEN;
+
+    /** Stored file, once the session is finalised */
+    private UUID fileId;
+
+    @ManyToOne
+    private User uploader;
+
+    private Instant createdAt = Instant.now();
+    private Instant updatedAt = Instant.now();
+
+    public long chunkOffset(int index) {
+        return (long) index * chunkSize;
+    }
+
+    public int chunkLength(int index) {
+        return (int) Math.min(chunkSize, totalSize - chunkOffset(index));
+    }
+}
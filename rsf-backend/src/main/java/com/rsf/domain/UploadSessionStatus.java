@@ -0,0 +1,8 @@
+package com.rsf.domain;
+
+public enum UploadSessionStatus {
+    OPEN,
+    /** Every chunk is in and the part file is being handed to storage */
+    FINALISING,
+    COMPLETED
+}
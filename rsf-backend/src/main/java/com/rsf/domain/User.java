@@ -1,9 +1,9 @@
 package com.rsf.domain;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
-import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -14,7 +14,6 @@ import java.util.*;
 @Table(name = "users")
 @Getter
 @Setter
-@Slf4j
 public class User implements UserDetails {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -23,6 +22,7 @@ public class User implements UserDetails {
     @Column(nullable = false, unique = true)
     private String username;
     
+    @JsonIgnore
     @Column(nullable = false)
     private String password;
     
@@ -37,13 +37,9 @@ public class User implements UserDetails {
 
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
-        log.debug("Getting authorities for user: {}", username);
-        log.debug("User roles: {}", roles.stream().map(Role::getName).toList());
-        var authorities = roles.stream()
+        return roles.stream()
             .map(r -> new SimpleGrantedAuthority(r.getName()))
             .toList();
-        log.debug("Converted authorities: {}", authorities);
-        return authorities;
     }
 
     @Override
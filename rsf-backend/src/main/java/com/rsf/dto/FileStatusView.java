@@ -0,0 +1,10 @@
+package com.rsf.dto;
+
+import com.rsf.domain.FileStatus;
+
+/**
+ * The polled part of a file record.
+ *
+ * @param progress Percentage of the archive inflated by its import, {@code null} for other files
+ */
+public record FileStatusView(FileStatus status, Integer progress) {}
@@ -0,0 +1,34 @@
+package com.rsf.dto;
+
+import com.rsf.rsf.domain.models.HoraireUpdateRecord;
+
+/**
+ * JSON view of a HORAIRE update as exposed in import results.
+ * Field names match the keys the import results have always used.
+ */
+public record HoraireUpdateDto(int sourceRowNum,
+                               String numImmatriculation,
+                               String dateNaissance,
+                               String dateSoins,
+                               String codeActe,
+                               String horaire) {
+
+    public static final String PROCESSED_LINES_HEADER = "num_immatriculation | date_naissance | date_soins | code_acte | horaire";
+
+    public static HoraireUpdateDto from(HoraireUpdateRecord record) {
+        return new HoraireUpdateDto(record.getSourceRowNum(), record.getNumImmatriculation(),
+                record.getDateNaissance(), record.getDateSoins(), record.getCodeActe(), record.getHoraire());
+    }
+
+    /** Line shown in the processed data view */
+    public String toProcessedLine() {
+        return "Row: " + sourceRowNum + " | " + numImmatriculation + " | " + dateNaissance + " | "
+                + dateSoins + " | " + codeActe + " | " + horaire;
+    }
+
+    /** Line shown in the sample records of the import result */
+    public String toSample() {
+        return "Row " + sourceRowNum + ": Num Immat=" + numImmatriculation + ", Date Naissance=" + dateNaissance
+                + ", Date Soins=" + dateSoins + ", Code Acte=" + codeActe + ", Horaire=" + horaire;
+    }
+}
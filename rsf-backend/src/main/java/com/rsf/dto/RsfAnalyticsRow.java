@@ -0,0 +1,19 @@
+package com.rsf.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Aggregates of the RSF lines sharing one key (a file, FINESS, month or acte code).
+ *
+ * @param key             The group's value, {@code null} for lines missing it
+ * @param firstDateSoins  Earliest soins date, YYYYMMDD
+ * @param lastDateSoins   Latest soins date, YYYYMMDD
+ * @param honoraires      Stay totals (A lines), or acte amounts when grouped by acte
+ * @param remboursableAmo Stay totals (A lines), or acte amounts when grouped by acte
+ */
+public record RsfAnalyticsRow(String key,
+                              long lines,
+                              String firstDateSoins,
+                              String lastDateSoins,
+                              BigDecimal honoraires,
+                              BigDecimal remboursableAmo) {}
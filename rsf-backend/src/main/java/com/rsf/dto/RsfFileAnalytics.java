@@ -0,0 +1,19 @@
+package com.rsf.dto;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Figures of one imported RSF file, the ones {@code RsfValidationResult} has room for.
+ *
+ * @param firstDateSoins Earliest soins date of the B, C and M lines, YYYYMMDD
+ * @param lastDateSoins  Latest soins date of the B, C and M lines, YYYYMMDD
+ */
+public record RsfFileAnalytics(UUID fileId,
+                               long totalLines,
+                               Map<Character, Long> linesPerType,
+                               String firstDateSoins,
+                               String lastDateSoins,
+                               BigDecimal totalHonorairesRemboursableAm,
+                               BigDecimal totalRemboursableAmo) {}
@@ -0,0 +1,12 @@
+package com.rsf.dto;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Errors of one file to fix in bulk: the listed ids, or every error matching the filters.
+ */
+public record RsfFixRequest(UUID fileId,
+                            List<Long> errorIds,
+                            String errorType,
+                            String fieldName) {}
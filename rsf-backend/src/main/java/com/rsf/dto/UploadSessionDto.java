@@ -0,0 +1,22 @@
+package com.rsf.dto;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * State of a chunked upload as seen by the client: which chunks (and byte ranges) are
+ * already stored, so an interrupted upload resumes with the missing ones.
+ */
+public record UploadSessionDto(UUID sessionId,
+                               String filename,
+                               long size,
+                               int chunkSize,
+                               int chunkCount,
+                               List<Integer> receivedChunks,
+                               List<Range> receivedRanges,
+                               String status,
+                               UUID fileId) {
+
+    /** Received bytes {@code [start, end)} */
+    public record Range(long start, long end) {}
+}
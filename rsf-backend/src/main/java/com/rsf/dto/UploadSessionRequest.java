@@ -0,0 +1,3 @@
+package com.rsf.dto;
+
+public record UploadSessionRequest(String filename, long size) {}
@@ -0,0 +1,19 @@
+package com.rsf.dto;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * One persisted validation error.
+ *
+ * @param source ZIP entry the line came from, {@code null} for plain files
+ */
+public record ValidationErrorDto(long id,
+                                 UUID fileId,
+                                 String fileName,
+                                 String source,
+                                 int lineNumber,
+                                 String field,
+                                 String errorType,
+                                 String message,
+                                 Instant createdAt) {}
@@ -0,0 +1,32 @@
+package com.rsf.repo;
+
+import com.rsf.domain.Blob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+import java.time.Instant;
+import java.util.List;
+
+public interface BlobRepo extends JpaRepository<Blob, String> {
+    List<Blob> findByRefCountAndReleasedAtBefore(int refCount, Instant cutoff);
+
+    @Transactional
+    @Modifying
+    @Query("update Blob b set b.refCount = b.refCount + 1, b.releasedAt = null where b.hash = :hash")
+    int acquire(@Param("hash") String hash);
+
+    @Transactional
+    @Modifying
+    @Query("update Blob b set b.refCount = b.refCount - 1,"
+            + " b.releasedAt = case when b.refCount = 1 then :now else b.releasedAt end"
+            + " where b.hash = :hash and b.refCount > 0")
+    int release(@Param("hash") String hash, @Param("now") Instant now);
+
+    /** Deletes the row only if nothing took a reference since it was listed */
+    @Transactional
+    @Modifying
+    @Query("delete from Blob b where b.hash = :hash and b.refCount = 0")
+    int deleteIfUnreferenced(@Param("hash") String hash);
+}
@@ -1,8 +1,27 @@
 package com.rsf.repo;
 
 import com.rsf.domain.FileEntity;
+import com.rsf.dto.FileStatusView;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 public interface FileRepo extends JpaRepository<FileEntity, UUID> {
-} 
\ No newline at end of file
+    /** Earlier uploads of the same content, newest first */
+    List<FileEntity> findByContentHashAndIdNotOrderByUploadedAtDesc(String contentHash, UUID id);
+
+    /** Status and progress only, without joining the uploader and its roles */
+    @Query("select new com.rsf.dto.FileStatusView(f.status, f.progress) from FileEntity f where f.id = :id")
+    Optional<FileStatusView> findStatusById(@Param("id") UUID id);
+
+    /** Updates only the progress column, so it never races a status change */
+    @Transactional
+    @Modifying
+    @Query("update FileEntity f set f.progress = :progress where f.id = :id")
+    int updateProgress(@Param("id") UUID id, @Param("progress") int progress);
+}
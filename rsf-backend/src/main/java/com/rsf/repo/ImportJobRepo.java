@@ -0,0 +1,12 @@
+package com.rsf.repo;
+
+import com.rsf.domain.ImportJobEntity;
+import com.rsf.domain.ImportJobStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+public interface ImportJobRepo extends JpaRepository<ImportJobEntity, UUID> {
+    List<ImportJobEntity> findByStatusIn(Collection<ImportJobStatus> statuses);
+}
@@ -0,0 +1,15 @@
+package com.rsf.repo;
+
+import com.rsf.domain.UploadChunk;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.transaction.annotation.Transactional;
+import java.util.List;
+import java.util.UUID;
+
+public interface UploadChunkRepo extends JpaRepository<UploadChunk, Long> {
+    List<UploadChunk> findBySessionIdOrderByChunkIndex(UUID sessionId);
+    long countBySessionId(UUID sessionId);
+
+    @Transactional
+    long deleteBySessionIdAndChunkIndex(UUID sessionId, int chunkIndex);
+}
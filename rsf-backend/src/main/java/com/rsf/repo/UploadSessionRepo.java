@@ -0,0 +1,26 @@
+package com.rsf.repo;
+
+import com.rsf.domain.UploadSession;
+import com.rsf.domain.UploadSessionStatus;
+import com.rsf.domain.User;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+public interface UploadSessionRepo extends JpaRepository<UploadSession, UUID> {
+    List<UploadSession> findByStatusAndUpdatedAtBefore(UploadSessionStatus status, Instant cutoff);
+
+    long countByUploaderAndStatus(User uploader, UploadSessionStatus status);
+
+    /** Moves a session from one status to another, so only one caller wins a transition */
+    @Transactional
+    @Modifying
+    @Query("update UploadSession s set s.status = :to where s.id = :id and s.status = :from")
+    int transition(@Param("id") UUID id, @Param("from") UploadSessionStatus from, @Param("to") UploadSessionStatus to);
+}
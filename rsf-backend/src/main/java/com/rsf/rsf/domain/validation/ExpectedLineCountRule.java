@@ -3,6 +3,7 @@ package com.rsf.rsf.domain.validation;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 /**
  * Validates that the RSF data contains at least one 'B' or 'C' line.
@@ -17,17 +18,32 @@ public class ExpectedLineCountRule implements RsfValidationRule {
         boolean hasCLine = !rsfData.getOrDefault('C', Collections.emptyList()).isEmpty();
 
         if (!hasBLine && !hasCLine) {
-            result.addError(new RsfError(
-                    0, // Error applies to the whole file
-                    "File Structure",
-                    RsfErrorType.STRUCTURAL,
-                    "File must contain at least one B or C line."
-            ));
+            result.addError(missingLines());
         }
 
         return result;
     }
 
+    /**
+     * The same check on line counts, for validation that streams lines instead of collecting them.
+     *
+     * @param linesPerType Number of parsed lines per line type
+     */
+    public static Optional<RsfError> check(Map<Character, Long> linesPerType) {
+        boolean hasBLine = linesPerType.getOrDefault('B', 0L) > 0;
+        boolean hasCLine = linesPerType.getOrDefault('C', 0L) > 0;
+        return hasBLine || hasCLine ? Optional.empty() : Optional.of(missingLines());
+    }
+
+    private static RsfError missingLines() {
+        return new RsfError(
+                0, // Error applies to the whole file
+                "File Structure",
+                RsfErrorType.STRUCTURAL,
+                "File must contain at least one B or C line."
+        );
+    }
+
     @Override
     public RsfRuleType getRuleType() {
         return RsfRuleType.STRUCTURAL;
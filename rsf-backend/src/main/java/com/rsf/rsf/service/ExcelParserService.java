@@ -7,6 +7,7 @@ import com.rsf.rsf.domain.validation.RsfError;
 import com.rsf.rsf.domain.validation.RsfErrorType;
 import com.rsf.rsf.domain.validation.RsfValidationResult;
 import com.rsf.rsf.utils.ExcelParsingUtils;
+import com.rsf.util.CancellationToken;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.poi.ss.usermodel.*;
@@ -18,6 +19,7 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
 import java.util.*;
+import java.util.concurrent.CancellationException;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.zip.ZipEntry;
@@ -37,6 +39,14 @@ public class ExcelParserService {
     private final RsfIntegrationService rsfIntegrationService;
 
     public ExcelParsingResult parseExcelFromZip(InputStream zipInputStream, String zipFileName) {
+        return parseExcelFromZip(zipInputStream, zipFileName, CancellationToken.NONE);
+    }
+
+    /**
+     * As {@link #parseExcelFromZip(InputStream, String)}, stopping with a
+     * {@link CancellationException} once {@code cancellation} is cancelled.
+     */
+    public ExcelParsingResult parseExcelFromZip(InputStream zipInputStream, String zipFileName, CancellationToken cancellation) {
         RsfValidationResult validationResult = new RsfValidationResult(zipFileName);
         try {
             // Copy input stream to byte array to avoid stream closed issues
@@ -58,6 +68,7 @@ public class ExcelParserService {
                 ExcelParsingResult result = null;
 
                 while ((entry = zis.getNextEntry()) != null) {
+                    cancellation.throwIfCancelled();
                     if (!entry.isDirectory()) {
                         String entryName = entry.getName().substring(entry.getName().lastIndexOf('/') + 1); // Get base filename
                         log.info("Processing entry: {}", entryName);
@@ -80,7 +91,7 @@ public class ExcelParserService {
                             entryBytes.flush();
                             
                             // Parse using in-memory bytes
-                            result = parseHoraireFile(new ByteArrayInputStream(entryBytes.toByteArray()), entryName, validationResult);
+                            result = parseHoraireFile(new ByteArrayInputStream(entryBytes.toByteArray()), entryName, validationResult, cancellation);
 
                         } else if (entryName.startsWith(LIGNES_PREFIX) && (entryName.endsWith(".xlsx") || entryName.endsWith(".xls"))) {
                             Matcher matcher = LIGNES_FILENAME_PATTERN.matcher(entryName);
@@ -103,7 +114,7 @@ public class ExcelParserService {
                                     entryBytes.flush();
                                     
                                     // Parse using in-memory bytes
-                                    result = parseLignesFile(new ByteArrayInputStream(entryBytes.toByteArray()), entryName, lineType, validationResult);
+                                    result = parseLignesFile(new ByteArrayInputStream(entryBytes.toByteArray()), entryName, lineType, validationResult, cancellation);
                                 } else {
                                     validationResult.addError(new RsfError(0, entryName, RsfErrorType.FILE_NAME_ERROR, "Unsupported LIGNES type '/" + lineType + "/' in filename."));
                                     return ExcelParsingResult.errorResult(validationResult);
@@ -129,11 +140,15 @@ public class ExcelParserService {
 
                 return result;
 
+            } catch (CancellationException e) {
+                throw e;
             } catch (Exception e) {
                 log.error("Error processing ZIP file {}: {}", zipFileName, e.getMessage(), e);
                 validationResult.addError(new RsfError(0, zipFileName, RsfErrorType.STRUCTURAL_ERROR, "Failed to process ZIP file: " + e.getMessage()));
                 return ExcelParsingResult.errorResult(validationResult);
             }
+        } catch (CancellationException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error reading ZIP file {}: {}", zipFileName, e.getMessage(), e);
             validationResult.addError(new RsfError(0, zipFileName, RsfErrorType.STRUCTURAL_ERROR, "Failed to read ZIP file: " + e.getMessage()));
@@ -141,7 +156,29 @@ public class ExcelParserService {
         }
     }
 
-    private ExcelParsingResult parseHoraireFile(InputStream fileInputStream, String fileName, RsfValidationResult validationResult) {
+    /**
+     * Parses a standalone HORAIRES_ workbook (outside of a ZIP archive).
+     *
+     * @param fileInputStream The workbook content
+     * @param fileName The original file name, used in validation messages
+     * @return The parsed updates together with their validation result
+     */
+    public ExcelParsingResult parseHoraireWorkbook(InputStream fileInputStream, String fileName) {
+        return parseHoraireWorkbook(fileInputStream, fileName, CancellationToken.NONE);
+    }
+
+    /**
+     * As {@link #parseHoraireWorkbook(InputStream, String)}, checking {@code cancellation}
+     * every {@link CancellationToken#CHECK_INTERVAL} rows.
+     *
+     * @throws CancellationException If the token is cancelled while the rows are read
+     */
+    public ExcelParsingResult parseHoraireWorkbook(InputStream fileInputStream, String fileName, CancellationToken cancellation) {
+        return parseHoraireFile(fileInputStream, fileName, new RsfValidationResult(fileName), cancellation);
+    }
+
+    private ExcelParsingResult parseHoraireFile(InputStream fileInputStream, String fileName, RsfValidationResult validationResult,
+                                                CancellationToken cancellation) {
         List<HoraireUpdateRecord> updates = new ArrayList<>();
         int totalRowsProcessed = 0;
         try (Workbook workbook = WorkbookFactory.create(fileInputStream)) {
@@ -182,6 +219,7 @@ public class ExcelParserService {
                 Row row = rowIterator.next();
                 rowNum++;
                 totalRowsProcessed++;
+                cancellation.checkEvery(totalRowsProcessed);
                 boolean rowHasError = false;
 
                 String numImmat = ExcelParsingUtils.getCellStringValue(row.getCell(0));
@@ -266,6 +304,8 @@ public class ExcelParserService {
 
             return ExcelParsingResult.horaireResult(updates, validationResult, totalRowsProcessed);
 
+        } catch (CancellationException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error parsing HORAIRE file {}: {}", fileName, e.getMessage(), e);
             validationResult.addError(new RsfError(0, fileName, RsfErrorType.STRUCTURAL_ERROR, "Failed to parse HORAIRE Excel file: " + e.getMessage()));
@@ -273,7 +313,8 @@ public class ExcelParserService {
         }
     }
 
-    private ExcelParsingResult parseLignesFile(InputStream fileInputStream, String fileName, char lineType, RsfValidationResult validationResult) {
+    private ExcelParsingResult parseLignesFile(InputStream fileInputStream, String fileName, char lineType, RsfValidationResult validationResult,
+                                               CancellationToken cancellation) {
         List<Map<String, String>> records = new ArrayList<>();
         int totalRowsProcessed = 0;
         try (Workbook workbook = WorkbookFactory.create(fileInputStream)) {
@@ -315,6 +356,7 @@ public class ExcelParserService {
                 Row row = rowIterator.next();
                 rowNum++;
                 totalRowsProcessed++;
+                cancellation.checkEvery(totalRowsProcessed);
                 boolean rowHasError = false;
                 Map<String, String> rowData = new LinkedHashMap<>(); // Preserve column order
                 String rawLineContent = formatRawLine(row, expectedHeaders.size());
@@ -385,6 +427,8 @@ public class ExcelParserService {
 
             return ExcelParsingResult.lignesResult(records, validationResult, totalRowsProcessed, lineType);
 
+        } catch (CancellationException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error parsing LIGNES file {} (Type {}): {}", fileName, lineType, e.getMessage(), e);
             validationResult.addError(new RsfError(0, fileName, RsfErrorType.STRUCTURAL_ERROR, "Failed to parse LIGNES Excel file (Type '" + lineType + "'): " + e.getMessage()));
@@ -3,6 +3,7 @@ package com.rsf.rsf.service;
 import com.rsf.rsf.config.RsfMappingConfig;
 import com.rsf.rsf.domain.models.FieldDefinition;
 import com.rsf.rsf.exception.RsfParsingException;
+import com.rsf.util.CancellationToken;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
@@ -15,6 +16,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
 
 @Service
 @Slf4j
@@ -36,11 +38,18 @@ public class RsfParsingService {
      * @throws RsfParsingException if parsing fails due to I/O errors or configuration issues.
      */
     public Map<Character, List<Map<String, String>>> parseRsfFile(InputStream inputStream, int year) throws RsfParsingException {
-        Map<Character, List<FieldDefinition>> yearMappings = rsfMappingConfig.rsfFieldMappings().get(year);
-        if (yearMappings == null) {
-            log.error("No RSF mapping configuration found for year: {}", year);
-            throw new RsfParsingException("No RSF mapping configuration found for year: " + year);
-        }
+        return parseRsfFile(inputStream, year, CancellationToken.NONE);
+    }
+
+    /**
+     * As {@link #parseRsfFile(InputStream, int)}, checking {@code cancellation} every
+     * {@link CancellationToken#CHECK_INTERVAL} lines.
+     *
+     * @throws CancellationException If the token is cancelled while the file is read
+     */
+    public Map<Character, List<Map<String, String>>> parseRsfFile(InputStream inputStream, int year,
+                                                                  CancellationToken cancellation) throws RsfParsingException {
+        Map<Character, List<FieldDefinition>> yearMappings = mappingsFor(year);
 
         Map<Character, List<Map<String, String>>> parsedData = new HashMap<>();
         int lineNumber = 0;
@@ -49,59 +58,14 @@ public class RsfParsingService {
             String line;
             while ((line = reader.readLine()) != null) {
                 lineNumber++;
-                if (line.trim().isEmpty()) {
-                    log.debug("Skipping empty line at line number: {}", lineNumber);
-                    continue; // Skip empty lines
+                cancellation.checkEvery(lineNumber);
+                Map<String, String> lineData = parseLine(line, lineNumber, yearMappings);
+                if (lineData != null) {
+                    parsedData.computeIfAbsent(line.charAt(0), k -> new ArrayList<>()).add(lineData);
                 }
-
-                if (line.length() < 1) {
-                     log.warn("Line {} is too short to determine line type: '{}'", lineNumber, line);
-                     // Decide how to handle this: skip, error, default type? Skipping for now.
-                     continue;
-                }
-
-                char lineType = line.charAt(0);
-                List<FieldDefinition> fieldDefinitions = yearMappings.get(lineType);
-
-                if (fieldDefinitions == null) {
-                    log.warn("No field definitions found for line type '{}' in year {} at line {}. Skipping line.", lineType, year, lineNumber);
-                    continue; // Skip lines with unmapped types for the given year
-                }
-
-                Map<String, String> lineData = new HashMap<>();
-                for (FieldDefinition field : fieldDefinitions) {
-                    try {
-                         int start = field.getStartIndex(); // 0-based start
-                         int end = field.getEndIndex(); // 0-based end (exclusive)
-
-                         if (start >= line.length()) {
-                             // Field start position is beyond the line length, store as empty
-                             log.trace("Field '{}' start index {} is out of bounds for line {} (length {}). Setting empty value.", field.getName(), start, lineNumber, line.length());
-                             lineData.put(field.getName(), "");
-                         } else {
-                             // Ensure end index doesn't exceed line length
-                             int actualEnd = Math.min(end, line.length());
-                             String value = line.substring(start, actualEnd).trim();
-                             lineData.put(field.getName(), value);
-                             log.trace("Parsed field '{}' for line type '{}', line {}: '{}'", field.getName(), lineType, lineNumber, value);
-                         }
-                    } catch (IndexOutOfBoundsException e) {
-                         // This catch block might be redundant due to the checks above, but serves as a safeguard.
-                         log.error("Error parsing field '{}' on line {} (type {}). Line content: '{}'. Start: {}, End: {}. Error: {}",
-                                 field.getName(), lineNumber, lineType, line, field.getStartIndex(), field.getEndIndex(), e.getMessage());
-                         // Store empty string or handle error differently (e.g., throw exception, add error marker)
-                         lineData.put(field.getName(), "");
-                    } catch (Exception e) {
-                         log.error("Unexpected error parsing field '{}' on line {} (type {}). Error: {}",
-                                 field.getName(), lineNumber, lineType, e.getMessage(), e);
-                         // Decide on error handling: skip field, skip line, throw exception? Storing empty for now.
-                         lineData.put(field.getName(), "");
-                    }
-                }
-
-                parsedData.computeIfAbsent(lineType, k -> new ArrayList<>()).add(lineData);
-
             }
+        } catch (CancellationException e) {
+            throw e;
         } catch (IOException e) {
             log.error("Failed to read RSF file content. Error at line {}: {}", lineNumber, e.getMessage(), e);
             throw new RsfParsingException("Failed to read RSF file content", e);
@@ -120,4 +84,72 @@ public class RsfParsingService {
 
         return parsedData;
     }
-} 
\ No newline at end of file
+
+    /**
+     * @return The field layout per line type for the given year
+     * @throws RsfParsingException If there is no mapping for the year
+     */
+    public Map<Character, List<FieldDefinition>> mappingsFor(int year) throws RsfParsingException {
+        Map<Character, List<FieldDefinition>> yearMappings = rsfMappingConfig.rsfFieldMappings().get(year);
+        if (yearMappings == null) {
+            log.error("No RSF mapping configuration found for year: {}", year);
+            throw new RsfParsingException("No RSF mapping configuration found for year: " + year);
+        }
+        return yearMappings;
+    }
+
+    /**
+     * Cuts one RSF line into its fields. Stateless, so lines can be parsed on several threads.
+     *
+     * @param line The raw line
+     * @param lineNumber 1-based line number, for log messages
+     * @param yearMappings Field layout per line type, from {@link #mappingsFor}
+     * @return Field name to trimmed value, or {@code null} for empty lines and unmapped line types
+     */
+    public Map<String, String> parseLine(String line, int lineNumber, Map<Character, List<FieldDefinition>> yearMappings) {
+        if (line.trim().isEmpty()) {
+            log.debug("Skipping empty line at line number: {}", lineNumber);
+            return null; // Skip empty lines
+        }
+
+        char lineType = line.charAt(0);
+        List<FieldDefinition> fieldDefinitions = yearMappings.get(lineType);
+
+        if (fieldDefinitions == null) {
+            log.warn("No field definitions found for line type '{}' at line {}. Skipping line.", lineType, lineNumber);
+            return null; // Skip lines with unmapped types for the given year
+        }
+
+        Map<String, String> lineData = new HashMap<>();
+        for (FieldDefinition field : fieldDefinitions) {
+            try {
+                 int start = field.getStartIndex(); // 0-based start
+                 int end = field.getEndIndex(); // 0-based end (exclusive)
+
+                 if (start >= line.length()) {
+                     // Field start position is beyond the line length, store as empty
+                     log.trace("Field '{}' start index {} is out of bounds for line {} (length {}). Setting empty value.", field.getName(), start, lineNumber, line.length());
+                     lineData.put(field.getName(), "");
+                 } else {
+                     // Ensure end index doesn't exceed line length
+                     int actualEnd = Math.min(end, line.length());
+                     String value = line.substring(start, actualEnd).trim();
+                     lineData.put(field.getName(), value);
+                     log.trace("Parsed field '{}' for line type '{}', line {}: '{}'", field.getName(), lineType, lineNumber, value);
+                 }
+            } catch (IndexOutOfBoundsException e) {
+                 // This catch block might be redundant due to the checks above, but serves as a safeguard.
+                 log.error("Error parsing field '{}' on line {} (type {}). Line content: '{}'. Start: {}, End: {}. Error: {}",
+                         field.getName(), lineNumber, lineType, line, field.getStartIndex(), field.getEndIndex(), e.getMessage());
+                 // Store empty string or handle error differently (e.g., throw exception, add error marker)
+                 lineData.put(field.getName(), "");
+            } catch (Exception e) {
+                 log.error("Unexpected error parsing field '{}' on line {} (type {}). Error: {}",
+                         field.getName(), lineNumber, lineType, e.getMessage(), e);
+                 // Decide on error handling: skip field, skip line, throw exception? Storing empty for now.
+                 lineData.put(field.getName(), "");
+            }
+        }
+        return lineData;
+    }
+}
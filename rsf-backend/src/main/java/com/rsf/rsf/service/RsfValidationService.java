@@ -63,6 +63,26 @@ public class RsfValidationService {
         return combinedResult;
     }
 
+    /**
+     * Validates the fields of one parsed line. Unlike {@link #validateRsfData} this needs no
+     * other line, so lines can be validated as they are parsed and on several threads.
+     *
+     * @param lineType The RSF line type (A, B, C, etc.)
+     * @param fields The parsed fields of the line
+     * @param lineNumber 1-based line number in its file
+     * @param lineContent The raw line, kept on the errors
+     * @return The field errors of the line, empty if it is valid
+     */
+    public List<RsfError> validateLine(char lineType, Map<String, String> fields, int lineNumber, String lineContent) {
+        List<RsfError> errors = new ArrayList<>();
+        for (Map.Entry<String, String> field : fields.entrySet()) {
+            for (String errorMessage : validateField(lineType, field.getKey(), field.getValue())) {
+                errors.add(new RsfError(lineNumber, lineContent, RsfErrorType.DATA_ERROR, errorMessage, field.getKey()));
+            }
+        }
+        return errors;
+    }
+
     /**
      * Validates a specific field against its defined rules.
      * 
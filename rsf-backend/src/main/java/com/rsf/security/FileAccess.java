@@ -0,0 +1,33 @@
+package com.rsf.security;
+
+import com.rsf.domain.FileEntity;
+import org.springframework.security.core.userdetails.UserDetails;
+
+/**
+ * Who may act on a stored file: cancel its import or write new versions of it.
+ */
+public final class FileAccess {
+    /** Role allowed to act on any file, including those nobody owns; the seeded admin account has it */
+    public static final String MANAGER_ROLE = "ROLE_MANAGER";
+
+    private FileAccess() {
+    }
+
+    /**
+     * The uploader may act on their own file. Anonymous uploads have nobody to own them, so
+     * only a manager may act on those.
+     */
+    public static boolean mayModify(FileEntity file, UserDetails caller) {
+        if (caller == null) {
+            return false;
+        }
+        if (file.getUploader() != null && file.getUploader().getUsername().equals(caller.getUsername())) {
+            return true;
+        }
+        return isManager(caller);
+    }
+
+    public static boolean isManager(UserDetails caller) {
+        return caller != null && caller.getAuthorities().stream().anyMatch(a -> MANAGER_ROLE.equals(a.getAuthority()));
+    }
+}
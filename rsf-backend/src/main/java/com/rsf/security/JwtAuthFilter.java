@@ -1,5 +1,7 @@
 package com.rsf.security;
 
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -9,7 +11,6 @@ import org.slf4j.LoggerFactory;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
@@ -18,27 +19,36 @@ import java.io.IOException;
 import java.util.Arrays;
 import java.util.List;
 
+/**
+ * Authenticates requests from their bearer token.
+ * <p>
+ * The token is parsed once and the {@link org.springframework.security.core.Authentication}
+ * is built from its claims ({@link JwtUser}), so authenticating a request does not query the
+ * database.
+ */
 @Component
 public class JwtAuthFilter extends OncePerRequestFilter {
 
     private static final Logger log = LoggerFactory.getLogger(JwtAuthFilter.class);
     
-    // Define public endpoints that should bypass JWT authentication
+    // Define public endpoints that should bypass JWT authentication. The upload endpoints are
+    // open too (SecurityConfig) but read an optional token, so uploads are filed under their user.
     private static final List<String> PUBLIC_ENDPOINTS = Arrays.asList(
         "/api/auth/",
         "/api/v1/auth/",
-        "/api/v1/import/upload",
         "/api/v1/import/progress/",
         "/api/v1/import/results/",
         "/api/v1/import/status"
     );
 
+    private static final WebAuthenticationDetailsSource DETAILS = new WebAuthenticationDetailsSource();
+
     private final JwtTokenProvider tokens;
-    private final UserDetailsService userDetailsService;
+    private final UserCache userCache;
 
-    public JwtAuthFilter(JwtTokenProvider tokens, UserDetailsService userDetailsService) {
+    public JwtAuthFilter(JwtTokenProvider tokens, UserCache userCache) {
         this.tokens = tokens;
-        this.userDetailsService = userDetailsService;
+        this.userCache = userCache;
     }
 
     @Override
@@ -60,38 +70,33 @@ public class JwtAuthFilter extends OncePerRequestFilter {
             return;
         }
         
-        // --- Original JWT Processing Logic ---
         final String header = req.getHeader("Authorization");
 
         if (header != null && header.startsWith("Bearer ")) {
             String token = header.substring(7);
-            log.debug("Extracted token for {}: {}", requestURI, token);
 
             try {
-            if (tokens.validate(token)) {
-                String username = tokens.getUsername(token);
-                    log.debug("Valid token for user: {}", username);
-
-                    if (SecurityContextHolder.getContext().getAuthentication() == null) {
-                UserDetails user = userDetailsService.loadUserByUsername(username);
-                    log.debug("Authorities from userDetailsService: {}", user.getAuthorities());
+                Claims claims = tokens.parse(token);
+                if (SecurityContextHolder.getContext().getAuthentication() == null) {
+                    // Tokens issued before roles were claims still cost a (cached) user lookup
+                    UserDetails user = tokens.toUser(claims);
+                    if (user == null) {
+                        user = userCache.get(claims.getSubject());
+                    }
 
-                var auth = new UsernamePasswordAuthenticationToken(
-                        user, null, user.getAuthorities());
-                auth.setDetails(new WebAuthenticationDetailsSource().buildDetails(req));
+                    var auth = new UsernamePasswordAuthenticationToken(
+                            user, null, user.getAuthorities());
+                    auth.setDetails(DETAILS.buildDetails(req));
 
-                SecurityContextHolder.getContext().setAuthentication(auth);
-                        log.debug("Set SecurityContext for user: {}, Authorities: {}", username, auth.getAuthorities());
-                    } else {
-                         log.debug("SecurityContext already contains authentication for user: {}", SecurityContextHolder.getContext().getAuthentication().getName());
-                    }
-                } else {
-                    log.warn("Invalid JWT token detected for request: {} {}", req.getMethod(), requestURI);
-                    SecurityContextHolder.clearContext(); 
+                    SecurityContextHolder.getContext().setAuthentication(auth);
+                    log.debug("Authenticated {} for {} {}", user.getUsername(), req.getMethod(), requestURI);
                 }
+            } catch (JwtException | IllegalArgumentException e) {
+                log.warn("Invalid JWT token detected for request: {} {}", req.getMethod(), requestURI);
+                SecurityContextHolder.clearContext();
             } catch (Exception e) {
                 log.error("Error processing JWT token for request: {} {}", req.getMethod(), requestURI, e);
-                SecurityContextHolder.clearContext(); 
+                SecurityContextHolder.clearContext();
             }
         } else {
             log.debug("No Bearer token found for request: {} {}", req.getMethod(), requestURI);
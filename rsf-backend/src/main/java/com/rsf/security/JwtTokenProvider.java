@@ -1,46 +1,102 @@
 package com.rsf.security;
 
+import com.rsf.domain.Role;
+import com.rsf.domain.User;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.stereotype.Component;
 import javax.crypto.SecretKey;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 
+/**
+ * Issues and reads the API's JWTs.
+ * <p>
+ * Tokens carry the user's id ({@value #USER_ID_CLAIM}) and role names ({@value #ROLES_CLAIM})
+ * so requests can be authenticated from the token alone. Role changes therefore apply from
+ * the next login, at the latest once {@code jwt.expiration-ms} has passed.
+ */
 @Component
 public class JwtTokenProvider {
+    static final String USER_ID_CLAIM = "uid";
+    static final String ROLES_CLAIM = "roles";
+
     private final SecretKey key;
     private final long validityMs;
+    /** Parsers are immutable and thread-safe, so one is built for all requests */
+    private final JwtParser parser;
 
     public JwtTokenProvider(
             @Value("${jwt.secret}") String secret,
             @Value("${jwt.expiration-ms}") long validityMs) {
         this.key = Keys.hmacShaKeyFor(secret.getBytes());
         this.validityMs = validityMs;
+        this.parser = Jwts.parser().verifyWith(key).build();
+    }
+
+    /**
+     * Issues a token naming the user, its id and its roles.
+     */
+    public String generate(User user) {
+        return builder(user.getUsername())
+                .claim(USER_ID_CLAIM, user.getId())
+                .claim(ROLES_CLAIM, user.getRoles().stream().map(Role::getName).toList())
+                .compact();
     }
 
     public String generate(String username) {
+        return builder(username).compact();
+    }
+
+    private JwtBuilder builder(String username) {
         Date now = new Date();
         Date exp = new Date(now.getTime() + validityMs);
         return Jwts.builder()
                 .subject(username)
                 .issuedAt(now)
                 .expiration(exp)
-                .signWith(key)
-                .compact();
+                .signWith(key);
+    }
+
+    /**
+     * Verifies a token and returns its claims.
+     *
+     * @throws JwtException If the token is malformed, forged or expired
+     */
+    public Claims parse(String token) {
+        return parser.parseSignedClaims(token).getPayload();
+    }
+
+    /**
+     * @return The caller named by the claims, or {@code null} if the token predates the roles claim
+     */
+    public JwtUser toUser(Claims claims) {
+        Object roles = claims.get(ROLES_CLAIM);
+        if (!(roles instanceof List<?> names)) {
+            return null;
+        }
+        List<GrantedAuthority> authorities = new ArrayList<>(names.size());
+        for (Object name : names) {
+            authorities.add(new SimpleGrantedAuthority(String.valueOf(name)));
+        }
+        Number id = claims.get(USER_ID_CLAIM, Number.class);
+        return new JwtUser(id != null ? id.longValue() : null, claims.getSubject(), List.copyOf(authorities));
     }
 
     public String getUsername(String token) {
-        return Jwts.parser().verifyWith(key).build()
-                   .parseSignedClaims(token).getPayload().getSubject();
+        return parse(token).getSubject();
     }
 
     public boolean validate(String token) {
         try {
-            Jwts.parser().verifyWith(key).build().parse(token);
+            parse(token);
             return true;
         } catch (JwtException | IllegalArgumentException e) {
             return false;
         }
     }
-} 
\ No newline at end of file
+}
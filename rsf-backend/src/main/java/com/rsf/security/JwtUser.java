@@ -0,0 +1,31 @@
+package com.rsf.security;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.List;
+
+/**
+ * The caller of a request, as stated by the claims of its token.
+ * <p>
+ * Built without touching the database, so it carries no password and is never disabled: a
+ * valid token is all the proof there is. Controllers needing the {@link com.rsf.domain.User}
+ * entity get it from {@link UserCache}.
+ */
+public record JwtUser(Long id, String username, List<GrantedAuthority> authorities) implements UserDetails {
+
+    @Override
+    public List<GrantedAuthority> getAuthorities() {
+        return authorities;
+    }
+
+    @Override
+    public String getPassword() {
+        return null;
+    }
+
+    @Override
+    public String getUsername() {
+        return username;
+    }
+}
@@ -9,7 +9,6 @@ import org.springframework.core.Ordered;
 import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
-import org.springframework.web.multipart.MultipartHttpServletRequest;
 
 import java.io.IOException;
 
@@ -22,21 +21,11 @@ public class MultipartRequestLoggingFilter extends OncePerRequestFilter {
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
             throws ServletException, IOException {
         
-        if (request.getContentType() != null && request.getContentType().startsWith("multipart/form-data")) {
-            log.info("Processing multipart request to: {}", request.getRequestURI());
-            log.info("Content type: {}", request.getContentType());
-            log.info("Method: {}", request.getMethod());
-            log.info("Content length: {}", request.getContentLength());
-            
-            if (request instanceof MultipartHttpServletRequest) {
-                MultipartHttpServletRequest multipartRequest = (MultipartHttpServletRequest) request;
-                multipartRequest.getFileMap().forEach((name, file) -> {
-                    log.info("File part: name={}, original filename={}, size={}", 
-                            name, file.getOriginalFilename(), file.getSize());
-                });
-            } else {
-                log.warn("Request has multipart content type but is not a MultipartHttpServletRequest");
-            }
+        // Headers only: touching the parts here would make the container parse the whole
+        // multipart body before the controller runs
+        if (log.isDebugEnabled() && request.getContentType() != null && request.getContentType().startsWith("multipart/form-data")) {
+            log.debug("Multipart request to {} {}: content type {}, content length {}",
+                    request.getMethod(), request.getRequestURI(), request.getContentType(), request.getContentLengthLong());
         }
         
         filterChain.doFilter(request, response);
@@ -38,13 +38,9 @@ public class SecurityConfig {
     /* ---------- Beans ---------- */
     @Bean
     public UserDetailsService userDetailsService() {
-        return username -> {
-            var user = users.findByUsername(username)
-                    .orElseThrow(() -> new UsernameNotFoundException("User not found"));
-            log.debug("Loaded user: {} with roles: {}", username, 
-                     user.getRoles().stream().map(r -> r.getName()).toList());
-            return user;
-        };
+        // Only used to check passwords at login; requests are authenticated by JwtAuthFilter
+        return username -> users.findByUsername(username)
+                .orElseThrow(() -> new UsernameNotFoundException("User not found"));
     }
 
     @Bean
@@ -92,11 +88,17 @@ public class SecurityConfig {
                     .requestMatchers("/swagger-ui/**").permitAll()
                     
                     // Import endpoints
+                    // Chunked upload sessions reserve disk space up front: only for known users
+                    .requestMatchers("/api/v1/import/upload/sessions", "/api/v1/import/upload/sessions/**").authenticated()
                     .requestMatchers("/api/v1/import/upload").permitAll()
+                    .requestMatchers("/api/v1/import/upload/**").permitAll()
                     .requestMatchers("/api/v1/import/status").permitAll()
                     .requestMatchers("/api/v1/import/progress/**").permitAll()
                     .requestMatchers("/api/v1/import/results/**").permitAll()
                     
+                    // Fixes rewrite data into new files: the caller must be known, the controller checks ownership
+                    .requestMatchers(HttpMethod.POST, "/api/v1/validation/fix", "/api/v1/validation/fix/**").authenticated()
+                    
                     // TEMPORARY: Allow validation endpoints for testing
                     .requestMatchers("/api/v1/validation/**").permitAll()
                     
@@ -0,0 +1,56 @@
+package com.rsf.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.rsf.domain.User;
+import com.rsf.repo.UserRepo;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Short-lived cache of {@link User} entities by username.
+ * <p>
+ * Serves the endpoints that need the entity itself (uploads record their uploader) and the
+ * tokens issued before they carried roles, so those requests do not query users and roles
+ * each time. Entries are detached; anything changing a user's roles must {@link #evict} it.
+ */
+@Component
+public class UserCache {
+    private final UserRepo users;
+    private final Cache<String, User> cache;
+
+    public UserCache(UserRepo users,
+                     @Value("${jwt.user-cache.ttl:5m}") Duration ttl,
+                     @Value("${jwt.user-cache.max-size:10000}") long maxSize) {
+        this.users = users;
+        this.cache = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maxSize)
+                .build();
+    }
+
+    /**
+     * @return The user, empty if there is none; misses are not cached
+     */
+    public Optional<User> find(String username) {
+        return Optional.ofNullable(cache.get(username, name -> users.findByUsername(name).orElse(null)));
+    }
+
+    /**
+     * @throws UsernameNotFoundException If there is no such user
+     */
+    public User get(String username) {
+        return find(username).orElseThrow(() -> new UsernameNotFoundException("User not found: " + username));
+    }
+
+    /**
+     * Drops a user so the next lookup reads its current roles.
+     */
+    public void evict(String username) {
+        cache.invalidate(username);
+    }
+}
@@ -0,0 +1,342 @@
+package com.rsf.service;
+
+import com.rsf.domain.Blob;
+import com.rsf.repo.BlobRepo;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Content-addressed storage under {@code <storage>/blobs/}.
+ * <p>
+ * Each distinct content is stored once as {@code blobs/ab/cd/<hash>}, two directory levels
+ * deep so no directory grows past a few hundred entries on a multi-year archive. Text and
+ * CSV payloads are stored Deflate-compressed with a {@value #DEFLATE_SUFFIX} suffix and
+ * inflated while they are read. Uploads are written through {@link #stage}, compressed as
+ * they arrive, so taking them into the store is a rename. Files take and drop references;
+ * blobs without references are removed by {@link #collectGarbage} once
+ * {@code file.blobs.gc-grace} has passed.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BlobStore {
+    public static final String DEFLATE_SUFFIX = ".dz";
+    private static final String BLOB_DIR = "blobs";
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+    private static final Set<String> COMPRESSED_EXTENSIONS = Set.of("txt", "csv");
+    /** Smaller payloads gain too little to be worth inflating on every read */
+    private static final long MIN_COMPRESS_SIZE = 4 * 1024;
+
+    private final BlobRepo blobs;
+
+    @Value("${file.storage-path}") private Path root;
+    @Value("${file.blobs.gc-grace:1h}") private Duration gcGrace;
+
+    /**
+     * Opens {@code target} for an upload, written in the form its blob will take: text formats
+     * are deflated while they are written once they reach {@value #MIN_COMPRESS_SIZE} bytes.
+     * {@code target} must be under the storage root, so {@link #acquire} can rename it into place.
+     *
+     * @param extension Lower-case extension of the original file name
+     */
+    public static Staged stage(Path target, String extension) {
+        return new Staged(target, COMPRESSED_EXTENSIONS.contains(extension));
+    }
+
+    /**
+     * @return A file already written uncompressed at {@code path}, to hand to {@link #acquire} as it is
+     */
+    public static Staged staged(Path path) throws IOException {
+        Staged staged = new Staged(path, false);
+        staged.size = Files.size(path);
+        staged.closed = true;
+        return staged;
+    }
+
+    /**
+     * @return Whether uploads with this extension may be stored compressed
+     */
+    public static boolean isCompressible(String extension) {
+        return COMPRESSED_EXTENSIONS.contains(extension);
+    }
+
+    /**
+     * Takes a reference on the blob for {@code hash}. When the content is not stored yet, the
+     * closed {@code staged} file becomes the blob; otherwise it is deleted.
+     *
+     * @return The blob's path relative to the storage root, to be kept as the file's stored name
+     */
+    public String acquire(String hash, Staged staged) throws IOException {
+        if (blobs.acquire(hash) == 1) {
+            Blob blob = blobs.findById(hash).orElseThrow();
+            String stored = storedName(hash, blob.isCompressed());
+            if (Files.exists(root.resolve(stored))) {
+                staged.discard();
+            } else {
+                // The row outlived its file (e.g. removed by hand): store it again
+                place(staged, root.resolve(stored), blob.isCompressed());
+            }
+            return stored;
+        }
+
+        String stored = storedName(hash, staged.isCompressed());
+        Blob blob = new Blob();
+        blob.setHash(hash);
+        blob.setSize(staged.getSize());
+        blob.setCompressed(staged.isCompressed());
+        blob.setStoredSize(place(staged, root.resolve(stored), staged.isCompressed()));
+        blob.setRefCount(1);
+        try {
+            blobs.saveAndFlush(blob);
+        } catch (DataIntegrityViolationException race) {
+            // Stored concurrently by another upload: the bytes written are the same, share its row
+            if (blobs.acquire(hash) != 1) {
+                throw race;
+            }
+        }
+        log.debug("Stored blob {} ({} bytes, {} on disk)", hash, blob.getSize(), blob.getStoredSize());
+        return stored;
+    }
+
+    /**
+     * Drops a reference taken by {@link #acquire}.
+     */
+    public void release(String hash) {
+        blobs.release(hash, Instant.now());
+    }
+
+    public Optional<Blob> find(String hash) {
+        return blobs.findById(hash);
+    }
+
+    /**
+     * @return Whether a stored name points into the blob store rather than at a legacy flat file
+     */
+    public static boolean isBlob(String storedName) {
+        return storedName != null && storedName.startsWith(BLOB_DIR + "/");
+    }
+
+    public static boolean isCompressed(String storedName) {
+        return storedName != null && storedName.endsWith(DEFLATE_SUFFIX);
+    }
+
+    /**
+     * Opens a stored file, inflating it while it is read when it is compressed.
+     */
+    public static InputStream open(Path stored) throws IOException {
+        InputStream in = Files.newInputStream(stored);
+        return isCompressed(stored.getFileName().toString()) ? inflate(in) : in;
+    }
+
+    /**
+     * Inflates a compressed blob's stream; closing it releases the native inflater at once.
+     */
+    public static InputStream inflate(InputStream compressed) {
+        Inflater inflater = new Inflater();
+        return new InflaterInputStream(compressed, inflater, STREAM_BUFFER_SIZE) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    inflater.end();
+                }
+            }
+        };
+    }
+
+    /**
+     * Removes blobs that have had no reference for longer than the grace period.
+     */
+    @Scheduled(fixedDelayString = "${file.blobs.gc-ms:3600000}")
+    public void collectGarbage() {
+        Instant cutoff = Instant.now().minus(gcGrace);
+        int removed = 0;
+        long freed = 0;
+        for (Blob blob : blobs.findByRefCountAndReleasedAtBefore(0, cutoff)) {
+            if (blobs.deleteIfUnreferenced(blob.getHash()) != 1) {
+                continue;
+            }
+            Path path = root.resolve(storedName(blob.getHash(), blob.isCompressed()));
+            try {
+                // A file rewritten since the cutoff belongs to an upload that just stored the same content
+                if (Files.exists(path) && Files.getLastModifiedTime(path).toInstant().isBefore(cutoff)) {
+                    Files.delete(path);
+                    removed++;
+                    freed += blob.getStoredSize();
+                }
+            } catch (IOException e) {
+                log.warn("Could not remove unreferenced blob {}", blob.getHash(), e);
+            }
+        }
+        if (removed > 0) {
+            log.info("Removed {} unreferenced blobs, {} bytes freed", removed, freed);
+        }
+    }
+
+    static String storedName(String hash, boolean compressed) {
+        return BLOB_DIR + "/" + hash.substring(0, 2) + "/" + hash.substring(2, 4) + "/" + hash
+                + (compressed ? DEFLATE_SUFFIX : "");
+    }
+
+    /**
+     * Renames a staged file into place; readers never see a partial blob. Only when the blob
+     * was first stored in the other form is the staged file rewritten to match it.
+     *
+     * @return The size on disk
+     */
+    private static long place(Staged staged, Path target, boolean compress) throws IOException {
+        Files.createDirectories(target.getParent());
+        if (staged.isCompressed() == compress) {
+            Files.move(staged.getPath(), target, StandardCopyOption.ATOMIC_MOVE);
+            return Files.size(target);
+        }
+        Path tmp = target.resolveSibling(target.getFileName() + "." + UUID.randomUUID() + ".tmp");
+        Deflater deflater = compress ? new Deflater(Deflater.DEFAULT_COMPRESSION) : null;
+        try (InputStream stored = Files.newInputStream(staged.getPath());
+             InputStream in = staged.isCompressed() ? inflate(stored) : stored;
+             OutputStream out = compress
+                     ? new DeflaterOutputStream(Files.newOutputStream(tmp), deflater, STREAM_BUFFER_SIZE)
+                     : Files.newOutputStream(tmp)) {
+            in.transferTo(out);
+        } catch (IOException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        } finally {
+            if (deflater != null) {
+                deflater.end();
+            }
+        }
+        Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+        staged.discard();
+        return Files.size(target);
+    }
+
+    /**
+     * An upload being written to a file under the storage root. Compressible content is held
+     * in memory until it reaches {@value #MIN_COMPRESS_SIZE} bytes, then deflated into the file
+     * as it arrives; anything else goes to the file as it is. Not thread-safe.
+     */
+    public static final class Staged extends OutputStream {
+        private final Path path;
+        private byte[] head;
+        private int headLength;
+        private OutputStream out;
+        private Deflater deflater;
+        private long size;
+        private boolean closed;
+
+        private Staged(Path path, boolean compressible) {
+            this.path = path;
+            this.head = compressible ? new byte[(int) MIN_COMPRESS_SIZE] : null;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            size += len;
+            if (out == null) {
+                if (head != null && headLength + len < head.length) {
+                    System.arraycopy(b, off, head, headLength, len);
+                    headLength += len;
+                    return;
+                }
+                open();
+            }
+            out.write(b, off, len);
+        }
+
+        /**
+         * Opens the file, deflating into it when the content is compressible and large enough.
+         */
+        private void open() throws IOException {
+            OutputStream file = Files.newOutputStream(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            if (head == null) {
+                out = file;
+                return;
+            }
+            deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+            out = new DeflaterOutputStream(file, deflater, STREAM_BUFFER_SIZE);
+            out.write(head, 0, headLength);
+            head = null;
+        }
+
+        @Override
+        public void close() throws IOException {
+            close(true);
+        }
+
+        /**
+         * Drops the staged file, e.g. after a rejected upload or when its content is already stored.
+         */
+        public void discard() throws IOException {
+            try {
+                close(false);
+            } finally {
+                Files.deleteIfExists(path);
+            }
+        }
+
+        private void close(boolean keep) throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                if (out != null) {
+                    out.close();
+                } else if (keep) {
+                    // Too small to compress, or not compressible and empty: written as it is
+                    Files.write(path, head != null ? Arrays.copyOf(head, headLength) : new byte[0],
+                            StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+                }
+            } finally {
+                head = null;
+                if (deflater != null) {
+                    deflater.end();
+                }
+            }
+        }
+
+        public Path getPath() {
+            return path;
+        }
+
+        /**
+         * @return The number of bytes written, before compression
+         */
+        public long getSize() {
+            return size;
+        }
+
+        public boolean isCompressed() {
+            return deflater != null;
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.rsf.service;
+
+import com.rsf.domain.FileEntity;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.apache.commons.io.FilenameUtils;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.ResourceRegion;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.http.converter.ResourceRegionHttpMessageConverter;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+/**
+ * Sends stored files with conditional and ranged request support.
+ * <p>
+ * The ETag is the content hash and Last-Modified the stored file's modification time, so
+ * clients revalidate with a 304 and resume interrupted downloads with {@code Range} and
+ * {@code If-Range}. Uncompressed bodies are never copied through the heap: when Tomcat offers
+ * sendfile the file region is handed to the connector, otherwise it goes out through
+ * {@link FileChannel#transferTo}. Compressed blobs are inflated while they are written.
+ */
+@Service
+@RequiredArgsConstructor
+public class FileDownloadService {
+    static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+    /** Smaller bodies are cheaper to write directly; Tomcat's DefaultServlet uses the same threshold */
+    static final long SENDFILE_MIN_SIZE = 48 * 1024;
+
+    private final StorageService storage;
+
+    /**
+     * Writes a stored file as the response: 304 when the client copy is current, 206 for a
+     * satisfiable range, 416 for an unsatisfiable one and 200 with the whole file otherwise.
+     */
+    public void send(FileEntity file, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Path path = storage.pathOf(file);
+        long length = storage.sizeOf(file);
+        // HTTP dates have second precision
+        long lastModified = Files.getLastModifiedTime(path).toMillis() / 1000 * 1000;
+        String etag = file.getContentHash() != null ? "\"" + file.getContentHash() + "\"" : null;
+
+        ServletWebRequest webRequest = new ServletWebRequest(request, response);
+        if (etag != null ? webRequest.checkNotModified(etag, lastModified) : webRequest.checkNotModified(lastModified)) {
+            return;
+        }
+
+        String filename = downloadName(file, path);
+        MediaType mediaType = MediaTypeFactory.getMediaType(filename).orElse(MediaType.APPLICATION_OCTET_STREAM);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                ContentDisposition.attachment().filename(filename).build().toString());
+
+        List<HttpRange> ranges = requestedRanges(request, etag, lastModified);
+        if (ranges.isEmpty()) {
+            response.setContentType(mediaType.toString());
+            transfer(file, path, 0, length, request, response);
+            return;
+        }
+
+        List<ResourceRegion> regions;
+        try {
+            regions = HttpRange.toResourceRegions(ranges, content(file, path, length));
+        } catch (IllegalArgumentException e) {
+            response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+            return;
+        }
+
+        response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+        if (regions.size() == 1) {
+            ResourceRegion region = regions.get(0);
+            response.setContentType(mediaType.toString());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + region.getPosition() + "-"
+                    + (region.getPosition() + region.getCount() - 1) + "/" + length);
+            transfer(file, path, region.getPosition(), region.getCount(), request, response);
+        } else {
+            // Multipart byte ranges are rare enough to go through Spring's converter
+            new ResourceRegionHttpMessageConverter().write(regions, mediaType, new ServletServerHttpResponse(response));
+        }
+    }
+
+    /**
+     * @return The requested ranges, or none when there is no usable {@code Range} header or
+     * {@code If-Range} says the client's partial copy is stale
+     */
+    private static List<HttpRange> requestedRanges(HttpServletRequest request, String etag, long lastModified) {
+        String range = request.getHeader(HttpHeaders.RANGE);
+        if (range == null || !ifRangeMatches(request.getHeader(HttpHeaders.IF_RANGE), etag, lastModified)) {
+            return List.of();
+        }
+        try {
+            return HttpRange.parseRanges(range);
+        } catch (IllegalArgumentException e) {
+            // A malformed Range header is ignored (RFC 9110, 14.2)
+            return List.of();
+        }
+    }
+
+    /**
+     * Evaluates {@code If-Range}: an entity tag must match strongly, a date must equal Last-Modified.
+     */
+    static boolean ifRangeMatches(String ifRange, String etag, long lastModified) {
+        if (ifRange == null) {
+            return true;
+        }
+        String value = ifRange.trim();
+        if (value.startsWith("\"") || value.startsWith("W/")) {
+            return etag != null && etag.equals(value);
+        }
+        try {
+            return ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli() == lastModified;
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Blobs are named after their hash; the download keeps the stored name's extension.
+     */
+    private static String downloadName(FileEntity file, Path path) {
+        String name = path.getFileName().toString();
+        if (name.endsWith(BlobStore.DEFLATE_SUFFIX)) {
+            name = name.substring(0, name.length() - BlobStore.DEFLATE_SUFFIX.length());
+        }
+        if (BlobStore.isBlob(file.getStoredName()) && file.getOriginalName() != null) {
+            String extension = FilenameUtils.getExtension(file.getOriginalName());
+            name = extension.isEmpty() ? name : name + "." + extension;
+        }
+        return name;
+    }
+
+    /**
+     * The content as a resource of its uploaded size, for cutting ranges.
+     */
+    private Resource content(FileEntity file, Path path, long length) {
+        if (!storage.isCompressed(file)) {
+            return new FileSystemResource(path);
+        }
+        // Read once per range, so every read inflates afresh
+        return new AbstractResource() {
+            @Override
+            public String getDescription() {
+                return "compressed blob " + file.getContentHash();
+            }
+
+            @Override
+            public InputStream getInputStream() throws IOException {
+                return storage.open(file);
+            }
+
+            @Override
+            public long contentLength() {
+                return length;
+            }
+        };
+    }
+
+    private void transfer(FileEntity file, Path path, long position, long count, HttpServletRequest request,
+                          HttpServletResponse response) throws IOException {
+        response.setContentLengthLong(count);
+        if (HttpMethod.HEAD.matches(request.getMethod())) {
+            return;
+        }
+        if (storage.isCompressed(file)) {
+            // Inflated bytes only exist in memory, so they are streamed
+            try (InputStream in = storage.open(file)) {
+                in.skipNBytes(position);
+                StreamUtils.copyRange(in, response.getOutputStream(), 0, count - 1);
+            }
+            return;
+        }
+        if (count >= SENDFILE_MIN_SIZE && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // Tomcat writes the region itself once the request returns
+            request.setAttribute(SENDFILE_FILENAME, path.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, position);
+            request.setAttribute(SENDFILE_END, position + count);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long sent = 0;
+            while (sent < count) {
+                long n = channel.transferTo(position + sent, count - sent, out);
+                if (n <= 0) {
+                    throw new IOException("File " + path.getFileName() + " ended before " + (position + count) + " bytes");
+                }
+                sent += n;
+            }
+        }
+    }
+}
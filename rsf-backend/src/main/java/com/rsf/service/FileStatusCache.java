@@ -0,0 +1,57 @@
+package com.rsf.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.rsf.dto.FileStatusView;
+import com.rsf.repo.FileRepo;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Short-lived cache of file statuses for polling clients.
+ * <p>
+ * Misses read only the status and progress columns ({@link FileRepo#findStatusById}), not
+ * the file with its uploader and roles. Whatever changes a file's status evicts it, and
+ * import progress is written through, so the TTL only bounds how long a change made
+ * elsewhere (another instance, a manual update) can go unseen.
+ */
+@Service
+public class FileStatusCache {
+    private final FileRepo files;
+    private final Cache<UUID, FileStatusView> cache;
+
+    public FileStatusCache(FileRepo files,
+                           @Value("${file.status-cache.ttl:3s}") Duration ttl,
+                           @Value("${file.status-cache.max-size:10000}") long maxSize) {
+        this.files = files;
+        this.cache = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maxSize)
+                .build();
+    }
+
+    /**
+     * @return The file's status, empty if there is no such file; misses are not cached
+     */
+    public Optional<FileStatusView> get(UUID fileId) {
+        return Optional.ofNullable(cache.get(fileId, id -> files.findStatusById(id).orElse(null)));
+    }
+
+    /**
+     * Drops a file whose status changed, so the next poll reads it.
+     */
+    public void evict(UUID fileId) {
+        cache.invalidate(fileId);
+    }
+
+    /**
+     * Updates the cached progress of a file after it was written to the database.
+     */
+    public void progress(UUID fileId, int progress) {
+        cache.asMap().computeIfPresent(fileId, (id, view) -> new FileStatusView(view.status(), progress));
+    }
+}
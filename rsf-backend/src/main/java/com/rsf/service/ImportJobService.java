@@ -0,0 +1,321 @@
+package com.rsf.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.rsf.domain.ImportJobEntity;
+import com.rsf.domain.ImportJobStatus;
+import com.rsf.repo.ImportJobRepo;
+import com.rsf.service.imports.ImportJobState;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the state of background imports.
+ * <p>
+ * Status, progress and a compact summary are stored in {@code import_jobs}. Full results,
+ * error lists and processed lines go to {@code <storage>/imports/<fileId>/}. Unfinished jobs
+ * stay in memory (their number is bounded by the import queue), and finished jobs are cached
+ * for a short time so progress polls do not hit the database.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ImportJobService {
+
+    private static final String RESULT_FILE = "result.json";
+    private static final String ERRORS_FILE = "errors.json";
+    private static final String PROCESSED_LINES_FILE = "processed-lines.txt";
+    private static final TypeReference<List<String>> STRING_LIST = new TypeReference<>() {};
+    private static final TypeReference<Map<String, Object>> RESULT_MAP = new TypeReference<>() {};
+
+    private final ImportJobRepo jobs;
+    private final ObjectMapper objectMapper;
+    @Value("${file.storage-path}") private Path root;
+
+    private final Map<String, ImportJobState> active = new ConcurrentHashMap<>();
+    private final Cache<String, ImportJobState> finished = Caffeine.newBuilder()
+            .expireAfterAccess(Duration.ofMinutes(10))
+            .maximumSize(1_000)
+            .build();
+
+    /**
+     * Registers a queued import for an uploaded file.
+     */
+    public ImportJobState start(String fileId, String fileType, List<String> validationDetails) {
+        ImportJobState state = new ImportJobState(fileId, fileType, ImportJobStatus.QUEUED, 0);
+        state.getValidationDetails().addAll(validationDetails);
+        active.put(fileId, state);
+
+        ImportJobEntity job = new ImportJobEntity();
+        job.setFileId(UUID.fromString(fileId));
+        job.setStatus(ImportJobStatus.QUEUED);
+        job.setFileType(fileType);
+        job.setValidationDetails(toJson(validationDetails));
+        jobs.save(job);
+        return state;
+    }
+
+    /**
+     * @return The job state, from memory when the job is running or was read recently
+     */
+    public Optional<ImportJobState> find(String fileId) {
+        ImportJobState state = active.get(fileId);
+        if (state == null) {
+            state = finished.getIfPresent(fileId);
+        }
+        if (state == null) {
+            state = load(fileId);
+            if (state != null && state.isComplete()) {
+                finished.put(fileId, state);
+            }
+        }
+        return Optional.ofNullable(state);
+    }
+
+    /**
+     * @return The state of a job that has not finished yet
+     * @throws IllegalStateException If the job is unknown or already finished
+     */
+    public ImportJobState active(String fileId) {
+        ImportJobState state = active.get(fileId);
+        if (state == null) {
+            throw new IllegalStateException("No running import for file " + fileId);
+        }
+        return state;
+    }
+
+    public void markRunning(String fileId) {
+        ImportJobState state = active(fileId);
+        state.setStatus(ImportJobStatus.RUNNING);
+        jobs.findById(UUID.fromString(fileId)).ifPresent(job -> {
+            job.setStatus(ImportJobStatus.RUNNING);
+            job.setProgress(state.getProgress());
+            job.setUpdatedAt(Instant.now());
+            jobs.save(job);
+        });
+    }
+
+    /**
+     * Stores the outcome of an import: the full result, errors and processed lines to files,
+     * and the status with a compact summary to the database.
+     */
+    public void finish(String fileId, Map<String, Object> result, boolean failed) {
+        finish(fileId, result, failed ? ImportJobStatus.FAILED : ImportJobStatus.COMPLETED);
+    }
+
+    /**
+     * Marks an import as stopped on request, keeping whatever it reported before stopping.
+     */
+    public void finishCancelled(String fileId) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("cancelled", true);
+        result.put("message", "Import cancelled");
+        finish(fileId, result, ImportJobStatus.CANCELLED);
+    }
+
+    /**
+     * Asks an unfinished import to stop; it does so at its next cancellation check.
+     *
+     * @return {@code false} if there is no queued or running import for the file
+     */
+    public boolean requestCancel(String fileId) {
+        ImportJobState state = active.get(fileId);
+        if (state == null) {
+            return false;
+        }
+        state.getCancellation().cancel();
+        return true;
+    }
+
+    private void finish(String fileId, Map<String, Object> result, ImportJobStatus status) {
+        ImportJobState state = active.remove(fileId);
+        if (state == null) {
+            state = find(fileId).orElseGet(() -> new ImportJobState(fileId, null, ImportJobStatus.RUNNING, 0));
+        }
+
+        try {
+            Path dir = jobDir(fileId);
+            Files.createDirectories(dir);
+            objectMapper.writeValue(dir.resolve(RESULT_FILE).toFile(), result);
+            objectMapper.writeValue(dir.resolve(ERRORS_FILE).toFile(), state.getErrors());
+            synchronized (state.getProcessedLines()) {
+                Files.write(dir.resolve(PROCESSED_LINES_FILE), state.getProcessedLines());
+            }
+        } catch (IOException e) {
+            log.error("Could not write import payloads for {}: {}", fileId, e.getMessage(), e);
+        }
+
+        ImportJobEntity job = jobs.findById(UUID.fromString(fileId)).orElseGet(() -> {
+            ImportJobEntity created = new ImportJobEntity();
+            created.setFileId(UUID.fromString(fileId));
+            return created;
+        });
+        job.setStatus(status);
+        job.setProgress(100);
+        job.setSummary(toJson(summarise(result)));
+        job.setErrorCount(state.getErrors().size());
+        job.setValidationDetails(toJson(state.getValidationDetails()));
+        job.setUpdatedAt(Instant.now());
+        job.setCompletedAt(Instant.now());
+        jobs.save(job);
+
+        state.getProcessedLines().clear();
+        state.setProgress(100);
+        state.setStatus(status);
+        finished.put(fileId, state);
+    }
+
+    /**
+     * Gives a re-upload of the same content the finished import of an earlier file: its
+     * status, summary and stored payloads.
+     *
+     * @return {@code false} if {@code from} has no finished import
+     */
+    public boolean copy(String from, String to) throws IOException {
+        Optional<ImportJobEntity> source = jobs.findById(UUID.fromString(from)).filter(job -> job.getCompletedAt() != null);
+        if (source.isEmpty()) {
+            return false;
+        }
+        Path target = jobDir(to);
+        Files.createDirectories(target);
+        for (String payload : List.of(RESULT_FILE, ERRORS_FILE, PROCESSED_LINES_FILE)) {
+            Path file = jobDir(from).resolve(payload);
+            if (Files.exists(file)) {
+                Files.copy(file, target.resolve(payload), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+
+        ImportJobEntity job = new ImportJobEntity();
+        job.setFileId(UUID.fromString(to));
+        job.setStatus(source.get().getStatus());
+        job.setProgress(100);
+        job.setFileType(source.get().getFileType());
+        job.setValidationDetails(source.get().getValidationDetails());
+        job.setSummary(source.get().getSummary());
+        job.setErrorCount(source.get().getErrorCount());
+        job.setCompletedAt(Instant.now());
+        jobs.save(job);
+        return true;
+    }
+
+    /**
+     * @return The full result of a finished import, if it was stored
+     */
+    public Optional<Map<String, Object>> loadResult(String fileId) {
+        if (find(fileId).isEmpty()) {
+            return Optional.empty();
+        }
+        Path file = jobDir(fileId).resolve(RESULT_FILE);
+        if (!Files.exists(file)) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(objectMapper.readValue(file.toFile(), RESULT_MAP));
+        } catch (IOException e) {
+            log.error("Could not read import result for {}: {}", fileId, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * @return The processed data lines of a finished import
+     */
+    public List<String> loadProcessedLines(String fileId) throws IOException {
+        Path file = jobDir(fileId).resolve(PROCESSED_LINES_FILE);
+        return Files.exists(file) ? Files.readAllLines(file) : List.of();
+    }
+
+    /**
+     * Jobs that were queued or running when the application stopped will never finish.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void failInterruptedJobs() {
+        List<ImportJobEntity> interrupted = jobs.findByStatusIn(List.of(ImportJobStatus.QUEUED, ImportJobStatus.RUNNING));
+        for (ImportJobEntity job : interrupted) {
+            job.setStatus(ImportJobStatus.FAILED);
+            job.setProgress(100);
+            job.setSummary(toJson(Map.of("error", true, "message", "Import interrupted by a restart")));
+            job.setUpdatedAt(Instant.now());
+            job.setCompletedAt(Instant.now());
+        }
+        if (!interrupted.isEmpty()) {
+            jobs.saveAll(interrupted);
+            log.warn("Marked {} interrupted import jobs as failed", interrupted.size());
+        }
+    }
+
+    private ImportJobState load(String fileId) {
+        UUID id;
+        try {
+            id = UUID.fromString(fileId);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        return jobs.findById(id).map(job -> {
+            ImportJobState state = new ImportJobState(fileId, job.getFileType(), job.getStatus(), job.getProgress());
+            state.getValidationDetails().addAll(fromJson(job.getValidationDetails(), STRING_LIST, List.of()));
+            Path errors = jobDir(fileId).resolve(ERRORS_FILE);
+            if (Files.exists(errors)) {
+                try {
+                    state.getErrors().addAll(objectMapper.readValue(errors.toFile(), STRING_LIST));
+                } catch (IOException e) {
+                    log.error("Could not read import errors for {}: {}", fileId, e.getMessage());
+                }
+            }
+            return state;
+        }).orElse(null);
+    }
+
+    /**
+     * Keeps the entries of a result that are not collections (counts, dates, flags, small maps).
+     */
+    private Map<String, Object> summarise(Map<String, Object> result) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        result.forEach((key, value) -> {
+            if (!(value instanceof Collection<?>)) {
+                summary.put(key, value);
+            }
+        });
+        return summary;
+    }
+
+    private Path jobDir(String fileId) {
+        // Parsing keeps a caller-supplied id from escaping the imports directory
+        return root.resolve("imports").resolve(UUID.fromString(fileId).toString());
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not serialise import job data", e);
+        }
+    }
+
+    private <T> T fromJson(String json, TypeReference<T> type, T fallback) {
+        if (json == null) {
+            return fallback;
+        }
+        try {
+            return objectMapper.readValue(json, type);
+        } catch (IOException e) {
+            log.error("Could not read import job data: {}", e.getMessage());
+            return fallback;
+        }
+    }
+}
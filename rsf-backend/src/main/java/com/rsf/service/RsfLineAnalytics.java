@@ -0,0 +1,191 @@
+package com.rsf.service;
+
+import com.rsf.dto.RsfAnalyticsRow;
+import com.rsf.dto.RsfFileAnalytics;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Date;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Figures over the parsed RSF lines of {@link RsfLineStore}, per file, FINESS, month and acte code.
+ * <p>
+ * Once a file's lines are loaded, {@link #refresh} groups them in SQL into
+ * {@code rsf_line_rollup}, a few rows per FINESS, month and acte code. Every query groups
+ * those rows rather than the lines, through indexes on {@code (finess, month)} and, for
+ * acte breakdowns, a partial index on the rows that have an acte code.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RsfLineAnalytics {
+    static final int MAX_ROWS = 10_000;
+
+    /**
+     * Where each line type takes its month, acte code and amounts from; {@code null} for none.
+     */
+    private record Source(char lineType, String dateColumn, String codeColumn, String honorairesColumn,
+                          String amoColumn, boolean soins) {}
+
+    private static final List<Source> SOURCES = List.of(
+            new Source('A', "date_entree", null, "total_honoraire_remboursable_am", "total_remboursable_amo", false),
+            new Source('B', "date_soins", "code_acte", "montant_honoraire", "montant_remboursable_amo", true),
+            new Source('C', "date_soins", "code_acte", "montant_honoraire", "montant_remboursable_amo", true),
+            new Source('M', "date_soins", "code_ccam", null, null, true),
+            new Source('H', "date_debut_sejour", null, null, null, false),
+            new Source('P', "date_debut_sejour", null, null, null, false),
+            new Source('L', "date_acte1", null, null, null, false));
+
+    private static final String INSERT = "INSERT INTO rsf_line_rollup (file_id, finess, month, line_type, code_acte,"
+            + " line_count, first_date_soins, last_date_soins, honoraires, remboursable_amo) "
+            + SOURCES.stream().map(RsfLineAnalytics::select).collect(Collectors.joining(" UNION ALL "));
+
+    private final JdbcTemplate jdbc;
+
+    /**
+     * Groups by which aggregates are computed, with the SQL giving the group's key.
+     */
+    public enum GroupBy {
+        FILE("file_id::text"),
+        FINESS("finess"),
+        MONTH("to_char(month, 'YYYY-MM')"),
+        ACTE("code_acte");
+
+        private final String key;
+
+        GroupBy(String key) {
+            this.key = key;
+        }
+    }
+
+    /**
+     * Filters of an aggregate query; {@code null} members match everything.
+     *
+     * @param from First month included
+     * @param to   Last month included
+     */
+    public record Filter(UUID fileId, String finess, YearMonth from, YearMonth to) {}
+
+    private static String select(Source source) {
+        String dates = source.soins() ? "min(rsf_yyyymmdd(date_soins)), max(rsf_yyyymmdd(date_soins))" : "NULL, NULL";
+        String amounts = source.honorairesColumn() != null
+                ? "sum(rsf_amount(" + source.honorairesColumn() + ")), sum(rsf_amount(" + source.amoColumn() + "))"
+                : "NULL, NULL";
+        // One file_id per branch keeps every scan on the file's own partition
+        return "SELECT file_id, n_finess_epmsi, rsf_month(" + source.dateColumn() + "), '" + source.lineType() + "', "
+                + (source.codeColumn() != null ? source.codeColumn() : "NULL") + ", count(*), " + dates + ", " + amounts
+                + " FROM " + RsfLineStore.table(source.lineType()) + " WHERE file_id = ? GROUP BY 1, 2, 3, 5";
+    }
+
+    /**
+     * Rebuilds the rollup of a file from its stored lines.
+     *
+     * @return Rollup rows written
+     */
+    @Transactional
+    public int refresh(UUID fileId) {
+        long start = System.currentTimeMillis();
+        deleteForFile(fileId);
+        Object[] args = new Object[SOURCES.size()];
+        Arrays.fill(args, fileId);
+        int rows = jdbc.update(INSERT, args);
+        log.debug("Rolled up the RSF lines of file {} into {} rows in {} ms", fileId, rows, System.currentTimeMillis() - start);
+        return rows;
+    }
+
+    public void deleteForFile(UUID fileId) {
+        jdbc.update("DELETE FROM rsf_line_rollup WHERE file_id = ?", fileId);
+    }
+
+    /**
+     * Gives a re-upload of the same content the rollup of the earlier file, whose lines are
+     * not loaded again.
+     *
+     * @return Rollup rows written
+     */
+    @Transactional
+    public int copy(UUID from, UUID to) {
+        deleteForFile(to);
+        return jdbc.update("INSERT INTO rsf_line_rollup (file_id, finess, month, line_type, code_acte, line_count,"
+                + " first_date_soins, last_date_soins, honoraires, remboursable_amo)"
+                + " SELECT ?, finess, month, line_type, code_acte, line_count, first_date_soins, last_date_soins,"
+                + " honoraires, remboursable_amo FROM rsf_line_rollup WHERE file_id = ?", to, from);
+    }
+
+    /**
+     * Line counts per type, soins dates and stay totals of one file.
+     */
+    public RsfFileAnalytics summary(UUID fileId) {
+        Map<Character, Long> linesPerType = new TreeMap<>();
+        jdbc.query("SELECT line_type, sum(line_count) AS lines FROM rsf_line_rollup WHERE file_id = ? GROUP BY line_type",
+                rs -> {
+                    linesPerType.put(rs.getString("line_type").charAt(0), rs.getLong("lines"));
+                }, fileId);
+        List<RsfAnalyticsRow> totals = aggregate(GroupBy.FILE, new Filter(fileId, null, null, null), 1);
+        RsfAnalyticsRow row = totals.isEmpty() ? new RsfAnalyticsRow(fileId.toString(), 0, null, null, null, null) : totals.get(0);
+        return new RsfFileAnalytics(fileId, row.lines(), linesPerType, row.firstDateSoins(), row.lastDateSoins(),
+                row.honoraires(), row.remboursableAmo());
+    }
+
+    /**
+     * Aggregates the lines matching {@code filter} per {@code groupBy}. Acte groups are the
+     * most frequent first, the others are sorted by key.
+     *
+     * @param limit Groups returned, at most {@value #MAX_ROWS}
+     */
+    public List<RsfAnalyticsRow> aggregate(GroupBy groupBy, Filter filter, int limit) {
+        boolean acte = groupBy == GroupBy.ACTE;
+        StringBuilder sql = new StringBuilder("SELECT ").append(groupBy.key).append(" AS key,")
+                .append(" sum(line_count) AS lines, min(first_date_soins) AS first_date_soins,")
+                .append(" max(last_date_soins) AS last_date_soins,");
+        // Acte amounts come from their own lines, the others from the stay totals of the A lines
+        if (acte) {
+            sql.append(" sum(honoraires) AS honoraires, sum(remboursable_amo) AS remboursable_amo");
+        } else {
+            sql.append(" sum(honoraires) FILTER (WHERE line_type = 'A') AS honoraires,")
+                    .append(" sum(remboursable_amo) FILTER (WHERE line_type = 'A') AS remboursable_amo");
+        }
+        sql.append(" FROM rsf_line_rollup WHERE TRUE");
+        List<Object> args = new ArrayList<>();
+        if (acte) {
+            sql.append(" AND code_acte IS NOT NULL");
+        }
+        if (filter.fileId() != null) {
+            sql.append(" AND file_id = ?");
+            args.add(filter.fileId());
+        }
+        if (filter.finess() != null) {
+            sql.append(" AND finess = ?");
+            args.add(filter.finess());
+        }
+        if (filter.from() != null) {
+            sql.append(" AND month >= ?");
+            args.add(Date.valueOf(filter.from().atDay(1)));
+        }
+        if (filter.to() != null) {
+            sql.append(" AND month <= ?");
+            args.add(Date.valueOf(filter.to().atDay(1)));
+        }
+        sql.append(" GROUP BY 1 ORDER BY ").append(acte ? "lines DESC, 1" : "1").append(" LIMIT ?");
+        args.add(Math.max(1, Math.min(limit, MAX_ROWS)));
+
+        return jdbc.query(sql.toString(), (rs, i) -> new RsfAnalyticsRow(
+                rs.getString("key"),
+                rs.getLong("lines"),
+                rs.getString("first_date_soins"),
+                rs.getString("last_date_soins"),
+                rs.getBigDecimal("honoraires"),
+                rs.getBigDecimal("remboursable_amo")), args.toArray());
+    }
+}
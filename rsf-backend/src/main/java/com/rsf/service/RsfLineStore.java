@@ -0,0 +1,305 @@
+package com.rsf.service;
+
+import com.rsf.rsf.domain.models.FieldDefinition;
+import com.rsf.rsf.service.RsfParsingService;
+import com.rsf.service.imports.RsfLineSink;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Parsed RSF lines ({@code rsf_line_a} ... {@code rsf_line_l}), one table per line type,
+ * partitioned by file.
+ * <p>
+ * An import streams its lines through a {@link Load}: each line type gets its own connection
+ * and a CSV {@code COPY} into a fresh table, fed straight from the validator workers. On
+ * {@link Load#finish} every table is indexed on {@code (n_entree, n_immatriculation_assure)}
+ * and attached as the file's partition, so the load never maintains an index row by row and
+ * the lines only become visible once complete. Columns are the fields of the configured
+ * mapping year, lowercased; a new layout needs a migration.
+ */
+@Slf4j
+@Service
+public class RsfLineStore {
+    static final int COPY_BUFFER_SIZE = 256 * 1024;
+    /** Not a column: the table already says it */
+    private static final String LINE_TYPE_FIELD = "TYPE_ENREGISTREMENT";
+    private static final ThreadLocal<StringBuilder> ROW = ThreadLocal.withInitial(() -> new StringBuilder(512));
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbc;
+    private final Map<Character, List<FieldDefinition>> mappings;
+
+    public RsfLineStore(DataSource dataSource,
+                        JdbcTemplate jdbc,
+                        RsfParsingService parsing,
+                        @Value("${import.rsf.mapping-year:2017}") int mappingYear) {
+        this.dataSource = dataSource;
+        this.jdbc = jdbc;
+        Map<Character, List<FieldDefinition>> columns = new TreeMap<>();
+        parsing.mappingsFor(mappingYear).forEach((lineType, fields) -> columns.put(lineType,
+                fields.stream().filter(field -> !LINE_TYPE_FIELD.equals(field.getName())).toList()));
+        this.mappings = columns;
+    }
+
+    static String table(char lineType) {
+        return "rsf_line_" + Character.toLowerCase(lineType);
+    }
+
+    static String partition(char lineType, UUID fileId) {
+        return table(lineType) + "_" + fileId.toString().replace("-", "");
+    }
+
+    static String column(FieldDefinition field) {
+        return field.getName().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Starts loading the lines of a file, dropping those of an earlier import.
+     */
+    public Load open(UUID fileId) {
+        deleteForFile(fileId);
+        return new Load(fileId);
+    }
+
+    /**
+     * Drops the partitions holding the lines of a file.
+     */
+    public void deleteForFile(UUID fileId) {
+        for (char lineType : mappings.keySet()) {
+            jdbc.execute("DROP TABLE IF EXISTS " + partition(lineType, fileId));
+        }
+    }
+
+    /**
+     * Appends one line as a CSV row: file, source, line number, then the fields in layout
+     * order, empty values left unquoted so they load as NULL.
+     */
+    static void appendRow(StringBuilder row, String fileId, String source, int lineNumber,
+                          List<FieldDefinition> fields, Map<String, String> values) {
+        row.append(fileId).append(',');
+        appendCsvValue(row, source);
+        row.append(',').append(lineNumber);
+        for (FieldDefinition field : fields) {
+            row.append(',');
+            appendCsvValue(row, values.get(field.getName()));
+        }
+        row.append('\n');
+    }
+
+    /**
+     * Quotes a value when it holds a separator, quote or line break (RFC 4180).
+     */
+    static void appendCsvValue(StringBuilder row, String value) {
+        if (value == null || value.isEmpty()) {
+            return;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            row.append(value);
+            return;
+        }
+        row.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                row.append('"');
+            }
+            row.append(c);
+        }
+        row.append('"');
+    }
+
+    /**
+     * The lines of one import, written by the pipeline's validator workers. Closing a load
+     * that was not finished rolls every line type back.
+     */
+    public final class Load implements RsfLineSink, AutoCloseable {
+        private final UUID fileId;
+        private final String fileIdText;
+        private final Map<Character, TypeLoad> types = new ConcurrentHashMap<>();
+        private boolean finished;
+
+        private Load(UUID fileId) {
+            this.fileId = fileId;
+            this.fileIdText = fileId.toString();
+        }
+
+        @Override
+        public void accept(String source, int lineNumber, char lineType, Map<String, String> fields) {
+            List<FieldDefinition> columns = mappings.get(lineType);
+            if (columns == null) {
+                return;
+            }
+            StringBuilder row = ROW.get();
+            row.setLength(0);
+            appendRow(row, fileIdText, source, lineNumber, columns, fields);
+            types.computeIfAbsent(lineType, type -> new TypeLoad(type, columns))
+                    .write(row.toString().getBytes(StandardCharsets.UTF_8));
+        }
+
+        /**
+         * Ends the copies, indexes the loaded tables and attaches them as the file's partitions.
+         *
+         * @return Lines stored per line type
+         */
+        public synchronized Map<Character, Long> finish() {
+            Map<Character, Long> counts = new TreeMap<>();
+            for (TypeLoad load : types.values()) {
+                counts.put(load.lineType, load.finish());
+            }
+            finished = true;
+            log.debug("Stored {} RSF lines for file {}", counts, fileId);
+            return counts;
+        }
+
+        @Override
+        public synchronized void close() {
+            if (!finished) {
+                types.values().forEach(TypeLoad::abort);
+                // Types attached before a failing one must go too
+                deleteForFile(fileId);
+                finished = true;
+            }
+        }
+
+        /**
+         * The copy of one line type, on its own connection and transaction.
+         */
+        private final class TypeLoad {
+            private final char lineType;
+            private final String partition;
+            private final Connection connection;
+            private final CopyIn copy;
+            private final byte[] buffer = new byte[COPY_BUFFER_SIZE];
+            private int length;
+            private long rows;
+
+            TypeLoad(char lineType, List<FieldDefinition> fields) {
+                this.lineType = lineType;
+                this.partition = partition(lineType, fileId);
+                List<String> columns = new ArrayList<>(List.of("file_id", "source", "line_number"));
+                fields.forEach(field -> columns.add(column(field)));
+                String sql = "COPY " + partition + " (" + String.join(", ", columns) + ") FROM STDIN (FORMAT csv)";
+                Connection opened = null;
+                try {
+                    opened = dataSource.getConnection();
+                    opened.setAutoCommit(false);
+                    try (Statement statement = opened.createStatement()) {
+                        statement.execute("CREATE TABLE " + partition + " (LIKE " + table(lineType) + " INCLUDING DEFAULTS)");
+                    }
+                    this.copy = opened.unwrap(PGConnection.class).getCopyAPI().copyIn(sql);
+                    this.connection = opened;
+                } catch (SQLException e) {
+                    closeQuietly(opened);
+                    throw translate("Start COPY of " + table(lineType), sql, e);
+                }
+            }
+
+            synchronized void write(byte[] row) {
+                if (length + row.length > buffer.length) {
+                    flush();
+                }
+                if (row.length > buffer.length) {
+                    writeToCopy(row, row.length);
+                } else {
+                    System.arraycopy(row, 0, buffer, length, row.length);
+                    length += row.length;
+                }
+                rows++;
+            }
+
+            synchronized long finish() {
+                String sql = "ATTACH PARTITION " + partition;
+                try {
+                    flush();
+                    copy.endCopy();
+                    try (Statement statement = connection.createStatement()) {
+                        // Built once on the loaded rows, and adopted by the parent's index on attach
+                        statement.execute("CREATE INDEX ON " + partition + " (n_entree, n_immatriculation_assure)");
+                        // Proves the bound up front so attaching does not scan the table
+                        statement.execute("ALTER TABLE " + partition + " ADD CHECK (file_id = '" + fileId + "')");
+                        statement.execute("ALTER TABLE " + table(lineType) + " ATTACH PARTITION " + partition
+                                + " FOR VALUES IN ('" + fileId + "')");
+                    }
+                    connection.commit();
+                    return rows;
+                } catch (SQLException e) {
+                    abort();
+                    throw translate("Attach " + partition, sql, e);
+                } finally {
+                    closeQuietly(connection);
+                }
+            }
+
+            synchronized void abort() {
+                try {
+                    if (connection.isClosed()) {
+                        return;
+                    }
+                    if (copy.isActive()) {
+                        copy.cancelCopy();
+                    }
+                    connection.rollback();
+                } catch (SQLException e) {
+                    log.warn("Could not roll back the RSF lines of file {} in {}: {}", fileId, partition, e.getMessage());
+                } finally {
+                    closeQuietly(connection);
+                }
+            }
+
+            private void flush() {
+                if (length > 0) {
+                    writeToCopy(buffer, length);
+                    length = 0;
+                }
+            }
+
+            private void writeToCopy(byte[] bytes, int count) {
+                try {
+                    copy.writeToCopy(bytes, 0, count);
+                } catch (SQLException e) {
+                    throw translate("COPY into " + partition, "COPY", e);
+                }
+            }
+        }
+    }
+
+    private RuntimeException translate(String task, String sql, SQLException e) {
+        RuntimeException translated = jdbc.getExceptionTranslator().translate(task, sql, e);
+        return translated != null ? translated : new IllegalStateException(task + ": " + e.getMessage(), e);
+    }
+
+    private static void closeQuietly(Connection connection) {
+        if (connection == null) {
+            return;
+        }
+        try {
+            if (!connection.isClosed()) {
+                connection.close();
+            }
+        } catch (SQLException e) {
+            log.debug("Could not close connection: {}", e.getMessage());
+        }
+    }
+}
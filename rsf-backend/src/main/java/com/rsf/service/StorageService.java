@@ -1,5 +1,6 @@
 package com.rsf.service;
 
+import com.rsf.domain.Blob;
 import com.rsf.domain.FileEntity;
 import com.rsf.domain.FileStatus;
 import com.rsf.domain.User;
@@ -9,48 +10,267 @@ import lombok.RequiredArgsConstructor;
 import org.apache.commons.io.FilenameUtils;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.*;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.*;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
 import java.util.UUID;
 
 @Service
 @RequiredArgsConstructor
 public class StorageService {
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+
     private final FileRepo files;
-    private final UnzipService unzip;
+    private final BlobStore blobs;
     @Value("${file.storage-path}") private Path root;
 
+    /**
+     * Stores an upload, hashing and (for text formats) compressing it while it is written.
+     * Every upload gets its own file record; identical content shares one blob.
+     */
     public FileEntity store(MultipartFile multipart, User uploader) throws IOException {
         Files.createDirectories(root);
-        String ext = FilenameUtils.getExtension(multipart.getOriginalFilename());
-        String stored = UUID.randomUUID() + "." + ext;
-        Path target = root.resolve(stored);
-        multipart.transferTo(target);
+        String originalName = multipart.getOriginalFilename();
+        BlobStore.Staged staged = BlobStore.stage(root.resolve(newStoredName(originalName)),
+                FilenameUtils.getExtension(originalName).toLowerCase());
+        String hash;
+        try (InputStream in = multipart.getInputStream()) {
+            hash = writeHashed(in, staged);
+        } catch (IOException | RuntimeException e) {
+            staged.discard();
+            throw e;
+        }
+        return register(originalName, staged, hash, uploader);
+    }
+
+    /**
+     * Stores a raw request body without a multipart temp copy: bytes go straight into the
+     * storage file, hashed, size-checked and (for text formats) compressed as they arrive. The
+     * first bytes are checked against the format promised by the file name's extension.
+     *
+     * @param body The request body
+     * @param originalName The client's file name
+     * @param maxBytes Size limit, the upload is aborted as soon as it is exceeded
+     * @throws UploadRejectedException If the body is empty, too large or not of the declared format
+     */
+    public FileEntity storeStream(InputStream body, String originalName, long maxBytes, User uploader) throws IOException {
+        Files.createDirectories(root);
+        String extension = FilenameUtils.getExtension(originalName).toLowerCase();
+        BlobStore.Staged staged = BlobStore.stage(root.resolve(newStoredName(originalName)), extension);
 
+        MessageDigest digest = sha256();
+        byte[] chunk = new byte[STREAM_BUFFER_SIZE];
+        byte[] head = new byte[FileUtils.SNIFF_LENGTH];
+        int headLength = 0;
+        long written = 0;
+        boolean complete = false;
+        try {
+            int n;
+            while ((n = body.read(chunk)) != -1) {
+                written += n;
+                if (written > maxBytes) {
+                    throw new UploadRejectedException(HttpStatus.PAYLOAD_TOO_LARGE,
+                            "File size exceeds maximum limit (" + maxBytes / (1024 * 1024) + "MB)");
+                }
+                if (headLength < head.length) {
+                    int copied = Math.min(n, head.length - headLength);
+                    System.arraycopy(chunk, 0, head, headLength, copied);
+                    headLength += copied;
+                }
+                digest.update(chunk, 0, n);
+                staged.write(chunk, 0, n);
+            }
+            if (written == 0) {
+                throw new UploadRejectedException(HttpStatus.BAD_REQUEST, "The file is empty");
+            }
+            if (!FileUtils.contentMatchesExtension(head, headLength, extension)) {
+                throw new UploadRejectedException(HttpStatus.BAD_REQUEST,
+                        "File content does not match its ." + extension + " extension");
+            }
+            staged.close();
+            complete = true;
+        } finally {
+            if (!complete) {
+                staged.discard();
+            }
+        }
+        return register(originalName, staged, HexFormat.of().formatHex(digest.digest()), uploader);
+    }
+
+    /**
+     * Moves a file assembled elsewhere under the storage root (e.g. a finished chunked upload)
+     * into storage. The file is hashed, its first bytes checked and, for text formats,
+     * compressed into storage in a single read pass; other files must live on the same file
+     * system as the storage root so the move is a rename.
+     *
+     * @throws UploadRejectedException If the file is empty or not of the declared format
+     */
+    public FileEntity storeFile(Path source, String originalName, User uploader) throws IOException {
+        Files.createDirectories(root);
+        String extension = FilenameUtils.getExtension(originalName).toLowerCase();
+
+        String stored = newStoredName(originalName);
+        BlobStore.Staged staged = BlobStore.isCompressible(extension)
+                ? BlobStore.stage(root.resolve(stored), extension) : null;
+        MessageDigest digest = sha256();
+        byte[] head = new byte[FileUtils.SNIFF_LENGTH];
+        int headLength = 0;
+        long size = 0;
+        boolean complete = false;
+        try {
+            try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+                ByteBuffer buffer = ByteBuffer.allocate(STREAM_BUFFER_SIZE);
+                while (channel.read(buffer) != -1) {
+                    buffer.flip();
+                    size += buffer.remaining();
+                    if (headLength < head.length) {
+                        int copied = Math.min(buffer.remaining(), head.length - headLength);
+                        buffer.get(buffer.position(), head, headLength, copied);
+                        headLength += copied;
+                    }
+                    if (staged != null) {
+                        staged.write(buffer.array(), buffer.position(), buffer.remaining());
+                    }
+                    digest.update(buffer);
+                    buffer.clear();
+                }
+            }
+            if (size == 0) {
+                throw new UploadRejectedException(HttpStatus.BAD_REQUEST, "The file is empty");
+            }
+            if (!FileUtils.contentMatchesExtension(head, headLength, extension)) {
+                throw new UploadRejectedException(HttpStatus.BAD_REQUEST,
+                        "File content does not match its ." + extension + " extension");
+            }
+            if (staged != null) {
+                staged.close();
+                Files.delete(source);
+            } else {
+                Files.move(source, root.resolve(stored), StandardCopyOption.ATOMIC_MOVE);
+                staged = BlobStore.staged(root.resolve(stored));
+            }
+            complete = true;
+        } finally {
+            if (!complete && staged != null) {
+                staged.discard();
+            }
+        }
+        return register(originalName, staged, HexFormat.of().formatHex(digest.digest()), uploader);
+    }
+
+    /**
+     * Records a staged upload as a new file of {@code uploader}, renaming it into the blob
+     * store. Content stored before is not written again: the new file shares its blob.
+     */
+    private FileEntity register(String originalName, BlobStore.Staged staged, String hash, User uploader) throws IOException {
         FileEntity e = new FileEntity();
-        e.setOriginalName(multipart.getOriginalFilename());
-        e.setStoredName(stored);
-        e.setType(FileUtils.detectType(multipart.getOriginalFilename()));
+        e.setOriginalName(originalName);
+        e.setStoredName(blobs.acquire(hash, staged));
+        e.setType(FileUtils.detectType(originalName));
         e.setStatus(FileStatus.PROCESSING);
         e.setUploader(uploader);
-        e = files.save(e);
+        e.setContentHash(hash);
+        try {
+            e = files.save(e);
+        } catch (RuntimeException failed) {
+            blobs.release(hash);
+            throw failed;
+        }
+        // Stays PROCESSING until its import job sets READY or ERROR
+        return e;
+    }
+
+    /**
+     * Removes a file record and drops its reference on the blob, which is collected once no
+     * other file uses it. Legacy files stored outside the blob store are deleted with it.
+     */
+    public void delete(FileEntity e) throws IOException {
+        files.delete(e);
+        if (BlobStore.isBlob(e.getStoredName())) {
+            blobs.release(e.getContentHash());
+        } else if (e.getStoredName() != null) {
+            Files.deleteIfExists(pathOf(e));
+        }
+    }
 
-        // async unzip
-        Path dest = root.resolve(e.getId().toString());
-        FileEntity finalE = e;
-        unzip.extract(target, dest,
-            () -> { finalE.setStatus(FileStatus.READY);  files.save(finalE); },
-            () -> { finalE.setStatus(FileStatus.ERROR);  files.save(finalE); });
+    private static String newStoredName(String originalName) {
+        return UUID.randomUUID() + "." + FilenameUtils.getExtension(originalName);
+    }
 
-        return e;
+    /**
+     * Copies a stream to {@code target} and closes it, computing its SHA-256 in the same pass.
+     *
+     * @return The hex-encoded hash of the written bytes
+     */
+    public String writeHashed(InputStream in, OutputStream target) throws IOException {
+        MessageDigest digest = sha256();
+        try (OutputStream out = new DigestOutputStream(target, digest)) {
+            in.transferTo(out);
+        }
+        return HexFormat.of().formatHex(digest.digest());
     }
 
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * @return The file's content, inflated while it is read when stored compressed
+     */
     public Resource load(UUID id) {
         FileEntity e = files.findById(id)
             .orElseThrow(() -> new RuntimeException("file not found"));
-        return new FileSystemResource(root.resolve(e.getStoredName()));
+        if (!isCompressed(e)) {
+            return new FileSystemResource(pathOf(e));
+        }
+        return new InputStreamResource(() -> open(e), e.getOriginalName());
+    }
+
+    /**
+     * @return Where the content of a stored file lives, compressed or not
+     */
+    public Path pathOf(FileEntity e) {
+        return root.resolve(e.getStoredName());
+    }
+
+    /**
+     * @return Whether the stored bytes are Deflate-compressed and must be read through {@link #open}
+     */
+    public boolean isCompressed(FileEntity e) {
+        return BlobStore.isCompressed(e.getStoredName());
+    }
+
+    /**
+     * Opens a stored file's content, inflating it while it is read when needed.
+     */
+    public InputStream open(FileEntity e) throws IOException {
+        return BlobStore.open(pathOf(e));
+    }
+
+    /**
+     * @return The size of the content as uploaded
+     */
+    public long sizeOf(FileEntity e) throws IOException {
+        if (isCompressed(e)) {
+            return blobs.find(e.getContentHash())
+                .map(Blob::getSize)
+                .orElseThrow(() -> new IOException("No blob record for file " + e.getId()));
+        }
+        return Files.size(pathOf(e));
     }
 } 
\ No newline at end of file
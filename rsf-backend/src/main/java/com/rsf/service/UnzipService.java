@@ -1,44 +1,268 @@
 package com.rsf.service;
 
+import com.rsf.repo.FileRepo;
+import com.rsf.service.imports.ProgressTracker;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.file.PathUtils;
+import org.apache.commons.io.input.TeeInputStream;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.file.*;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
+import java.util.zip.ZipFile;
 
+/**
+ * Guarded random-access extraction of uploaded archives.
+ * <p>
+ * Nothing unpacks archives on its own: the import opens an {@link Extraction} over its
+ * {@link ZipFile} and reads entries through it from several threads at once. Every entry
+ * stream is checked against the archive limits (entry count, total inflated size, per-entry
+ * compression ratio) as it inflates, so a zip bomb fails fast instead of stalling a worker.
+ * When {@code import.keep-extracted} is on, entries are also written to
+ * {@code <storage>/<file id>/}: parsed entries are teed while they are read, the others
+ * copied through a direct buffer into preallocated files.
+ */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class UnzipService {
+    private static final int COPY_BUFFER_SIZE = 1024 * 1024;
+    private static final int TEE_BUFFER_SIZE = 256 * 1024;
+    /** Entries smaller than this are never rejected for their compression ratio */
+    private static final long RATIO_CHECK_THRESHOLD = 1024 * 1024;
+    private static final long FILE_PROGRESS_INTERVAL_MS = 1000;
+    private static final ThreadLocal<ByteBuffer> COPY_BUFFER =
+            ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(COPY_BUFFER_SIZE));
+
+    private final FileRepo files;
+    private final FileStatusCache statuses;
 
     @Value("${file.storage-path}") private Path root;
+    @Value("${import.keep-extracted:true}") private boolean keepExtracted;
+    @Value("${import.zip.max-entries:10000}") private int maxEntries;
+    @Value("${import.zip.max-total-size:4GB}") private DataSize maxTotalSize;
+    @Value("${import.zip.max-ratio:100}") private int maxRatio;
 
-    @Async("rsfExecutor")
-    public void extract(Path zipFile, Path destDir, Runnable onSuccess, Runnable onError) {
-        try {
+    /**
+     * Checks an archive's declared entry count, sizes and ratios, and prepares an empty
+     * extraction directory when copies are kept.
+     *
+     * @throws ZipLimitExceededException If the archive is over a limit by its own directory
+     */
+    public Extraction open(ZipFile zip, UUID fileId) throws IOException {
+        List<? extends ZipEntry> entries = Collections.list(zip.entries());
+        if (entries.size() > maxEntries) {
+            throw new ZipLimitExceededException("Archive has " + entries.size() + " entries, the limit is " + maxEntries);
+        }
+        long declared = 0;
+        for (ZipEntry entry : entries) {
+            if (entry.getSize() > 0) {
+                checkRatio(entry, entry.getSize());
+                declared += entry.getSize();
+            }
+        }
+        if (declared > maxTotalSize.toBytes()) {
+            throw new ZipLimitExceededException("Archive inflates to " + declared + " bytes, the limit is " + maxTotalSize);
+        }
+
+        Path destDir = null;
+        if (keepExtracted) {
+            destDir = root.resolve(fileId.toString());
+            discard(destDir);
             Files.createDirectories(destDir);
-            try (ZipInputStream zis = new ZipInputStream(Files.newInputStream(zipFile))) {
-                ZipEntry entry;
-                while ((entry = zis.getNextEntry()) != null) {
-                    Path target = destDir.resolve(entry.getName()).normalize();
-                    if (entry.isDirectory()) {
-                        Files.createDirectories(target);
-                    } else {
-                        Files.createDirectories(target.getParent());
-                        Files.copy(zis, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return new Extraction(zip, fileId, destDir, declared);
+    }
+
+    private void checkRatio(ZipEntry entry, long inflated) throws ZipLimitExceededException {
+        long compressed = Math.max(entry.getCompressedSize(), 1);
+        if (inflated > RATIO_CHECK_THRESHOLD && inflated / compressed > maxRatio) {
+            throw new ZipLimitExceededException("Entry " + entry.getName() + " compresses more than "
+                    + maxRatio + ":1, refusing to inflate it");
+        }
+    }
+
+    private static void discard(Path destDir) {
+        if (destDir == null || !Files.exists(destDir)) {
+            return;
+        }
+        try {
+            PathUtils.deleteDirectory(destDir);
+        } catch (IOException e) {
+            log.warn("Could not remove extracted files in {}", destDir, e);
+        }
+    }
+
+    /**
+     * One archive being extracted. Safe to read entries from several threads; closing it
+     * before {@link #complete} removes the partial extracted copy.
+     */
+    public final class Extraction implements AutoCloseable {
+        private final ZipFile zip;
+        private final UUID fileId;
+        private final Path destDir;
+        private final AtomicLong inflated = new AtomicLong();
+        private final ProgressTracker progress;
+        private volatile boolean completed;
+
+        private Extraction(ZipFile zip, UUID fileId, Path destDir, long declaredSize) {
+            this.zip = zip;
+            this.fileId = fileId;
+            this.destDir = destDir;
+            this.progress = new ProgressTracker(declaredSize, 0, 100, FILE_PROGRESS_INTERVAL_MS,
+                    this::updateProgress);
+        }
+
+        /**
+         * @return Whether entries are copied to the extracted store
+         */
+        public boolean isKeepingCopies() {
+            return destDir != null;
+        }
+
+        /**
+         * Opens an entry for reading under the archive limits, teeing it to its extracted
+         * copy when copies are kept.
+         */
+        public InputStream read(ZipEntry entry) throws IOException {
+            InputStream in = new GuardedInputStream(zip.getInputStream(entry), entry);
+            if (destDir != null) {
+                in = new TeeInputStream(in, new BufferedOutputStream(
+                        Files.newOutputStream(target(entry)), TEE_BUFFER_SIZE), true);
+            }
+            return in;
+        }
+
+        /**
+         * Copies an entry that is not parsed to its extracted copy, preallocated at the declared size.
+         */
+        public void extract(ZipEntry entry) throws IOException {
+            if (destDir == null) {
+                return;
+            }
+            Path target = target(entry);
+            ByteBuffer buffer = COPY_BUFFER.get();
+            try (ReadableByteChannel in = Channels.newChannel(new GuardedInputStream(zip.getInputStream(entry), entry));
+                 FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE,
+                         StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                if (entry.getSize() > 0) {
+                    out.write(ByteBuffer.wrap(new byte[1]), entry.getSize() - 1);
+                }
+                long position = 0;
+                buffer.clear();
+                while (in.read(buffer) != -1) {
+                    buffer.flip();
+                    while (buffer.hasRemaining()) {
+                        position += out.write(buffer, position);
                     }
-                    zis.closeEntry();
+                    buffer.clear();
+                }
+                // The declared size may have been wrong
+                out.truncate(position);
+            }
+        }
+
+        /**
+         * @return Bytes inflated so far across all entries
+         */
+        public long getInflatedBytes() {
+            return inflated.get();
+        }
+
+        /**
+         * Marks the extraction as done, so closing it keeps the extracted copy.
+         */
+        public void complete() {
+            completed = true;
+            updateProgress(100);
+        }
+
+        private void updateProgress(int percent) {
+            files.updateProgress(fileId, percent);
+            statuses.progress(fileId, percent);
+        }
+
+        @Override
+        public void close() {
+            if (!completed) {
+                discard(destDir);
+            }
+        }
+
+        private Path target(ZipEntry entry) throws IOException {
+            Path target = destDir.resolve(entry.getName()).normalize();
+            if (!target.startsWith(destDir) || target.equals(destDir)) {
+                throw new ZipLimitExceededException("ZIP entry outside of the extraction directory: " + entry.getName());
+            }
+            Files.createDirectories(target.getParent());
+            return target;
+        }
+
+        /**
+         * Counts inflated bytes against the limits while they are read.
+         */
+        private final class GuardedInputStream extends FilterInputStream {
+            private final ZipEntry entry;
+            private long count;
+
+            GuardedInputStream(InputStream in, ZipEntry entry) {
+                super(in);
+                this.entry = entry;
+            }
+
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b >= 0) {
+                    consumed(1);
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int n = super.read(b, off, len);
+                if (n > 0) {
+                    consumed(n);
+                }
+                return n;
+            }
+
+            @Override
+            public long skip(long n) throws IOException {
+                long skipped = super.skip(n);
+                if (skipped > 0) {
+                    consumed(skipped);
+                }
+                return skipped;
+            }
+
+            @Override
+            public boolean markSupported() {
+                return false;
+            }
+
+            private void consumed(long n) throws ZipLimitExceededException {
+                count += n;
+                // Directory sizes can lie, so the limits are checked on the bytes actually inflated
+                checkRatio(entry, count);
+                if (inflated.addAndGet(n) > maxTotalSize.toBytes()) {
+                    throw new ZipLimitExceededException("Archive inflates to more than " + maxTotalSize);
                 }
+                progress.advance(n);
             }
-            onSuccess.run();
-        } catch (Exception ex) {
-            log.error("Failed to extract {}", zipFile, ex);
-            onError.run();
         }
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,21 @@
+package com.rsf.service;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * Thrown when an upload is refused while it is being stored (too large, empty,
+ * content not matching its extension). Carries the HTTP status to answer with.
+ */
+public class UploadRejectedException extends RuntimeException {
+
+    private final HttpStatus status;
+
+    public UploadRejectedException(HttpStatus status, String message) {
+        super(message);
+        this.status = status;
+    }
+
+    public HttpStatus getStatus() {
+        return status;
+    }
+}
@@ -0,0 +1,322 @@
+package com.rsf.service;
+
+import com.rsf.domain.FileEntity;
+import com.rsf.domain.UploadChunk;
+import com.rsf.domain.UploadSession;
+import com.rsf.domain.UploadSessionStatus;
+import com.rsf.domain.User;
+import com.rsf.dto.UploadSessionDto;
+import com.rsf.repo.FileRepo;
+import com.rsf.repo.UploadChunkRepo;
+import com.rsf.repo.UploadSessionRepo;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resumable chunked uploads for archives too large for a single request.
+ * <p>
+ * A session belongs to the user who opened it and preallocates
+ * {@code <storage>/uploads/<session id>.part} at the announced size. Each chunk is streamed
+ * straight to its offset while it is hashed, so chunks may arrive in any order and
+ * concurrently; a chunk counts as received only once its length and checksum are verified,
+ * and a failed (re)send leaves it to be sent again. Once every chunk is in, the file is
+ * handed to {@link StorageService#storeFile} and from there to the usual import pipeline.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class UploadSessionService {
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    private final UploadSessionRepo sessions;
+    private final UploadChunkRepo chunks;
+    private final FileRepo files;
+    private final StorageService storage;
+
+    @Value("${file.storage-path}") private Path root;
+    @Value("${import.chunked.max-size:2GB}") private DataSize maxSize;
+    @Value("${import.chunked.chunk-size:8MB}") private DataSize chunkSize;
+    @Value("${import.chunked.session-ttl:24h}") private Duration sessionTtl;
+    @Value("${import.chunked.max-open-per-user:4}") private int maxOpenPerUser;
+
+    /** Chunks being received, as "session:index", so two sends of one chunk never interleave */
+    private final Set<String> receiving = ConcurrentHashMap.newKeySet();
+
+    public long getMaxSize() {
+        return maxSize.toBytes();
+    }
+
+    /**
+     * Opens a session of {@code uploader} and preallocates its part file.
+     *
+     * @throws UploadRejectedException If the size is not positive or over the chunked upload
+     *                                 limit, or the user has too many sessions open
+     */
+    public UploadSession create(String originalName, long totalSize, User uploader) throws IOException {
+        if (uploader == null) {
+            throw new UploadRejectedException(HttpStatus.UNAUTHORIZED, "Chunked uploads require a signed-in user");
+        }
+        if (totalSize <= 0) {
+            throw new UploadRejectedException(HttpStatus.BAD_REQUEST, "The file is empty");
+        }
+        if (totalSize > getMaxSize()) {
+            throw new UploadRejectedException(HttpStatus.PAYLOAD_TOO_LARGE,
+                    "File size exceeds maximum limit (" + maxSize.toMegabytes() + "MB)");
+        }
+        if (sessions.countByUploaderAndStatus(uploader, UploadSessionStatus.OPEN) >= maxOpenPerUser) {
+            throw new UploadRejectedException(HttpStatus.TOO_MANY_REQUESTS,
+                    "At most " + maxOpenPerUser + " chunked uploads may be open at once");
+        }
+        int size = (int) chunkSize.toBytes();
+        UploadSession session = new UploadSession();
+        session.setOriginalName(originalName);
+        session.setTotalSize(totalSize);
+        session.setChunkSize(size);
+        session.setChunkCount((int) ((totalSize + size - 1) / size));
+        session.setUploader(uploader);
+
+        Path part = partFile(session.getId());
+        Files.createDirectories(part.getParent());
+        try (FileChannel channel = FileChannel.open(part, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            // Writing the last byte sets the length; the rest stays sparse where supported
+            channel.write(ByteBuffer.wrap(new byte[1]), totalSize - 1);
+        }
+        log.info("Opened upload session {} for {} ({} bytes, {} chunks)",
+                session.getId(), originalName, totalSize, session.getChunkCount());
+        return sessions.save(session);
+    }
+
+    /**
+     * Writes one chunk at its offset, hashing it on the way. The chunk is recorded only once the
+     * body is exactly the chunk's length and matches the client's hex SHA-256; until then, and
+     * after any failed attempt, it counts as missing and has to be sent again.
+     *
+     * @throws UploadRejectedException If the session is not {@code caller}'s, or the chunk is invalid
+     */
+    public UploadSessionDto writeChunk(UUID sessionId, int index, InputStream body, String checksum, User caller) throws IOException {
+        UploadSession session = owned(open(sessionId), caller);
+        if (index < 0 || index >= session.getChunkCount()) {
+            throw new UploadRejectedException(HttpStatus.BAD_REQUEST,
+                    "Chunk index " + index + " out of range 0.." + (session.getChunkCount() - 1));
+        }
+        if (checksum == null || checksum.isBlank()) {
+            throw new UploadRejectedException(HttpStatus.BAD_REQUEST, "Chunk checksum is missing");
+        }
+        String key = sessionId + ":" + index;
+        if (!receiving.add(key)) {
+            throw new UploadRejectedException(HttpStatus.CONFLICT, "Chunk " + index + " is already being received");
+        }
+        try {
+            long offset = session.chunkOffset(index);
+            int expected = session.chunkLength(index);
+            // Its bytes are about to change: until they verify, the chunk is missing
+            chunks.deleteBySessionIdAndChunkIndex(sessionId, index);
+
+            MessageDigest digest = sha256();
+            ByteBuffer buf = ByteBuffer.allocate(Math.min(WRITE_BUFFER_SIZE, expected + 1));
+            long written = 0;
+            try (FileChannel part = FileChannel.open(partFile(sessionId), StandardOpenOption.WRITE)) {
+                int n;
+                while ((n = body.read(buf.array())) != -1) {
+                    if (written + n > expected) {
+                        throw new UploadRejectedException(HttpStatus.BAD_REQUEST,
+                                "Chunk " + index + " is larger than " + expected + " bytes");
+                    }
+                    digest.update(buf.array(), 0, n);
+                    buf.limit(n).position(0);
+                    while (buf.hasRemaining()) {
+                        part.write(buf, offset + written + buf.position());
+                    }
+                    buf.clear();
+                    written += n;
+                }
+            }
+            if (written != expected) {
+                throw new UploadRejectedException(HttpStatus.BAD_REQUEST,
+                        "Chunk " + index + " has " + written + " bytes, expected " + expected);
+            }
+            String actual = HexFormat.of().formatHex(digest.digest());
+            if (!actual.equalsIgnoreCase(checksum.trim())) {
+                throw new UploadRejectedException(HttpStatus.BAD_REQUEST, "Checksum mismatch for chunk " + index);
+            }
+
+            UploadChunk chunk = new UploadChunk();
+            chunk.setSessionId(sessionId);
+            chunk.setChunkIndex(index);
+            chunk.setSize(expected);
+            chunk.setChecksum(actual);
+            chunk.setReceivedAt(Instant.now());
+            chunks.save(chunk);
+        } finally {
+            receiving.remove(key);
+        }
+
+        session.setUpdatedAt(Instant.now());
+        sessions.save(session);
+        return status(sessionId);
+    }
+
+    /**
+     * @return The session with the chunks and byte ranges received so far
+     * @throws UploadRejectedException If the session is not {@code caller}'s
+     */
+    public UploadSessionDto status(UUID sessionId, User caller) {
+        owned(find(sessionId), caller);
+        return status(sessionId);
+    }
+
+    /**
+     * @return The session with the chunks and byte ranges received so far
+     */
+    private UploadSessionDto status(UUID sessionId) {
+        UploadSession session = find(sessionId);
+        List<Integer> received = chunks.findBySessionIdOrderByChunkIndex(sessionId).stream()
+                .map(UploadChunk::getChunkIndex)
+                .toList();
+        return new UploadSessionDto(session.getId(), session.getOriginalName(), session.getTotalSize(),
+                session.getChunkSize(), session.getChunkCount(), received,
+                receivedRanges(session, received), session.getStatus().name(), session.getFileId());
+    }
+
+    /**
+     * Hands a fully received upload to storage, as a file of the session's creator. Finalising
+     * a completed session again returns its stored file.
+     *
+     * @throws UploadRejectedException If the session is not {@code caller}'s, chunks are still
+     *                                 missing, or another request is finalising the session
+     */
+    public FileEntity finalise(UUID sessionId, User caller) throws IOException {
+        UploadSession session = owned(find(sessionId), caller);
+        if (session.getStatus() == UploadSessionStatus.COMPLETED && session.getFileId() != null) {
+            return files.findById(session.getFileId())
+                    .orElseThrow(() -> new UploadRejectedException(HttpStatus.GONE, "Uploaded file no longer exists"));
+        }
+        long received = chunks.countBySessionId(sessionId);
+        if (received < session.getChunkCount()) {
+            throw new UploadRejectedException(HttpStatus.CONFLICT,
+                    (session.getChunkCount() - received) + " of " + session.getChunkCount() + " chunks are missing");
+        }
+
+        // Storage moves the part file away, so only one request may hand it over
+        if (sessions.transition(sessionId, UploadSessionStatus.OPEN, UploadSessionStatus.FINALISING) == 0) {
+            throw new UploadRejectedException(HttpStatus.CONFLICT, "Upload session is already being finalised");
+        }
+        FileEntity stored;
+        try {
+            stored = storage.storeFile(partFile(sessionId), session.getOriginalName(), session.getUploader());
+        } catch (IOException | RuntimeException e) {
+            sessions.transition(sessionId, UploadSessionStatus.FINALISING, UploadSessionStatus.OPEN);
+            throw e;
+        }
+        session.setStatus(UploadSessionStatus.COMPLETED);
+        session.setFileId(stored.getId());
+        session.setUpdatedAt(Instant.now());
+        try {
+            sessions.save(session);
+        } catch (RuntimeException e) {
+            // The part file is gone: the client has to upload again, nothing may keep the stored copy
+            storage.delete(stored);
+            throw e;
+        }
+        log.info("Upload session {} finalised as file {}", sessionId, stored.getId());
+        return stored;
+    }
+
+    /**
+     * Drops open sessions idle for longer than {@code import.chunked.session-ttl} with their part files.
+     */
+    @Scheduled(fixedDelayString = "${import.chunked.cleanup-ms:3600000}")
+    public void expireIdleSessions() {
+        for (UploadSession session : sessions.findByStatusAndUpdatedAtBefore(
+                UploadSessionStatus.OPEN, Instant.now().minus(sessionTtl))) {
+            try {
+                Files.deleteIfExists(partFile(session.getId()));
+                sessions.delete(session);
+                log.info("Expired idle upload session {}", session.getId());
+            } catch (IOException e) {
+                log.warn("Could not remove part file of upload session {}", session.getId(), e);
+            }
+        }
+    }
+
+    /**
+     * Merges consecutive received chunks into {@code [start, end)} byte ranges.
+     *
+     * @param received Received chunk indexes in ascending order
+     */
+    static List<UploadSessionDto.Range> receivedRanges(UploadSession session, List<Integer> received) {
+        List<UploadSessionDto.Range> ranges = new ArrayList<>();
+        int i = 0;
+        while (i < received.size()) {
+            int first = received.get(i);
+            int last = first;
+            while (i + 1 < received.size() && received.get(i + 1) == last + 1) {
+                last = received.get(++i);
+            }
+            ranges.add(new UploadSessionDto.Range(session.chunkOffset(first),
+                    session.chunkOffset(last) + session.chunkLength(last)));
+            i++;
+        }
+        return ranges;
+    }
+
+    private UploadSession find(UUID sessionId) {
+        return sessions.findById(sessionId)
+                .orElseThrow(() -> new UploadRejectedException(HttpStatus.NOT_FOUND, "Upload session not found"));
+    }
+
+    private UploadSession open(UUID sessionId) {
+        UploadSession session = find(sessionId);
+        if (session.getStatus() != UploadSessionStatus.OPEN) {
+            throw new UploadRejectedException(HttpStatus.CONFLICT, "Upload session is already finalised");
+        }
+        return session;
+    }
+
+    /**
+     * Only the user who opened a session may send its chunks, see it or finalise it.
+     */
+    private static UploadSession owned(UploadSession session, User caller) {
+        User owner = session.getUploader();
+        if (owner == null || caller == null || !Objects.equals(owner.getId(), caller.getId())) {
+            throw new UploadRejectedException(HttpStatus.FORBIDDEN, "Upload session belongs to another user");
+        }
+        return session;
+    }
+
+    private Path partFile(UUID sessionId) {
+        return root.resolve("uploads").resolve(sessionId + ".part");
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.rsf.service;
+
+import com.rsf.rsf.domain.validation.RsfErrorType;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Date;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Validation error counts per error type, file and day ({@code rsf_validation_counts}).
+ * <p>
+ * The counts are loaded once at startup and then moved by deltas whenever the stored errors
+ * of a file are replaced, so the dashboard reads a prebuilt {@link Snapshot} whatever the
+ * number of files and errors. Each change publishes a new snapshot with a new version,
+ * which the endpoints use as their ETag.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ValidationAggregates {
+    private static final String DELETE = "DELETE FROM rsf_validation_counts WHERE file_id = ?";
+    private static final String INSERT = "INSERT INTO rsf_validation_counts (file_id, day, error_type, error_count)"
+            + " VALUES (?, ?, ?, ?)";
+
+    /** Versions restart with the application, the startup time keeps the ETags apart */
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+
+    private final JdbcTemplate jdbc;
+
+    private final Map<UUID, FileCounts> files = new HashMap<>();
+    private final Map<String, Long> byType = new TreeMap<>();
+    private final SortedMap<LocalDate, Long> byDay = new TreeMap<>();
+    private long version;
+    private volatile Snapshot snapshot = new Snapshot(epoch + "-0", 0, 0, Map.of(), Collections.emptySortedMap(), Instant.now());
+
+    /**
+     * @param version Changes whenever any count does
+     */
+    public record Snapshot(String version, long totalErrors, long filesWithErrors, Map<String, Long> errorsByType,
+                           SortedMap<LocalDate, Long> errorsByDay, Instant updatedAt) {}
+
+    private record FileCounts(LocalDate day, Map<String, Long> byType, long total) {}
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void load() {
+        Map<UUID, Map<LocalDate, Map<String, Long>>> rows = new HashMap<>();
+        jdbc.query("SELECT file_id, day, error_type, error_count FROM rsf_validation_counts", rs -> {
+            rows.computeIfAbsent(rs.getObject("file_id", UUID.class), id -> new TreeMap<>())
+                    .computeIfAbsent(rs.getDate("day").toLocalDate(), day -> new HashMap<>())
+                    .put(rs.getString("error_type"), rs.getLong("error_count"));
+        });
+        files.clear();
+        byType.clear();
+        byDay.clear();
+        // A file's errors are all stored by one validation, so each file has a single day
+        rows.forEach((fileId, days) -> days.forEach((day, counts) -> apply(fileId, day, counts)));
+        publish();
+        log.info("Loaded validation counts of {} files", files.size());
+    }
+
+    public Snapshot snapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Replaces the counts of a file with those of its latest validation.
+     *
+     * @param counts Errors per error type, empty when the file has no stored errors
+     */
+    @Transactional
+    public synchronized void replace(UUID fileId, LocalDate day, Map<String, Long> counts) {
+        jdbc.update(DELETE, fileId);
+        List<Object[]> rows = new ArrayList<>();
+        counts.forEach((type, count) -> {
+            if (count > 0) {
+                rows.add(new Object[] {fileId, Date.valueOf(day), type, count});
+            }
+        });
+        if (!rows.isEmpty()) {
+            jdbc.batchUpdate(INSERT, rows);
+        }
+
+        FileCounts previous = files.remove(fileId);
+        if (previous != null) {
+            previous.byType().forEach((type, count) -> add(byType, type, -count));
+            add(byDay, previous.day(), -previous.total());
+        }
+        apply(fileId, day, counts);
+        publish();
+    }
+
+    /**
+     * @return Stored errors of a file and/or type, {@code null} members matching everything
+     */
+    public synchronized long count(UUID fileId, RsfErrorType errorType) {
+        if (fileId == null) {
+            return errorType == null ? snapshot.totalErrors() : byType.getOrDefault(errorType.name(), 0L);
+        }
+        FileCounts counts = files.get(fileId);
+        if (counts == null) {
+            return 0;
+        }
+        return errorType == null ? counts.total() : counts.byType().getOrDefault(errorType.name(), 0L);
+    }
+
+    private void apply(UUID fileId, LocalDate day, Map<String, Long> counts) {
+        long total = 0;
+        Map<String, Long> kept = new HashMap<>();
+        for (Map.Entry<String, Long> entry : counts.entrySet()) {
+            if (entry.getValue() > 0) {
+                kept.put(entry.getKey(), entry.getValue());
+                add(byType, entry.getKey(), entry.getValue());
+                total += entry.getValue();
+            }
+        }
+        if (total > 0) {
+            files.put(fileId, new FileCounts(day, kept, total));
+            add(byDay, day, total);
+        }
+    }
+
+    private static <K> void add(Map<K, Long> counts, K key, long delta) {
+        long value = counts.getOrDefault(key, 0L) + delta;
+        if (value > 0) {
+            counts.put(key, value);
+        } else {
+            counts.remove(key);
+        }
+    }
+
+    private void publish() {
+        long total = byType.values().stream().mapToLong(Long::longValue).sum();
+        snapshot = new Snapshot(epoch + "-" + (++version), total, files.size(),
+                Collections.unmodifiableMap(new TreeMap<>(byType)),
+                Collections.unmodifiableSortedMap(new TreeMap<>(byDay)), Instant.now());
+    }
+}
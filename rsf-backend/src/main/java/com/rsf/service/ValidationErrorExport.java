@@ -0,0 +1,169 @@
+package com.rsf.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+
+/**
+ * Writes stored validation errors as CSV or NDJSON straight from the database cursor.
+ * <p>
+ * Rows go from the {@link java.sql.ResultSet} into one buffered writer (or JSON generator)
+ * per export, so memory stays the same whatever the number of errors and no object is built
+ * per error.
+ */
+@Service
+@RequiredArgsConstructor
+public class ValidationErrorExport {
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+    private static final String[] COLUMNS = {"id", "fileId", "fileName", "source", "lineNumber", "fieldName",
+            "errorType", "message", "timestamp"};
+    /** Lets Excel detect UTF-8 when the CSV is opened directly */
+    private static final char BYTE_ORDER_MARK = '\uFEFF';
+
+    private final ValidationErrorStore store;
+    private final ObjectMapper objectMapper;
+
+    public enum Format {
+        CSV("csv", new MediaType("text", "csv", StandardCharsets.UTF_8)),
+        NDJSON("ndjson", MediaType.APPLICATION_NDJSON);
+
+        private final String extension;
+        private final MediaType mediaType;
+
+        Format(String extension, MediaType mediaType) {
+            this.extension = extension;
+            this.mediaType = mediaType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        public MediaType getMediaType() {
+            return mediaType;
+        }
+    }
+
+    /**
+     * Writes every error matching {@code filter}, newest first. Does not close {@code out}.
+     *
+     * @return How many errors were written
+     */
+    public long write(ValidationErrorStore.Filter filter, Format format, OutputStream out) throws IOException {
+        long[] count = {0};
+        try {
+            if (format == Format.CSV) {
+                Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), WRITE_BUFFER_SIZE);
+                writer.write(BYTE_ORDER_MARK);
+                writer.write(String.join(",", COLUMNS));
+                writer.write("\r\n");
+                store.export(filter, rs -> {
+                    writeCsvRow(rs, writer);
+                    count[0]++;
+                });
+                writer.flush();
+            } else {
+                JsonGenerator json = objectMapper.getFactory().createGenerator(out);
+                // One object per line, not a JSON array
+                json.setRootValueSeparator(null);
+                store.export(filter, rs -> {
+                    writeJsonRow(rs, json);
+                    count[0]++;
+                });
+                json.flush();
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return count[0];
+    }
+
+    private static void writeCsvRow(ResultSet rs, Writer writer) throws SQLException {
+        try {
+            writer.write(Long.toString(rs.getLong("id")));
+            writer.write(',');
+            writeCsvValue(writer, rs.getString("file_id"));
+            writer.write(',');
+            writeCsvValue(writer, rs.getString("original_name"));
+            writer.write(',');
+            writeCsvValue(writer, rs.getString("source"));
+            writer.write(',');
+            writer.write(Integer.toString(rs.getInt("line_number")));
+            writer.write(',');
+            writeCsvValue(writer, rs.getString("field"));
+            writer.write(',');
+            writeCsvValue(writer, rs.getString("error_type"));
+            writer.write(',');
+            writeCsvValue(writer, rs.getString("message"));
+            writer.write(',');
+            writeCsvValue(writer, timestamp(rs));
+            writer.write("\r\n");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Quotes a value when it holds a separator, quote or line break (RFC 4180).
+     */
+    static void writeCsvValue(Writer writer, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                writer.write('"');
+            }
+            writer.write(c);
+        }
+        writer.write('"');
+    }
+
+    private static void writeJsonRow(ResultSet rs, JsonGenerator json) throws SQLException {
+        try {
+            json.writeStartObject();
+            json.writeNumberField("id", rs.getLong("id"));
+            json.writeStringField("fileId", rs.getString("file_id"));
+            json.writeStringField("fileName", rs.getString("original_name"));
+            json.writeStringField("source", rs.getString("source"));
+            json.writeNumberField("lineNumber", rs.getInt("line_number"));
+            json.writeStringField("fieldName", rs.getString("field"));
+            json.writeStringField("errorType", rs.getString("error_type"));
+            json.writeStringField("message", rs.getString("message"));
+            json.writeStringField("timestamp", timestamp(rs));
+            json.writeEndObject();
+            json.writeRaw('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String timestamp(ResultSet rs) throws SQLException {
+        Timestamp createdAt = rs.getTimestamp("created_at");
+        return createdAt != null ? createdAt.toInstant().toString() : null;
+    }
+}
@@ -0,0 +1,310 @@
+package com.rsf.service;
+
+import com.rsf.dto.ValidationErrorDto;
+import com.rsf.rsf.domain.validation.RsfError;
+import com.rsf.rsf.domain.validation.RsfErrorType;
+import com.rsf.service.imports.RsfErrorSink;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.SqlParameterValue;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Persisted RSF validation errors ({@code rsf_validation_errors}).
+ * <p>
+ * An import writes its errors through a {@link Batch}, a few thousand rows per JDBC batch,
+ * so memory stays bounded whatever the error count. Reads page by id (keyset) with the
+ * filters in the WHERE clause, so a page costs the same on the millionth error as on the first.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ValidationErrorStore {
+    static final int BATCH_SIZE = 2000;
+    static final int EXPORT_FETCH_SIZE = 5000;
+    private static final int MAX_FIELD_LENGTH = 100;
+
+    private static final String INSERT = "INSERT INTO rsf_validation_errors"
+            + " (file_id, source, line_number, error_type, field, message) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String SELECT = "SELECT e.id, e.file_id, f.original_name, e.source, e.line_number,"
+            + " e.field, e.error_type, e.message, e.created_at"
+            + " FROM rsf_validation_errors e LEFT JOIN files f ON f.id = e.file_id";
+
+    private static final RowMapper<ValidationErrorDto> ROW = (rs, i) -> new ValidationErrorDto(
+            rs.getLong("id"),
+            rs.getObject("file_id", UUID.class),
+            rs.getString("original_name"),
+            rs.getString("source"),
+            rs.getInt("line_number"),
+            rs.getString("field"),
+            rs.getString("error_type"),
+            rs.getString("message"),
+            rs.getTimestamp("created_at") != null ? rs.getTimestamp("created_at").toInstant() : null);
+
+    private final JdbcTemplate jdbc;
+    private final ValidationAggregates aggregates;
+
+    /**
+     * Filters of an error listing; {@code null} members match everything.
+     */
+    public record Filter(UUID fileId, RsfErrorType errorType, String field) {}
+
+    /**
+     * @param nextCursor Pass as {@code after} to get the following page, {@code null} on the last page
+     */
+    public record Page(List<ValidationErrorDto> errors, Long nextCursor) {}
+
+    /**
+     * @param source ZIP entry of the line, {@code null} for plain files
+     */
+    public record LineRef(String source, int lineNumber) {}
+
+    public record LineError(String source, RsfError error) {}
+
+    /**
+     * Starts writing the errors of a new validation of {@code fileId}, dropping those of an earlier one.
+     */
+    public Batch open(UUID fileId) {
+        deleteForFile(fileId);
+        return new Batch(fileId);
+    }
+
+    public void deleteForFile(UUID fileId) {
+        jdbc.update("DELETE FROM rsf_validation_errors WHERE file_id = ?", fileId);
+        aggregates.replace(fileId, LocalDate.now(), Map.of());
+    }
+
+    /**
+     * Lists errors newest first.
+     *
+     * @param after Cursor from the previous page, {@code null} for the first page
+     */
+    public Page list(Filter filter, Long after, int size) {
+        List<Object> args = new ArrayList<>();
+        StringBuilder sql = new StringBuilder(SELECT).append(where(filter, args));
+        if (after != null) {
+            sql.append(args.isEmpty() ? " WHERE" : " AND").append(" e.id < ?");
+            args.add(after);
+        }
+        // One row more than asked tells whether there is a next page
+        sql.append(" ORDER BY e.id DESC LIMIT ?");
+        args.add(size + 1);
+        return page(jdbc.query(sql.toString(), ROW, args.toArray()), size);
+    }
+
+    /**
+     * Lists errors newest first by page number, for clients that do not pass a cursor yet.
+     * The skipped rows are still read, so deep pages cost more than {@link #list} does.
+     */
+    public Page listPage(Filter filter, int pageNumber, int size) {
+        List<Object> args = new ArrayList<>();
+        String sql = SELECT + where(filter, args) + " ORDER BY e.id DESC LIMIT ? OFFSET ?";
+        args.add(size + 1);
+        args.add((long) pageNumber * size);
+        return page(jdbc.query(sql, ROW, args.toArray()), size);
+    }
+
+    private static Page page(List<ValidationErrorDto> rows, int size) {
+        if (rows.size() <= size) {
+            return new Page(rows, null);
+        }
+        List<ValidationErrorDto> page = rows.subList(0, size);
+        return new Page(List.copyOf(page), page.get(size - 1).id());
+    }
+
+    /**
+     * Reads every error matching {@code filter}, newest first, as a forward-only cursor: rows
+     * are fetched {@value #EXPORT_FETCH_SIZE} at a time and never held together in memory.
+     */
+    @Transactional(readOnly = true)
+    public void export(Filter filter, RowCallbackHandler handler) {
+        List<Object> args = new ArrayList<>();
+        String sql = SELECT + where(filter, args) + " ORDER BY e.id DESC";
+        // PostgreSQL only honours the fetch size inside a transaction
+        jdbc.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(EXPORT_FETCH_SIZE);
+            new ArgumentPreparedStatementSetter(args.toArray()).setValues(statement);
+            return statement;
+        }, handler);
+    }
+
+    /**
+     * Streams the errors of one file picked for fixing, by id or by filter.
+     *
+     * @param ids Errors to pick, or {@code null} to pick every error of the file matching {@code filter}
+     */
+    @Transactional(readOnly = true)
+    public void select(UUID fileId, List<Long> ids, Filter filter, Consumer<ValidationErrorDto> action) {
+        List<Object> args = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("SELECT e.id, e.file_id, NULL AS original_name, e.source, e.line_number,"
+                + " e.field, e.error_type, e.message, e.created_at FROM rsf_validation_errors e")
+                .append(where(new Filter(fileId, filter.errorType(), filter.field()), args));
+        if (ids != null) {
+            sql.append(" AND e.id = ANY (?)");
+        }
+        String query = sql.toString();
+        jdbc.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(query,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(EXPORT_FETCH_SIZE);
+            new ArgumentPreparedStatementSetter(args.toArray()).setValues(statement);
+            if (ids != null) {
+                statement.setArray(args.size() + 1, connection.createArrayOf("bigint", ids.toArray()));
+            }
+            return statement;
+        }, (RowCallbackHandler) rs -> action.accept(ROW.mapRow(rs, 0)));
+    }
+
+    /**
+     * Gives a re-upload of the same content the errors found importing the earlier file.
+     *
+     * @return How many errors were copied
+     */
+    @Transactional
+    public long copy(UUID from, UUID to) {
+        return copyRevalidated(from, to, List.of(), List.of());
+    }
+
+    /**
+     * Gives a fixed version of a file the errors of the file it was derived from, with the
+     * field errors of the rewritten lines replaced by those found revalidating them.
+     *
+     * @param touched     Rewritten lines
+     * @param revalidated Field errors of the rewritten lines
+     * @return How many errors the new version has
+     */
+    @Transactional
+    public long copyRevalidated(UUID from, UUID to, List<LineRef> touched, List<LineError> revalidated) {
+        jdbc.update("DELETE FROM rsf_validation_errors WHERE file_id = ?", to);
+        jdbc.update("INSERT INTO rsf_validation_errors (file_id, source, line_number, error_type, field, message)"
+                + " SELECT ?, source, line_number, error_type, field, message FROM rsf_validation_errors"
+                + " WHERE file_id = ? ORDER BY id", to, from);
+        List<Object[]> deletes = new ArrayList<>(touched.size());
+        for (LineRef line : touched) {
+            deletes.add(new Object[] {to, line.lineNumber(), new SqlParameterValue(Types.VARCHAR, line.source())});
+        }
+        jdbc.batchUpdate("DELETE FROM rsf_validation_errors WHERE file_id = ? AND line_number = ?"
+                + " AND source IS NOT DISTINCT FROM ? AND error_type = 'DATA_ERROR'", deletes);
+
+        Batch batch = new Batch(to);
+        for (LineError error : revalidated) {
+            batch.accept(error.source(), error.error());
+        }
+        batch.flush();
+
+        Map<String, Long> counts = new HashMap<>();
+        jdbc.query("SELECT error_type, count(*) AS n FROM rsf_validation_errors WHERE file_id = ? GROUP BY error_type",
+                rs -> { counts.put(rs.getString("error_type"), rs.getLong("n")); }, to);
+        aggregates.replace(to, LocalDate.now(), counts);
+        return counts.values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    public Optional<UUID> fileOf(long errorId) {
+        return jdbc.queryForList("SELECT file_id FROM rsf_validation_errors WHERE id = ?", UUID.class, errorId)
+                .stream().findFirst();
+    }
+
+    public long count(Filter filter) {
+        List<Object> args = new ArrayList<>();
+        Long count = jdbc.queryForObject("SELECT count(*) FROM rsf_validation_errors e" + where(filter, args),
+                Long.class, args.toArray());
+        return count != null ? count : 0;
+    }
+
+    private static String where(Filter filter, List<Object> args) {
+        List<String> conditions = new ArrayList<>();
+        if (filter.fileId() != null) {
+            conditions.add("e.file_id = ?");
+            args.add(filter.fileId());
+        }
+        if (filter.errorType() != null) {
+            conditions.add("e.error_type = ?");
+            args.add(filter.errorType().name());
+        }
+        if (filter.field() != null) {
+            conditions.add("e.field = ?");
+            args.add(filter.field());
+        }
+        return conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions);
+    }
+
+    /**
+     * Buffers the errors of one validation run and writes them in JDBC batches. Safe to call
+     * from the validator threads; closing it before {@link #finish} removes what was written.
+     */
+    public final class Batch implements RsfErrorSink, AutoCloseable {
+        private final UUID fileId;
+        private List<Object[]> pending = new ArrayList<>(BATCH_SIZE);
+        private final Map<String, Long> countsByType = new HashMap<>();
+        private long written;
+        private boolean finished;
+
+        private Batch(UUID fileId) {
+            this.fileId = fileId;
+        }
+
+        @Override
+        public synchronized void accept(String source, RsfError error) {
+            String field = error.getField();
+            if (field != null && field.length() > MAX_FIELD_LENGTH) {
+                field = field.substring(0, MAX_FIELD_LENGTH);
+            }
+            String errorType = error.getErrorType() != null ? error.getErrorType().name() : RsfErrorType.SYSTEM_ERROR.name();
+            pending.add(new Object[] {fileId, source, error.getLineNumber(), errorType,
+                    field, error.getMessage() != null ? error.getMessage() : ""});
+            countsByType.merge(errorType, 1L, Long::sum);
+            if (pending.size() >= BATCH_SIZE) {
+                flush();
+            }
+        }
+
+        /**
+         * Writes the remaining errors and updates the error counts.
+         *
+         * @return How many errors were stored for the file
+         */
+        public synchronized long finish() {
+            flush();
+            aggregates.replace(fileId, LocalDate.now(), countsByType);
+            finished = true;
+            log.debug("Stored {} validation errors for file {}", written, fileId);
+            return written;
+        }
+
+        @Override
+        public synchronized void close() {
+            if (!finished) {
+                pending.clear();
+                deleteForFile(fileId);
+            }
+        }
+
+        private void flush() {
+            if (pending.isEmpty()) {
+                return;
+            }
+            jdbc.batchUpdate(INSERT, pending);
+            written += pending.size();
+            pending = new ArrayList<>(BATCH_SIZE);
+        }
+    }
+}
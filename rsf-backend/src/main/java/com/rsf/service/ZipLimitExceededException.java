@@ -0,0 +1,14 @@
+package com.rsf.service;
+
+import java.io.IOException;
+
+/**
+ * Thrown when an archive is refused during extraction: too many entries, too large once
+ * inflated, a suspicious compression ratio or an entry path escaping the target directory.
+ */
+public class ZipLimitExceededException extends IOException {
+
+    public ZipLimitExceededException(String message) {
+        super(message);
+    }
+}
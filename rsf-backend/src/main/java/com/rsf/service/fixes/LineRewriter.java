@@ -0,0 +1,110 @@
+package com.rsf.service.fixes;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Copies a text stream line by line, letting a callback replace some lines.
+ * <p>
+ * Lines are cut like {@link java.io.BufferedReader#readLine} cuts them ({@code \n},
+ * {@code \r\n} or {@code \r}), so line numbers match those of the import, but every byte that
+ * is not replaced is copied unchanged, terminators included. Once the last line of interest
+ * is passed, the rest of the stream is copied in bulk.
+ */
+final class LineRewriter {
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final byte[] LF = {'\n'};
+    private static final byte[] CRLF = {'\r', '\n'};
+    private static final byte[] CR = {'\r'};
+    private static final byte[] NONE = {};
+
+    /**
+     * Decides on one line.
+     */
+    @FunctionalInterface
+    interface LineFixer {
+        /**
+         * @param line Buffer holding the line without its terminator; only valid during the call
+         * @return The bytes replacing the line, or {@code null} to keep it
+         */
+        byte[] fix(int lineNumber, byte[] line, int length) throws IOException;
+    }
+
+    private final byte[] chunk = new byte[CHUNK_SIZE];
+    private byte[] line = new byte[1024];
+    private int length;
+
+    /**
+     * Copies {@code in} to {@code out}, offering lines up to {@code lastLine} to {@code fixer}.
+     *
+     * @return The number of lines read before the bulk copy took over
+     */
+    int copy(InputStream in, OutputStream out, int lastLine, LineFixer fixer) throws IOException {
+        int lineNumber = 0;
+        boolean pendingCr = false;
+        length = 0;
+        int n;
+        while ((n = in.read(chunk)) != -1) {
+            for (int i = 0; i < n; i++) {
+                byte b = chunk[i];
+                if (pendingCr) {
+                    pendingCr = false;
+                    if (b == '\n') {
+                        endLine(++lineNumber, CRLF, out, fixer);
+                        if (lineNumber >= lastLine) {
+                            return copyRest(chunk, i + 1, n, in, out, lineNumber);
+                        }
+                        continue;
+                    }
+                    endLine(++lineNumber, CR, out, fixer);
+                    if (lineNumber >= lastLine) {
+                        return copyRest(chunk, i, n, in, out, lineNumber);
+                    }
+                }
+                if (b == '\r') {
+                    pendingCr = true;
+                } else if (b == '\n') {
+                    endLine(++lineNumber, LF, out, fixer);
+                    if (lineNumber >= lastLine) {
+                        return copyRest(chunk, i + 1, n, in, out, lineNumber);
+                    }
+                } else {
+                    append(b);
+                }
+            }
+        }
+        if (pendingCr) {
+            endLine(++lineNumber, CR, out, fixer);
+        } else if (length > 0) {
+            endLine(++lineNumber, NONE, out, fixer);
+        }
+        return lineNumber;
+    }
+
+    private void append(byte b) {
+        if (length == line.length) {
+            line = Arrays.copyOf(line, line.length * 2);
+        }
+        line[length++] = b;
+    }
+
+    private void endLine(int lineNumber, byte[] terminator, OutputStream out, LineFixer fixer) throws IOException {
+        byte[] replacement = fixer.fix(lineNumber, line, length);
+        if (replacement != null) {
+            out.write(replacement);
+        } else {
+            out.write(line, 0, length);
+        }
+        out.write(terminator);
+        length = 0;
+    }
+
+    private static int copyRest(byte[] chunk, int from, int to, InputStream in, OutputStream out, int lineNumber)
+            throws IOException {
+        out.write(chunk, from, to - from);
+        in.transferTo(out);
+        return lineNumber;
+    }
+}
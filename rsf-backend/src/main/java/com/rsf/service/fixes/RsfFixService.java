@@ -0,0 +1,254 @@
+package com.rsf.service.fixes;
+
+import com.rsf.domain.FileEntity;
+import com.rsf.domain.FileStatus;
+import com.rsf.domain.User;
+import com.rsf.repo.FileRepo;
+import com.rsf.rsf.domain.models.FieldDefinition;
+import com.rsf.rsf.domain.validation.FieldRule;
+import com.rsf.rsf.domain.validation.RsfError;
+import com.rsf.rsf.domain.validation.RsfErrorType;
+import com.rsf.rsf.service.RsfParsingService;
+import com.rsf.rsf.service.RsfValidationService;
+import com.rsf.service.FileStatusCache;
+import com.rsf.service.StorageService;
+import com.rsf.service.ValidationErrorStore;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FilenameUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Repairs the stored errors of an RSF dataset in bulk.
+ * <p>
+ * The picked errors are loaded once and grouped by source and line, then the stored file is
+ * copied in a single pass: lines without picked errors are copied byte for byte, the others
+ * have their fields repaired by the {@link RsfFixerRegistry} fixers and are revalidated on
+ * the spot. The copy becomes a new version of the file (a new file record pointing at its
+ * parent), whose errors are the parent's with those of the rewritten lines replaced.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RsfFixService {
+    private static final int WRITE_BUFFER_SIZE = 256 * 1024;
+
+    private final FileRepo files;
+    private final StorageService storage;
+    private final ValidationErrorStore validationErrors;
+    private final RsfFixerRegistry fixers;
+    private final RsfParsingService parsing;
+    private final RsfValidationService validation;
+    private final FileStatusCache statuses;
+
+    @Value("${import.rsf.mapping-year:2017}") private int mappingYear;
+    @Value("${file.storage-path}") private Path root;
+
+    /**
+     * @param versionId       The new version, {@code null} when nothing could be fixed
+     * @param selected        Errors picked
+     * @param fixed           Fields repaired
+     * @param unfixable       Picked fields no fixer could repair
+     * @param linesRewritten  Lines changed and revalidated
+     * @param remainingErrors Errors of the new version, or of the file when there is none
+     */
+    public record Result(UUID fileId, UUID versionId, int version, long selected, long fixed, long unfixable,
+                         long linesRewritten, long remainingErrors, long durationMs) {}
+
+    private record Target(String field, RsfErrorType errorType) {}
+
+    /**
+     * Fixes the picked errors of a file.
+     *
+     * @param errorIds Errors to fix, or {@code null} to fix every error matching {@code filter}
+     * @param filter   Error type and field to restrict the errors to; its file is ignored
+     * @param author   Who asked for the fix, owner of the new version
+     * @throws IllegalArgumentException If the file does not exist
+     */
+    public Result fix(UUID fileId, List<Long> errorIds, ValidationErrorStore.Filter filter, User author) throws IOException {
+        long start = System.currentTimeMillis();
+        FileEntity file = files.findById(fileId)
+                .orElseThrow(() -> new IllegalArgumentException("File not found: " + fileId));
+
+        // Source (null for plain files) -> line -> fields to repair
+        Map<String, Map<Integer, List<Target>>> picked = new HashMap<>();
+        long[] selected = {0};
+        validationErrors.select(fileId, errorIds, filter, error -> {
+            selected[0]++;
+            List<Target> targets = picked.computeIfAbsent(error.source(), source -> new HashMap<>())
+                    .computeIfAbsent(error.lineNumber(), line -> new ArrayList<>(2));
+            // Several errors on one field are repaired once
+            if (targets.stream().noneMatch(target -> target.field().equals(error.field())) && error.field() != null) {
+                targets.add(new Target(error.field(), RsfErrorType.valueOf(error.errorType())));
+            }
+        });
+
+        Pass pass = new Pass(picked);
+        Path copy = null;
+        if (!picked.isEmpty()) {
+            Files.createDirectories(root);
+            copy = Files.createTempFile(root, "fix-", ".tmp");
+            try (InputStream in = storage.open(file);
+                 OutputStream out = new BufferedOutputStream(Files.newOutputStream(copy), WRITE_BUFFER_SIZE)) {
+                if ("zip".equalsIgnoreCase(FilenameUtils.getExtension(file.getOriginalName()))) {
+                    pass.rewriteZip(in, out);
+                } else {
+                    pass.rewrite(null, in, out);
+                }
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(copy);
+                throw e;
+            }
+        }
+        if (pass.fixed == 0) {
+            if (copy != null) {
+                Files.deleteIfExists(copy);
+            }
+            return new Result(fileId, null, file.getVersion(), selected[0], 0, pass.unfixable, 0,
+                    validationErrors.count(new ValidationErrorStore.Filter(fileId, null, null)),
+                    System.currentTimeMillis() - start);
+        }
+
+        // Always a new record, even when the fixed content is already stored
+        FileEntity version = storage.storeFile(copy, file.getOriginalName(), author);
+        long remaining;
+        try {
+            version.setParentId(fileId);
+            version.setVersion(file.getVersion() + 1);
+            version.setStatus(FileStatus.READY);
+            version = files.save(version);
+            remaining = validationErrors.copyRevalidated(fileId, version.getId(), pass.touched, pass.revalidated);
+        } catch (RuntimeException e) {
+            // A version without its errors would look clean: drop it along with its blob reference
+            storage.delete(version);
+            throw e;
+        }
+        statuses.evict(version.getId());
+        long duration = System.currentTimeMillis() - start;
+        log.info("Fixed {} of {} picked errors of file {} in {} ms: version {} ({}) has {} errors",
+                pass.fixed, selected[0], fileId, duration, version.getVersion(), version.getId(), remaining);
+        return new Result(fileId, version.getId(), version.getVersion(), selected[0], pass.fixed, pass.unfixable,
+                pass.touched.size(), remaining, duration);
+    }
+
+    /**
+     * State of one copy of a dataset: picked errors, reusable buffers and what was changed.
+     */
+    private final class Pass {
+        private final Map<String, Map<Integer, List<Target>>> picked;
+        private final Map<Character, List<FieldDefinition>> mappings = parsing.mappingsFor(mappingYear);
+        private final Map<Character, Map<String, FieldDefinition>> fieldsByType = new HashMap<>();
+        private final Map<String, List<RsfFixer>> fixersByField = new HashMap<>();
+        private final LineRewriter rewriter = new LineRewriter();
+        private final List<ValidationErrorStore.LineRef> touched = new ArrayList<>();
+        private final List<ValidationErrorStore.LineError> revalidated = new ArrayList<>();
+        private long fixed;
+        private long unfixable;
+
+        Pass(Map<String, Map<Integer, List<Target>>> picked) {
+            this.picked = picked;
+            mappings.forEach((lineType, fields) -> {
+                Map<String, FieldDefinition> byName = new HashMap<>();
+                fields.forEach(field -> byName.put(field.getName(), field));
+                fieldsByType.put(lineType, byName);
+            });
+        }
+
+        void rewriteZip(InputStream in, OutputStream out) throws IOException {
+            ZipInputStream zin = new ZipInputStream(in);
+            ZipOutputStream zout = new ZipOutputStream(out);
+            ZipEntry entry;
+            while ((entry = zin.getNextEntry()) != null) {
+                ZipEntry copy = new ZipEntry(entry.getName());
+                copy.setTime(entry.getTime());
+                zout.putNextEntry(copy);
+                if (!entry.isDirectory()) {
+                    rewrite(entry.getName(), zin, zout);
+                }
+                zout.closeEntry();
+            }
+            zout.finish();
+        }
+
+        void rewrite(String source, InputStream in, OutputStream out) throws IOException {
+            Map<Integer, List<Target>> lines = picked.getOrDefault(source, Collections.emptyMap());
+            if (lines.isEmpty()) {
+                in.transferTo(out);
+                return;
+            }
+            int lastLine = Collections.max(lines.keySet());
+            rewriter.copy(in, out, lastLine, (lineNumber, bytes, length) -> {
+                List<Target> targets = lines.get(lineNumber);
+                return targets != null ? fixLine(source, lineNumber, new String(bytes, 0, length, StandardCharsets.UTF_8), targets) : null;
+            });
+        }
+
+        private byte[] fixLine(String source, int lineNumber, String line, List<Target> targets) {
+            char lineType = line.isEmpty() ? ' ' : line.charAt(0);
+            Map<String, FieldDefinition> fields = fieldsByType.getOrDefault(lineType, Map.of());
+            StringBuilder fixedLine = null;
+            for (Target target : targets) {
+                FieldDefinition field = fields.get(target.field());
+                String value = field != null ? repair(lineType, target, field, fixedLine != null ? fixedLine : line) : null;
+                if (value == null) {
+                    unfixable++;
+                    continue;
+                }
+                if (fixedLine == null) {
+                    fixedLine = new StringBuilder(line);
+                }
+                while (fixedLine.length() < field.getEndIndex()) {
+                    fixedLine.append(' ');
+                }
+                fixedLine.replace(field.getStartIndex(), field.getEndIndex(), value);
+                fixed++;
+            }
+            if (fixedLine == null) {
+                return null;
+            }
+
+            String result = fixedLine.toString();
+            touched.add(new ValidationErrorStore.LineRef(source, lineNumber));
+            Map<String, String> values = parsing.parseLine(result, lineNumber, mappings);
+            if (values != null) {
+                for (RsfError error : validation.validateLine(lineType, values, lineNumber, result)) {
+                    revalidated.add(new ValidationErrorStore.LineError(source, error));
+                }
+            }
+            return result.getBytes(StandardCharsets.UTF_8);
+        }
+
+        private String repair(char lineType, Target target, FieldDefinition field, CharSequence line) {
+            int start = Math.min(field.getStartIndex(), line.length());
+            String slot = line.subSequence(start, Math.min(field.getEndIndex(), line.length())).toString();
+            FieldRule rule = validation.getFieldRule(lineType, target.field());
+            List<RsfFixer> candidates = fixersByField.computeIfAbsent(target.errorType() + "/" + lineType + "/" + target.field(),
+                    key -> fixers.fixersFor(target.errorType(), target.field(), rule));
+            for (RsfFixer fixer : candidates) {
+                String value = fixer.fix(slot, field, rule);
+                if (value != null && value.length() == field.getLength() && !value.equals(slot)) {
+                    return value;
+                }
+            }
+            return null;
+        }
+    }
+}
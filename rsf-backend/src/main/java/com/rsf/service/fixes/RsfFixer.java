@@ -0,0 +1,21 @@
+package com.rsf.service.fixes;
+
+import com.rsf.rsf.domain.models.FieldDefinition;
+import com.rsf.rsf.domain.validation.FieldRule;
+
+/**
+ * Repairs the value of one fixed-width RSF field. Called from a single pass over a whole
+ * dataset, so implementations must be stateless and cheap.
+ */
+@FunctionalInterface
+public interface RsfFixer {
+
+    /**
+     * @param value The field's slot as stored, untrimmed; shorter than the field when the line is
+     * @param field Where the field sits on the line
+     * @param rule  The field's validation rule, {@code null} if it has none
+     * @return The repaired slot, exactly {@code field.getLength()} characters, or {@code null}
+     * if this fixer cannot repair the value
+     */
+    String fix(String value, FieldDefinition field, FieldRule rule);
+}
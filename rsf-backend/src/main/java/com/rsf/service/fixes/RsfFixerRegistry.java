@@ -0,0 +1,132 @@
+package com.rsf.service.fixes;
+
+import com.rsf.rsf.domain.models.FieldDefinition;
+import com.rsf.rsf.domain.validation.FieldRule;
+import com.rsf.rsf.domain.validation.RsfErrorType;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Fixers per error type and field.
+ * <p>
+ * A fixer registered for a field name is tried before those registered for the field's rule
+ * type; the first one returning a value wins. The built-in fixers repair the most common
+ * {@link RsfErrorType#DATA_ERROR}s: dates in another layout, numbers missing their leading
+ * zeros, decimals written with a comma and text longer than its rule allows.
+ */
+@Component
+public class RsfFixerRegistry {
+    private static final DateTimeFormatter RSF_DATE = DateTimeFormatter.ofPattern("ddMMuuuu");
+    /** Layouts that fit the 8 characters of an RSF date slot */
+    private static final List<DateTimeFormatter> DATE_LAYOUTS = List.of(
+            DateTimeFormatter.ofPattern("uuuuMMdd").withResolverStyle(ResolverStyle.STRICT),
+            DateTimeFormatter.ofPattern("d/M/uuuu").withResolverStyle(ResolverStyle.STRICT),
+            DateTimeFormatter.ofPattern("d-M-uuuu").withResolverStyle(ResolverStyle.STRICT),
+            DateTimeFormatter.ofPattern("d.M.uuuu").withResolverStyle(ResolverStyle.STRICT));
+
+    private final Map<String, List<RsfFixer>> byField = new ConcurrentHashMap<>();
+    private final Map<String, List<RsfFixer>> byFieldType = new ConcurrentHashMap<>();
+
+    public RsfFixerRegistry() {
+        register(RsfErrorType.DATA_ERROR, FieldRule.FieldType.DATE, RsfFixerRegistry::reformatDate);
+        register(RsfErrorType.DATA_ERROR, FieldRule.FieldType.NUMERIC, RsfFixerRegistry::padWithZeros);
+        register(RsfErrorType.DATA_ERROR, FieldRule.FieldType.DECIMAL, RsfFixerRegistry::decimalPoint);
+        register(RsfErrorType.DATA_ERROR, FieldRule.FieldType.TEXT, RsfFixerRegistry::truncate);
+    }
+
+    /**
+     * Registers a fixer for one field, whatever its line type.
+     */
+    public void register(RsfErrorType errorType, String field, RsfFixer fixer) {
+        byField.computeIfAbsent(errorType + "/" + field, key -> new CopyOnWriteArrayList<>()).add(fixer);
+    }
+
+    /**
+     * Registers a fixer for every field whose rule has the given type.
+     */
+    public void register(RsfErrorType errorType, FieldRule.FieldType fieldType, RsfFixer fixer) {
+        byFieldType.computeIfAbsent(errorType + "/" + fieldType, key -> new CopyOnWriteArrayList<>()).add(fixer);
+    }
+
+    /**
+     * @return The fixers to try for an error, most specific first; empty if none applies
+     */
+    public List<RsfFixer> fixersFor(RsfErrorType errorType, String field, FieldRule rule) {
+        List<RsfFixer> fixers = new ArrayList<>(byField.getOrDefault(errorType + "/" + field, List.of()));
+        if (rule != null && rule.getType() != null) {
+            fixers.addAll(byFieldType.getOrDefault(errorType + "/" + rule.getType(), List.of()));
+        }
+        return fixers;
+    }
+
+    static String reformatDate(String value, FieldDefinition field, FieldRule rule) {
+        String trimmed = value.trim();
+        for (DateTimeFormatter layout : DATE_LAYOUTS) {
+            try {
+                return pad(LocalDate.parse(trimmed, layout).format(RSF_DATE), field);
+            } catch (DateTimeParseException e) {
+                // Try the next layout
+            }
+        }
+        return null;
+    }
+
+    static String padWithZeros(String value, FieldDefinition field, FieldRule rule) {
+        String trimmed = value.trim();
+        int width = field.getLength();
+        if (rule != null && rule.getMinLength() != null) {
+            width = rule.getMinLength();
+        } else if (rule != null && rule.getMaxLength() != null) {
+            width = Math.min(rule.getMaxLength(), width);
+        }
+        if (trimmed.isEmpty() || trimmed.length() >= width || !isDigits(trimmed)) {
+            return null;
+        }
+        return pad("0".repeat(width - trimmed.length()) + trimmed, field);
+    }
+
+    static String decimalPoint(String value, FieldDefinition field, FieldRule rule) {
+        String trimmed = value.trim();
+        int comma = trimmed.indexOf(',');
+        if (comma < 0 || comma != trimmed.lastIndexOf(',') || trimmed.indexOf('.') >= 0) {
+            return null;
+        }
+        return pad(value.replace(',', '.'), field);
+    }
+
+    static String truncate(String value, FieldDefinition field, FieldRule rule) {
+        String trimmed = value.trim();
+        if (rule == null || rule.getMaxLength() == null || trimmed.length() <= rule.getMaxLength()) {
+            return null;
+        }
+        return pad(trimmed.substring(0, rule.getMaxLength()), field);
+    }
+
+    private static boolean isDigits(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) < '0' || value.charAt(i) > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Left-aligns a value in its slot, as RSF fields are; {@code null} if it does not fit.
+     */
+    private static String pad(String value, FieldDefinition field) {
+        if (value.length() > field.getLength()) {
+            return null;
+        }
+        return value + " ".repeat(field.getLength() - value.length());
+    }
+}
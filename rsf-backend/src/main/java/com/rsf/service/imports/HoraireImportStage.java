@@ -0,0 +1,94 @@
+package com.rsf.service.imports;
+
+import com.rsf.dto.HoraireUpdateDto;
+import com.rsf.rsf.domain.models.ExcelParsingResult;
+import com.rsf.rsf.domain.validation.RsfError;
+import com.rsf.rsf.service.ExcelParserService;
+import com.rsf.util.CountingInputStream;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Import stages for HORAIRES_ workbooks, calling {@link ExcelParserService} directly.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class HoraireImportStage implements ImportStage<HoraireImportStage.ParsedHoraire> {
+
+    private static final int SAMPLE_COUNT = 5;
+
+    private final ExcelParserService excelParser;
+
+    /**
+     * Parser output together with its updates mapped once to their JSON view.
+     */
+    public record ParsedHoraire(ExcelParsingResult result, List<HoraireUpdateDto> updates) {}
+
+    @Override
+    public ParsedHoraire parse(ImportContext context) throws IOException {
+        log.info("Starting HORAIRE file processing for file: {}", context.getFileName());
+        ExcelParsingResult result;
+        ProgressTracker tracker = new ProgressTracker(Files.size(context.getFile()), 20, 60,
+                ProgressTracker.DEFAULT_INTERVAL_MS, context::reportProgress);
+        try (InputStream in = new CountingInputStream(Files.newInputStream(context.getFile()), tracker::moveTo)) {
+            result = excelParser.parseHoraireWorkbook(in, context.getFileName(), context.getCancellation());
+        }
+
+        List<HoraireUpdateDto> updates = new ArrayList<>();
+        if (result.getHoraireUpdates() != null) {
+            result.getHoraireUpdates().forEach(update -> updates.add(HoraireUpdateDto.from(update)));
+        }
+        log.info("Got {} HORAIRE updates, totalRowsProcessed={}", updates.size(), result.getTotalRowsProcessed());
+        tracker.complete();
+        return new ParsedHoraire(result, updates);
+    }
+
+    @Override
+    public void validate(ParsedHoraire parsed, ImportContext context) {
+        if (parsed.result().getValidationResult().hasErrors()) {
+            for (RsfError error : parsed.result().getValidationResult().getErrors()) {
+                context.getErrorDetails().add(error.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void integrate(ParsedHoraire parsed, ImportContext context) {
+        List<String> lines = context.getProcessedLines();
+        lines.add(HoraireUpdateDto.PROCESSED_LINES_HEADER);
+        long row = 0;
+        for (HoraireUpdateDto update : parsed.updates()) {
+            context.getCancellation().checkEvery(++row);
+            lines.add(update.toProcessedLine());
+        }
+    }
+
+    @Override
+    public Map<String, Object> summarise(ParsedHoraire parsed, ImportContext context) {
+        int totalRows = parsed.result().getTotalRowsProcessed();
+
+        List<String> samples = new ArrayList<>();
+        samples.add("HORAIRE File: " + context.getFileName() + " - Total Records: " + totalRows);
+        for (int i = 0; i < Math.min(SAMPLE_COUNT, parsed.updates().size()); i++) {
+            samples.add(parsed.updates().get(i).toSample());
+        }
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("recordCount", totalRows);
+        summary.put("sampleRecords", samples);
+        summary.put("totalRowsProcessed", totalRows);
+        summary.put("updatedCount", parsed.updates().size());
+        summary.put("horaireUpdates", parsed.updates());
+        return summary;
+    }
+}
@@ -0,0 +1,64 @@
+package com.rsf.service.imports;
+
+import com.rsf.util.CancellationToken;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * State shared by the stages of one import: the stored file, the error details
+ * reported to the user, the processed lines shown in the data view and a progress sink.
+ */
+public class ImportContext {
+
+    private final String fileId;
+    private final Path file;
+    private final String fileName;
+    private final IntConsumer progress;
+    private final CancellationToken cancellation;
+    private final List<String> errorDetails = new ArrayList<>();
+    private final List<String> processedLines = new ArrayList<>();
+
+    public ImportContext(String fileId, Path file, String fileName, IntConsumer progress) {
+        this(fileId, file, fileName, progress, CancellationToken.NONE);
+    }
+
+    public ImportContext(String fileId, Path file, String fileName, IntConsumer progress,
+                         CancellationToken cancellation) {
+        this.fileId = fileId;
+        this.file = file;
+        this.fileName = fileName;
+        this.progress = progress;
+        this.cancellation = cancellation;
+    }
+
+    public String getFileId() {
+        return fileId;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public CancellationToken getCancellation() {
+        return cancellation;
+    }
+
+    public List<String> getErrorDetails() {
+        return errorDetails;
+    }
+
+    public List<String> getProcessedLines() {
+        return processedLines;
+    }
+
+    public void reportProgress(int percent) {
+        progress.accept(percent);
+    }
+}
@@ -0,0 +1,220 @@
+package com.rsf.service.imports;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs background imports on {@code rsfExecutor} with a bounded number of worker slots.
+ * <p>
+ * Waiting jobs are ordered interactive first, then smallest file first, then by arrival.
+ * A user never holds more than {@code maxPerUser} slots; their next job stays queued while
+ * jobs of other users behind it are started. Anonymous uploads share no user, so they are
+ * only bounded by {@code maxConcurrent}. Once {@code queueCapacity} jobs are waiting,
+ * {@link #reserve} refuses new work with an {@link ImportQueueFullException}.
+ */
+@Service
+@Slf4j
+public class ImportJobScheduler {
+
+    private static final Comparator<ImportJob> ORDER = Comparator
+            .comparing((ImportJob job) -> !job.interactive)
+            .thenComparingLong(job -> job.sizeBytes)
+            .thenComparingLong(job -> job.sequence);
+
+    private final Executor rsfExecutor;
+    private final int maxConcurrent;
+    private final int maxPerUser;
+    private final int queueCapacity;
+    private final long retryAfterSeconds;
+    private final Timer waitTimer;
+
+    private final TreeSet<ImportJob> queue = new TreeSet<>(ORDER);
+    private final Map<String, Integer> runningPerUser = new HashMap<>();
+    private int reserved;
+    private int running;
+    private long nextSequence;
+
+    public ImportJobScheduler(@Qualifier("rsfExecutor") Executor rsfExecutor,
+                              MeterRegistry meterRegistry,
+                              @Value("${import.max-concurrent:2}") int maxConcurrent,
+                              @Value("${import.max-per-user:1}") int maxPerUser,
+                              @Value("${import.queue-capacity:50}") int queueCapacity,
+                              @Value("${import.retry-after-seconds:30}") long retryAfterSeconds) {
+        this.rsfExecutor = rsfExecutor;
+        this.maxConcurrent = maxConcurrent;
+        this.maxPerUser = maxPerUser;
+        this.queueCapacity = queueCapacity;
+        this.retryAfterSeconds = retryAfterSeconds;
+
+        Gauge.builder("rsf.import.queue.depth", this, ImportJobScheduler::getQueueDepth)
+                .description("Imports waiting for a worker slot")
+                .register(meterRegistry);
+        Gauge.builder("rsf.import.running", this, ImportJobScheduler::getRunning)
+                .description("Imports currently running")
+                .register(meterRegistry);
+        this.waitTimer = Timer.builder("rsf.import.queue.wait")
+                .description("Time an import waited in the queue before starting")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Claims a place in the queue before the upload is stored, so a full queue is
+     * reported without writing the file first.
+     *
+     * @param user Uploader name, or {@code null} for anonymous uploads
+     * @param sizeBytes Upload size, smaller files are started first
+     * @param interactive Whether someone is waiting on the result in the UI
+     * @return The reserved job, to pass to {@link #submit} or {@link #release}
+     * @throws ImportQueueFullException If {@code queueCapacity} jobs are already waiting
+     */
+    public synchronized ImportJob reserve(String user, long sizeBytes, boolean interactive) {
+        if (queue.size() + reserved >= queueCapacity) {
+            throw new ImportQueueFullException("Import queue is full, please retry later", retryAfterSeconds);
+        }
+        reserved++;
+        return new ImportJob(user, sizeBytes, interactive, nextSequence++);
+    }
+
+    /**
+     * Queues the work of a reserved job and starts it as soon as a slot is free.
+     */
+    public void submit(ImportJob job, Runnable work) {
+        submit(job, null, work);
+    }
+
+    /**
+     * Queues the work of a reserved job under a key (the file id) by which it can be {@link #cancel cancelled}.
+     */
+    public void submit(ImportJob job, String key, Runnable work) {
+        synchronized (this) {
+            reserved--;
+            job.key = key;
+            job.work = work;
+            job.queuedAtNanos = System.nanoTime();
+            queue.add(job);
+        }
+        dispatch();
+    }
+
+    /**
+     * Gives back a reservation whose upload failed before it could be submitted.
+     */
+    public synchronized void release(ImportJob job) {
+        reserved--;
+    }
+
+    /**
+     * Drops a job that is still waiting for a slot.
+     *
+     * @return {@code true} if the job was queued and will not run, {@code false} if it
+     *         already started or is unknown
+     */
+    public synchronized boolean cancel(String key) {
+        for (Iterator<ImportJob> it = queue.iterator(); it.hasNext(); ) {
+            if (key.equals(it.next().key)) {
+                it.remove();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public synchronized int getQueueDepth() {
+        return queue.size();
+    }
+
+    public synchronized int getRunning() {
+        return running;
+    }
+
+    private void dispatch() {
+        while (true) {
+            ImportJob next;
+            synchronized (this) {
+                next = pollStartable();
+                if (next == null) {
+                    return;
+                }
+                running++;
+                if (next.user != null) {
+                    runningPerUser.merge(next.user, 1, Integer::sum);
+                }
+            }
+            waitTimer.record(System.nanoTime() - next.queuedAtNanos, TimeUnit.NANOSECONDS);
+            start(next);
+        }
+    }
+
+    private ImportJob pollStartable() {
+        if (running >= maxConcurrent) {
+            return null;
+        }
+        for (Iterator<ImportJob> it = queue.iterator(); it.hasNext(); ) {
+            ImportJob job = it.next();
+            if (job.user == null || runningPerUser.getOrDefault(job.user, 0) < maxPerUser) {
+                it.remove();
+                return job;
+            }
+        }
+        return null;
+    }
+
+    private void start(ImportJob job) {
+        try {
+            rsfExecutor.execute(() -> {
+                try {
+                    job.work.run();
+                } finally {
+                    finish(job);
+                }
+            });
+        } catch (RuntimeException e) {
+            log.error("Could not start import job for {}: {}", job.user != null ? job.user : "anonymous upload", e.getMessage(), e);
+            finish(job);
+        }
+    }
+
+    private void finish(ImportJob job) {
+        synchronized (this) {
+            running--;
+            if (job.user != null) {
+                runningPerUser.computeIfPresent(job.user, (user, count) -> count > 1 ? count - 1 : null);
+            }
+        }
+        dispatch();
+    }
+
+    /**
+     * A queued import: its ordering key and, once submitted, the work to run.
+     */
+    public static final class ImportJob {
+        /** Uploader name, {@code null} for anonymous uploads */
+        private final String user;
+        private final long sizeBytes;
+        private final boolean interactive;
+        private final long sequence;
+        private String key;
+        private Runnable work;
+        private long queuedAtNanos;
+
+        private ImportJob(String user, long sizeBytes, boolean interactive, long sequence) {
+            this.user = user;
+            this.sizeBytes = sizeBytes;
+            this.interactive = interactive;
+            this.sequence = sequence;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.rsf.service.imports;
+
+import com.rsf.domain.ImportJobStatus;
+import com.rsf.util.CancellationToken;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-memory view of one import job, served to progress polls without a database read.
+ * Processed lines are only held while the job runs; they are written out when it finishes.
+ */
+public class ImportJobState {
+
+    private final String fileId;
+    private final String fileType;
+    private volatile ImportJobStatus status;
+    private final AtomicInteger progress;
+    private final List<String> validationDetails = new CopyOnWriteArrayList<>(); // appended to by concurrent sheet scans
+    private final List<String> errors = new CopyOnWriteArrayList<>();
+    private final List<String> processedLines = Collections.synchronizedList(new ArrayList<>());
+    private final CancellationToken cancellation = new CancellationToken();
+
+    public ImportJobState(String fileId, String fileType, ImportJobStatus status, int progress) {
+        this.fileId = fileId;
+        this.fileType = fileType;
+        this.status = status;
+        this.progress = new AtomicInteger(progress);
+    }
+
+    public String getFileId() {
+        return fileId;
+    }
+
+    public String getFileType() {
+        return fileType;
+    }
+
+    public ImportJobStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(ImportJobStatus status) {
+        this.status = status;
+    }
+
+    public int getProgress() {
+        return progress.get();
+    }
+
+    public void setProgress(int value) {
+        progress.set(value);
+    }
+
+    /**
+     * Raises the progress, never moving it backwards (sheets and entries report concurrently).
+     */
+    public void raiseProgress(int value) {
+        progress.accumulateAndGet(value, Math::max);
+    }
+
+    public boolean isComplete() {
+        return status == ImportJobStatus.COMPLETED || status == ImportJobStatus.FAILED
+                || status == ImportJobStatus.CANCELLED;
+    }
+
+    /**
+     * @return The token the import loops check; cancelled by {@code DELETE /api/v1/import/{fileId}}
+     */
+    public CancellationToken getCancellation() {
+        return cancellation;
+    }
+
+    public List<String> getValidationDetails() {
+        return validationDetails;
+    }
+
+    public List<String> getErrors() {
+        return errors;
+    }
+
+    public List<String> getProcessedLines() {
+        return processedLines;
+    }
+}
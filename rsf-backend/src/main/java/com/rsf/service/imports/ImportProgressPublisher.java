@@ -0,0 +1,229 @@
+package com.rsf.service.imports;
+
+import com.rsf.domain.ImportJobStatus;
+import com.rsf.service.ImportJobService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Pushes import progress to connected clients.
+ * <p>
+ * Imports do not notify anyone: a flush running every {@code import.progress.flush-ms}
+ * reads the in-memory job state of the files that have subscribers and queues only what
+ * changed since the last flush. Updates are thereby coalesced to one per client per flush,
+ * and jobs nobody watches cost nothing. When a job finishes its result is sent and the
+ * stream is closed.
+ * <p>
+ * The flush runs on the scheduler shared with other housekeeping, so it never talks to a
+ * client itself: each subscription has a queue of at most {@code import.progress.max-pending}
+ * events, drained on {@code progressExecutor}. A client too slow to keep up fills its queue
+ * and is dropped instead of holding back the others.
+ */
+@Component
+@Slf4j
+public class ImportProgressPublisher {
+
+    private final ImportJobService importJobs;
+    private final Executor executor;
+    private final int maxPending;
+
+    private final Map<String, Set<Subscription>> subscriptions = new ConcurrentHashMap<>();
+
+    public ImportProgressPublisher(ImportJobService importJobs,
+                                   @Qualifier("progressExecutor") Executor executor,
+                                   @Value("${import.progress.max-pending:16}") int maxPending) {
+        this.importJobs = importJobs;
+        this.executor = executor;
+        this.maxPending = maxPending;
+    }
+
+    /**
+     * Registers a client for the progress of a file; it receives the current state on the next flush.
+     */
+    public Subscription subscribe(String fileId, ProgressSink sink) {
+        Subscription subscription = new Subscription(fileId, sink, maxPending);
+        subscriptions.computeIfAbsent(fileId, k -> ConcurrentHashMap.newKeySet()).add(subscription);
+        log.debug("Progress subscriber added for file {}", fileId);
+        return subscription;
+    }
+
+    /**
+     * Drops a client, e.g. after it disconnected. Safe to call more than once.
+     */
+    public void unsubscribe(Subscription subscription) {
+        subscriptions.computeIfPresent(subscription.fileId, (fileId, subs) -> {
+            subs.remove(subscription);
+            return subs.isEmpty() ? null : subs;
+        });
+    }
+
+    public int getSubscriberCount() {
+        return subscriptions.values().stream().mapToInt(Set::size).sum();
+    }
+
+    @Scheduled(fixedDelayString = "${import.progress.flush-ms:250}")
+    public void flush() {
+        for (Map.Entry<String, Set<Subscription>> entry : subscriptions.entrySet()) {
+            String fileId = entry.getKey();
+            Optional<ImportJobState> job = importJobs.find(fileId);
+            if (job.isEmpty()) {
+                continue;
+            }
+            ImportJobState state = job.get();
+            Map<String, Object> progress = progressPayload(state);
+            // Read from disk by the first subscriber's sender, shared with the others
+            Supplier<Object> result = state.isComplete() ? once(() -> finalPayload(state)) : null;
+
+            for (Subscription subscription : entry.getValue()) {
+                List<Event> events = new ArrayList<>(3);
+                if (state.getStatus() != subscription.lastStatus) {
+                    Map<String, Object> stage = Map.of("fileId", fileId, "stage", state.getStatus().name());
+                    events.add(new Event("stage", () -> stage));
+                    subscription.lastStatus = state.getStatus();
+                }
+                if (state.getProgress() != subscription.lastProgress) {
+                    events.add(new Event("progress", () -> progress));
+                    subscription.lastProgress = state.getProgress();
+                }
+                if (result != null) {
+                    events.add(new Event("result", result));
+                    events.add(Event.CLOSE);
+                    // Nothing follows the result: stop flushing to this client right away
+                    unsubscribe(subscription);
+                }
+                enqueue(subscription, events);
+            }
+        }
+    }
+
+    private void enqueue(Subscription subscription, List<Event> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        for (Event event : events) {
+            if (!subscription.pending.offer(event)) {
+                log.warn("Progress subscriber of file {} is {} events behind, dropping it",
+                        subscription.fileId, maxPending);
+                unsubscribe(subscription);
+                subscription.pending.clear();
+                subscription.pending.offer(Event.CLOSE);
+                break;
+            }
+        }
+        drain(subscription);
+    }
+
+    /**
+     * Sends a subscription's queued events on the executor, one sender per subscription at a time.
+     */
+    private void drain(Subscription subscription) {
+        if (!subscription.draining.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    send(subscription);
+                } finally {
+                    subscription.draining.set(false);
+                }
+                // Events queued while the flag was still set
+                if (!subscription.pending.isEmpty()) {
+                    drain(subscription);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            subscription.draining.set(false);
+            unsubscribe(subscription);
+            subscription.pending.clear();
+        }
+    }
+
+    private void send(Subscription subscription) {
+        Event event;
+        while ((event = subscription.pending.poll()) != null) {
+            if (event == Event.CLOSE) {
+                subscription.pending.clear();
+                subscription.sink.close();
+                return;
+            }
+            if (!subscription.sink.send(event.type(), event.payload().get())) {
+                unsubscribe(subscription);
+                subscription.pending.clear();
+                return;
+            }
+        }
+    }
+
+    private static <T> Supplier<T> once(Supplier<T> supplier) {
+        return new Supplier<>() {
+            private T value;
+
+            @Override
+            public synchronized T get() {
+                if (value == null) {
+                    value = supplier.get();
+                }
+                return value;
+            }
+        };
+    }
+
+    private Map<String, Object> progressPayload(ImportJobState state) {
+        List<String> details = state.getValidationDetails();
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("fileId", state.getFileId());
+        payload.put("progress", state.getProgress());
+        payload.put("stage", state.getStatus().name());
+        payload.put("errorCount", state.getErrors().size());
+        payload.put("complete", state.isComplete());
+        payload.put("message", details.isEmpty() ? null : details.get(details.size() - 1));
+        return payload;
+    }
+
+    private Map<String, Object> finalPayload(ImportJobState state) {
+        Map<String, Object> payload = new HashMap<>(importJobs.loadResult(state.getFileId()).orElseGet(HashMap::new));
+        payload.put("fileId", state.getFileId());
+        payload.put("status", state.getStatus().name());
+        payload.put("errors", state.getErrors());
+        return payload;
+    }
+
+    /**
+     * An event waiting to be sent; its payload is built by the sender.
+     */
+    private record Event(String type, Supplier<Object> payload) {
+        /** Ends the stream */
+        static final Event CLOSE = new Event(null, null);
+    }
+
+    /**
+     * One client watching one file, with what it was last sent and what waits to be sent.
+     */
+    public static final class Subscription {
+        private final String fileId;
+        private final ProgressSink sink;
+        private final BlockingQueue<Event> pending;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private ImportJobStatus lastStatus;
+        private int lastProgress = -1;
+
+        private Subscription(String fileId, ProgressSink sink, int maxPending) {
+            this.fileId = fileId;
+            this.sink = sink;
+            this.pending = new ArrayBlockingQueue<>(maxPending);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.rsf.service.imports;
+
+/**
+ * Thrown when the import queue cannot take another job.
+ * The controller maps it to HTTP 429 with a Retry-After header.
+ */
+public class ImportQueueFullException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public ImportQueueFullException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,33 @@
+package com.rsf.service.imports;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Typed import pipeline for one kind of uploaded file.
+ * The import calls the stages in order: parse, validate, integrate, summarise.
+ *
+ * @param <T> The parsed representation handed from one stage to the next
+ */
+public interface ImportStage<T> {
+
+    /**
+     * Reads the stored file into its parsed representation.
+     */
+    T parse(ImportContext context) throws IOException;
+
+    /**
+     * Reports problems found while parsing into the context's error details.
+     */
+    void validate(T parsed, ImportContext context);
+
+    /**
+     * Publishes the accepted records into the import (processed data lines).
+     */
+    void integrate(T parsed, ImportContext context);
+
+    /**
+     * Builds the entries this file type contributes to the import result.
+     */
+    Map<String, Object> summarise(T parsed, ImportContext context);
+}
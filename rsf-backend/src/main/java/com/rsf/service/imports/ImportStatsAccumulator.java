@@ -0,0 +1,175 @@
+package com.rsf.service.imports;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Collects RSF import statistics (line-type counts, DATE_SOINS bounds, errors and samples)
+ * for one unit of work such as a sheet, a ZIP entry or a text file.
+ * <p>
+ * An accumulator is confined to the thread that fills it. Units processed concurrently each
+ * get their own accumulator, and the results are combined with {@link #merge} in a fixed
+ * order so the totals do not depend on scheduling.
+ */
+public class ImportStatsAccumulator {
+
+    public static final int MAX_SAMPLE_RECORDS = 5;
+
+    private final int maxErrorDetails;
+    private final String overflowMessage;
+
+    private int recordCount;
+    private int errorCount;
+    private String firstDateSoins;
+    private String lastDateSoins;
+    private boolean errorDetailsTruncated;
+    private final Map<Character, Integer> lineTypeCounts = new HashMap<>();
+    private final List<String> errorDetails = new ArrayList<>();
+    private final List<String> sampleRecords = new ArrayList<>();
+
+    /**
+     * @param maxErrorDetails Maximum number of detailed error messages kept
+     * @param overflowMessage Message appended once when more errors were found than kept
+     */
+    public ImportStatsAccumulator(int maxErrorDetails, String overflowMessage) {
+        this.maxErrorDetails = maxErrorDetails;
+        this.overflowMessage = overflowMessage;
+    }
+
+    public void countRecord() {
+        recordCount++;
+    }
+
+    public void countLineType(char lineType) {
+        lineTypeCounts.merge(lineType, 1, Integer::sum);
+    }
+
+    /**
+     * Widens the first/last DATE_SOINS bounds with the given value (compared as a string,
+     * as the sequential import always did).
+     */
+    public void observeDateSoins(String dateSoins) {
+        if (dateSoins == null) {
+            return;
+        }
+        if (firstDateSoins == null || dateSoins.compareTo(firstDateSoins) < 0) {
+            firstDateSoins = dateSoins;
+        }
+        if (lastDateSoins == null || dateSoins.compareTo(lastDateSoins) > 0) {
+            lastDateSoins = dateSoins;
+        }
+    }
+
+    /**
+     * Counts an invalid line and keeps its detail while under the detail cap.
+     */
+    public void recordError(String detail) {
+        errorCount++;
+        addErrorDetail(detail);
+    }
+
+    /**
+     * Counts an invalid line; the detail is only built while under the detail cap.
+     */
+    public void recordError(Supplier<String> detail) {
+        errorCount++;
+        if (errorDetails.size() < maxErrorDetails) {
+            errorDetails.add(detail.get());
+        } else {
+            errorDetailsTruncated = true;
+        }
+    }
+
+    /**
+     * Keeps an error detail without counting it as an invalid line.
+     */
+    public void addErrorDetail(String detail) {
+        if (errorDetails.size() < maxErrorDetails) {
+            errorDetails.add(detail);
+        } else {
+            errorDetailsTruncated = true;
+        }
+    }
+
+    public boolean wantsSample() {
+        return sampleRecords.size() < MAX_SAMPLE_RECORDS;
+    }
+
+    public void addSample(String sample) {
+        if (wantsSample()) {
+            sampleRecords.add(sample);
+        }
+    }
+
+    /**
+     * Folds another accumulator into this one. Details and samples of {@code other} are
+     * appended after the ones already held, subject to the same caps.
+     */
+    public void merge(ImportStatsAccumulator other) {
+        recordCount += other.recordCount;
+        errorCount += other.errorCount;
+        other.lineTypeCounts.forEach((type, count) -> lineTypeCounts.merge(type, count, Integer::sum));
+        observeDateSoins(other.firstDateSoins);
+        observeDateSoins(other.lastDateSoins);
+        for (String detail : other.errorDetails) {
+            addErrorDetail(detail);
+        }
+        if (other.errorDetailsTruncated) {
+            errorDetailsTruncated = true;
+        }
+        for (String sample : other.sampleRecords) {
+            addSample(sample);
+        }
+    }
+
+    public int getRecordCount() {
+        return recordCount;
+    }
+
+    public int getErrorCount() {
+        return errorCount;
+    }
+
+    public String getFirstDateSoins() {
+        return firstDateSoins;
+    }
+
+    public String getLastDateSoins() {
+        return lastDateSoins;
+    }
+
+    public Map<Character, Integer> getLineTypeCounts() {
+        return lineTypeCounts;
+    }
+
+    public List<String> getSampleRecords() {
+        return sampleRecords;
+    }
+
+    /**
+     * @return The kept error details, followed by the overflow message if some were dropped
+     */
+    public List<String> getErrorDetails() {
+        List<String> details = new ArrayList<>(errorDetails);
+        if (errorDetailsTruncated) {
+            details.add(overflowMessage);
+        }
+        return details;
+    }
+
+    /**
+     * @return The statistics in the shape the import results have always exposed as "rsfStats"
+     */
+    public Map<String, Object> toRsfStats() {
+        Map<String, Object> rsfStats = new HashMap<>();
+        rsfStats.put("totalLines", recordCount);
+        rsfStats.put("lineTypeCounts", lineTypeCounts);
+        rsfStats.put("errorCount", errorCount);
+        rsfStats.put("firstDateSoins", firstDateSoins);
+        rsfStats.put("lastDateSoins", lastDateSoins);
+        return rsfStats;
+    }
+}
@@ -0,0 +1,21 @@
+package com.rsf.service.imports;
+
+/**
+ * A connected client receiving import progress events (an SSE stream or a WebSocket session).
+ */
+public interface ProgressSink {
+
+    /**
+     * Sends one event to the client.
+     *
+     * @param type Event type: "stage", "progress" or "result"
+     * @param payload Event data, serialised as JSON
+     * @return false if the client is gone and the sink should be dropped
+     */
+    boolean send(String type, Object payload);
+
+    /**
+     * Ends the stream after the final event.
+     */
+    void close();
+}
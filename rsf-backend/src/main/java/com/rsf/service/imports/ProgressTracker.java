@@ -0,0 +1,93 @@
+package com.rsf.service.imports;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntConsumer;
+
+/**
+ * Maps a position against a known total (bytes read, compressed bytes, rows) onto a
+ * percentage range and publishes it when it changes, at most once per interval.
+ * <p>
+ * Moving the position is a single atomic write plus a division; the clock is only read when
+ * the percentage actually changes, so it can be called from tight read loops and from
+ * several threads at once.
+ */
+public class ProgressTracker {
+
+    /** Default minimum time between two published updates */
+    public static final long DEFAULT_INTERVAL_MS = 100;
+
+    private final long total;
+    private final int from;
+    private final int to;
+    private final IntConsumer sink;
+    private final long minIntervalNanos;
+    private final AtomicLong position = new AtomicLong();
+    private volatile int published;
+    private volatile long publishedAtNanos;
+
+    /**
+     * @param total Position reached at the end, e.g. the file size in bytes
+     * @param from Percentage reported at position 0
+     * @param to Percentage reported at {@code total}
+     * @param minIntervalMillis Minimum time between two published updates
+     * @param sink Receives the new percentage
+     */
+    public ProgressTracker(long total, int from, int to, long minIntervalMillis, IntConsumer sink) {
+        this.total = Math.max(total, 1);
+        this.from = from;
+        this.to = to;
+        this.sink = sink;
+        this.minIntervalNanos = minIntervalMillis * 1_000_000L;
+        this.published = from;
+        this.publishedAtNanos = System.nanoTime() - minIntervalNanos;
+    }
+
+    /**
+     * Sets the absolute position (single reader).
+     */
+    public void moveTo(long newPosition) {
+        position.set(newPosition);
+        check(newPosition);
+    }
+
+    /**
+     * Adds to the position (several concurrent readers sharing one total).
+     */
+    public void advance(long delta) {
+        check(position.addAndGet(delta));
+    }
+
+    public long getPosition() {
+        return position.get();
+    }
+
+    /**
+     * Publishes the end of the range regardless of throttling.
+     */
+    public void complete() {
+        publish(to, System.nanoTime());
+    }
+
+    int percentAt(long at) {
+        return from + (int) (Math.min(Math.max(at, 0), total) * (to - from) / total);
+    }
+
+    private void check(long at) {
+        int percent = percentAt(at);
+        if (percent <= published) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (now - publishedAtNanos >= minIntervalNanos) {
+            publish(percent, now);
+        }
+    }
+
+    private synchronized void publish(int percent, long now) {
+        if (percent > published) {
+            published = percent;
+            publishedAtNanos = now;
+            sink.accept(percent);
+        }
+    }
+}
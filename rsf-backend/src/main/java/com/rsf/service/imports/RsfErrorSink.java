@@ -0,0 +1,17 @@
+package com.rsf.service.imports;
+
+import com.rsf.rsf.domain.validation.RsfError;
+
+/**
+ * Receives the validation errors of an {@link RsfImportPipeline} run. Called concurrently
+ * by the validator workers, so implementations must be thread-safe.
+ */
+@FunctionalInterface
+public interface RsfErrorSink {
+
+    /**
+     * @param source The file or ZIP entry the line came from
+     * @param error The error, carrying the line number within {@code source}
+     */
+    void accept(String source, RsfError error);
+}
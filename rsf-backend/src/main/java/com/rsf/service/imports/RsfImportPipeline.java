@@ -0,0 +1,375 @@
+package com.rsf.service.imports;
+
+import com.rsf.rsf.domain.models.FieldDefinition;
+import com.rsf.rsf.domain.validation.ExpectedLineCountRule;
+import com.rsf.rsf.domain.validation.RsfError;
+import com.rsf.rsf.exception.RsfParsingException;
+import com.rsf.rsf.service.RsfParsingService;
+import com.rsf.rsf.service.RsfValidationService;
+import com.rsf.util.CancellationToken;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Full parse and field validation of RSF_ uploads as a three-stage pipeline:
+ * <ol>
+ *   <li>readers (the import's own scan threads) cut raw lines into batches through a {@link Batcher},</li>
+ *   <li>parser workers turn them into fields with {@link RsfParsingService#parseLine},</li>
+ *   <li>validator workers run {@link RsfValidationService#validateLine} and feed an {@link RsfErrorSink},
+ *   and an {@link RsfLineSink} when the parsed lines are kept.</li>
+ * </ol>
+ * The stages are joined by bounded queues: a reader blocks once {@code queue-capacity} batches
+ * wait to be parsed, so memory stays bounded whatever the file size, and a whole run takes
+ * about as long as its slowest stage. Batches end before an 'A' line so a stay and its
+ * B/C/H/M/P/L lines are never split across batches. Of the structural rules, only
+ * {@link ExpectedLineCountRule} applies, once the run is finished: line order and key field
+ * matches need the whole file in order, which the workers never see.
+ */
+@Component
+@Slf4j
+public class RsfImportPipeline {
+
+    private static final long POLL_MS = 100;
+    /** A batch is cut without waiting for an 'A' line once it is this many times the batch size */
+    private static final int MAX_BATCH_FACTOR = 4;
+
+    private final RsfParsingService parsing;
+    private final RsfValidationService validation;
+    private final Executor executor;
+    private final int mappingYear;
+    private final int batchLines;
+    private final int queueCapacity;
+    private final int parserWorkers;
+    private final int validatorWorkers;
+
+    public RsfImportPipeline(RsfParsingService parsing,
+                             RsfValidationService validation,
+                             @Qualifier("rsfPipelineExecutor") Executor executor,
+                             @Value("${import.rsf.mapping-year:2017}") int mappingYear,
+                             @Value("${import.rsf.pipeline.batch-lines:2000}") int batchLines,
+                             @Value("${import.rsf.pipeline.queue-capacity:4}") int queueCapacity,
+                             @Value("${import.rsf.pipeline.parser-workers:0}") int parserWorkers,
+                             @Value("${import.rsf.pipeline.validator-workers:0}") int validatorWorkers) {
+        this.parsing = parsing;
+        this.validation = validation;
+        this.executor = executor;
+        this.mappingYear = mappingYear;
+        this.batchLines = batchLines;
+        this.queueCapacity = queueCapacity;
+        this.parserWorkers = workers(parserWorkers);
+        this.validatorWorkers = workers(validatorWorkers);
+    }
+
+    /**
+     * @param configured {@code import.rsf.pipeline.parser-workers} or {@code validator-workers}
+     * @return The threads one run starts for that stage: as configured, or half the cores when 0
+     */
+    public static int workers(int configured) {
+        return configured > 0 ? configured : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    }
+
+    /**
+     * Starts the parser and validator workers of a new run.
+     *
+     * @param errors Receives every validation error, from the validator threads
+     * @param cancellation Stops the run, readers and workers alike, when cancelled
+     * @throws RsfParsingException If there is no field mapping for the configured year
+     */
+    public Run start(RsfErrorSink errors, CancellationToken cancellation) throws RsfParsingException {
+        return start(errors, null, cancellation);
+    }
+
+    /**
+     * Starts a run that also hands every parsed line to {@code lines}.
+     *
+     * @param lines Receives the parsed lines, from the validator threads; {@code null} for none
+     * @see #start(RsfErrorSink, CancellationToken)
+     */
+    public Run start(RsfErrorSink errors, RsfLineSink lines, CancellationToken cancellation) throws RsfParsingException {
+        Run run = new Run(parsing.mappingsFor(mappingYear), errors, lines, cancellation);
+        run.startWorkers();
+        return run;
+    }
+
+    private record RawLine(int number, String text) {}
+
+    private record RawBatch(String source, List<RawLine> lines) {}
+
+    private record ParsedLine(int number, char type, Map<String, String> fields, String text) {}
+
+    private record ParsedBatch(String source, List<ParsedLine> lines) {}
+
+    private static final RawBatch END_OF_LINES = new RawBatch(null, List.of());
+    private static final ParsedBatch END_OF_PARSED = new ParsedBatch(null, List.of());
+
+    /**
+     * Totals of a finished run.
+     *
+     * @param linesRead Lines handed to the pipeline
+     * @param linesParsed Lines with a known line type, parsed and validated
+     * @param errorCount Validation errors sent to the sink
+     * @param parsedPerType Parsed lines per line type
+     */
+    public record Summary(long linesRead, long linesParsed, long errorCount, Map<Character, Long> parsedPerType) {}
+
+    /**
+     * One pipeline run. Readers push lines through {@link #batcher}s, then one thread calls
+     * {@link #finish}. Closing a run that was not finished stops its workers.
+     */
+    public final class Run implements AutoCloseable {
+        private final Map<Character, List<FieldDefinition>> mappings;
+        private final RsfErrorSink errors;
+        private final RsfLineSink lines;
+        private final CancellationToken cancellation;
+        private final BlockingQueue<RawBatch> rawQueue = new ArrayBlockingQueue<>(queueCapacity);
+        private final BlockingQueue<ParsedBatch> parsedQueue = new ArrayBlockingQueue<>(queueCapacity);
+        private final CountDownLatch workersDone = new CountDownLatch(parserWorkers + validatorWorkers);
+        private final AtomicInteger parsersLeft = new AtomicInteger(parserWorkers);
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+        private final LongAdder linesRead = new LongAdder();
+        private final LongAdder linesParsed = new LongAdder();
+        private final LongAdder errorCount = new LongAdder();
+        private final Map<Character, LongAdder> parsedPerType = new ConcurrentHashMap<>();
+        private volatile boolean aborted;
+        private boolean finished;
+
+        private Run(Map<Character, List<FieldDefinition>> mappings, RsfErrorSink errors, RsfLineSink lines,
+                    CancellationToken cancellation) {
+            this.mappings = mappings;
+            this.errors = errors;
+            this.lines = lines;
+            this.cancellation = cancellation;
+        }
+
+        private void startWorkers() {
+            int started = 0;
+            try {
+                for (int i = 0; i < parserWorkers; i++) {
+                    executor.execute(this::parseLoop);
+                    started++;
+                }
+                for (int i = 0; i < validatorWorkers; i++) {
+                    executor.execute(this::validateLoop);
+                    started++;
+                }
+            } catch (RejectedExecutionException e) {
+                abort(e);
+                for (int i = started; i < parserWorkers + validatorWorkers; i++) {
+                    workersDone.countDown();
+                }
+                awaitWorkers();
+                throw new IllegalStateException("No threads left for the RSF validation pipeline", e);
+            }
+        }
+
+        /**
+         * @param source The file or entry name the lines come from, passed on to the error sink
+         * @return A batcher for one reader thread; not thread-safe itself
+         */
+        public Batcher batcher(String source) {
+            return new Batcher(this, source);
+        }
+
+        /**
+         * Waits for the queued lines to be parsed and validated.
+         *
+         * @throws CancellationException If the run was cancelled
+         * @throws IllegalStateException If a worker failed
+         */
+        public Summary finish() {
+            for (int i = 0; i < parserWorkers; i++) {
+                put(rawQueue, END_OF_LINES);
+            }
+            awaitWorkers();
+            finished = true;
+            checkRunning();
+
+            Map<Character, Long> perType = new TreeMap<>();
+            parsedPerType.forEach((type, count) -> perType.put(type, count.sum()));
+            // The one structural rule that needs no line order: checked on the run's totals
+            ExpectedLineCountRule.check(perType).ifPresent(error -> {
+                errorCount.increment();
+                errors.accept(null, error);
+            });
+            return new Summary(linesRead.sum(), linesParsed.sum(), errorCount.sum(), perType);
+        }
+
+        @Override
+        public void close() {
+            if (!finished) {
+                abort(new CancellationException("RSF validation pipeline closed before it finished"));
+                awaitWorkers();
+                finished = true;
+            }
+        }
+
+        private void submit(RawBatch batch) {
+            linesRead.add(batch.lines().size());
+            put(rawQueue, batch);
+        }
+
+        private void parseLoop() {
+            try {
+                RawBatch batch;
+                while ((batch = take(rawQueue)) != END_OF_LINES) {
+                    cancellation.throwIfCancelled();
+                    List<ParsedLine> parsed = new ArrayList<>(batch.lines().size());
+                    for (RawLine line : batch.lines()) {
+                        Map<String, String> fields = parsing.parseLine(line.text(), line.number(), mappings);
+                        if (fields != null) {
+                            parsed.add(new ParsedLine(line.number(), line.text().charAt(0), fields, line.text()));
+                        }
+                    }
+                    put(parsedQueue, new ParsedBatch(batch.source(), parsed));
+                }
+                // The last parser out tells the validators there is nothing more to come
+                if (parsersLeft.decrementAndGet() == 0) {
+                    for (int i = 0; i < validatorWorkers; i++) {
+                        put(parsedQueue, END_OF_PARSED);
+                    }
+                }
+            } catch (Throwable t) {
+                abort(t);
+            } finally {
+                workersDone.countDown();
+            }
+        }
+
+        private void validateLoop() {
+            try {
+                ParsedBatch batch;
+                while ((batch = take(parsedQueue)) != END_OF_PARSED) {
+                    cancellation.throwIfCancelled();
+                    for (ParsedLine line : batch.lines()) {
+                        linesParsed.increment();
+                        parsedPerType.computeIfAbsent(line.type(), type -> new LongAdder()).increment();
+                        for (RsfError error : validation.validateLine(line.type(), line.fields(), line.number(), line.text())) {
+                            errorCount.increment();
+                            errors.accept(batch.source(), error);
+                        }
+                        if (lines != null) {
+                            lines.accept(batch.source(), line.number(), line.type(), line.fields());
+                        }
+                    }
+                }
+            } catch (Throwable t) {
+                abort(t);
+            } finally {
+                workersDone.countDown();
+            }
+        }
+
+        private <T> void put(BlockingQueue<T> queue, T item) {
+            try {
+                while (!queue.offer(item, POLL_MS, TimeUnit.MILLISECONDS)) {
+                    checkRunning();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                abort(e);
+                throw new CancellationException("Interrupted while feeding the RSF validation pipeline");
+            }
+        }
+
+        private <T> T take(BlockingQueue<T> queue) throws InterruptedException {
+            T item;
+            while ((item = queue.poll(POLL_MS, TimeUnit.MILLISECONDS)) == null) {
+                checkRunning();
+            }
+            return item;
+        }
+
+        private void awaitWorkers() {
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    if (workersDone.await(POLL_MS, TimeUnit.MILLISECONDS)) {
+                        break;
+                    }
+                    if (cancellation.isCancelled()) {
+                        abort(new CancellationException("Import cancelled"));
+                    }
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                    abort(e);
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void abort(Throwable cause) {
+            if (failure.compareAndSet(null, cause) && !(cause instanceof CancellationException)) {
+                log.error("RSF validation pipeline failed: {}", cause.getMessage(), cause);
+            }
+            aborted = true;
+        }
+
+        private void checkRunning() {
+            cancellation.throwIfCancelled();
+            if (aborted) {
+                Throwable cause = failure.get();
+                if (cause instanceof CancellationException cancelled) {
+                    throw cancelled;
+                }
+                throw new IllegalStateException("RSF validation pipeline failed: "
+                        + (cause != null ? cause.getMessage() : "aborted"), cause);
+            }
+        }
+    }
+
+    /**
+     * Cuts the lines of one source into batches for a {@link Run}. Blocks in {@link #add}
+     * while the parsers are behind.
+     */
+    public final class Batcher {
+        private final Run run;
+        private final String source;
+        private List<RawLine> lines = new ArrayList<>(batchLines);
+
+        private Batcher(Run run, String source) {
+            this.run = run;
+            this.source = source;
+        }
+
+        /**
+         * @param lineNumber 1-based line number within the source
+         */
+        public void add(int lineNumber, String line) {
+            if (lines.size() >= batchLines
+                    && (line.startsWith("A") || lines.size() >= MAX_BATCH_FACTOR * batchLines)) {
+                flush();
+            }
+            lines.add(new RawLine(lineNumber, line));
+        }
+
+        /**
+         * Hands the lines added since the last batch to the parsers.
+         */
+        public void flush() {
+            if (!lines.isEmpty()) {
+                run.submit(new RawBatch(source, lines));
+                lines = new ArrayList<>(batchLines);
+            }
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.rsf.service.imports;
+
+import java.util.Map;
+
+/**
+ * Receives the parsed lines of an {@link RsfImportPipeline} run. Called concurrently by the
+ * validator workers, so implementations must be thread-safe.
+ */
+@FunctionalInterface
+public interface RsfLineSink {
+
+    /**
+     * @param source The file or ZIP entry the line came from
+     * @param lineNumber 1-based line number within {@code source}
+     * @param fields Field name to trimmed value; only valid during the call
+     */
+    void accept(String source, int lineNumber, char lineType, Map<String, String> fields);
+}
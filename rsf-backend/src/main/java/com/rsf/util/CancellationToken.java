@@ -0,0 +1,53 @@
+package com.rsf.util;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * Cooperative cancellation flag for long-running loops. The owner calls {@link #cancel};
+ * the worker calls {@link #checkEvery} per row and stops with a {@link CancellationException}
+ * at the next check, unwinding through its try-with-resources blocks.
+ */
+public class CancellationToken {
+
+    /** Rows between two checks in {@link #checkEvery}; a power of two */
+    public static final int CHECK_INTERVAL = 4096;
+
+    /** A token that is never cancelled, for callers outside an import job */
+    public static final CancellationToken NONE = new CancellationToken() {
+        @Override
+        public void cancel() {
+            throw new UnsupportedOperationException("CancellationToken.NONE cannot be cancelled");
+        }
+    };
+
+    private volatile boolean cancelled;
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @throws CancellationException If the token was cancelled
+     */
+    public void throwIfCancelled() {
+        if (cancelled) {
+            throw new CancellationException("Import cancelled");
+        }
+    }
+
+    /**
+     * Checks the token once every {@link #CHECK_INTERVAL} rows.
+     *
+     * @param row Running row count of the caller's loop
+     * @throws CancellationException If the token was cancelled
+     */
+    public void checkEvery(long row) {
+        if ((row & (CHECK_INTERVAL - 1)) == 0) {
+            throwIfCancelled();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.rsf.util;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.LongConsumer;
+
+/**
+ * Counts the bytes read through it and reports the running total after each read call.
+ * Readers above it usually read in blocks, so the listener runs once per block rather than per line.
+ */
+public class CountingInputStream extends FilterInputStream {
+
+    private final LongConsumer listener;
+    private long count;
+
+    /**
+     * @param in The stream to count
+     * @param listener Receives the number of bytes read so far after every read or skip
+     */
+    public CountingInputStream(InputStream in, LongConsumer listener) {
+        super(in);
+        this.listener = listener;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b >= 0) {
+            consumed(1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = super.read(b, off, len);
+        if (n > 0) {
+            consumed(n);
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = super.skip(n);
+        if (skipped > 0) {
+            consumed(skipped);
+        }
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    private void consumed(long n) {
+        count += n;
+        listener.accept(count);
+    }
+}
@@ -1,10 +1,59 @@
 package com.rsf.util;
 
 public class FileUtils {
+    /** Bytes needed by {@link #contentMatchesExtension} */
+    public static final int SNIFF_LENGTH = 8;
+
+    private static final byte[] ZIP_MAGIC = {'P', 'K', 3, 4};
+    private static final byte[] EMPTY_ZIP_MAGIC = {'P', 'K', 5, 6};
+    private static final byte[] OLE2_MAGIC = {(byte) 0xD0, (byte) 0xCF, 0x11, (byte) 0xE0, (byte) 0xA1, (byte) 0xB1, 0x1A, (byte) 0xE1};
+
     public static String detectType(String filename) {
         if (filename.startsWith("RSF_"))      return "RSF";
         if (filename.startsWith("HORAIRES_")) return "HORAIRE";
         if (filename.startsWith("LIGNES_"))   return "LIGNES";
         return "UNKNOWN";
     }
-} 
\ No newline at end of file
+
+    /**
+     * Checks the first bytes of a file against the format its extension promises:
+     * zip and xlsx are ZIP archives, xls is an OLE2 document, txt and csv are text.
+     *
+     * @param head The first bytes of the file
+     * @param length How many bytes of {@code head} are filled
+     * @param extension Lower-case extension without the dot
+     */
+    public static boolean contentMatchesExtension(byte[] head, int length, String extension) {
+        boolean zip = startsWith(head, length, ZIP_MAGIC) || startsWith(head, length, EMPTY_ZIP_MAGIC);
+        boolean ole2 = startsWith(head, length, OLE2_MAGIC);
+        switch (extension) {
+            case "zip":
+            case "xlsx":
+                return zip;
+            case "xls":
+                return ole2;
+            case "txt":
+            case "csv":
+                for (int i = 0; i < length; i++) {
+                    if (head[i] == 0) {
+                        return false;
+                    }
+                }
+                return !zip && !ole2;
+            default:
+                return true;
+        }
+    }
+
+    private static boolean startsWith(byte[] head, int length, byte[] magic) {
+        if (length < magic.length) {
+            return false;
+        }
+        for (int i = 0; i < magic.length; i++) {
+            if (head[i] != magic[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,13 @@
+-- Content-addressed storage: one row per distinct content, stored once under
+-- <storage>/blobs/<hash[0..2]>/<hash[2..4]>/<hash>[.dz] (.dz = Deflate-compressed)
+CREATE TABLE blobs (
+  hash        VARCHAR(64) PRIMARY KEY,
+  size        BIGINT      NOT NULL,
+  stored_size BIGINT      NOT NULL,
+  compressed  BOOLEAN     NOT NULL,
+  ref_count   INT         NOT NULL DEFAULT 0,
+  created_at  TIMESTAMP   DEFAULT now(),
+  released_at TIMESTAMP
+);
+
+CREATE INDEX idx_blobs_unreferenced ON blobs(released_at) WHERE ref_count = 0;
@@ -0,0 +1,16 @@
+-- Field errors found by the RSF validation pipeline, one row per error, replaced on re-import.
+-- Listings are newest first and paged by id (keyset), never by offset.
+CREATE TABLE rsf_validation_errors (
+  id          BIGSERIAL PRIMARY KEY,
+  file_id     UUID        NOT NULL REFERENCES files(id) ON DELETE CASCADE,
+  source      TEXT,                   -- ZIP entry the line came from, null for plain files
+  line_number INT         NOT NULL,
+  error_type  VARCHAR(30) NOT NULL,
+  field       VARCHAR(100),
+  message     TEXT        NOT NULL,
+  created_at  TIMESTAMP   DEFAULT now()
+);
+
+CREATE INDEX idx_rsf_validation_errors_file ON rsf_validation_errors(file_id, error_type, field, line_number);
+CREATE INDEX idx_rsf_validation_errors_file_id ON rsf_validation_errors(file_id, id);
+CREATE INDEX idx_rsf_validation_errors_type_id ON rsf_validation_errors(error_type, id);
@@ -0,0 +1,20 @@
+-- Error counts per file, validation day and error type, replaced with the file's errors.
+-- The dashboard is served from these (kept in memory) instead of counting rsf_validation_errors.
+CREATE TABLE rsf_validation_counts (
+  file_id     UUID        NOT NULL REFERENCES files(id) ON DELETE CASCADE,
+  day         DATE        NOT NULL,
+  error_type  VARCHAR(30) NOT NULL,
+  error_count BIGINT      NOT NULL,
+  PRIMARY KEY (file_id, day, error_type)
+);
+
+-- Errors stored before this migration are counted on the day of their file's last error
+WITH days AS (
+  SELECT file_id, CAST(max(COALESCE(created_at, now())) AS DATE) AS day
+  FROM rsf_validation_errors
+  GROUP BY file_id
+)
+INSERT INTO rsf_validation_counts (file_id, day, error_type, error_count)
+SELECT e.file_id, d.day, e.error_type, count(*)
+FROM rsf_validation_errors e JOIN days d ON d.file_id = e.file_id
+GROUP BY e.file_id, d.day, e.error_type;
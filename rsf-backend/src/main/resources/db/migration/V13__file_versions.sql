@@ -0,0 +1,5 @@
+-- Fixed datasets are stored as new files pointing at the file they were derived from.
+ALTER TABLE files ADD COLUMN parent_id UUID REFERENCES files(id);
+ALTER TABLE files ADD COLUMN version   INT NOT NULL DEFAULT 1;
+
+CREATE INDEX idx_files_parent ON files(parent_id);
@@ -0,0 +1,245 @@
+-- Parsed RSF lines, one table per line type with one VARCHAR column per field of the 2017
+-- layout (import.rsf.mapping-year), sized to the field's slot. Values are stored trimmed as
+-- parsed, empty fields as NULL, so lines failing validation load too.
+-- Each table is partitioned by file: an import COPYs into a new table, indexes it and attaches
+-- it as the file's partition, and a re-import drops the old partition instead of deleting rows.
+
+CREATE TABLE rsf_line_a (
+  file_id                               UUID NOT NULL,
+  source                                TEXT,  -- ZIP entry the line came from, null for plain files
+  line_number                           INT  NOT NULL,
+  n_finess_epmsi                        VARCHAR(9),
+  n_finess_geographique                 VARCHAR(9),
+  sexe                                  VARCHAR(1),
+  code_civilite                         VARCHAR(1),
+  n_immatriculation_assure              VARCHAR(32),
+  cle_n_immatriculation                 VARCHAR(2),
+  rang_beneficiaire                     VARCHAR(3),
+  n_entree                              VARCHAR(9),
+  n_immatriculation_individuel          VARCHAR(32),
+  cle_n_immatriculation_individuel      VARCHAR(2),
+  indicateur_parcours_soins             VARCHAR(1),
+  nature_operation                      VARCHAR(1),
+  nature_assurance                      VARCHAR(2),
+  type_contrat_organisme_complementaire VARCHAR(2),
+  justif_exo_tm                         VARCHAR(1),
+  sejour_facturable_assurance_maladie   VARCHAR(1),
+  filler_1                              VARCHAR(1),
+  motif_non_facturation                 VARCHAR(1),
+  code_gd_regime                        VARCHAR(2),
+  date_naissance                        VARCHAR(8),
+  rang_naissance                        VARCHAR(1),
+  date_entree                           VARCHAR(8),
+  date_sortie                           VARCHAR(8),
+  code_postal_residence_patient         VARCHAR(5),
+  total_base_remboursement              VARCHAR(8),
+  total_remboursable_amo                VARCHAR(8),
+  total_honoraire_facture               VARCHAR(8),
+  total_honoraire_remboursable_am       VARCHAR(8),
+  total_participation_assure_avant_oc   VARCHAR(8),
+  total_remboursable_oc_ph              VARCHAR(8),
+  total_remboursable_oc_honoraires      VARCHAR(8),
+  montant_total_factureph               VARCHAR(8),
+  numero_a                              VARCHAR(5)
+) PARTITION BY LIST (file_id);
+
+CREATE INDEX idx_rsf_line_a_stay ON rsf_line_a(n_entree, n_immatriculation_assure);
+
+CREATE TABLE rsf_line_b (
+  file_id                          UUID NOT NULL,
+  source                           TEXT,  -- ZIP entry the line came from, null for plain files
+  line_number                      INT  NOT NULL,
+  n_finess_epmsi                   VARCHAR(9),
+  n_finess_geographique            VARCHAR(9),
+  n_immatriculation_assure         VARCHAR(32),
+  cle_n_immatriculation            VARCHAR(2),
+  rang_beneficiaire                VARCHAR(3),
+  n_entree                         VARCHAR(9),
+  n_immatriculation_individuel     VARCHAR(32),
+  cle_n_immatriculation_individuel VARCHAR(2),
+  mode_traitement                  VARCHAR(2),
+  discipline_prestation            VARCHAR(3),
+  justification_exotm              VARCHAR(1),
+  specialite_executant             VARCHAR(2),
+  date_soins                       VARCHAR(8),
+  code_acte                        VARCHAR(5),
+  quantite                         VARCHAR(3),
+  coefficient                      VARCHAR(6),
+  type_prestation_intermediaire    VARCHAR(1),
+  coefficient_mco                  VARCHAR(5),
+  denombrement                     VARCHAR(2),
+  prix_unitaire                    VARCHAR(7),
+  montant_base_remboursement       VARCHAR(8),
+  taux_applicable                  VARCHAR(3),
+  montant_remboursable_amo         VARCHAR(8),
+  montant_honoraire                VARCHAR(8),
+  montant_remboursable_amc         VARCHAR(7),
+  filler                           VARCHAR(15),
+  numero_b                         VARCHAR(5)
+) PARTITION BY LIST (file_id);
+
+CREATE INDEX idx_rsf_line_b_stay ON rsf_line_b(n_entree, n_immatriculation_assure);
+
+CREATE TABLE rsf_line_c (
+  file_id                          UUID NOT NULL,
+  source                           TEXT,  -- ZIP entry the line came from, null for plain files
+  line_number                      INT  NOT NULL,
+  n_finess_epmsi                   VARCHAR(9),
+  n_finess_geographique            VARCHAR(9),
+  n_immatriculation_assure         VARCHAR(32),
+  cle_n_immatriculation            VARCHAR(2),
+  rang_beneficiaire                VARCHAR(3),
+  n_entree                         VARCHAR(9),
+  n_immatriculation_individuel     VARCHAR(32),
+  cle_n_immatriculation_individuel VARCHAR(2),
+  mode_traitement                  VARCHAR(2),
+  discipline_prestation            VARCHAR(3),
+  justification_exotm              VARCHAR(1),
+  specialite_executant             VARCHAR(2),
+  date_soins                       VARCHAR(8),
+  code_acte                        VARCHAR(5),
+  quantite                         VARCHAR(3),
+  coefficient                      VARCHAR(6),
+  denombrement                     VARCHAR(2),
+  prix_unitaire                    VARCHAR(7),
+  montant_base_remboursement       VARCHAR(8),
+  taux_applicable                  VARCHAR(3),
+  montant_remboursable_amo         VARCHAR(8),
+  montant_honoraire                VARCHAR(8),
+  montant_remboursable_amc         VARCHAR(7),
+  filler                           VARCHAR(11),
+  type_unite_fonctionnelle         VARCHAR(2),
+  coefficient_mco                  VARCHAR(5),
+  numero_c                         VARCHAR(5)
+) PARTITION BY LIST (file_id);
+
+CREATE INDEX idx_rsf_line_c_stay ON rsf_line_c(n_entree, n_immatriculation_assure);
+
+CREATE TABLE rsf_line_h (
+  file_id                          UUID NOT NULL,
+  source                           TEXT,  -- ZIP entry the line came from, null for plain files
+  line_number                      INT  NOT NULL,
+  n_finess_epmsi                   VARCHAR(9),
+  n_finess_geographique            VARCHAR(9),
+  n_immatriculation_assure         VARCHAR(32),
+  cle_n_immatriculation            VARCHAR(2),
+  rang_beneficiaire                VARCHAR(3),
+  n_entree                         VARCHAR(9),
+  n_immatriculation_individuel     VARCHAR(32),
+  cle_n_immatriculation_individuel VARCHAR(2),
+  date_debut_sejour                VARCHAR(8),
+  code_ucd                         VARCHAR(7),
+  coeff_fractionnement             VARCHAR(5),
+  prix_achat_unitaire              VARCHAR(7),
+  montant_unitaire_ecart           VARCHAR(7),
+  montant_total_ecart              VARCHAR(7),
+  quantite                         VARCHAR(3),
+  total_facture                    VARCHAR(7),
+  indication                       VARCHAR(7),
+  numero_h                         VARCHAR(5)
+) PARTITION BY LIST (file_id);
+
+CREATE INDEX idx_rsf_line_h_stay ON rsf_line_h(n_entree, n_immatriculation_assure);
+
+CREATE TABLE rsf_line_m (
+  file_id                          UUID NOT NULL,
+  source                           TEXT,  -- ZIP entry the line came from, null for plain files
+  line_number                      INT  NOT NULL,
+  n_finess_epmsi                   VARCHAR(9),
+  n_finess_geographique            VARCHAR(9),
+  n_immatriculation_assure         VARCHAR(32),
+  cle_n_immatriculation            VARCHAR(2),
+  rang_beneficiaire                VARCHAR(3),
+  n_entree                         VARCHAR(9),
+  n_immatriculation_individuel     VARCHAR(32),
+  cle_n_immatriculation_individuel VARCHAR(2),
+  mode_traitement                  VARCHAR(2),
+  discipline_prestation            VARCHAR(3),
+  date_soins                       VARCHAR(8),
+  code_ccam                        VARCHAR(13),
+  extension_documentaire           VARCHAR(1),
+  activite                         VARCHAR(1),
+  phase                            VARCHAR(1),
+  modificateur1                    VARCHAR(1),
+  modificateur2                    VARCHAR(1),
+  modificateur3                    VARCHAR(1),
+  modificateur4                    VARCHAR(1),
+  code_association_acte            VARCHAR(1),
+  code_remboursement               VARCHAR(1),
+  num_dent1                        VARCHAR(2),
+  num_dent2                        VARCHAR(2),
+  num_dent3                        VARCHAR(2),
+  num_dent4                        VARCHAR(2),
+  num_dent5                        VARCHAR(2),
+  num_dent6                        VARCHAR(2),
+  num_dent7                        VARCHAR(2),
+  num_dent8                        VARCHAR(2),
+  num_dent9                        VARCHAR(2),
+  num_dent10                       VARCHAR(2),
+  num_dent11                       VARCHAR(2),
+  num_dent12                       VARCHAR(2),
+  num_dent13                       VARCHAR(2),
+  num_dent14                       VARCHAR(2),
+  num_dent15                       VARCHAR(2),
+  num_dent16                       VARCHAR(2),
+  numero_m                         VARCHAR(5)
+) PARTITION BY LIST (file_id);
+
+CREATE INDEX idx_rsf_line_m_stay ON rsf_line_m(n_entree, n_immatriculation_assure);
+
+CREATE TABLE rsf_line_p (
+  file_id                          UUID NOT NULL,
+  source                           TEXT,  -- ZIP entry the line came from, null for plain files
+  line_number                      INT  NOT NULL,
+  n_finess_epmsi                   VARCHAR(9),
+  n_finess_geographique            VARCHAR(9),
+  n_immatriculation_assure         VARCHAR(32),
+  cle_n_immatriculation            VARCHAR(2),
+  rang_beneficiaire                VARCHAR(3),
+  n_entree                         VARCHAR(9),
+  n_immatriculation_individuel     VARCHAR(32),
+  cle_n_immatriculation_individuel VARCHAR(2),
+  date_debut_sejour                VARCHAR(8),
+  code_reference_lpp               VARCHAR(13),
+  quantite                         VARCHAR(2),
+  tarif_reference_lpp              VARCHAR(7),
+  montant_total_facture            VARCHAR(7),
+  prix_achat_unitaire              VARCHAR(7),
+  montant_unitaire_ecart           VARCHAR(7),
+  montant_total_ecart              VARCHAR(7)
+) PARTITION BY LIST (file_id);
+
+CREATE INDEX idx_rsf_line_p_stay ON rsf_line_p(n_entree, n_immatriculation_assure);
+
+CREATE TABLE rsf_line_l (
+  file_id                          UUID NOT NULL,
+  source                           TEXT,  -- ZIP entry the line came from, null for plain files
+  line_number                      INT  NOT NULL,
+  n_finess_epmsi                   VARCHAR(9),
+  n_finess_geographique            VARCHAR(9),
+  n_immatriculation_assure         VARCHAR(32),
+  cle_n_immatriculation            VARCHAR(2),
+  rang_beneficiaire                VARCHAR(3),
+  n_entree                         VARCHAR(9),
+  n_immatriculation_individuel     VARCHAR(32),
+  cle_n_immatriculation_individuel VARCHAR(2),
+  mode_traitement                  VARCHAR(2),
+  discipline_prestation            VARCHAR(3),
+  date_acte1                       VARCHAR(8),
+  quantite_acte1                   VARCHAR(2),
+  code_acte1                       VARCHAR(8),
+  date_acte2                       VARCHAR(8),
+  quantite_acte2                   VARCHAR(2),
+  code_acte2                       VARCHAR(8),
+  date_acte3                       VARCHAR(8),
+  quantite_acte3                   VARCHAR(2),
+  code_acte3                       VARCHAR(8),
+  date_acte4                       VARCHAR(8),
+  quantite_acte4                   VARCHAR(2),
+  code_acte4                       VARCHAR(8),
+  date_acte5                       VARCHAR(8),
+  quantite_acte5                   VARCHAR(2),
+  code_acte5                       VARCHAR(8)
+) PARTITION BY LIST (file_id);
+
+CREATE INDEX idx_rsf_line_l_stay ON rsf_line_l(n_entree, n_immatriculation_assure);
@@ -0,0 +1,78 @@
+-- Parsed RSF lines rolled up per file, FINESS, month, line type and acte code, rebuilt for a
+-- file whenever its lines are loaded. Analytics group these rows instead of the lines, so a
+-- year of one hospital is a few thousand rows whatever the number of lines.
+--   month            Month of the line's date: entry (A), soins (B, C, M), stay start (H, P), first acte (L)
+--   code_acte        CODE_ACTE (B, C) or CODE_CCAM (M), null for the other line types
+--   first/last_date_soins  YYYYMMDD, soins lines only
+--   honoraires, remboursable_amo  TOTAL_HONORAIRE_REMBOURSABLE_AM / TOTAL_REMBOURSABLE_AMO (A),
+--                    MONTANT_HONORAIRE / MONTANT_REMBOURSABLE_AMO (B, C)
+CREATE TABLE rsf_line_rollup (
+  file_id           UUID        NOT NULL REFERENCES files(id) ON DELETE CASCADE,
+  finess            VARCHAR(9),
+  month             DATE,
+  line_type         CHAR(1)     NOT NULL,
+  code_acte         VARCHAR(13),
+  line_count        BIGINT      NOT NULL,
+  first_date_soins  CHAR(8),
+  last_date_soins   CHAR(8),
+  honoraires        NUMERIC(18, 2),
+  remboursable_amo  NUMERIC(18, 2)
+);
+
+CREATE INDEX idx_rsf_line_rollup_file ON rsf_line_rollup(file_id);
+CREATE INDEX idx_rsf_line_rollup_finess_month ON rsf_line_rollup(finess, month);
+-- Acte breakdowns only read the B, C and M rows
+CREATE INDEX idx_rsf_line_rollup_acte ON rsf_line_rollup(finess, month, code_acte) WHERE code_acte IS NOT NULL;
+
+-- Lenient conversions of the stored text: values that fail validation give NULL, never an error
+CREATE FUNCTION rsf_month(d TEXT) RETURNS DATE LANGUAGE SQL IMMUTABLE AS $$
+  SELECT CASE WHEN d ~ '^[0-9]{2}(0[1-9]|1[0-2])[1-9][0-9]{3}$'
+              THEN make_date(substr(d, 5, 4)::int, substr(d, 3, 2)::int, 1) END
+$$;
+
+CREATE FUNCTION rsf_yyyymmdd(d TEXT) RETURNS CHAR(8) LANGUAGE SQL IMMUTABLE AS $$
+  SELECT CASE WHEN d ~ '^(0[1-9]|[12][0-9]|3[01])(0[1-9]|1[0-2])[1-9][0-9]{3}$'
+              THEN substr(d, 5, 4) || substr(d, 3, 2) || substr(d, 1, 2) END
+$$;
+
+CREATE FUNCTION rsf_amount(v TEXT) RETURNS NUMERIC LANGUAGE SQL IMMUTABLE AS $$
+  SELECT CASE WHEN v ~ '^-?[0-9]{0,12}\.?[0-9]+$' THEN v::numeric END
+$$;
+
+-- Lines loaded before this migration
+INSERT INTO rsf_line_rollup (file_id, finess, month, line_type, code_acte, line_count,
+                             first_date_soins, last_date_soins, honoraires, remboursable_amo)
+SELECT file_id, n_finess_epmsi, rsf_month(date_entree), 'A', NULL, count(*),
+       NULL, NULL,
+       sum(rsf_amount(total_honoraire_remboursable_am)), sum(rsf_amount(total_remboursable_amo))
+  FROM rsf_line_a GROUP BY 1, 2, 3, 5
+UNION ALL
+SELECT file_id, n_finess_epmsi, rsf_month(date_soins), 'B', code_acte, count(*),
+       min(rsf_yyyymmdd(date_soins)), max(rsf_yyyymmdd(date_soins)),
+       sum(rsf_amount(montant_honoraire)), sum(rsf_amount(montant_remboursable_amo))
+  FROM rsf_line_b GROUP BY 1, 2, 3, 5
+UNION ALL
+SELECT file_id, n_finess_epmsi, rsf_month(date_soins), 'C', code_acte, count(*),
+       min(rsf_yyyymmdd(date_soins)), max(rsf_yyyymmdd(date_soins)),
+       sum(rsf_amount(montant_honoraire)), sum(rsf_amount(montant_remboursable_amo))
+  FROM rsf_line_c GROUP BY 1, 2, 3, 5
+UNION ALL
+SELECT file_id, n_finess_epmsi, rsf_month(date_soins), 'M', code_ccam, count(*),
+       min(rsf_yyyymmdd(date_soins)), max(rsf_yyyymmdd(date_soins)),
+       NULL, NULL
+  FROM rsf_line_m GROUP BY 1, 2, 3, 5
+UNION ALL
+SELECT file_id, n_finess_epmsi, rsf_month(date_debut_sejour), 'H', NULL, count(*),
+       NULL, NULL,
+       NULL, NULL
+  FROM rsf_line_h GROUP BY 1, 2, 3, 5
+UNION ALL
+SELECT file_id, n_finess_epmsi, rsf_month(date_debut_sejour), 'P', NULL, count(*),
+       NULL, NULL,
+       NULL, NULL
+  FROM rsf_line_p GROUP BY 1, 2, 3, 5
+UNION ALL
+SELECT file_id, n_finess_epmsi, rsf_month(date_acte1), 'L', NULL, count(*),
+       NULL, NULL,
+       NULL, NULL
+  FROM rsf_line_l GROUP BY 1, 2, 3, 5;
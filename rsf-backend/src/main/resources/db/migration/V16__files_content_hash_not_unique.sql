@@ -0,0 +1,3 @@
+-- Every upload gets its own file record; identical content is shared through blobs(hash)
+DROP INDEX ux_files_content_hash;
+CREATE INDEX idx_files_content_hash ON files(content_hash);
@@ -0,0 +1,7 @@
+-- One reference per file record: earlier re-uploads took a reference without a record of
+-- their own, so recount from the files that point into the blob store
+UPDATE blobs b SET ref_count = (
+  SELECT count(*) FROM files f WHERE f.content_hash = b.hash AND f.stored_name LIKE 'blobs/%'
+);
+
+UPDATE blobs SET released_at = now() WHERE ref_count = 0 AND released_at IS NULL;
@@ -0,0 +1,16 @@
+-- Persistent state of background imports (one job per uploaded file).
+-- Large payloads (full results, error lists, processed lines) live under <storage>/imports/<file_id>/
+CREATE TABLE import_jobs (
+  file_id            UUID PRIMARY KEY REFERENCES files(id) ON DELETE CASCADE,
+  status             VARCHAR(20) NOT NULL,
+  progress           INT         NOT NULL DEFAULT 0,
+  file_type          VARCHAR(20),
+  validation_details TEXT,
+  summary            TEXT,
+  error_count        INT         NOT NULL DEFAULT 0,
+  created_at         TIMESTAMP   DEFAULT now(),
+  updated_at         TIMESTAMP   DEFAULT now(),
+  completed_at       TIMESTAMP
+);
+
+CREATE INDEX idx_import_jobs_status ON import_jobs(status);
@@ -0,0 +1,3 @@
+-- SHA-256 of the stored content, used to recognise re-uploads of the same file
+ALTER TABLE files ADD COLUMN content_hash VARCHAR(64);
+CREATE UNIQUE INDEX ux_files_content_hash ON files(content_hash);
@@ -0,0 +1,26 @@
+-- Resumable chunked uploads: one session per file, one row per received chunk.
+-- Chunks are written at their offsets into <storage>/uploads/<session id>.part
+CREATE TABLE upload_sessions (
+  id            UUID PRIMARY KEY,
+  original_name TEXT        NOT NULL,
+  total_size    BIGINT      NOT NULL,
+  chunk_size    INT         NOT NULL,
+  chunk_count   INT         NOT NULL,
+  status        VARCHAR(20) NOT NULL,
+  file_id       UUID REFERENCES files(id) ON DELETE SET NULL,
+  uploader_id   BIGINT REFERENCES users(id),
+  created_at    TIMESTAMP   DEFAULT now(),
+  updated_at    TIMESTAMP   DEFAULT now()
+);
+
+CREATE INDEX idx_upload_sessions_status ON upload_sessions(status, updated_at);
+
+CREATE TABLE upload_chunks (
+  id          BIGSERIAL PRIMARY KEY,
+  session_id  UUID        NOT NULL REFERENCES upload_sessions(id) ON DELETE CASCADE,
+  chunk_index INT         NOT NULL,
+  size        INT         NOT NULL,
+  checksum    VARCHAR(64) NOT NULL,
+  received_at TIMESTAMP   DEFAULT now(),
+  UNIQUE (session_id, chunk_index)
+);
@@ -0,0 +1,2 @@
+-- Percentage of an archive inflated by its import, for status polling
+ALTER TABLE files ADD COLUMN progress SMALLINT;
@@ -0,0 +1,70 @@
+package com.rsf.controller;
+
+import com.rsf.domain.FileEntity;
+import com.rsf.domain.FileStatus;
+import com.rsf.domain.User;
+import com.rsf.repo.FileRepo;
+import com.rsf.security.JwtUser;
+import com.rsf.security.UserCache;
+import com.rsf.service.FileStatusCache;
+import com.rsf.service.StorageService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class FileControllerTest {
+
+    private final MockMultipartFile upload = new MockMultipartFile("file", "data.txt", "text/plain", "A line\n".getBytes());
+    private final JwtUser caller = new JwtUser(1L, "alice", List.of());
+    private final User alice = new User();
+
+    @Mock
+    private StorageService storage;
+
+    @Mock
+    private UserCache userCache;
+
+    @Mock
+    private FileRepo files;
+
+    @Mock
+    private FileStatusCache statuses;
+
+    @InjectMocks
+    private FileController controller;
+
+    @BeforeEach
+    void setUp() {
+        when(userCache.find("alice")).thenReturn(Optional.of(alice));
+    }
+
+    @Test
+    void testStoredFileIsReady() throws Exception {
+        FileEntity file = processing();
+        when(storage.store(upload, alice)).thenReturn(file);
+        when(files.save(any())).thenAnswer(i -> i.getArgument(0));
+
+        FileEntity stored = controller.upload(upload, caller);
+
+        assertEquals(FileStatus.READY, stored.getStatus());
+        verify(statuses).evict(file.getId());
+    }
+
+    private static FileEntity processing() {
+        FileEntity file = new FileEntity();
+        file.setStatus(FileStatus.PROCESSING);
+        return file;
+    }
+}
@@ -0,0 +1,211 @@
+package com.rsf.controller;
+
+import com.rsf.domain.FileEntity;
+import com.rsf.domain.FileStatus;
+import com.rsf.domain.ImportJobStatus;
+import com.rsf.domain.User;
+import com.rsf.repo.FileRepo;
+import com.rsf.security.JwtUser;
+import com.rsf.service.FileStatusCache;
+import com.rsf.service.ImportJobService;
+import com.rsf.service.RsfLineAnalytics;
+import com.rsf.service.RsfLineStore;
+import com.rsf.service.StorageService;
+import com.rsf.service.ValidationErrorStore;
+import com.rsf.service.imports.ImportJobScheduler;
+import com.rsf.service.imports.ImportJobState;
+import com.rsf.service.imports.RsfImportPipeline;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ImportControllerTest {
+
+    @Mock
+    private FileRepo files;
+
+    @Mock
+    private ImportJobService importJobs;
+
+    @Mock
+    private ImportJobScheduler importScheduler;
+
+    @Mock
+    private RsfImportPipeline rsfPipeline;
+
+    @Mock
+    private ValidationErrorStore validationErrors;
+
+    @Mock
+    private RsfLineStore rsfLines;
+
+    @Mock
+    private RsfLineAnalytics lineAnalytics;
+
+    @Mock
+    private StorageService storage;
+
+    @Mock
+    private FileStatusCache fileStatuses;
+
+    @InjectMocks
+    private ImportController controller;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testUploaderCancelsTheirImport() {
+        FileEntity file = file(uploader("alice"));
+        running(file);
+
+        ResponseEntity<Map<String, Object>> response = controller.cancelImport(file.getId().toString(), caller("alice"));
+
+        assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+        verify(importJobs).requestCancel(file.getId().toString());
+    }
+
+    @Test
+    void testOtherUserCannotCancelAnImport() {
+        FileEntity file = file(uploader("alice"));
+        when(files.findById(file.getId())).thenReturn(Optional.of(file));
+
+        ResponseEntity<Map<String, Object>> response = controller.cancelImport(file.getId().toString(), caller("bob"));
+
+        assertEquals(HttpStatus.FORBIDDEN, response.getStatusCode());
+        verify(importJobs, never()).requestCancel(anyString());
+    }
+
+    @Test
+    void testManagerCancelsAnAnonymousUpload() {
+        FileEntity file = file(null);
+        running(file);
+
+        ResponseEntity<Map<String, Object>> response =
+                controller.cancelImport(file.getId().toString(), caller("admin", "ROLE_MANAGER"));
+
+        assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+        verify(importJobs).requestCancel(file.getId().toString());
+    }
+
+    @Test
+    void testUserCannotCancelAnAnonymousUpload() {
+        FileEntity file = file(null);
+        when(files.findById(file.getId())).thenReturn(Optional.of(file));
+
+        ResponseEntity<Map<String, Object>> response =
+                controller.cancelImport(file.getId().toString(), caller("bob", "ROLE_CONSULTANT"));
+
+        assertEquals(HttpStatus.FORBIDDEN, response.getStatusCode());
+        verify(importJobs, never()).requestCancel(anyString());
+    }
+
+    @Test
+    void testDuplicateUploadGetsItsOwnFileWithACopyOfTheEarlierImport() throws Exception {
+        ReflectionTestUtils.setField(controller, "maxUploadSize", DataSize.ofMegabytes(70));
+        MockMultipartFile upload = new MockMultipartFile("file", "RSF.txt", "text/plain", "A line\n".getBytes());
+        FileEntity earlier = file(uploader("alice"));
+        earlier.setContentHash("3a77");
+        earlier.setStatus(FileStatus.READY);
+        FileEntity stored = file(null);
+        stored.setContentHash("3a77");
+        String earlierId = earlier.getId().toString();
+        when(storage.store(upload, null)).thenReturn(stored);
+        when(files.findByContentHashAndIdNotOrderByUploadedAtDesc("3a77", stored.getId())).thenReturn(List.of(earlier));
+        when(importJobs.find(earlierId)).thenReturn(Optional.of(new ImportJobState(earlierId, "txt", ImportJobStatus.COMPLETED, 100)));
+        when(files.findById(stored.getId())).thenReturn(Optional.of(stored));
+
+        ResponseEntity<?> response = controller.uploadFile(upload, false, null);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertSame(stored, response.getBody());
+        assertEquals(FileStatus.READY, stored.getStatus());
+        verify(importJobs).copy(earlierId, stored.getId().toString());
+        verify(validationErrors).copy(earlier.getId(), stored.getId());
+        verify(lineAnalytics).copy(earlier.getId(), stored.getId());
+        verify(importJobs, never()).start(anyString(), any(), any());
+        verify(importScheduler, never()).submit(any(), any(), any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testTextImportReadsEveryLinePastTheErrorDetailCap() throws Exception {
+        UUID fileId = UUID.randomUUID();
+        Path text = dir.resolve("rsf.txt");
+        Files.write(text, Collections.nCopies(150, "A too short"));
+        ImportJobState state = new ImportJobState(fileId.toString(), "RSF", ImportJobStatus.RUNNING, 20);
+        when(importJobs.active(fileId.toString())).thenReturn(state);
+        ValidationErrorStore.Batch storedErrors = mock(ValidationErrorStore.Batch.class);
+        RsfLineStore.Load storedLines = mock(RsfLineStore.Load.class);
+        RsfImportPipeline.Run run = mock(RsfImportPipeline.Run.class);
+        RsfImportPipeline.Batcher batcher = mock(RsfImportPipeline.Batcher.class);
+        when(validationErrors.open(fileId)).thenReturn(storedErrors);
+        when(rsfLines.open(fileId)).thenReturn(storedLines);
+        when(rsfPipeline.start(any(), eq(storedLines), eq(state.getCancellation()))).thenReturn(run);
+        when(run.batcher(null)).thenReturn(batcher);
+        when(run.finish()).thenReturn(new RsfImportPipeline.Summary(150, 0, 0, Map.of()));
+
+        Map<String, Object> result = ReflectionTestUtils.invokeMethod(controller, "processCsvFile",
+                text.toFile(), false, fileId.toString(), true);
+
+        verify(batcher, times(150)).add(anyInt(), eq("A too short"));
+        verify(batcher).add(150, "A too short");
+        assertEquals(150, result.get("recordCount"));
+        assertEquals(150, ((Map<String, Object>) result.get("rsfStats")).get("errorCount"));
+        List<String> details = (List<String>) result.get("errorDetails");
+        assertEquals(101, details.size());
+        assertEquals("Additional errors omitted (too many to display)", details.get(100));
+    }
+
+    private void running(FileEntity file) {
+        String id = file.getId().toString();
+        when(files.findById(file.getId())).thenReturn(Optional.of(file));
+        when(importJobs.find(id)).thenReturn(Optional.of(new ImportJobState(id, "RSF", ImportJobStatus.RUNNING, 10)));
+        when(importJobs.requestCancel(id)).thenReturn(true);
+        when(importScheduler.cancel(id)).thenReturn(false);
+    }
+
+    private static FileEntity file(User uploader) {
+        FileEntity file = new FileEntity();
+        file.setUploader(uploader);
+        return file;
+    }
+
+    private static User uploader(String username) {
+        User user = new User();
+        user.setUsername(username);
+        return user;
+    }
+
+    private static JwtUser caller(String username, String... roles) {
+        List<GrantedAuthority> authorities = Arrays.stream(roles).<GrantedAuthority>map(SimpleGrantedAuthority::new).toList();
+        return new JwtUser(1L, username, authorities);
+    }
+}
@@ -0,0 +1,97 @@
+package com.rsf.controller;
+
+import com.rsf.domain.FileEntity;
+import com.rsf.domain.User;
+import com.rsf.dto.RsfFixRequest;
+import com.rsf.repo.FileRepo;
+import com.rsf.security.JwtUser;
+import com.rsf.security.UserCache;
+import com.rsf.service.ValidationErrorStore;
+import com.rsf.service.fixes.RsfFixService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ValidationControllerTest {
+
+    @Mock
+    private FileRepo fileRepo;
+
+    @Mock
+    private ValidationErrorStore validationErrors;
+
+    @Mock
+    private RsfFixService fixService;
+
+    @Mock
+    private UserCache userCache;
+
+    @InjectMocks
+    private ValidationController controller;
+
+    @Test
+    void testOwnerFixesIntoAVersionOfTheirOwn() throws Exception {
+        User alice = user("alice");
+        FileEntity file = file(alice);
+        when(fileRepo.findById(file.getId())).thenReturn(Optional.of(file));
+        when(userCache.find("alice")).thenReturn(Optional.of(alice));
+        when(fixService.fix(eq(file.getId()), any(), any(), same(alice))).thenReturn(
+                new RsfFixService.Result(file.getId(), UUID.randomUUID(), 2, 1, 1, 0, 1, 0, 5));
+
+        ResponseEntity<Map<String, Object>> response = controller.fixErrors(
+                new RsfFixRequest(file.getId(), null, null, null), new JwtUser(1L, "alice", List.of()));
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+    }
+
+    @Test
+    void testOtherUserCannotFixAFile() throws Exception {
+        FileEntity file = file(user("alice"));
+        when(fileRepo.findById(file.getId())).thenReturn(Optional.of(file));
+
+        ResponseEntity<Map<String, Object>> response = controller.fixErrors(
+                new RsfFixRequest(file.getId(), null, null, null), new JwtUser(2L, "bob", List.of()));
+
+        assertEquals(HttpStatus.FORBIDDEN, response.getStatusCode());
+        verify(fixService, never()).fix(any(), any(), any(), any());
+    }
+
+    @Test
+    void testOtherUserCannotFixASingleError() throws Exception {
+        FileEntity file = file(user("alice"));
+        when(validationErrors.fileOf(42L)).thenReturn(Optional.of(file.getId()));
+        when(fileRepo.findById(file.getId())).thenReturn(Optional.of(file));
+
+        ResponseEntity<Map<String, Object>> response = controller.fixError(42L, new JwtUser(2L, "bob", List.of()));
+
+        assertEquals(HttpStatus.FORBIDDEN, response.getStatusCode());
+        verify(fixService, never()).fix(any(), any(), any(), any());
+    }
+
+    private static FileEntity file(User uploader) {
+        FileEntity file = new FileEntity();
+        file.setUploader(uploader);
+        return file;
+    }
+
+    private static User user(String username) {
+        User user = new User();
+        user.setUsername(username);
+        return user;
+    }
+}
@@ -0,0 +1,67 @@
+package com.rsf.security;
+
+import com.rsf.domain.Role;
+import com.rsf.domain.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class JwtAuthFilterTest {
+
+    private static final String SECRET = "x4OY5Nq6FtY7Pz9QhCsDdFgHiJkLmNoPqRsTuVwXyZ0123456789";
+
+    private final JwtTokenProvider tokens = new JwtTokenProvider(SECRET, 60_000);
+    private final JwtAuthFilter filter = new JwtAuthFilter(tokens, mock(UserCache.class));
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private Authentication authenticationSeenBy(String uri, String authorization) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", uri);
+        if (authorization != null) {
+            request.addHeader("Authorization", authorization);
+        }
+        AtomicReference<Authentication> seen = new AtomicReference<>();
+        filter.doFilter(request, new MockHttpServletResponse(),
+                new MockFilterChain() {
+                    @Override
+                    public void doFilter(jakarta.servlet.ServletRequest req, jakarta.servlet.ServletResponse res) {
+                        seen.set(SecurityContextHolder.getContext().getAuthentication());
+                    }
+                });
+        return seen.get();
+    }
+
+    @Test
+    void uploadsAreFiledUnderTheUserOfAnOptionalToken() throws Exception {
+        Role role = new Role();
+        role.setName("ROLE_USER");
+        User user = new User();
+        user.setId(7L);
+        user.setUsername("alice");
+        user.setRoles(Set.of(role));
+
+        Authentication auth = authenticationSeenBy("/api/v1/import/upload/stream", "Bearer " + tokens.generate(user));
+
+        assertNotNull(auth);
+        assertEquals("alice", auth.getName());
+    }
+
+    @Test
+    void uploadsWithoutOrWithABadTokenStayAnonymous() throws Exception {
+        assertNull(authenticationSeenBy("/api/v1/import/upload", null));
+        assertNull(authenticationSeenBy("/api/v1/import/upload", "Bearer not-a-token"));
+    }
+}
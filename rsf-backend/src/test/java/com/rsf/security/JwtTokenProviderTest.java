@@ -0,0 +1,63 @@
+package com.rsf.security;
+
+import com.rsf.domain.Role;
+import com.rsf.domain.User;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtTokenProviderTest {
+
+    private static final String SECRET = "x4OY5Nq6FtY7Pz9QhCsDdFgHiJkLmNoPqRsTuVwXyZ0123456789";
+
+    private final JwtTokenProvider tokens = new JwtTokenProvider(SECRET, 60_000);
+
+    @Test
+    void tokenCarriesIdAndRoles() {
+        Role manager = new Role();
+        manager.setName("ROLE_MANAGER");
+        User user = new User();
+        user.setId(42L);
+        user.setUsername("alice");
+        user.setRoles(Set.of(manager));
+
+        Claims claims = tokens.parse(tokens.generate(user));
+        JwtUser principal = tokens.toUser(claims);
+
+        assertNotNull(principal);
+        assertEquals(42L, principal.id());
+        assertEquals("alice", principal.getUsername());
+        assertEquals(List.of("ROLE_MANAGER"),
+                principal.getAuthorities().stream().map(GrantedAuthority::getAuthority).toList());
+    }
+
+    @Test
+    void tokenWithoutRolesNeedsALookup() {
+        Claims claims = tokens.parse(tokens.generate("bob"));
+
+        assertNull(tokens.toUser(claims));
+        assertEquals("bob", tokens.getUsername(tokens.generate("bob")));
+    }
+
+    @Test
+    void rejectsTokensSignedWithAnotherKey() {
+        JwtTokenProvider other = new JwtTokenProvider(SECRET.replace('x', 'y'), 60_000);
+        String forged = other.generate("mallory");
+
+        assertFalse(tokens.validate(forged));
+        assertThrows(JwtException.class, () -> tokens.parse(forged));
+    }
+
+    @Test
+    void rejectsExpiredTokens() {
+        JwtTokenProvider expired = new JwtTokenProvider(SECRET, -1_000);
+
+        assertFalse(tokens.validate(expired.generate("carol")));
+    }
+}
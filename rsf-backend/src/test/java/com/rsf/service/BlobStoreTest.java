@@ -0,0 +1,174 @@
+package com.rsf.service;
+
+import com.rsf.domain.Blob;
+import com.rsf.repo.BlobRepo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BlobStoreTest {
+
+    private static final String HASH = "3a77ce230e55096d43e2388d5ef45d81085b1feb4e0a2fb43b4ca694da3b5d69";
+
+    @Mock
+    private BlobRepo repo;
+
+    @InjectMocks
+    private BlobStore blobs;
+
+    @TempDir
+    Path root;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(blobs, "root", root);
+        ReflectionTestUtils.setField(blobs, "gcGrace", Duration.ofHours(1));
+    }
+
+    @Test
+    void testTextIsStoredCompressedAndInflatedOnRead() throws Exception {
+        String text = "A000000000000000000000000000000000000000\n".repeat(1_000);
+        BlobStore.Staged staged = stage("upload.txt", "txt", text.getBytes(StandardCharsets.UTF_8));
+
+        assertTrue(staged.isCompressed());
+        assertTrue(Files.size(staged.getPath()) < text.length() / 10);
+
+        String stored = blobs.acquire(HASH, staged);
+
+        assertEquals("blobs/3a/77/" + HASH + BlobStore.DEFLATE_SUFFIX, stored);
+        assertFalse(Files.exists(staged.getPath()));
+        assertTrue(Files.size(root.resolve(stored)) < text.length() / 10);
+        try (InputStream in = BlobStore.open(root.resolve(stored))) {
+            assertEquals(text, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        ArgumentCaptor<Blob> saved = ArgumentCaptor.forClass(Blob.class);
+        verify(repo).saveAndFlush(saved.capture());
+        assertEquals(text.length(), saved.getValue().getSize());
+        assertEquals(1, saved.getValue().getRefCount());
+        assertTrue(saved.getValue().isCompressed());
+    }
+
+    @Test
+    void testArchivesAreStoredAsTheyAre() throws Exception {
+        byte[] zip = new byte[8 * 1024];
+        zip[0] = 'P';
+        BlobStore.Staged staged = stage("upload.zip", "zip", zip);
+
+        String stored = blobs.acquire(HASH, staged);
+
+        assertEquals("blobs/3a/77/" + HASH, stored);
+        assertArrayEquals(zip, Files.readAllBytes(root.resolve(stored)));
+    }
+
+    @Test
+    void testSmallTextIsStoredAsItIs() throws Exception {
+        BlobStore.Staged staged = stage("upload.txt", "txt", "A line\n".getBytes(StandardCharsets.UTF_8));
+
+        String stored = blobs.acquire(HASH, staged);
+
+        assertFalse(staged.isCompressed());
+        assertEquals("blobs/3a/77/" + HASH, stored);
+        assertEquals("A line\n", Files.readString(root.resolve(stored)));
+    }
+
+    @Test
+    void testMissingCompressedBlobIsRewrittenInItsStoredForm() throws Exception {
+        Blob known = new Blob();
+        known.setHash(HASH);
+        known.setCompressed(true);
+        BlobStore.Staged staged = stage("upload.txt", "txt", "content".getBytes(StandardCharsets.UTF_8));
+        when(repo.acquire(HASH)).thenReturn(1);
+        when(repo.findById(HASH)).thenReturn(Optional.of(known));
+
+        String stored = blobs.acquire(HASH, staged);
+
+        assertEquals("blobs/3a/77/" + HASH + BlobStore.DEFLATE_SUFFIX, stored);
+        try (InputStream in = BlobStore.open(root.resolve(stored))) {
+            assertEquals("content", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        assertFalse(Files.exists(staged.getPath()));
+    }
+
+    @Test
+    void testKnownContentOnlyTakesAReference() throws Exception {
+        Blob known = new Blob();
+        known.setHash(HASH);
+        Path existing = Files.createDirectories(root.resolve("blobs/3a/77")).resolve(HASH);
+        Files.writeString(existing, "content");
+        BlobStore.Staged staged = stage("upload.txt", "txt", "content".getBytes(StandardCharsets.UTF_8));
+        when(repo.acquire(HASH)).thenReturn(1);
+        when(repo.findById(HASH)).thenReturn(Optional.of(known));
+
+        assertEquals("blobs/3a/77/" + HASH, blobs.acquire(HASH, staged));
+
+        assertFalse(Files.exists(staged.getPath()));
+        verify(repo, never()).saveAndFlush(any());
+    }
+
+    @Test
+    void testGarbageCollectionRemovesOnlyOldUnreferencedBlobs() throws Exception {
+        Path old = Files.createDirectories(root.resolve("blobs/3a/77")).resolve(HASH);
+        Files.writeString(old, "content");
+        Files.setLastModifiedTime(old, FileTime.from(Instant.now().minus(Duration.ofDays(1))));
+        String freshHash = "3a77" + "0".repeat(60);
+        Path fresh = Files.writeString(old.resolveSibling(freshHash), "rewritten by a new upload");
+        when(repo.findByRefCountAndReleasedAtBefore(eq(0), any())).thenReturn(List.of(blob(HASH), blob(freshHash)));
+        when(repo.deleteIfUnreferenced(any())).thenReturn(1);
+
+        blobs.collectGarbage();
+
+        assertFalse(Files.exists(old));
+        assertTrue(Files.exists(fresh));
+    }
+
+    @Test
+    void testGarbageCollectionSkipsBlobsReferencedAgain() throws Exception {
+        Path old = Files.createDirectories(root.resolve("blobs/3a/77")).resolve(HASH);
+        Files.writeString(old, "content");
+        Files.setLastModifiedTime(old, FileTime.from(Instant.now().minus(Duration.ofDays(1))));
+        when(repo.findByRefCountAndReleasedAtBefore(eq(0), any())).thenReturn(List.of(blob(HASH)));
+        when(repo.deleteIfUnreferenced(HASH)).thenReturn(0);
+
+        blobs.collectGarbage();
+
+        assertTrue(Files.exists(old));
+    }
+
+    private BlobStore.Staged stage(String name, String extension, byte[] content) throws Exception {
+        BlobStore.Staged staged = BlobStore.stage(root.resolve(name), extension);
+        // Written in pieces, as uploads arrive
+        for (int off = 0; off < content.length; off += 1000) {
+            staged.write(content, off, Math.min(1000, content.length - off));
+        }
+        staged.close();
+        return staged;
+    }
+
+    private static Blob blob(String hash) {
+        Blob blob = new Blob();
+        blob.setHash(hash);
+        return blob;
+    }
+}
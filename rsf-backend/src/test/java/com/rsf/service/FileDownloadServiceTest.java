@@ -0,0 +1,157 @@
+package com.rsf.service;
+
+import com.rsf.domain.FileEntity;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class FileDownloadServiceTest {
+
+    private static final String CONTENT = "0123456789abcdefghij";
+    private static final Instant MODIFIED = Instant.parse("2024-03-01T10:15:30Z");
+
+    @Mock
+    private StorageService storage;
+
+    @InjectMocks
+    private FileDownloadService downloads;
+
+    @TempDir
+    Path root;
+
+    private final FileEntity file = new FileEntity();
+    private Path stored;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        stored = Files.writeString(root.resolve("stored.txt"), CONTENT);
+        Files.setLastModifiedTime(stored, FileTime.from(MODIFIED));
+        file.setContentHash("abc123");
+    }
+
+    @Test
+    void testWholeFileCarriesValidators() throws Exception {
+        MockHttpServletResponse response = send(get());
+
+        assertEquals(200, response.getStatus());
+        assertEquals(CONTENT, response.getContentAsString());
+        assertEquals("\"abc123\"", response.getHeader(HttpHeaders.ETAG));
+        assertEquals("bytes", response.getHeader(HttpHeaders.ACCEPT_RANGES));
+        assertEquals(MODIFIED.toEpochMilli(), response.getDateHeader(HttpHeaders.LAST_MODIFIED));
+    }
+
+    @Test
+    void testMatchingEtagIsNotModified() throws Exception {
+        MockHttpServletRequest request = get();
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, "\"abc123\"");
+
+        MockHttpServletResponse response = send(request);
+
+        assertEquals(304, response.getStatus());
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    void testRangeReturnsPartialContent() throws Exception {
+        MockHttpServletRequest request = get();
+        request.addHeader(HttpHeaders.RANGE, "bytes=5-9");
+
+        MockHttpServletResponse response = send(request);
+
+        assertEquals(206, response.getStatus());
+        assertEquals("56789", response.getContentAsString());
+        assertEquals("bytes 5-9/20", response.getHeader(HttpHeaders.CONTENT_RANGE));
+    }
+
+    @Test
+    void testStaleIfRangeSendsTheWholeFile() throws Exception {
+        MockHttpServletRequest request = get();
+        request.addHeader(HttpHeaders.RANGE, "bytes=5-9");
+        request.addHeader(HttpHeaders.IF_RANGE, "\"other\"");
+
+        MockHttpServletResponse response = send(request);
+
+        assertEquals(200, response.getStatus());
+        assertEquals(CONTENT, response.getContentAsString());
+    }
+
+    @Test
+    void testUnsatisfiableRangeIsRejected() throws Exception {
+        MockHttpServletRequest request = get();
+        request.addHeader(HttpHeaders.RANGE, "bytes=50-60");
+
+        MockHttpServletResponse response = send(request);
+
+        assertEquals(416, response.getStatus());
+        assertEquals("bytes */20", response.getHeader(HttpHeaders.CONTENT_RANGE));
+    }
+
+    @Test
+    void testLargeBodyIsHandedToSendfile() throws Exception {
+        stored = Files.write(root.resolve("large.zip"), new byte[(int) FileDownloadService.SENDFILE_MIN_SIZE]);
+        MockHttpServletRequest request = get();
+        request.setAttribute(FileDownloadService.SENDFILE_SUPPORT, Boolean.TRUE);
+
+        MockHttpServletResponse response = send(request);
+
+        assertEquals(200, response.getStatus());
+        assertEquals(0, response.getContentAsByteArray().length);
+        assertEquals(FileDownloadService.SENDFILE_MIN_SIZE, response.getContentLengthLong());
+        assertEquals(0L, request.getAttribute(FileDownloadService.SENDFILE_START));
+        assertEquals(FileDownloadService.SENDFILE_MIN_SIZE, request.getAttribute(FileDownloadService.SENDFILE_END));
+    }
+
+    @Test
+    void testRangeOfCompressedBlobIsInflated() throws Exception {
+        when(storage.isCompressed(file)).thenReturn(true);
+        when(storage.open(file)).thenAnswer(i -> new ByteArrayInputStream(CONTENT.getBytes(StandardCharsets.UTF_8)));
+        MockHttpServletRequest request = get();
+        request.addHeader(HttpHeaders.RANGE, "bytes=10-");
+
+        MockHttpServletResponse response = send(request);
+
+        assertEquals(206, response.getStatus());
+        assertEquals("abcdefghij", response.getContentAsString());
+    }
+
+    @Test
+    void testIfRangeDateMustEqualLastModified() {
+        String date = DateTimeFormatter.RFC_1123_DATE_TIME.format(MODIFIED.atZone(ZoneOffset.UTC));
+
+        assertTrue(FileDownloadService.ifRangeMatches(date, "\"abc123\"", MODIFIED.toEpochMilli()));
+        assertFalse(FileDownloadService.ifRangeMatches(date, "\"abc123\"", MODIFIED.toEpochMilli() + 1000));
+        assertFalse(FileDownloadService.ifRangeMatches("W/\"abc123\"", "\"abc123\"", MODIFIED.toEpochMilli()));
+    }
+
+    private static MockHttpServletRequest get() {
+        return new MockHttpServletRequest("GET", "/api/files/1");
+    }
+
+    private MockHttpServletResponse send(MockHttpServletRequest request) throws Exception {
+        when(storage.pathOf(file)).thenReturn(stored);
+        when(storage.sizeOf(file)).thenReturn(Files.size(stored));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        downloads.send(file, request, response);
+        return response;
+    }
+}
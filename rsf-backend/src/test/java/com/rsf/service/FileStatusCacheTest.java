@@ -0,0 +1,68 @@
+package com.rsf.service;
+
+import com.rsf.domain.FileStatus;
+import com.rsf.dto.FileStatusView;
+import com.rsf.repo.FileRepo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class FileStatusCacheTest {
+
+    @Mock
+    private FileRepo files;
+
+    private FileStatusCache statuses;
+    private final UUID fileId = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        statuses = new FileStatusCache(files, Duration.ofMinutes(1), 100);
+    }
+
+    @Test
+    void testPollsReadTheStatusOnceUntilEvicted() {
+        when(files.findStatusById(fileId))
+                .thenReturn(Optional.of(new FileStatusView(FileStatus.PROCESSING, null)))
+                .thenReturn(Optional.of(new FileStatusView(FileStatus.READY, 100)));
+
+        assertEquals(FileStatus.PROCESSING, statuses.get(fileId).orElseThrow().status());
+        assertEquals(FileStatus.PROCESSING, statuses.get(fileId).orElseThrow().status());
+        statuses.evict(fileId);
+
+        assertEquals(new FileStatusView(FileStatus.READY, 100), statuses.get(fileId).orElseThrow());
+        verify(files, times(2)).findStatusById(fileId);
+    }
+
+    @Test
+    void testProgressUpdatesTheCachedStatus() {
+        when(files.findStatusById(fileId)).thenReturn(Optional.of(new FileStatusView(FileStatus.PROCESSING, 10)));
+        statuses.get(fileId);
+
+        statuses.progress(fileId, 40);
+
+        assertEquals(new FileStatusView(FileStatus.PROCESSING, 40), statuses.get(fileId).orElseThrow());
+        verify(files).findStatusById(fileId);
+    }
+
+    @Test
+    void testUnknownFilesAreNotCached() {
+        when(files.findStatusById(fileId)).thenReturn(Optional.empty());
+
+        assertTrue(statuses.get(fileId).isEmpty());
+        statuses.progress(fileId, 50);
+        assertTrue(statuses.get(fileId).isEmpty());
+
+        verify(files, times(2)).findStatusById(fileId);
+    }
+}
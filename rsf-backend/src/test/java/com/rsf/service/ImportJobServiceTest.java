@@ -0,0 +1,111 @@
+package com.rsf.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rsf.domain.ImportJobEntity;
+import com.rsf.domain.ImportJobStatus;
+import com.rsf.repo.ImportJobRepo;
+import com.rsf.service.imports.ImportJobState;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ImportJobServiceTest {
+
+    @Mock
+    private ImportJobRepo jobs;
+
+    @TempDir
+    Path root;
+
+    private ImportJobService service;
+    private final String fileId = UUID.randomUUID().toString();
+
+    @BeforeEach
+    void setUp() {
+        service = new ImportJobService(jobs, new ObjectMapper());
+        ReflectionTestUtils.setField(service, "root", root);
+    }
+
+    @Test
+    void testFinishStoresPayloadsOnDiskAndCompactSummaryInDatabase() throws Exception {
+        when(jobs.save(any(ImportJobEntity.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        service.start(fileId, "txt", List.of("CSV file detected"));
+        ImportJobState state = service.active(fileId);
+        state.getProcessedLines().addAll(List.of("line 1", "line 2"));
+        state.getErrors().add("bad line");
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("filename", "RSF_TEST.txt");
+        result.put("recordCount", 2);
+        result.put("processedRecords", List.of("Record 1", "Record 2"));
+        service.finish(fileId, result, false);
+
+        ArgumentCaptor<ImportJobEntity> saved = ArgumentCaptor.forClass(ImportJobEntity.class);
+        verify(jobs, times(2)).save(saved.capture());
+        ImportJobEntity job = saved.getValue();
+        assertEquals(ImportJobStatus.COMPLETED, job.getStatus());
+        assertEquals(100, job.getProgress());
+        assertEquals(1, job.getErrorCount());
+        assertEquals("{\"filename\":\"RSF_TEST.txt\",\"recordCount\":2}", job.getSummary());
+
+        assertEquals(List.of("line 1", "line 2"), service.loadProcessedLines(fileId));
+        assertEquals(List.of("Record 1", "Record 2"), service.loadResult(fileId).orElseThrow().get("processedRecords"));
+        assertTrue(state.getProcessedLines().isEmpty());
+        assertTrue(service.find(fileId).orElseThrow().isComplete());
+    }
+
+    @Test
+    void testFinishedJobIsReloadedFromDatabase() {
+        ImportJobEntity job = new ImportJobEntity();
+        job.setFileId(UUID.fromString(fileId));
+        job.setStatus(ImportJobStatus.FAILED);
+        job.setProgress(100);
+        job.setValidationDetails("[\"ZIP file detected - will be extracted\"]");
+        when(jobs.findById(UUID.fromString(fileId))).thenReturn(Optional.of(job));
+
+        ImportJobState state = service.find(fileId).orElseThrow();
+
+        assertEquals(ImportJobStatus.FAILED, state.getStatus());
+        assertEquals(List.of("ZIP file detected - will be extracted"), state.getValidationDetails());
+        service.find(fileId);
+        verify(jobs, times(1)).findById(UUID.fromString(fileId));
+    }
+
+    @Test
+    void testUnknownOrMalformedIdIsNotFound() {
+        assertTrue(service.find("../../etc").isEmpty());
+        assertTrue(service.loadResult("../../etc").isEmpty());
+    }
+
+    @Test
+    void testCancelRequestFlagsOnlyUnfinishedJobs() {
+        when(jobs.save(any(ImportJobEntity.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        service.start(fileId, "txt", List.of());
+        ImportJobState state = service.active(fileId);
+
+        assertTrue(service.requestCancel(fileId));
+        assertTrue(state.getCancellation().isCancelled());
+
+        service.finishCancelled(fileId);
+        assertEquals(ImportJobStatus.CANCELLED, state.getStatus());
+        assertTrue(state.isComplete());
+        assertFalse(service.requestCancel(fileId));
+    }
+}
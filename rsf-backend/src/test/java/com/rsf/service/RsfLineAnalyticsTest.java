@@ -0,0 +1,105 @@
+package com.rsf.service;
+
+import com.rsf.dto.RsfFileAnalytics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RsfLineAnalyticsTest {
+
+    @Mock
+    private JdbcTemplate jdbc;
+
+    private RsfLineAnalytics analytics;
+    private final UUID fileId = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        analytics = new RsfLineAnalytics(jdbc);
+    }
+
+    @Test
+    void testRefreshRebuildsTheFileFromEachLineTypeOfItsPartitions() {
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<Object[]> args = ArgumentCaptor.forClass(Object[].class);
+
+        analytics.refresh(fileId);
+
+        verify(jdbc, times(2)).update(sql.capture(), args.capture());
+        assertTrue(sql.getAllValues().get(0).startsWith("DELETE FROM rsf_line_rollup"));
+        String insert = sql.getAllValues().get(1);
+        assertTrue(insert.startsWith("INSERT INTO rsf_line_rollup"));
+        for (String table : List.of("rsf_line_a", "rsf_line_b", "rsf_line_c", "rsf_line_m", "rsf_line_h", "rsf_line_p", "rsf_line_l")) {
+            assertTrue(insert.contains(" FROM " + table + " WHERE file_id = ?"), table);
+        }
+        assertTrue(insert.contains("sum(rsf_amount(total_honoraire_remboursable_am))"));
+        assertEquals(7, insert.chars().filter(c -> c == '?').count());
+        assertArrayEquals(new Object[] {fileId}, args.getAllValues().get(0));
+        // One file per line type
+        assertArrayEquals(new Object[] {fileId, fileId, fileId, fileId, fileId, fileId, fileId}, args.getAllValues().get(1));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testMonthsOfOneHospitalUseStayTotals() {
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<Object[]> args = ArgumentCaptor.forClass(Object[].class);
+
+        analytics.aggregate(RsfLineAnalytics.GroupBy.MONTH,
+                new RsfLineAnalytics.Filter(null, "123456789", YearMonth.of(2017, 1), YearMonth.of(2017, 12)), 50_000);
+
+        verify(jdbc).query(sql.capture(), any(RowMapper.class), args.capture());
+        String query = sql.getValue();
+        assertTrue(query.startsWith("SELECT to_char(month, 'YYYY-MM') AS key"));
+        assertTrue(query.contains("FILTER (WHERE line_type = 'A')"));
+        assertTrue(query.contains("AND finess = ? AND month >= ? AND month <= ? GROUP BY 1 ORDER BY 1 LIMIT ?"));
+        assertFalse(query.contains("code_acte IS NOT NULL"));
+        assertArrayEquals(new Object[] {"123456789", Date.valueOf(LocalDate.of(2017, 1, 1)),
+                Date.valueOf(LocalDate.of(2017, 12, 1)), RsfLineAnalytics.MAX_ROWS}, args.getValue());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testActesAreReadFromRowsWithACode() {
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+
+        analytics.aggregate(RsfLineAnalytics.GroupBy.ACTE, new RsfLineAnalytics.Filter(fileId, null, null, null), 20);
+
+        verify(jdbc).query(sql.capture(), any(RowMapper.class), any(Object[].class));
+        String query = sql.getValue();
+        assertTrue(query.startsWith("SELECT code_acte AS key"));
+        assertTrue(query.contains("WHERE TRUE AND code_acte IS NOT NULL AND file_id = ?"));
+        assertTrue(query.endsWith("ORDER BY lines DESC, 1 LIMIT ?"));
+        assertFalse(query.contains("FILTER"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testSummaryOfAFileWithoutLines() {
+        RsfFileAnalytics summary = analytics.summary(fileId);
+
+        verify(jdbc).query(startsWith("SELECT line_type"), any(RowCallbackHandler.class), eq(fileId));
+        assertEquals(fileId, summary.fileId());
+        assertEquals(0, summary.totalLines());
+        assertEquals(Map.of(), summary.linesPerType());
+        assertNull(summary.totalRemboursableAmo());
+    }
+}
@@ -0,0 +1,133 @@
+package com.rsf.service;
+
+import com.rsf.rsf.config.RsfMappingConfig;
+import com.rsf.rsf.domain.models.FieldDefinition;
+import com.rsf.rsf.service.RsfParsingService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RsfLineStoreTest {
+
+    @Mock
+    private DataSource dataSource;
+    @Mock
+    private JdbcTemplate jdbc;
+    @Mock
+    private Connection connection;
+    @Mock
+    private Statement statement;
+    @Mock
+    private PGConnection pgConnection;
+    @Mock
+    private CopyManager copyManager;
+    @Mock
+    private CopyIn copyIn;
+
+    private final RsfParsingService parsing = new RsfParsingService(new RsfMappingConfig());
+    private RsfLineStore store;
+    private final UUID fileId = UUID.fromString("0f8fad5b-d9cb-469f-a165-70867728950e");
+
+    @BeforeEach
+    void setUp() {
+        store = new RsfLineStore(dataSource, jdbc, parsing, 2017);
+    }
+
+    @Test
+    void testRowsAreCsvWithEmptyFieldsAsNull() {
+        List<FieldDefinition> fields = List.of(new FieldDefinition("N_ENTREE", 2, 9),
+                new FieldDefinition("CODE_ACTE", 11, 5), new FieldDefinition("FILLER", 16, 3));
+        Map<String, String> values = new HashMap<>();
+        values.put("N_ENTREE", "123");
+        values.put("CODE_ACTE", "A,\"B\"");
+        values.put("FILLER", "");
+        StringBuilder row = new StringBuilder();
+
+        RsfLineStore.appendRow(row, fileId.toString(), "RSF_1.txt", 42, fields, values);
+
+        assertEquals(fileId + ",RSF_1.txt,42,123,\"A,\"\"B\"\"\",\n", row.toString());
+    }
+
+    @Test
+    void testPartitionsAreNamedPerLineTypeAndFile() {
+        assertEquals("rsf_line_b", RsfLineStore.table('B'));
+        assertEquals("rsf_line_b_0f8fad5bd9cb469fa16570867728950e", RsfLineStore.partition('B', fileId));
+    }
+
+    @Test
+    void testLoadCopiesEachLineTypeAndAttachesItsPartition() throws Exception {
+        ByteArrayOutputStream copied = new ByteArrayOutputStream();
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.createStatement()).thenReturn(statement);
+        when(connection.unwrap(PGConnection.class)).thenReturn(pgConnection);
+        when(pgConnection.getCopyAPI()).thenReturn(copyManager);
+        when(copyManager.copyIn(anyString())).thenReturn(copyIn);
+        doAnswer(invocation -> {
+            copied.write(invocation.getArgument(0), invocation.getArgument(1), invocation.getArgument(2));
+            return null;
+        }).when(copyIn).writeToCopy(any(byte[].class), anyInt(), anyInt());
+
+        Map<Character, Long> counts;
+        try (RsfLineStore.Load load = store.open(fileId)) {
+            load.accept(null, 1, 'A', Map.of("N_ENTREE", "000000001", "N_IMMATRICULATION_ASSURE", "1234"));
+            load.accept(null, 2, 'B', Map.of("N_ENTREE", "000000001", "CODE_ACTE", "ABC"));
+            load.accept(null, 3, 'B', Map.of("N_ENTREE", "000000001"));
+            load.accept(null, 4, 'Z', Map.of());
+            counts = load.finish();
+        }
+
+        assertEquals(Map.of('A', 1L, 'B', 2L), counts);
+        // Earlier partitions dropped once per line type of the layout
+        verify(jdbc, times(7)).execute(startsWith("DROP TABLE IF EXISTS rsf_line_"));
+        verify(statement).execute("CREATE TABLE rsf_line_b_0f8fad5bd9cb469fa16570867728950e (LIKE rsf_line_b INCLUDING DEFAULTS)");
+        verify(copyManager).copyIn(startsWith("COPY rsf_line_b_0f8fad5bd9cb469fa16570867728950e (file_id, source, line_number, n_finess_epmsi,"));
+        verify(statement).execute("ALTER TABLE rsf_line_a ATTACH PARTITION rsf_line_a_0f8fad5bd9cb469fa16570867728950e"
+                + " FOR VALUES IN ('" + fileId + "')");
+        verify(copyIn, times(2)).endCopy();
+        verify(connection, times(2)).commit();
+        verify(connection, never()).rollback();
+        String rows = copied.toString(StandardCharsets.UTF_8);
+        assertEquals(3, rows.lines().count());
+        assertTrue(rows.lines().allMatch(row -> row.startsWith(fileId + ",,")));
+    }
+
+    @Test
+    void testUnfinishedLoadRollsBackAndDropsTheFile() throws Exception {
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.createStatement()).thenReturn(statement);
+        when(connection.unwrap(PGConnection.class)).thenReturn(pgConnection);
+        when(pgConnection.getCopyAPI()).thenReturn(copyManager);
+        when(copyManager.copyIn(anyString())).thenReturn(copyIn);
+        when(copyIn.isActive()).thenReturn(true);
+
+        try (RsfLineStore.Load load = store.open(fileId)) {
+            load.accept(null, 1, 'A', Map.of("N_ENTREE", "000000001"));
+        }
+
+        verify(copyIn).cancelCopy();
+        verify(connection).rollback();
+        verify(connection, never()).commit();
+        verify(jdbc, times(14)).execute(startsWith("DROP TABLE IF EXISTS rsf_line_"));
+    }
+}
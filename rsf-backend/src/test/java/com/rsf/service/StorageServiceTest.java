@@ -0,0 +1,271 @@
+package com.rsf.service;
+
+import com.rsf.domain.Blob;
+import com.rsf.domain.FileEntity;
+import com.rsf.domain.FileStatus;
+import com.rsf.domain.User;
+import com.rsf.repo.BlobRepo;
+import com.rsf.repo.FileRepo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StorageServiceTest {
+
+    private static final String CONTENT = "A line\nB line\n";
+    private static final String CONTENT_SHA256 = "3a77ce230e55096d43e2388d5ef45d81085b1feb4e0a2fb43b4ca694da3b5d69";
+
+    @Mock
+    private FileRepo files;
+
+    @Mock
+    private BlobRepo blobRepo;
+
+    private BlobStore blobs;
+
+    private StorageService storage;
+
+    @TempDir
+    Path root;
+
+    @BeforeEach
+    void setUp() {
+        blobs = new BlobStore(blobRepo);
+        ReflectionTestUtils.setField(blobs, "root", root);
+        storage = new StorageService(files, blobs);
+        ReflectionTestUtils.setField(storage, "root", root);
+    }
+
+    @Test
+    void testWriteHashedCopiesAndHashesInOnePass() throws Exception {
+        Path target = root.resolve("copy.txt");
+
+        String hash = storage.writeHashed(new ByteArrayInputStream(CONTENT.getBytes(StandardCharsets.UTF_8)),
+                Files.newOutputStream(target));
+
+        assertEquals(CONTENT, Files.readString(target));
+        assertEquals(CONTENT_SHA256, hash);
+    }
+
+    @Test
+    void testDuplicateContentGetsItsOwnFileSharingTheBlob() throws Exception {
+        Blob known = new Blob();
+        known.setHash(CONTENT_SHA256);
+        Path blob = Files.createDirectories(root.resolve("blobs/3a/77")).resolve(CONTENT_SHA256);
+        Files.writeString(blob, CONTENT);
+        when(blobRepo.acquire(CONTENT_SHA256)).thenReturn(1);
+        when(blobRepo.findById(CONTENT_SHA256)).thenReturn(Optional.of(known));
+        when(files.save(any(FileEntity.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        User bob = new User();
+
+        FileEntity result = storage.store(
+                new MockMultipartFile("file", "RSF_TEST.txt", "text/plain", CONTENT.getBytes(StandardCharsets.UTF_8)), bob);
+
+        assertSame(bob, result.getUploader());
+        assertEquals("blobs/3a/77/" + CONTENT_SHA256, result.getStoredName());
+        assertEquals(CONTENT_SHA256, result.getContentHash());
+        try (var stored = Files.list(root)) {
+            assertEquals(List.of(root.resolve("blobs")), stored.toList());
+        }
+        verify(blobRepo, never()).saveAndFlush(any());
+    }
+
+    @Test
+    void testBlobIsCollectedOnceItsLastFileIsDeleted() throws Exception {
+        ReflectionTestUtils.setField(blobs, "gcGrace", Duration.ofHours(1));
+        AtomicReference<Blob> row = new AtomicReference<>();
+        // Mirrors the blobs table: one row whose count follows acquire and release
+        when(blobRepo.saveAndFlush(any(Blob.class))).thenAnswer(invocation -> {
+            row.set(invocation.getArgument(0));
+            return row.get();
+        });
+        when(blobRepo.acquire(CONTENT_SHA256)).thenAnswer(invocation -> {
+            Blob blob = row.get();
+            if (blob == null) {
+                return 0;
+            }
+            blob.setRefCount(blob.getRefCount() + 1);
+            blob.setReleasedAt(null);
+            return 1;
+        });
+        when(blobRepo.findById(CONTENT_SHA256)).thenAnswer(invocation -> Optional.ofNullable(row.get()));
+        when(blobRepo.release(eq(CONTENT_SHA256), any(Instant.class))).thenAnswer(invocation -> {
+            Blob blob = row.get();
+            blob.setRefCount(blob.getRefCount() - 1);
+            if (blob.getRefCount() == 0) {
+                blob.setReleasedAt(invocation.getArgument(1));
+            }
+            return 1;
+        });
+        when(blobRepo.findByRefCountAndReleasedAtBefore(eq(0), any(Instant.class))).thenAnswer(invocation -> {
+            Blob blob = row.get();
+            return blob != null && blob.getRefCount() == 0 && blob.getReleasedAt().isBefore(invocation.getArgument(1))
+                    ? List.of(blob) : List.of();
+        });
+        when(blobRepo.deleteIfUnreferenced(CONTENT_SHA256)).thenAnswer(invocation -> {
+            Blob blob = row.get();
+            if (blob == null || blob.getRefCount() != 0) {
+                return 0;
+            }
+            row.set(null);
+            return 1;
+        });
+        when(files.save(any(FileEntity.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        FileEntity first = storage.store(
+                new MockMultipartFile("file", "RSF_TEST.txt", "text/plain", CONTENT.getBytes(StandardCharsets.UTF_8)), null);
+        FileEntity second = storage.store(
+                new MockMultipartFile("file", "RSF_TEST.txt", "text/plain", CONTENT.getBytes(StandardCharsets.UTF_8)), null);
+        Path blob = root.resolve(first.getStoredName());
+        assertEquals(first.getStoredName(), second.getStoredName());
+        assertEquals(2, row.get().getRefCount());
+
+        storage.delete(first);
+        passGracePeriod(row.get(), blob);
+        blobs.collectGarbage();
+        assertTrue(Files.exists(blob));
+
+        storage.delete(second);
+        passGracePeriod(row.get(), blob);
+        blobs.collectGarbage();
+        assertFalse(Files.exists(blob));
+        assertNull(row.get());
+        verify(files).delete(first);
+        verify(files).delete(second);
+    }
+
+    private static void passGracePeriod(Blob blob, Path stored) throws Exception {
+        Instant past = Instant.now().minus(Duration.ofHours(2));
+        if (blob.getReleasedAt() != null) {
+            blob.setReleasedAt(past);
+        }
+        Files.setLastModifiedTime(stored, FileTime.from(past));
+    }
+
+    @Test
+    void testStreamedUploadOverLimitIsRejectedAndRemoved() throws Exception {
+        UploadRejectedException e = assertThrows(UploadRejectedException.class, () -> storage.storeStream(
+                new ByteArrayInputStream(new byte[10_000]), "RSF_TEST.txt", 1_000, null));
+
+        assertEquals(HttpStatus.PAYLOAD_TOO_LARGE, e.getStatus());
+        try (var stored = Files.list(root)) {
+            assertEquals(0, stored.count());
+        }
+    }
+
+    @Test
+    void testStreamedUploadMustMatchItsExtension() {
+        UploadRejectedException e = assertThrows(UploadRejectedException.class, () -> storage.storeStream(
+                new ByteArrayInputStream(CONTENT.getBytes(StandardCharsets.UTF_8)), "RSF_TEST.zip", 1_000, null));
+
+        assertEquals(HttpStatus.BAD_REQUEST, e.getStatus());
+    }
+
+    @Test
+    void testStreamedUploadIsStoredWithItsHash() throws Exception {
+        when(files.save(any(FileEntity.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        FileEntity result = storage.storeStream(
+                new ByteArrayInputStream(CONTENT.getBytes(StandardCharsets.UTF_8)), "RSF_TEST.txt", 1_000, null);
+
+        assertEquals(CONTENT_SHA256, result.getContentHash());
+        assertEquals(CONTENT, Files.readString(root.resolve(result.getStoredName())));
+        assertEquals(FileStatus.PROCESSING, result.getStatus());
+    }
+
+    @Test
+    void testAssembledFileIsMovedIntoStorageWithItsHash() throws Exception {
+        Path part = Files.createDirectories(root.resolve("uploads")).resolve("session.part");
+        Files.writeString(part, CONTENT);
+        when(files.save(any(FileEntity.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        FileEntity result = storage.storeFile(part, "RSF_TEST.txt", null);
+
+        assertEquals(CONTENT_SHA256, result.getContentHash());
+        assertEquals(CONTENT, Files.readString(root.resolve(result.getStoredName())));
+        assertFalse(Files.exists(part));
+    }
+
+    @Test
+    void testTextUploadIsCompressedWhileItIsWritten() throws Exception {
+        String text = "A000000000000000000000000000000000000000\n".repeat(1_000);
+        when(files.save(any(FileEntity.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        FileEntity result = storage.storeStream(
+                new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)), "RSF_TEST.txt", 1_000_000, null);
+
+        assertTrue(storage.isCompressed(result));
+        assertTrue(Files.size(root.resolve(result.getStoredName())) < text.length() / 10);
+        try (InputStream in = storage.open(result)) {
+            assertEquals(text, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        try (var stored = Files.list(root)) {
+            assertEquals(List.of(root.resolve("blobs")), stored.toList());
+        }
+    }
+
+    @Test
+    void testAssembledTextFileIsCompressedInTheHashingPass() throws Exception {
+        String text = "A000000000000000000000000000000000000000\n".repeat(1_000);
+        Path part = Files.createDirectories(root.resolve("uploads")).resolve("session.part");
+        Files.writeString(part, text);
+        when(files.save(any(FileEntity.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        FileEntity result = storage.storeFile(part, "RSF_TEST.txt", null);
+
+        assertTrue(storage.isCompressed(result));
+        try (InputStream in = storage.open(result)) {
+            assertEquals(text, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        assertFalse(Files.exists(part));
+    }
+
+    @Test
+    void testUploadIsMovedIntoTheShardedBlobStore() throws Exception {
+        when(files.save(any(FileEntity.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        FileEntity result = storage.storeStream(
+                new ByteArrayInputStream(CONTENT.getBytes(StandardCharsets.UTF_8)), "RSF_TEST.txt", 1_000, null);
+
+        assertEquals("blobs/3a/77/" + CONTENT_SHA256, result.getStoredName());
+        verify(blobRepo).saveAndFlush(any());
+        try (var stored = Files.list(root)) {
+            assertEquals(List.of(root.resolve("blobs")), stored.toList());
+        }
+    }
+
+    @Test
+    void testFailedFileRecordReleasesItsBlobReference() throws Exception {
+        when(files.save(any(FileEntity.class))).thenThrow(new DataIntegrityViolationException("constraint"));
+
+        assertThrows(DataIntegrityViolationException.class, () -> storage.storeStream(
+                new ByteArrayInputStream(CONTENT.getBytes(StandardCharsets.UTF_8)), "RSF_TEST.txt", 1_000, null));
+
+        verify(blobRepo).release(eq(CONTENT_SHA256), any());
+    }
+}
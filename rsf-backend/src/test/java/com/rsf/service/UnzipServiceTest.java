@@ -0,0 +1,139 @@
+package com.rsf.service;
+
+import com.rsf.repo.FileRepo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UnzipServiceTest {
+
+    @Mock
+    private FileRepo files;
+    @Mock
+    private FileStatusCache statuses;
+
+    @InjectMocks
+    private UnzipService unzip;
+
+    @TempDir
+    Path root;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(unzip, "root", root);
+        ReflectionTestUtils.setField(unzip, "keepExtracted", true);
+        ReflectionTestUtils.setField(unzip, "maxEntries", 10);
+        ReflectionTestUtils.setField(unzip, "maxTotalSize", DataSize.ofMegabytes(8));
+        ReflectionTestUtils.setField(unzip, "maxRatio", 100);
+    }
+
+    @Test
+    void testEntriesAreReadAndCopiedToTheExtractedStore() throws Exception {
+        Path archive = zip(Map.of("RSF_A.txt", "A line\nB line\n", "docs/readme.md", "hello"));
+        UUID id = UUID.randomUUID();
+
+        try (ZipFile zip = new ZipFile(archive.toFile());
+             UnzipService.Extraction extraction = unzip.open(zip, id)) {
+            try (InputStream in = extraction.read(zip.getEntry("RSF_A.txt"))) {
+                assertEquals("A line\nB line\n", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+            }
+            extraction.extract(zip.getEntry("docs/readme.md"));
+            extraction.complete();
+        }
+
+        Path dir = root.resolve(id.toString());
+        assertEquals("A line\nB line\n", Files.readString(dir.resolve("RSF_A.txt")));
+        assertEquals("hello", Files.readString(dir.resolve("docs").resolve("readme.md")));
+        verify(files).updateProgress(id, 100);
+    }
+
+    @Test
+    void testUnfinishedExtractionIsRemovedOnClose() throws Exception {
+        Path archive = zip(Map.of("RSF_A.txt", "A line\n"));
+        UUID id = UUID.randomUUID();
+
+        try (ZipFile zip = new ZipFile(archive.toFile());
+             UnzipService.Extraction extraction = unzip.open(zip, id)) {
+            extraction.extract(zip.getEntry("RSF_A.txt"));
+        }
+
+        assertFalse(Files.exists(root.resolve(id.toString())));
+    }
+
+    @Test
+    void testEntryEscapingTheExtractionDirectoryIsRejected() throws Exception {
+        Path archive = zip(Map.of("../escaped.txt", "x"));
+
+        try (ZipFile zip = new ZipFile(archive.toFile());
+             UnzipService.Extraction extraction = unzip.open(zip, UUID.randomUUID())) {
+            assertThrows(ZipLimitExceededException.class, () -> extraction.extract(zip.getEntry("../escaped.txt")));
+        }
+        assertFalse(Files.exists(root.resolve("escaped.txt")));
+    }
+
+    @Test
+    void testTooManyEntriesAreRejected() throws Exception {
+        ReflectionTestUtils.setField(unzip, "maxEntries", 1);
+        Path archive = zip(Map.of("a.txt", "a", "b.txt", "b"));
+
+        try (ZipFile zip = new ZipFile(archive.toFile())) {
+            assertThrows(ZipLimitExceededException.class, () -> unzip.open(zip, UUID.randomUUID()));
+        }
+    }
+
+    @Test
+    void testHighlyCompressedEntryIsRejected() throws Exception {
+        Path archive = zip(Map.of("bomb.txt", " ".repeat(4 * 1024 * 1024)));
+
+        try (ZipFile zip = new ZipFile(archive.toFile())) {
+            ZipLimitExceededException e = assertThrows(ZipLimitExceededException.class,
+                    () -> unzip.open(zip, UUID.randomUUID()));
+            assertTrue(e.getMessage().contains("bomb.txt"));
+        }
+    }
+
+    @Test
+    void testArchiveOverTheTotalSizeIsRejected() throws Exception {
+        ReflectionTestUtils.setField(unzip, "keepExtracted", false);
+        ReflectionTestUtils.setField(unzip, "maxTotalSize", DataSize.ofBytes(10));
+        Path archive = zip(Map.of("a.txt", "0123456789abcdef"));
+
+        try (ZipFile zip = new ZipFile(archive.toFile())) {
+            assertThrows(ZipLimitExceededException.class, () -> unzip.open(zip, UUID.randomUUID()));
+        }
+    }
+
+    private Path zip(Map<String, String> entries) throws Exception {
+        Path archive = Files.createTempFile(root, "upload", ".zip");
+        try (OutputStream out = Files.newOutputStream(archive);
+             ZipOutputStream zip = new ZipOutputStream(out)) {
+            for (Map.Entry<String, String> entry : entries.entrySet()) {
+                zip.putNextEntry(new ZipEntry(entry.getKey()));
+                zip.write(entry.getValue().getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+            }
+        }
+        return archive;
+    }
+}
@@ -0,0 +1,268 @@
+package com.rsf.service;
+
+import com.rsf.domain.FileEntity;
+import com.rsf.domain.UploadChunk;
+import com.rsf.domain.UploadSession;
+import com.rsf.domain.UploadSessionStatus;
+import com.rsf.domain.User;
+import com.rsf.dto.UploadSessionDto;
+import com.rsf.repo.FileRepo;
+import com.rsf.repo.UploadChunkRepo;
+import com.rsf.repo.UploadSessionRepo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UploadSessionServiceTest {
+
+    private static final String CONTENT = "A line\nB line\n";
+
+    @Mock
+    private UploadSessionRepo sessions;
+
+    @Mock
+    private UploadChunkRepo chunks;
+
+    @Mock
+    private FileRepo files;
+
+    @Mock
+    private StorageService storage;
+
+    @InjectMocks
+    private UploadSessionService service;
+
+    @TempDir
+    Path root;
+
+    private final User alice = user(1L);
+    private final User bob = user(2L);
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(service, "root", root);
+        ReflectionTestUtils.setField(service, "maxSize", DataSize.ofMegabytes(1));
+        ReflectionTestUtils.setField(service, "chunkSize", DataSize.ofBytes(8));
+        ReflectionTestUtils.setField(service, "maxOpenPerUser", 4);
+    }
+
+    @Test
+    void testChunksAreWrittenAtTheirOffsetsInAnyOrder() throws Exception {
+        when(sessions.save(any())).thenAnswer(i -> i.getArgument(0));
+        UploadSession session = service.create("data.txt", CONTENT.length(), alice);
+        when(sessions.findById(session.getId())).thenReturn(Optional.of(session));
+
+        assertEquals(2, session.getChunkCount());
+        service.writeChunk(session.getId(), 1, stream(" line\n"), sha256(" line\n"), alice);
+        service.writeChunk(session.getId(), 0, stream("A line\nB"), sha256("A line\nB"), alice);
+
+        Path part = root.resolve("uploads").resolve(session.getId() + ".part");
+        assertEquals(CONTENT, Files.readString(part));
+        verify(chunks, times(2)).save(any(UploadChunk.class));
+    }
+
+    @Test
+    void testChecksumMismatchIsRejectedAndNotRecorded() throws Exception {
+        when(sessions.save(any())).thenAnswer(i -> i.getArgument(0));
+        UploadSession session = service.create("data.txt", CONTENT.length(), alice);
+        when(sessions.findById(session.getId())).thenReturn(Optional.of(session));
+
+        UploadRejectedException e = assertThrows(UploadRejectedException.class,
+                () -> service.writeChunk(session.getId(), 0, stream("A line\nB"), sha256("something else"), alice));
+
+        assertEquals(HttpStatus.BAD_REQUEST, e.getStatus());
+        verify(chunks, never()).save(any());
+    }
+
+    @Test
+    void testFailedResendLeavesTheChunkToBeSentAgain() throws Exception {
+        when(sessions.save(any())).thenAnswer(i -> i.getArgument(0));
+        UploadSession session = service.create("data.txt", CONTENT.length(), alice);
+        when(sessions.findById(session.getId())).thenReturn(Optional.of(session));
+        service.writeChunk(session.getId(), 0, stream("A line\nB"), sha256("A line\nB"), alice);
+
+        assertThrows(UploadRejectedException.class,
+                () -> service.writeChunk(session.getId(), 0, stream("corrupt!"), sha256("A line\nB"), alice));
+
+        // Written straight into the part file, so the chunk is unrecorded until a send verifies
+        verify(chunks, times(2)).deleteBySessionIdAndChunkIndex(session.getId(), 0);
+        verify(chunks, times(1)).save(any(UploadChunk.class));
+        service.writeChunk(session.getId(), 0, stream("A line\nB"), sha256("A line\nB"), alice);
+        Path uploads = root.resolve("uploads");
+        assertEquals(CONTENT.substring(0, 8), Files.readString(uploads.resolve(session.getId() + ".part")).substring(0, 8));
+        try (var left = Files.list(uploads)) {
+            assertEquals(1, left.count());
+        }
+    }
+
+    @Test
+    void testOnlyTheCreatorMaySendChunksOrFinalise() throws Exception {
+        when(sessions.save(any())).thenAnswer(i -> i.getArgument(0));
+        UploadSession session = service.create("data.txt", CONTENT.length(), alice);
+        when(sessions.findById(session.getId())).thenReturn(Optional.of(session));
+
+        UploadRejectedException chunk = assertThrows(UploadRejectedException.class,
+                () -> service.writeChunk(session.getId(), 0, stream("A line\nB"), sha256("A line\nB"), bob));
+        UploadRejectedException finalise = assertThrows(UploadRejectedException.class,
+                () -> service.finalise(session.getId(), bob));
+        UploadRejectedException status = assertThrows(UploadRejectedException.class,
+                () -> service.status(session.getId(), null));
+
+        assertEquals(HttpStatus.FORBIDDEN, chunk.getStatus());
+        assertEquals(HttpStatus.FORBIDDEN, finalise.getStatus());
+        assertEquals(HttpStatus.FORBIDDEN, status.getStatus());
+        verifyNoInteractions(chunks, storage);
+    }
+
+    @Test
+    void testCreateNeedsAUserWithinTheOpenSessionLimit() throws Exception {
+        ReflectionTestUtils.setField(service, "maxOpenPerUser", 2);
+        when(sessions.countByUploaderAndStatus(alice, UploadSessionStatus.OPEN)).thenReturn(2L);
+
+        UploadRejectedException anonymous = assertThrows(UploadRejectedException.class,
+                () -> service.create("data.txt", CONTENT.length(), null));
+        UploadRejectedException tooMany = assertThrows(UploadRejectedException.class,
+                () -> service.create("data.txt", CONTENT.length(), alice));
+
+        assertEquals(HttpStatus.UNAUTHORIZED, anonymous.getStatus());
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, tooMany.getStatus());
+        try (var created = Files.list(root)) {
+            assertEquals(0, created.count());
+        }
+    }
+
+    @Test
+    void testChunkOfWrongLengthIsRejected() throws Exception {
+        when(sessions.save(any())).thenAnswer(i -> i.getArgument(0));
+        UploadSession session = service.create("data.txt", CONTENT.length(), alice);
+        when(sessions.findById(session.getId())).thenReturn(Optional.of(session));
+
+        assertThrows(UploadRejectedException.class,
+                () -> service.writeChunk(session.getId(), 1, stream(" line"), sha256(" line"), alice));
+        assertThrows(UploadRejectedException.class,
+                () -> service.writeChunk(session.getId(), 1, stream(" line\n\n"), sha256(" line\n\n"), alice));
+    }
+
+    @Test
+    void testReceivedRangesMergeConsecutiveChunks() {
+        UploadSession session = new UploadSession();
+        session.setTotalSize(35);
+        session.setChunkSize(10);
+        session.setChunkCount(4);
+
+        List<UploadSessionDto.Range> ranges = UploadSessionService.receivedRanges(session, List.of(0, 1, 3));
+
+        assertEquals(List.of(new UploadSessionDto.Range(0, 20), new UploadSessionDto.Range(30, 35)), ranges);
+    }
+
+    @Test
+    void testFinaliseWithMissingChunksIsRejected() {
+        UploadSession session = new UploadSession();
+        session.setUploader(alice);
+        session.setChunkCount(3);
+        when(sessions.findById(session.getId())).thenReturn(Optional.of(session));
+        when(chunks.countBySessionId(session.getId())).thenReturn(2L);
+
+        UploadRejectedException e = assertThrows(UploadRejectedException.class,
+                () -> service.finalise(session.getId(), alice));
+
+        assertEquals(HttpStatus.CONFLICT, e.getStatus());
+        verifyNoInteractions(storage);
+    }
+
+    @Test
+    void testFinaliseHandsPartFileToStorage() throws Exception {
+        UploadSession session = new UploadSession();
+        session.setUploader(alice);
+        session.setOriginalName("data.txt");
+        session.setChunkCount(2);
+        FileEntity stored = new FileEntity();
+        when(sessions.findById(session.getId())).thenReturn(Optional.of(session));
+        when(chunks.countBySessionId(session.getId())).thenReturn(2L);
+        when(sessions.transition(session.getId(), UploadSessionStatus.OPEN, UploadSessionStatus.FINALISING)).thenReturn(1);
+        when(storage.storeFile(root.resolve("uploads").resolve(session.getId() + ".part"), "data.txt", alice))
+                .thenReturn(stored);
+
+        assertSame(stored, service.finalise(session.getId(), alice));
+        assertEquals(UploadSessionStatus.COMPLETED, session.getStatus());
+        assertEquals(stored.getId(), session.getFileId());
+    }
+
+    @Test
+    void testConcurrentFinaliseIsRejected() {
+        UploadSession session = new UploadSession();
+        session.setUploader(alice);
+        session.setChunkCount(2);
+        when(sessions.findById(session.getId())).thenReturn(Optional.of(session));
+        when(chunks.countBySessionId(session.getId())).thenReturn(2L);
+        when(sessions.transition(session.getId(), UploadSessionStatus.OPEN, UploadSessionStatus.FINALISING)).thenReturn(0);
+
+        UploadRejectedException e = assertThrows(UploadRejectedException.class,
+                () -> service.finalise(session.getId(), alice));
+
+        assertEquals(HttpStatus.CONFLICT, e.getStatus());
+        verifyNoInteractions(storage);
+    }
+
+    @Test
+    void testFailedFinaliseReopensTheSession() throws Exception {
+        UploadSession session = new UploadSession();
+        session.setUploader(alice);
+        session.setOriginalName("data.txt");
+        session.setChunkCount(2);
+        when(sessions.findById(session.getId())).thenReturn(Optional.of(session));
+        when(chunks.countBySessionId(session.getId())).thenReturn(2L);
+        when(sessions.transition(session.getId(), UploadSessionStatus.OPEN, UploadSessionStatus.FINALISING)).thenReturn(1);
+        when(storage.storeFile(any(), eq("data.txt"), same(alice))).thenThrow(new IOException("disk full"));
+
+        assertThrows(IOException.class, () -> service.finalise(session.getId(), alice));
+
+        verify(sessions).transition(session.getId(), UploadSessionStatus.FINALISING, UploadSessionStatus.OPEN);
+    }
+
+    @Test
+    void testCreateRejectsSizesOverTheLimit() {
+        UploadRejectedException e = assertThrows(UploadRejectedException.class,
+                () -> service.create("big.zip", DataSize.ofMegabytes(2).toBytes(), alice));
+
+        assertEquals(HttpStatus.PAYLOAD_TOO_LARGE, e.getStatus());
+    }
+
+    private static User user(long id) {
+        User user = new User();
+        user.setId(id);
+        return user;
+    }
+
+    private static ByteArrayInputStream stream(String s) {
+        return new ByteArrayInputStream(s.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String sha256(String s) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(s.getBytes(StandardCharsets.UTF_8)));
+    }
+}
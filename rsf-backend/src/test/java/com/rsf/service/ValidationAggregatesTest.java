@@ -0,0 +1,72 @@
+package com.rsf.service;
+
+import com.rsf.rsf.domain.validation.RsfErrorType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ValidationAggregatesTest {
+
+    @Mock
+    private JdbcTemplate jdbc;
+
+    private ValidationAggregates aggregates;
+    private final LocalDate monday = LocalDate.of(2024, 3, 4);
+    private final LocalDate tuesday = monday.plusDays(1);
+
+    @BeforeEach
+    void setUp() {
+        aggregates = new ValidationAggregates(jdbc);
+    }
+
+    @Test
+    void testReplaceMovesCountsByDelta() {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        aggregates.replace(first, monday, Map.of("DATA_ERROR", 3L, "FORMAT_ERROR", 1L));
+        aggregates.replace(second, monday, Map.of("DATA_ERROR", 2L));
+        // Re-validated the next day with fewer errors
+        aggregates.replace(first, tuesday, Map.of("DATA_ERROR", 1L));
+
+        ValidationAggregates.Snapshot snapshot = aggregates.snapshot();
+        assertEquals(3, snapshot.totalErrors());
+        assertEquals(2, snapshot.filesWithErrors());
+        assertEquals(Map.of("DATA_ERROR", 3L), snapshot.errorsByType());
+        assertEquals(Map.of(monday, 2L, tuesday, 1L), snapshot.errorsByDay());
+        assertEquals(1, aggregates.count(first, null));
+        assertEquals(0, aggregates.count(first, RsfErrorType.FORMAT_ERROR));
+        assertEquals(3, aggregates.count(null, RsfErrorType.DATA_ERROR));
+
+        verify(jdbc, times(3)).update(startsWith("DELETE"), any(UUID.class));
+        verify(jdbc, times(3)).batchUpdate(anyString(), anyList());
+    }
+
+    @Test
+    void testClearedFileLeavesNoCountsAndChangesTheVersion() {
+        UUID file = UUID.randomUUID();
+        aggregates.replace(file, monday, Map.of("SEQUENCE_ERROR", 4L));
+        String version = aggregates.snapshot().version();
+
+        aggregates.replace(file, tuesday, Map.of());
+
+        ValidationAggregates.Snapshot snapshot = aggregates.snapshot();
+        assertNotEquals(version, snapshot.version());
+        assertEquals(0, snapshot.totalErrors());
+        assertEquals(0, snapshot.filesWithErrors());
+        assertTrue(snapshot.errorsByType().isEmpty());
+        assertTrue(snapshot.errorsByDay().isEmpty());
+        verify(jdbc, times(1)).batchUpdate(anyString(), anyList());
+    }
+}
@@ -0,0 +1,99 @@
+package com.rsf.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ValidationErrorExportTest {
+
+    @Mock
+    private ValidationErrorStore store;
+    @Mock
+    private ResultSet row;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ValidationErrorStore.Filter filter = new ValidationErrorStore.Filter(null, null, null);
+    private ValidationErrorExport export;
+
+    @BeforeEach
+    void setUp() {
+        export = new ValidationErrorExport(store, objectMapper);
+    }
+
+    /**
+     * Makes the store hand the same row to the writer {@code times} times.
+     */
+    private void streamRows(int times) throws SQLException {
+        when(row.getLong("id")).thenReturn(42L);
+        when(row.getString("file_id")).thenReturn("f1");
+        when(row.getString("original_name")).thenReturn("RSF_2024.txt");
+        when(row.getString("source")).thenReturn(null);
+        when(row.getInt("line_number")).thenReturn(7);
+        when(row.getString("field")).thenReturn("DATE_NAISSANCE");
+        when(row.getString("error_type")).thenReturn("FORMAT_ERROR");
+        when(row.getString("message")).thenReturn("Expected \"ddMMyyyy\", got 31,12");
+        when(row.getTimestamp("created_at")).thenReturn(null);
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            for (int i = 0; i < times; i++) {
+                handler.processRow(row);
+            }
+            return null;
+        }).when(store).export(eq(filter), any());
+    }
+
+    @Test
+    void testCsvQuotesValuesWithSeparatorsAndQuotes() throws Exception {
+        streamRows(2);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long written = export.write(filter, ValidationErrorExport.Format.CSV, out);
+
+        assertEquals(2, written);
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\r\n");
+        assertEquals(3, lines.length);
+        assertTrue(lines[0].startsWith("\uFEFFid,fileId,"));
+        assertEquals("42,f1,RSF_2024.txt,,7,DATE_NAISSANCE,FORMAT_ERROR,\"Expected \"\"ddMMyyyy\"\", got 31,12\",",
+                lines[1]);
+    }
+
+    @Test
+    void testNdjsonWritesOneObjectPerLine() throws Exception {
+        streamRows(3);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long written = export.write(filter, ValidationErrorExport.Format.NDJSON, out);
+
+        assertEquals(3, written);
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(3, lines.length);
+        JsonNode first = objectMapper.readTree(lines[0]);
+        assertEquals(42, first.get("id").asLong());
+        assertEquals("Expected \"ddMMyyyy\", got 31,12", first.get("message").asText());
+        assertTrue(first.get("source").isNull());
+    }
+
+    @Test
+    void testPlainValuesAreNotQuoted() throws IOException {
+        StringWriter writer = new StringWriter();
+        ValidationErrorExport.writeCsvValue(writer, "N_FINESS_EPMSI");
+        assertEquals("N_FINESS_EPMSI", writer.toString());
+    }
+}
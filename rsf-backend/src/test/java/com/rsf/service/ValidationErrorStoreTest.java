@@ -0,0 +1,110 @@
+package com.rsf.service;
+
+import com.rsf.dto.ValidationErrorDto;
+import com.rsf.rsf.domain.validation.RsfError;
+import com.rsf.rsf.domain.validation.RsfErrorType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ValidationErrorStoreTest {
+
+    @Mock
+    private JdbcTemplate jdbc;
+    @Mock
+    private ValidationAggregates aggregates;
+
+    private ValidationErrorStore store;
+    private final UUID fileId = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        store = new ValidationErrorStore(jdbc, aggregates);
+    }
+
+    private static ValidationErrorDto error(long id) {
+        return new ValidationErrorDto(id, null, null, null, 1, "FIELD", "DATA_ERROR", "bad", null);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void returnRows(List<ValidationErrorDto> rows) {
+        when(jdbc.query(anyString(), any(RowMapper.class), any(Object[].class))).thenReturn(rows);
+    }
+
+    @Test
+    void testBatchWritesInChunksAndReportsTheCount() {
+        long written;
+        try (ValidationErrorStore.Batch batch = store.open(fileId)) {
+            for (int i = 0; i < ValidationErrorStore.BATCH_SIZE + 5; i++) {
+                batch.accept("RSF_A.txt", new RsfError(i + 1, "FIELD", RsfErrorType.DATA_ERROR, "bad"));
+            }
+            // The first chunk is written as soon as it is full
+            verify(jdbc, times(1)).batchUpdate(anyString(), anyList());
+            written = batch.finish();
+        }
+
+        assertEquals(ValidationErrorStore.BATCH_SIZE + 5, written);
+        verify(jdbc, times(2)).batchUpdate(anyString(), anyList());
+        verify(aggregates).replace(eq(fileId), any(), eq(Map.of("DATA_ERROR", (long) ValidationErrorStore.BATCH_SIZE + 5)));
+        // Only the delete made by open(): a finished batch is kept
+        verify(jdbc, times(1)).update(startsWith("DELETE"), eq(fileId));
+    }
+
+    @Test
+    void testUnfinishedBatchRemovesItsRows() {
+        try (ValidationErrorStore.Batch batch = store.open(fileId)) {
+            batch.accept(null, new RsfError(1, "FIELD", RsfErrorType.DATA_ERROR, "bad"));
+        }
+
+        verify(jdbc, never()).batchUpdate(anyString(), anyList());
+        verify(jdbc, times(2)).update(startsWith("DELETE"), eq(fileId));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testListPagesByKeysetWithFiltersInSql() {
+        List<ValidationErrorDto> rows = new ArrayList<>();
+        for (long id = 100; id > 89; id--) {
+            rows.add(error(id));
+        }
+        returnRows(rows);
+
+        ValidationErrorStore.Page page = store.list(
+                new ValidationErrorStore.Filter(fileId, RsfErrorType.DATA_ERROR, null), 101L, 10);
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<Object[]> args = ArgumentCaptor.forClass(Object[].class);
+        verify(jdbc).query(sql.capture(), any(RowMapper.class), args.capture());
+        assertTrue(sql.getValue().contains("WHERE e.file_id = ? AND e.error_type = ? AND e.id < ?"));
+        assertTrue(sql.getValue().endsWith("ORDER BY e.id DESC LIMIT ?"));
+        assertFalse(sql.getValue().contains("OFFSET"));
+        assertArrayEquals(new Object[] {fileId, "DATA_ERROR", 101L, 11}, args.getValue());
+        assertEquals(10, page.errors().size());
+        assertEquals(91L, page.nextCursor());
+    }
+
+    @Test
+    void testLastPageHasNoCursor() {
+        returnRows(List.of(error(2), error(1)));
+
+        ValidationErrorStore.Page page = store.list(new ValidationErrorStore.Filter(null, null, null), null, 10);
+
+        assertEquals(2, page.errors().size());
+        assertNull(page.nextCursor());
+    }
+}
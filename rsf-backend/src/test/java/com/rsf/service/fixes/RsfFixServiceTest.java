@@ -0,0 +1,162 @@
+package com.rsf.service.fixes;
+
+import com.rsf.domain.FileEntity;
+import com.rsf.domain.User;
+import com.rsf.dto.ValidationErrorDto;
+import com.rsf.repo.FileRepo;
+import com.rsf.rsf.config.RsfMappingConfig;
+import com.rsf.rsf.service.RsfParsingService;
+import com.rsf.rsf.service.RsfValidationService;
+import com.rsf.service.FileStatusCache;
+import com.rsf.service.StorageService;
+import com.rsf.service.ValidationErrorStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RsfFixServiceTest {
+
+    @Mock
+    private FileRepo files;
+    @Mock
+    private StorageService storage;
+    @Mock
+    private ValidationErrorStore validationErrors;
+    @Mock
+    private FileStatusCache statuses;
+
+    @TempDir
+    Path root;
+
+    private RsfFixService service;
+    private final FileEntity file = new FileEntity();
+    private final User author = new User();
+    private final ValidationErrorStore.Filter noFilter = new ValidationErrorStore.Filter(null, null, null);
+
+    @BeforeEach
+    void setUp() {
+        RsfValidationService validation = new RsfValidationService();
+        validation.initialize();
+        service = new RsfFixService(files, storage, validationErrors, new RsfFixerRegistry(),
+                new RsfParsingService(new RsfMappingConfig()), validation, statuses);
+        ReflectionTestUtils.setField(service, "mappingYear", 2017);
+        ReflectionTestUtils.setField(service, "root", root);
+        file.setOriginalName("RSF_2024.txt");
+    }
+
+    /**
+     * An A line with a short FINESS (positions 2-10) and a yyyyMMdd birth date (positions 114-121).
+     */
+    private static String lineA(String finess, String birthDate) {
+        char[] line = new char[130];
+        Arrays.fill(line, ' ');
+        line[0] = 'A';
+        finess.getChars(0, finess.length(), line, 1);
+        birthDate.getChars(0, birthDate.length(), line, 113);
+        return new String(line);
+    }
+
+    private static ValidationErrorDto error(long id, int line, String field) {
+        return new ValidationErrorDto(id, null, null, null, line, field, "DATA_ERROR", "bad", null);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void pick(ValidationErrorDto... errors) {
+        doAnswer(invocation -> {
+            Consumer<ValidationErrorDto> action = invocation.getArgument(3);
+            for (ValidationErrorDto error : errors) {
+                action.accept(error);
+            }
+            return null;
+        }).when(validationErrors).select(eq(file.getId()), any(), any(), any(Consumer.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testFixesPickedFieldsIntoANewVersion() throws Exception {
+        String broken = lineA("12345", "19800131");
+        String untouched = "B untouched line";
+        String content = broken + "\r\n" + untouched + "\r\n" + broken + "\r\n";
+        when(files.findById(file.getId())).thenReturn(Optional.of(file));
+        when(storage.open(file)).thenReturn(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+        pick(error(1, 1, "N_FINESS_EPMSI"), error(2, 1, "DATE_NAISSANCE"), error(3, 1, "N_FINESS_EPMSI"),
+                error(4, 3, "DATE_NAISSANCE"));
+
+        FileEntity stored = new FileEntity();
+        String[] written = new String[1];
+        when(storage.storeFile(any(Path.class), eq("RSF_2024.txt"), same(author))).thenAnswer(invocation -> {
+            written[0] = Files.readString(invocation.getArgument(0));
+            return stored;
+        });
+        when(files.save(stored)).thenReturn(stored);
+        when(validationErrors.copyRevalidated(eq(file.getId()), eq(stored.getId()), anyList(), anyList())).thenReturn(7L);
+
+        RsfFixService.Result result = service.fix(file.getId(), null, noFilter, author);
+
+        String fixedFirst = lineA("000012345", "31011980");
+        String fixedThird = lineA("12345", "31011980");
+        assertEquals(fixedFirst + "\r\n" + untouched + "\r\n" + fixedThird + "\r\n", written[0]);
+        assertEquals(stored.getId(), result.versionId());
+        assertEquals(2, result.version());
+        assertEquals(file.getId(), stored.getParentId());
+        assertEquals(4, result.selected());
+        assertEquals(3, result.fixed());
+        assertEquals(2, result.linesRewritten());
+        assertEquals(7, result.remainingErrors());
+
+        ArgumentCaptor<List<ValidationErrorStore.LineError>> revalidated = ArgumentCaptor.forClass(List.class);
+        verify(validationErrors).copyRevalidated(eq(file.getId()), eq(stored.getId()), anyList(), revalidated.capture());
+        // The repaired fields are valid now, the short FINESS left on line 3 is found again
+        assertTrue(revalidated.getValue().stream().noneMatch(e -> e.error().getField().equals("DATE_NAISSANCE")));
+        assertTrue(revalidated.getValue().stream().anyMatch(e -> e.error().getLineNumber() == 3
+                && e.error().getField().equals("N_FINESS_EPMSI")));
+        assertTrue(revalidated.getValue().stream().noneMatch(e -> e.error().getLineNumber() == 1
+                && e.error().getField().equals("N_FINESS_EPMSI")));
+    }
+
+    @Test
+    void testNothingFixableMakesNoVersion() throws Exception {
+        when(files.findById(file.getId())).thenReturn(Optional.of(file));
+        when(storage.open(file)).thenReturn(new ByteArrayInputStream(
+                (lineA("12A45", "31/02/80") + "\n").getBytes(StandardCharsets.UTF_8)));
+        pick(error(1, 1, "N_FINESS_EPMSI"), error(2, 1, "DATE_NAISSANCE"));
+        when(validationErrors.count(any())).thenReturn(2L);
+
+        RsfFixService.Result result = service.fix(file.getId(), List.of(1L, 2L), noFilter, author);
+
+        assertNull(result.versionId());
+        assertEquals(0, result.fixed());
+        assertEquals(2, result.unfixable());
+        verify(storage, never()).storeFile(any(), any(), any());
+        try (var leftovers = Files.list(root)) {
+            assertEquals(0, leftovers.count());
+        }
+    }
+
+    @Test
+    void testUnknownFileIsRejected() {
+        UUID unknown = UUID.randomUUID();
+        when(files.findById(unknown)).thenReturn(Optional.empty());
+        assertThrows(IllegalArgumentException.class, () -> service.fix(unknown, null, noFilter, author));
+    }
+}
@@ -0,0 +1,60 @@
+package com.rsf.service.fixes;
+
+import com.rsf.rsf.domain.models.FieldDefinition;
+import com.rsf.rsf.domain.validation.FieldRule;
+import com.rsf.rsf.domain.validation.RsfErrorType;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RsfFixerRegistryTest {
+
+    private final RsfFixerRegistry registry = new RsfFixerRegistry();
+
+    private static FieldRule rule(FieldRule.FieldType type, Integer minLength, Integer maxLength) {
+        FieldRule rule = new FieldRule();
+        rule.setType(type);
+        rule.setMinLength(minLength);
+        rule.setMaxLength(maxLength);
+        return rule;
+    }
+
+    private String fix(String field, FieldRule rule, String value, int length) {
+        FieldDefinition definition = new FieldDefinition(field, 1, length);
+        for (RsfFixer fixer : registry.fixersFor(RsfErrorType.DATA_ERROR, field, rule)) {
+            String fixed = fixer.fix(value, definition, rule);
+            if (fixed != null) {
+                return fixed;
+            }
+        }
+        return null;
+    }
+
+    @Test
+    void testBuiltInFixers() {
+        FieldRule date = rule(FieldRule.FieldType.DATE, 8, 8);
+        assertEquals("31011980", fix("DATE_NAISSANCE", date, "19800131", 8));
+        assertEquals("05032024", fix("DATE_SOINS", date, "5/3/2024", 8));
+        assertNull(fix("DATE_SOINS", date, "31/02/24", 8));
+
+        assertEquals("000012345", fix("N_FINESS_EPMSI", rule(FieldRule.FieldType.NUMERIC, 9, 9), "12345    ", 9));
+        assertNull(fix("N_FINESS_EPMSI", rule(FieldRule.FieldType.NUMERIC, 9, 9), "12A45    ", 9));
+
+        assertEquals("12.50   ", fix("PRIX_UNITAIRE", rule(FieldRule.FieldType.DECIMAL, null, 7), "12,50   ", 8));
+        assertEquals("ABCDE ", fix("CODE_ACTE", rule(FieldRule.FieldType.TEXT, null, 5), "ABCDEF", 6));
+    }
+
+    @Test
+    void testFieldFixersComeBeforeTypeFixers() {
+        FieldRule text = rule(FieldRule.FieldType.TEXT, null, 5);
+        registry.register(RsfErrorType.DATA_ERROR, "CODE_ACTE", (value, field, rule) -> "FIXED ");
+
+        List<RsfFixer> fixers = registry.fixersFor(RsfErrorType.DATA_ERROR, "CODE_ACTE", text);
+
+        assertEquals(2, fixers.size());
+        assertEquals("FIXED ", fix("CODE_ACTE", text, "ABCDEF", 6));
+        assertTrue(registry.fixersFor(RsfErrorType.SEQUENCE_ERROR, "CODE_ACTE", text).isEmpty());
+    }
+}
@@ -0,0 +1,112 @@
+package com.rsf.service.imports;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImportJobSchedulerTest {
+
+    /** Executor that only runs tasks when the test says so */
+    private final Deque<Runnable> pending = new ArrayDeque<>();
+    private final List<String> started = new ArrayList<>();
+
+    private ImportJobScheduler scheduler(int maxConcurrent, int maxPerUser, int queueCapacity) {
+        return new ImportJobScheduler(pending::add, new SimpleMeterRegistry(),
+                maxConcurrent, maxPerUser, queueCapacity, 30);
+    }
+
+    private void submit(ImportJobScheduler scheduler, String name, String user, long size, boolean interactive) {
+        scheduler.submit(scheduler.reserve(user, size, interactive), () -> started.add(name));
+    }
+
+    private void runNext() {
+        pending.poll().run();
+    }
+
+    @Test
+    void testInteractiveAndSmallFilesStartFirst() {
+        ImportJobScheduler scheduler = scheduler(1, 10, 10);
+        submit(scheduler, "first", "a", 1_000, true);
+        submit(scheduler, "batch-small", "b", 10, false);
+        submit(scheduler, "interactive-large", "c", 5_000, true);
+        submit(scheduler, "interactive-small", "d", 100, true);
+
+        assertEquals(3, scheduler.getQueueDepth());
+        runNext();
+        runNext();
+        runNext();
+        runNext();
+
+        assertEquals(List.of("first", "interactive-small", "interactive-large", "batch-small"), started);
+        assertEquals(0, scheduler.getRunning());
+    }
+
+    @Test
+    void testPerUserCapLetsOtherUsersThrough() {
+        ImportJobScheduler scheduler = scheduler(2, 1, 10);
+        submit(scheduler, "a1", "a", 10, true);
+        submit(scheduler, "a2", "a", 10, true);
+        submit(scheduler, "b1", "b", 1_000, true);
+
+        assertEquals(2, scheduler.getRunning());
+        assertEquals(1, scheduler.getQueueDepth());
+        runNext();
+        runNext();
+        runNext();
+
+        assertEquals(List.of("a1", "b1", "a2"), started);
+    }
+
+    @Test
+    void testAnonymousUploadsAreNotCappedAsOneUser() {
+        ImportJobScheduler scheduler = scheduler(2, 1, 10);
+        submit(scheduler, "anonymous1", null, 10, true);
+        submit(scheduler, "anonymous2", null, 10, true);
+        submit(scheduler, "anonymous3", null, 10, true);
+
+        assertEquals(2, scheduler.getRunning());
+        assertEquals(1, scheduler.getQueueDepth());
+        runNext();
+        runNext();
+
+        assertEquals(List.of("anonymous1", "anonymous2"), started);
+        assertEquals(1, scheduler.getRunning());
+        runNext();
+        assertEquals(0, scheduler.getRunning());
+    }
+
+    @Test
+    void testFullQueueIsRejectedUntilReleased() {
+        ImportJobScheduler scheduler = scheduler(1, 1, 1);
+        submit(scheduler, "running", "a", 10, true);
+        ImportJobScheduler.ImportJob waiting = scheduler.reserve("b", 10, true);
+
+        ImportQueueFullException e = assertThrows(ImportQueueFullException.class,
+                () -> scheduler.reserve("c", 10, true));
+        assertEquals(30, e.getRetryAfterSeconds());
+
+        scheduler.release(waiting);
+        assertNotNull(scheduler.reserve("c", 10, true));
+    }
+
+    @Test
+    void testCancelDropsQueuedJobButNotRunningOne() {
+        ImportJobScheduler scheduler = scheduler(1, 10, 10);
+        scheduler.submit(scheduler.reserve("a", 10, true), "running", () -> started.add("running"));
+        scheduler.submit(scheduler.reserve("b", 10, true), "queued", () -> started.add("queued"));
+
+        assertFalse(scheduler.cancel("running"));
+        assertTrue(scheduler.cancel("queued"));
+        assertEquals(0, scheduler.getQueueDepth());
+        runNext();
+
+        assertEquals(List.of("running"), started);
+        assertTrue(pending.isEmpty());
+    }
+}
@@ -0,0 +1,149 @@
+package com.rsf.service.imports;
+
+import com.rsf.domain.ImportJobStatus;
+import com.rsf.service.ImportJobService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ImportProgressPublisherTest {
+
+    @Mock
+    private ImportJobService importJobs;
+
+    /** Sender tasks, run by {@link #send} or right away when {@link #direct} */
+    private final Queue<Runnable> senders = new ArrayDeque<>();
+    private boolean direct = true;
+
+    private ImportProgressPublisher publisher;
+
+    @BeforeEach
+    void setUp() {
+        publisher = new ImportProgressPublisher(importJobs, task -> {
+            if (direct) {
+                task.run();
+            } else {
+                senders.add(task);
+            }
+        }, 4);
+    }
+
+    private void send() {
+        Runnable task;
+        while ((task = senders.poll()) != null) {
+            task.run();
+        }
+    }
+
+    /** Records what a client was sent */
+    private static class RecordingSink implements ProgressSink {
+        final List<String> events = new ArrayList<>();
+        boolean closed;
+
+        @Override
+        public boolean send(String type, Object payload) {
+            events.add(type);
+            return true;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    @Test
+    void testOnlyChangesAreSentAndIntermediateUpdatesCoalesce() {
+        ImportJobState state = new ImportJobState("f1", "txt", ImportJobStatus.RUNNING, 10);
+        when(importJobs.find("f1")).thenReturn(Optional.of(state));
+        RecordingSink sink = new RecordingSink();
+        publisher.subscribe("f1", sink);
+
+        publisher.flush();
+        publisher.flush();
+        state.setProgress(30);
+        state.setProgress(40);
+        publisher.flush();
+
+        assertEquals(List.of("stage", "progress", "progress"), sink.events);
+        assertFalse(sink.closed);
+    }
+
+    @Test
+    void testFinishedJobSendsResultAndReleasesSubscriber() {
+        ImportJobState state = new ImportJobState("f1", "txt", ImportJobStatus.COMPLETED, 100);
+        when(importJobs.find("f1")).thenReturn(Optional.of(state));
+        when(importJobs.loadResult("f1")).thenReturn(Optional.of(Map.of("recordCount", 3)));
+        RecordingSink sink = new RecordingSink();
+        publisher.subscribe("f1", sink);
+
+        publisher.flush();
+
+        assertEquals(List.of("stage", "progress", "result"), sink.events);
+        assertTrue(sink.closed);
+        assertEquals(0, publisher.getSubscriberCount());
+    }
+
+    @Test
+    void testFlushOnlyQueuesAndSendersDeliverInOrder() {
+        direct = false;
+        ImportJobState state = new ImportJobState("f1", "txt", ImportJobStatus.RUNNING, 10);
+        when(importJobs.find("f1")).thenReturn(Optional.of(state));
+        RecordingSink sink = new RecordingSink();
+        publisher.subscribe("f1", sink);
+
+        publisher.flush();
+        state.setProgress(20);
+        publisher.flush();
+        assertTrue(sink.events.isEmpty());
+
+        send();
+        assertEquals(List.of("stage", "progress", "progress"), sink.events);
+    }
+
+    @Test
+    void testClientThatFallsBehindIsDropped() {
+        direct = false;
+        ImportJobState state = new ImportJobState("f1", "txt", ImportJobStatus.RUNNING, 0);
+        when(importJobs.find("f1")).thenReturn(Optional.of(state));
+        RecordingSink sink = new RecordingSink();
+        publisher.subscribe("f1", sink);
+
+        // Its sender never gets to run while the progress moves on
+        for (int progress = 1; progress <= 5; progress++) {
+            state.setProgress(progress);
+            publisher.flush();
+        }
+
+        assertEquals(0, publisher.getSubscriberCount());
+        send();
+        assertTrue(sink.events.isEmpty());
+        assertTrue(sink.closed);
+    }
+
+    @Test
+    void testUnsubscribeStopsUpdates() {
+        RecordingSink sink = new RecordingSink();
+        ImportProgressPublisher.Subscription subscription = publisher.subscribe("f1", sink);
+        publisher.unsubscribe(subscription);
+        publisher.unsubscribe(subscription);
+
+        publisher.flush();
+
+        assertTrue(sink.events.isEmpty());
+        assertEquals(0, publisher.getSubscriberCount());
+    }
+}
@@ -0,0 +1,86 @@
+package com.rsf.service.imports;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImportStatsAccumulatorTest {
+
+    private static final String OMITTED = "omitted";
+
+    @Test
+    void testMergeMatchesSingleAccumulator() {
+        ImportStatsAccumulator sequential = new ImportStatsAccumulator(10, OMITTED);
+        ImportStatsAccumulator first = new ImportStatsAccumulator(10, OMITTED);
+        ImportStatsAccumulator second = new ImportStatsAccumulator(10, OMITTED);
+
+        feed(sequential, 'A', "05012023", "err-1");
+        feed(sequential, 'B', "01012023", "err-2");
+        feed(sequential, 'B', "31122023", "err-3");
+        feed(first, 'A', "05012023", "err-1");
+        feed(second, 'B', "01012023", "err-2");
+        feed(second, 'B', "31122023", "err-3");
+
+        ImportStatsAccumulator merged = new ImportStatsAccumulator(10, OMITTED);
+        merged.merge(first);
+        merged.merge(second);
+
+        assertEquals(sequential.getRecordCount(), merged.getRecordCount());
+        assertEquals(sequential.getErrorCount(), merged.getErrorCount());
+        assertEquals(sequential.getLineTypeCounts(), merged.getLineTypeCounts());
+        assertEquals(sequential.getFirstDateSoins(), merged.getFirstDateSoins());
+        assertEquals(sequential.getLastDateSoins(), merged.getLastDateSoins());
+        assertEquals(sequential.getErrorDetails(), merged.getErrorDetails());
+        assertEquals(sequential.getSampleRecords(), merged.getSampleRecords());
+    }
+
+    @Test
+    void testErrorDetailCapKeepsCountingAndMarksOverflowOnce() {
+        ImportStatsAccumulator first = new ImportStatsAccumulator(2, OMITTED);
+        ImportStatsAccumulator second = new ImportStatsAccumulator(2, OMITTED);
+        first.recordError("a");
+        first.recordError("b");
+        first.recordError("c");
+        second.recordError("d");
+
+        ImportStatsAccumulator merged = new ImportStatsAccumulator(2, OMITTED);
+        merged.merge(first);
+        merged.merge(second);
+
+        assertEquals(4, merged.getErrorCount());
+        assertEquals(List.of("a", "b", OMITTED), merged.getErrorDetails());
+    }
+
+    @Test
+    void testLazyErrorDetailIsNotBuiltOverCap() {
+        ImportStatsAccumulator stats = new ImportStatsAccumulator(1, OMITTED);
+        stats.recordError(() -> "first");
+        stats.recordError(() -> {
+            throw new AssertionError("detail built over the cap");
+        });
+
+        assertEquals(2, stats.getErrorCount());
+        assertEquals(List.of("first", OMITTED), stats.getErrorDetails());
+    }
+
+    @Test
+    void testSamplesAreCapped() {
+        ImportStatsAccumulator stats = new ImportStatsAccumulator(10, OMITTED);
+        for (int i = 0; i < ImportStatsAccumulator.MAX_SAMPLE_RECORDS + 3; i++) {
+            stats.addSample("row " + i);
+        }
+        assertFalse(stats.wantsSample());
+        assertEquals(ImportStatsAccumulator.MAX_SAMPLE_RECORDS, stats.getSampleRecords().size());
+        assertEquals("row 0", stats.getSampleRecords().get(0));
+    }
+
+    private void feed(ImportStatsAccumulator stats, char lineType, String dateSoins, String error) {
+        stats.countRecord();
+        stats.countLineType(lineType);
+        stats.observeDateSoins(dateSoins);
+        stats.recordError(error);
+        stats.addSample(lineType + dateSoins);
+    }
+}
@@ -0,0 +1,57 @@
+package com.rsf.service.imports;
+
+import com.rsf.util.CountingInputStream;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProgressTrackerTest {
+
+    @Test
+    void testPublishesOnlyWhenPercentageRises() {
+        List<Integer> published = new ArrayList<>();
+        ProgressTracker tracker = new ProgressTracker(1000, 20, 90, 0, published::add);
+
+        tracker.moveTo(5);     // still 20%
+        tracker.moveTo(500);
+        tracker.moveTo(400);   // never moves backwards
+        tracker.moveTo(2000);  // clamped to the end of the range
+
+        assertEquals(List.of(55, 90), published);
+    }
+
+    @Test
+    void testThrottlesButCompleteAlwaysPublishes() {
+        List<Integer> published = new ArrayList<>();
+        ProgressTracker tracker = new ProgressTracker(100, 0, 100, 60_000, published::add);
+
+        tracker.advance(10);
+        tracker.advance(10);
+        tracker.advance(10);
+        tracker.complete();
+
+        assertEquals(List.of(10, 100), published);
+    }
+
+    @Test
+    void testCountingStreamDrivesTrackerInOnePass() throws Exception {
+        byte[] data = new byte[10_000];
+        List<Integer> published = new ArrayList<>();
+        ProgressTracker tracker = new ProgressTracker(data.length, 0, 100, 0, published::add);
+
+        try (CountingInputStream in = new CountingInputStream(new ByteArrayInputStream(data), tracker::moveTo)) {
+            byte[] buffer = new byte[1000];
+            while (in.read(buffer) > 0) {
+                // drain
+            }
+            assertEquals(data.length, in.getCount());
+        }
+
+        assertEquals(10, published.size());
+        assertEquals(100, published.get(published.size() - 1));
+    }
+}
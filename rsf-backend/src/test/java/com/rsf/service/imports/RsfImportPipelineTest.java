@@ -0,0 +1,171 @@
+package com.rsf.service.imports;
+
+import com.rsf.rsf.config.RsfMappingConfig;
+import com.rsf.rsf.domain.models.FieldDefinition;
+import com.rsf.rsf.domain.validation.RsfError;
+import com.rsf.rsf.domain.validation.RsfErrorType;
+import com.rsf.rsf.service.RsfParsingService;
+import com.rsf.rsf.service.RsfValidationService;
+import com.rsf.util.CancellationToken;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RsfImportPipelineTest {
+
+    private final RsfParsingService parsing = new RsfParsingService(new RsfMappingConfig());
+    private final RsfValidationService validation = new RsfValidationService();
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        validation.initialize();
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private RsfImportPipeline pipeline(int batchLines) {
+        return new RsfImportPipeline(parsing, validation, executor, 2017, batchLines, 1, 2, 2);
+    }
+
+    private static List<String> lines(int stays) {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < stays; i++) {
+            lines.add("A" + "0".repeat(20) + i);
+            lines.add("B" + "1".repeat(10 + i % 7));
+            lines.add("C" + "x".repeat(120));
+            lines.add("");
+            lines.add("Z unmapped");
+        }
+        return lines;
+    }
+
+    @Test
+    void testPipelineFindsTheSameErrorsAsSequentialValidation() {
+        List<String> lines = lines(500);
+        Map<Character, List<FieldDefinition>> mappings = parsing.mappingsFor(2017);
+        List<String> expected = new ArrayList<>();
+        int parsed = 0;
+        for (int i = 0; i < lines.size(); i++) {
+            Map<String, String> fields = parsing.parseLine(lines.get(i), i + 1, mappings);
+            if (fields != null) {
+                parsed++;
+                for (RsfError error : validation.validateLine(lines.get(i).charAt(0), fields, i + 1, lines.get(i))) {
+                    expected.add(error.getLineNumber() + ":" + error.getField());
+                }
+            }
+        }
+
+        ConcurrentLinkedQueue<String> found = new ConcurrentLinkedQueue<>();
+        RsfImportPipeline.Summary summary;
+        try (RsfImportPipeline.Run run = pipeline(7).start(
+                (source, error) -> found.add(error.getLineNumber() + ":" + error.getField()), CancellationToken.NONE)) {
+            RsfImportPipeline.Batcher batcher = run.batcher("RSF_TEST.txt");
+            for (int i = 0; i < lines.size(); i++) {
+                batcher.add(i + 1, lines.get(i));
+            }
+            batcher.flush();
+            summary = run.finish();
+        }
+
+        assertEquals(lines.size(), summary.linesRead());
+        assertEquals(parsed, summary.linesParsed());
+        assertEquals(expected.size(), summary.errorCount());
+        assertEquals(500L, summary.parsedPerType().get('A'));
+        List<String> sorted = new ArrayList<>(found);
+        sorted.sort(Comparator.naturalOrder());
+        expected.sort(Comparator.naturalOrder());
+        assertEquals(expected, sorted);
+    }
+
+    @Test
+    void testParsedLinesReachTheLineSink() {
+        List<String> lines = lines(200);
+        ConcurrentLinkedQueue<String> received = new ConcurrentLinkedQueue<>();
+        RsfImportPipeline.Summary summary;
+        try (RsfImportPipeline.Run run = pipeline(5).start((source, error) -> { },
+                (source, lineNumber, lineType, fields) -> received.add(source + ":" + lineNumber + ":" + lineType
+                        + ":" + fields.get("TYPE_ENREGISTREMENT")), CancellationToken.NONE)) {
+            RsfImportPipeline.Batcher batcher = run.batcher("RSF_TEST.txt");
+            for (int i = 0; i < lines.size(); i++) {
+                batcher.add(i + 1, lines.get(i));
+            }
+            batcher.flush();
+            summary = run.finish();
+        }
+
+        assertEquals(summary.linesParsed(), received.size());
+        assertTrue(received.contains("RSF_TEST.txt:1:A:A"));
+        assertTrue(received.contains("RSF_TEST.txt:2:B:B"));
+        assertTrue(received.stream().noneMatch(line -> line.contains(":Z:")));
+    }
+
+    @Test
+    void testRunWithoutBOrCLinesReportsTheMissingLinesOnce() {
+        ConcurrentLinkedQueue<RsfError> found = new ConcurrentLinkedQueue<>();
+        RsfImportPipeline.Summary summary;
+        try (RsfImportPipeline.Run run = pipeline(2).start((source, error) -> found.add(error), CancellationToken.NONE)) {
+            RsfImportPipeline.Batcher batcher = run.batcher("RSF_TEST.txt");
+            for (int i = 0; i < 10; i++) {
+                batcher.add(i + 1, "A" + "0".repeat(20) + i);
+            }
+            batcher.flush();
+            summary = run.finish();
+        }
+
+        List<RsfError> structural = found.stream().filter(error -> error.getErrorType() == RsfErrorType.STRUCTURAL).toList();
+        assertEquals(1, structural.size());
+        assertEquals(0, structural.get(0).getLineNumber());
+        assertEquals(found.size(), summary.errorCount());
+    }
+
+    @Test
+    void testFailingWorkerFailsTheRun() {
+        try (RsfImportPipeline.Run run = pipeline(2).start((source, error) -> {
+            throw new IllegalArgumentException("sink down");
+        }, CancellationToken.NONE)) {
+            RsfImportPipeline.Batcher batcher = run.batcher("RSF_TEST.txt");
+            List<String> lines = lines(1_000);
+            IllegalStateException e = assertThrows(IllegalStateException.class, () -> {
+                for (int i = 0; i < lines.size(); i++) {
+                    batcher.add(i + 1, lines.get(i));
+                }
+                batcher.flush();
+                run.finish();
+            });
+            assertTrue(e.getMessage().contains("sink down"));
+        }
+    }
+
+    @Test
+    void testCancelledRunStopsTheReader() {
+        CancellationToken cancellation = new CancellationToken();
+        try (RsfImportPipeline.Run run = pipeline(2).start((source, error) -> { }, cancellation)) {
+            RsfImportPipeline.Batcher batcher = run.batcher("RSF_TEST.txt");
+            cancellation.cancel();
+            List<String> lines = lines(1_000);
+            assertThrows(CancellationException.class, () -> {
+                for (int i = 0; i < lines.size(); i++) {
+                    batcher.add(i + 1, lines.get(i));
+                }
+                batcher.flush();
+                run.finish();
+            });
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.rsf.benchmarks;
+
+import com.rsf.rsf.config.RsfFieldMapping2017;
+import com.rsf.rsf.domain.models.ExcelParsingResult;
+import com.rsf.rsf.service.ExcelParserService;
+import com.rsf.rsf.service.RsfIntegrationService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ExcelParserService} reading HORAIRE workbooks and zipped LIGNES workbooks.
+ * <p>
+ * Workbooks are loaded whole by POI, so sizes stop at 100k rows by default; larger sheets
+ * (up to Excel's 1,048,576 rows) can be run with {@code -p rows=1000000} and a larger heap
+ * ({@code -jvmArgsAppend -Xmx16g}).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class ExcelParserBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Horaire {
+        @Param({"10000", "100000"})
+        int rows;
+
+        ExcelParserService excel;
+        byte[] workbook;
+
+        @Setup
+        public void setUp() {
+            excel = new ExcelParserService(new RsfFieldMapping2017(), new RsfIntegrationService());
+            workbook = RsfDatasets.horaireWorkbook(rows);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Lignes {
+        @Param({"10000", "100000"})
+        int rows;
+
+        ExcelParserService excel;
+        byte[] zip;
+
+        @Setup
+        public void setUp() {
+            excel = new ExcelParserService(new RsfFieldMapping2017(), new RsfIntegrationService());
+            zip = RsfDatasets.lignesZip('A', rows);
+        }
+    }
+
+    @Benchmark
+    public ExcelParsingResult parseHoraireWorkbook(Horaire horaire) {
+        return horaire.excel.parseHoraireWorkbook(new ByteArrayInputStream(horaire.workbook), "HORAIRES_BENCH.xlsx");
+    }
+
+    @Benchmark
+    public ExcelParsingResult parseLignesZip(Lignes lignes) {
+        return lignes.excel.parseExcelFromZip(new ByteArrayInputStream(lignes.zip), "LIGNES_BENCH.zip");
+    }
+}
@@ -0,0 +1,69 @@
+package com.rsf.benchmarks;
+
+import com.rsf.rsf.utils.ExcelParsingUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+/**
+ * {@link ExcelParsingUtils#normalizeDate} per input format, over rotating dates.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExcelParsingUtilsBenchmark {
+
+    /**
+     * Date formats found in the workbooks, from the one kept as is to the one never converted.
+     */
+    public enum Format {
+        YYYYMMDD(i -> "2017" + RsfDatasets.digits(1 + i % 12, 2) + RsfDatasets.digits(1 + i % 28, 2)),
+        ISO(i -> "2017-" + RsfDatasets.digits(1 + i % 12, 2) + "-" + RsfDatasets.digits(1 + i % 28, 2)),
+        EUROPEAN(i -> RsfDatasets.digits(1 + i % 28, 2) + "/" + RsfDatasets.digits(1 + i % 12, 2) + "/2017"),
+        EXCEL_SERIAL(i -> Integer.toString(42736 + i % 365)),
+        UNPARSABLE(i -> "le " + i % 28 + " mars");
+
+        private final IntFunction<String> sample;
+
+        Format(IntFunction<String> sample) {
+            this.sample = sample;
+        }
+    }
+
+    private static final int SAMPLES = 1024;
+
+    @Param
+    Format format;
+
+    private String[] dates;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        dates = new String[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            dates[i] = format.sample.apply(i);
+        }
+    }
+
+    @Benchmark
+    public String normalizeDate() {
+        String date = dates[next];
+        next = (next + 1) & (SAMPLES - 1);
+        return ExcelParsingUtils.normalizeDate(date);
+    }
+}
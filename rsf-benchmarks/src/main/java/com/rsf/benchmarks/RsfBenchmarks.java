@@ -0,0 +1,34 @@
+package com.rsf.benchmarks;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of {@code benchmarks.jar}: the JMH command line, with the GC profiler always on
+ * so every result comes with its allocation rate per operation ({@code gc.alloc.rate.norm})
+ * and the collections it caused.
+ */
+public final class RsfBenchmarks {
+
+    private RsfBenchmarks() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions cli = new CommandLineOptions(args);
+        if (cli.shouldHelp() || cli.shouldList() || cli.shouldListWithParams()
+                || cli.shouldListProfilers() || cli.shouldListResultFormats()) {
+            Main.main(args);
+            return;
+        }
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(cli);
+        if (cli.getProfilers().stream().noneMatch(profiler -> GCProfiler.class.getName().equals(profiler.getKlass())
+                || "gc".equals(profiler.getKlass()))) {
+            options.addProfiler(GCProfiler.class);
+        }
+        new Runner(options.build()).run();
+    }
+}
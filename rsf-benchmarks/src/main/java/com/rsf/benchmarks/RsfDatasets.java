@@ -0,0 +1,213 @@
+package com.rsf.benchmarks;
+
+import com.rsf.rsf.config.RsfFieldMapping2017;
+import com.rsf.rsf.config.RsfMappingConfig;
+import com.rsf.rsf.domain.models.FieldDefinition;
+import com.rsf.rsf.domain.validation.FieldRule;
+import com.rsf.rsf.exception.RsfParsingException;
+import com.rsf.rsf.service.RsfParsingService;
+import com.rsf.rsf.service.RsfValidationService;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Synthetic RSF datasets for the benchmarks.
+ * <p>
+ * Files are made of stays laid out as {@value #STAY}: one A line followed by its B, C and M
+ * lines, sharing the stay's entry and insurance numbers. Fields are filled from the 2017
+ * layout and field rules, so the lines parse and mostly validate like real ones. Everything
+ * is derived from the line index: the same size always gives the same data.
+ */
+final class RsfDatasets {
+    static final int YEAR = 2017;
+    /** Line types of one stay, in file order */
+    static final String STAY = "ABBCM";
+    static final String FINESS = "750712184";
+
+    private static final String[] ACTES = {"C", "CS", "APC", "K", "ZBQK002", "YYYY010", "DEQP003"};
+
+    private RsfDatasets() {
+    }
+
+    static RsfParsingService parsing() {
+        return new RsfParsingService(new RsfMappingConfig());
+    }
+
+    static RsfValidationService validation() {
+        RsfValidationService validation = new RsfValidationService();
+        validation.initialize();
+        return validation;
+    }
+
+    /**
+     * @return An RSF file of {@code lines} lines, as stored
+     */
+    static byte[] rsfFile(int lines) {
+        Map<Character, List<FieldDefinition>> mappings = parsing().mappingsFor(YEAR);
+        RsfValidationService rules = validation();
+        StringBuilder file = new StringBuilder(lines * 200);
+        for (int i = 0; i < lines; i++) {
+            char lineType = STAY.charAt(i % STAY.length());
+            file.append(line(lineType, i / STAY.length(), i, mappings.get(lineType), rules)).append('\n');
+        }
+        return file.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return The lines of {@link #rsfFile}, parsed per line type
+     */
+    static Map<Character, List<Map<String, String>>> rsfData(int lines) {
+        try {
+            return parsing().parseRsfFile(new ByteArrayInputStream(rsfFile(lines)), YEAR);
+        } catch (RsfParsingException e) {
+            throw new IllegalStateException("Could not parse the generated RSF file", e);
+        }
+    }
+
+    private static String line(char lineType, int stay, int index, List<FieldDefinition> fields, RsfValidationService rules) {
+        int length = fields.stream().mapToInt(FieldDefinition::getEndIndex).max().orElse(1);
+        char[] line = new char[length];
+        Arrays.fill(line, ' ');
+        for (FieldDefinition field : fields) {
+            String value = value(lineType, field.getName(), rules.getFieldRule(lineType, field.getName()), stay, index);
+            value.getChars(0, Math.min(value.length(), field.getLength()), line, field.getStartIndex());
+        }
+        return new String(line);
+    }
+
+    private static String value(char lineType, String field, FieldRule rule, int stay, int index) {
+        switch (field) {
+            case "TYPE_ENREGISTREMENT":
+                return String.valueOf(lineType);
+            case "N_FINESS_EPMSI":
+            case "N_FINESS_GEOGRAPHIQUE":
+                return FINESS;
+            case "N_IMMATRICULATION_ASSURE":
+                return digits(1_000_000_000L + stay, 13);
+            case "N_ENTREE":
+                return digits(stay, 9);
+            case "CODE_ACTE":
+            case "CODE_CCAM":
+                return ACTES[index % ACTES.length];
+            default:
+                break;
+        }
+        if (rule == null || rule.getType() == null) {
+            return "";
+        }
+        int width = rule.getMinLength() != null ? rule.getMinLength() : rule.getMaxLength() != null ? rule.getMaxLength() : 1;
+        return switch (rule.getType()) {
+            case DATE -> ddMMyyyy(stay);
+            case NUMERIC -> digits(1 + index % 7, width);
+            case DECIMAL -> (index % 500) + "." + (index % 100 < 10 ? "0" : "") + index % 100;
+            case BOOLEAN -> "1";
+            case TEXT -> "X";
+        };
+    }
+
+    static String digits(long value, int width) {
+        String digits = Long.toString(value);
+        if (digits.length() >= width) {
+            return digits.substring(digits.length() - width);
+        }
+        return "0".repeat(width - digits.length()) + digits;
+    }
+
+    private static String ddMMyyyy(int stay) {
+        return digits(1 + stay % 28, 2) + digits(1 + stay % 12, 2) + YEAR;
+    }
+
+    /**
+     * @return A HORAIRES_ workbook of {@code rows} valid rows
+     */
+    static byte[] horaireWorkbook(int rows) {
+        return workbook(RsfFieldMapping2017.HORAIRE_EXPECTED_HEADERS, rows, (row, column) -> switch (column) {
+            case 0 -> digits(1_000_000_000L + row, RsfFieldMapping2017.HORAIRE_NUM_IMMATRICULATION_LENGTH);
+            case 1 -> "19" + digits(50 + row % 50, 2) + digits(1 + row % 12, 2) + digits(1 + row % 28, 2);
+            case 2 -> YEAR + digits(1 + row % 12, 2) + digits(1 + row % 28, 2);
+            case 3 -> "ACT" + digits(row % 100, 2);
+            default -> digits(row % 24, 2) + ":" + digits(row % 60, 2);
+        });
+    }
+
+    /**
+     * @return A ZIP holding a LIGNES_ workbook of {@code rows} rows of {@code lineType}
+     */
+    static byte[] lignesZip(char lineType, int rows) {
+        List<String> headers = RsfFieldMapping2017.LIGNES_HEADERS_MAP.get(lineType);
+        Map<String, RsfFieldMapping2017.FieldSpec> specs = RsfFieldMapping2017.LIGNES_FIELD_SPECS_MAP.getOrDefault(lineType, Map.of());
+        byte[] workbook = workbook(headers, rows, (row, column) -> {
+            String header = headers.get(column);
+            return switch (header) {
+                case "TYPE_ENREGISTREMENT" -> String.valueOf(lineType);
+                case "N_FINESS_EPMSI", "N_FINESS_GEOGRAPHIQUE" -> FINESS;
+                case "N_ENTREE" -> digits(row, 9);
+                default -> lignesValue(specs.get(header), row);
+            };
+        });
+        ByteArrayOutputStream zip = new ByteArrayOutputStream(workbook.length + 512);
+        try (ZipOutputStream out = new ZipOutputStream(zip)) {
+            out.putNextEntry(new ZipEntry("LIGNES_" + lineType + "_BENCH.xlsx"));
+            out.write(workbook);
+            out.closeEntry();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return zip.toByteArray();
+    }
+
+    private static String lignesValue(RsfFieldMapping2017.FieldSpec spec, int row) {
+        if (spec == null) {
+            return "";
+        }
+        int width = Math.max(spec.length(), 1);
+        return switch (spec.type()) {
+            case NUMERIC -> digits(row, width);
+            case NUMERIC_DECIMAL -> digits(row % 500 * 100L + 50, width);
+            case DATE -> YEAR + digits(1 + row % 12, 2) + digits(1 + row % 28, 2);
+            default -> "X".repeat(width);
+        };
+    }
+
+    private interface Cells {
+        String value(int row, int column);
+    }
+
+    private static byte[] workbook(List<String> headers, int rows, Cells cells) {
+        // Streamed, so even the largest workbooks are written in constant memory
+        try (SXSSFWorkbook workbook = new SXSSFWorkbook(1000)) {
+            Sheet sheet = workbook.createSheet("Sheet1");
+            Row header = sheet.createRow(0);
+            for (int column = 0; column < headers.size(); column++) {
+                header.createCell(column).setCellValue(headers.get(column));
+            }
+            for (int row = 0; row < rows; row++) {
+                Row line = sheet.createRow(row + 1);
+                for (int column = 0; column < headers.size(); column++) {
+                    String value = cells.value(row, column);
+                    if (!value.isEmpty()) {
+                        line.createCell(column).setCellValue(value);
+                    }
+                }
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            workbook.write(out);
+            workbook.dispose();
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.rsf.benchmarks;
+
+import com.rsf.rsf.domain.models.ExcelParsingResult;
+import com.rsf.rsf.domain.models.HoraireUpdateRecord;
+import com.rsf.rsf.domain.validation.RsfValidationResult;
+import com.rsf.rsf.service.RsfIntegrationService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link RsfIntegrationService} merging HORAIRE updates and LIGNES records into a parsed
+ * dataset, with the records spread over the whole file.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class RsfIntegrationBenchmark {
+
+    /**
+     * Updates that each match one B line, and so set its horaire again on every call.
+     */
+    @State(Scope.Benchmark)
+    public static class Horaire {
+        @Param({"10000", "100000", "1000000"})
+        int lines;
+
+        @Param({"100", "1000"})
+        int updates;
+
+        final RsfIntegrationService integration = new RsfIntegrationService();
+        Map<Character, List<Map<String, String>>> data;
+        ExcelParsingResult workbook;
+
+        @Setup
+        public void setUp() {
+            data = RsfDatasets.rsfData(lines);
+            Map<String, String> birthDates = new HashMap<>();
+            data.get('A').forEach(a -> birthDates.put(a.get("N_ENTREE"), a.get("DATE_NAISSANCE")));
+            List<Map<String, String>> bLines = data.get('B');
+            List<HoraireUpdateRecord> records = new ArrayList<>(updates);
+            for (int i = 0; i < updates; i++) {
+                Map<String, String> b = bLines.get((int) ((long) i * bLines.size() / updates));
+                records.add(new HoraireUpdateRecord(i + 2, b.get("N_IMMATRICULATION_ASSURE"), birthDates.get(b.get("N_ENTREE")),
+                        b.get("DATE_SOINS"), b.get("CODE_ACTE"), "09:30"));
+            }
+            workbook = ExcelParsingResult.horaireResult(records, new RsfValidationResult(), updates);
+        }
+    }
+
+    /**
+     * B records, half replacing existing lines and half new; the new ones are removed again
+     * before each call.
+     */
+    @State(Scope.Benchmark)
+    public static class Lignes {
+        @Param({"10000", "100000", "1000000"})
+        int lines;
+
+        @Param({"100", "1000"})
+        int records;
+
+        final RsfIntegrationService integration = new RsfIntegrationService();
+        Map<Character, List<Map<String, String>>> data;
+        ExcelParsingResult workbook;
+        private int bLines;
+
+        @Setup
+        public void setUp() {
+            data = RsfDatasets.rsfData(lines);
+            List<Map<String, String>> existing = data.get('B');
+            bLines = existing.size();
+            List<Map<String, String>> rows = new ArrayList<>(records);
+            for (int i = 0; i < records; i++) {
+                Map<String, String> row = new HashMap<>(existing.get((int) ((long) i * bLines / records)));
+                if (i % 2 == 0) {
+                    row.put("MONTANT_HONORAIRE", "99.99");
+                } else {
+                    row.put("N_ENTREE", RsfDatasets.digits(lines + i, 9));
+                }
+                rows.add(row);
+            }
+            workbook = ExcelParsingResult.lignesResult(rows, new RsfValidationResult(), records, 'B');
+        }
+
+        @Setup(Level.Invocation)
+        public void removeAddedLines() {
+            List<Map<String, String>> existing = data.get('B');
+            existing.subList(bLines, existing.size()).clear();
+        }
+    }
+
+    @Benchmark
+    public RsfIntegrationService.RsfIntegrationResult integrateHoraireUpdates(Horaire horaire) {
+        return horaire.integration.integrateHoraireUpdates(horaire.workbook, horaire.data);
+    }
+
+    @Benchmark
+    public RsfIntegrationService.RsfIntegrationResult integrateLignesRecords(Lignes lignes) {
+        return lignes.integration.integrateLignesRecords(lignes.workbook, lignes.data);
+    }
+}
@@ -0,0 +1,49 @@
+package com.rsf.benchmarks;
+
+import com.rsf.rsf.exception.RsfParsingException;
+import com.rsf.rsf.service.RsfParsingService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link RsfParsingService#parseRsfFile} on a whole file held in memory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class RsfParsingBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    int lines;
+
+    private RsfParsingService parsing;
+    private byte[] file;
+
+    @Setup
+    public void setUp() {
+        parsing = RsfDatasets.parsing();
+        file = RsfDatasets.rsfFile(lines);
+    }
+
+    @Benchmark
+    public Map<Character, List<Map<String, String>>> parseRsfFile() throws RsfParsingException {
+        return parsing.parseRsfFile(new ByteArrayInputStream(file), RsfDatasets.YEAR);
+    }
+}
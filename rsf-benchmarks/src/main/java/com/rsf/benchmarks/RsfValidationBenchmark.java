@@ -0,0 +1,127 @@
+package com.rsf.benchmarks;
+
+import com.rsf.rsf.domain.validation.ExpectedLineCountRule;
+import com.rsf.rsf.domain.validation.FieldValidationRule;
+import com.rsf.rsf.domain.validation.KeyFieldMatchValidationRule;
+import com.rsf.rsf.domain.validation.LineOrderValidationRule;
+import com.rsf.rsf.domain.validation.RsfValidationResult;
+import com.rsf.rsf.domain.validation.RsfValidationRule;
+import com.rsf.rsf.service.RsfValidationService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * {@link RsfValidationService#validateRsfData} with all its rules, each of those rules alone,
+ * and {@link RsfValidationService#validateField} one field at a time.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class RsfValidationBenchmark {
+
+    /**
+     * The rules of {@link RsfValidationService}, in the order it registers them.
+     */
+    public enum Rule {
+        FIELDS(FieldValidationRule::new),
+        LINE_ORDER(validation -> new LineOrderValidationRule()),
+        KEY_FIELD_MATCH(validation -> new KeyFieldMatchValidationRule()),
+        EXPECTED_LINE_COUNT(validation -> new ExpectedLineCountRule());
+
+        private final Function<RsfValidationService, RsfValidationRule> factory;
+
+        Rule(Function<RsfValidationService, RsfValidationRule> factory) {
+            this.factory = factory;
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Dataset {
+        @Param({"10000", "100000", "1000000"})
+        int lines;
+
+        RsfValidationService validation;
+        Map<Character, List<Map<String, String>>> data;
+
+        @Setup
+        public void setUp() {
+            validation = RsfDatasets.validation();
+            data = RsfDatasets.rsfData(lines);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class SingleRule {
+        @Param
+        Rule rule;
+
+        RsfValidationRule validator;
+
+        @Setup
+        public void setUp() {
+            validator = rule.factory.apply(RsfDatasets.validation());
+        }
+    }
+
+    /**
+     * The fields of one stay, validated in turn.
+     */
+    @State(Scope.Thread)
+    public static class Fields {
+        record Field(char lineType, String name, String value) {}
+
+        RsfValidationService validation;
+        Field[] fields;
+        int next;
+
+        @Setup
+        public void setUp() {
+            validation = RsfDatasets.validation();
+            List<Field> stay = new ArrayList<>();
+            RsfDatasets.rsfData(RsfDatasets.STAY.length()).forEach((lineType, lines) -> lines.forEach(line ->
+                    line.forEach((name, value) -> stay.add(new Field(lineType, name, value)))));
+            fields = stay.toArray(Field[]::new);
+        }
+
+        Field next() {
+            Field field = fields[next];
+            next = next + 1 == fields.length ? 0 : next + 1;
+            return field;
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public RsfValidationResult validateRsfData(Dataset dataset) {
+        return dataset.validation.validateRsfData(dataset.data);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public RsfValidationResult validateRule(Dataset dataset, SingleRule rule) {
+        return rule.validator.validate(dataset.data);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public List<String> validateField(Fields fields) {
+        Fields.Field field = fields.next();
+        return fields.validation.validateField(field.lineType(), field.name(), field.value());
+    }
+}
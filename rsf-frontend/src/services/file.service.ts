@@ -7,10 +7,6 @@ export interface FileResponse {
   type: string;
   status: 'QUEUED' | 'PROCESSING' | 'READY' | 'ERROR';
   uploadedAt: string;
-  uploader: {
-    id: number;
-    username: string;
-  };
 }
 
 export const FileService = {
@@ -41,7 +37,7 @@ export const FileService = {
     return response.data;
   },
   
-  getFileStatus: async (fileId: string): Promise<{ status: string }> => {
+  getFileStatus: async (fileId: string): Promise<{ status: string; progress?: number }> => {
     const response = await api.get(`/files/${fileId}/status`);
     return response.data;
   },
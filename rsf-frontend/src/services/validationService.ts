@@ -54,6 +54,7 @@ export async function getAllErrors(params?: {
   errorType?: string;
   fileId?: string;
   fieldName?: string;
+  after?: number;
   page?: number;
   size?: number;
   sort?: string;
@@ -81,4 +82,22 @@ export async function fixValidationError(errorId: string): Promise<any> {
     console.error(`Error fixing validation error ${errorId}:`, error);
     throw error;
   }
-} 
\ No newline at end of file
+} 
+/**
+ * Fixes errors of a file in bulk, producing a new version of the file
+ * @param request - The file and either the error ids or filters picking the errors
+ */
+export async function fixValidationErrors(request: {
+  fileId: string;
+  errorIds?: number[];
+  errorType?: string;
+  fieldName?: string;
+}): Promise<any> {
+  try {
+    const response = await apiClient.post('/validation/fix', request);
+    return response.data;
+  } catch (error) {
+    console.error(`Error fixing validation errors of file ${request.fileId}:`, error);
+    throw error;
+  }
+}
@@ -43,6 +43,7 @@ export interface ErrorsByFile {
 export interface ValidationDashboardData {
   summary: ValidationSummary;
   stats: ValidationStat[];
+  errorsByDay?: { date: string; value: number }[];
   errorsByFile: ErrorsByFile;
   errors: ValidationError[];
 }
@@ -52,4 +53,5 @@ export interface ValidationErrorResponse {
   totalItems: number;
   totalPages: number;
   currentPage: number;
+  nextCursor: number | null; // pass as `after` to fetch the following page
 } 
\ No newline at end of file